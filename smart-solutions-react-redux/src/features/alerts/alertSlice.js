@@ -20,6 +20,8 @@ export const acknowledgeAlert = createAsyncThunk(
   }
 );
 
+const LEAVES_UNACKNOWLEDGED = ['ACKNOWLEDGED', 'RESOLVED', 'SUPPRESSED', 'DELETED'];
+
 const alertSlice = createSlice({
   name: 'alerts',
   initialState: {
@@ -36,6 +38,21 @@ const alertSlice = createSlice({
     setDateRange: (state, action) => {
       state.dateRange = action.payload;
     },
+    // Applies one change pushed by the alert stream to the dashboard's unacknowledged list;
+    // alerts that were acknowledged, resolved, suppressed or deleted leave the list
+    alertEventReceived: (state, action) => {
+      const { type, alert } = action.payload;
+      const index = state.alerts.findIndex(a => a.id === alert.id);
+      if (LEAVES_UNACKNOWLEDGED.includes(type) || alert.acknowledged) {
+        if (index !== -1) {
+          state.alerts.splice(index, 1);
+        }
+      } else if (index !== -1) {
+        state.alerts[index] = alert;
+      } else if (type === 'CREATED') {
+        state.alerts.unshift(alert);
+      }
+    },
   },
   extraReducers: (builder) => {
     builder
@@ -66,6 +83,7 @@ const alertSlice = createSlice({
 //Export actions
 export const { 
   setDateRange,
+  alertEventReceived,
 } = alertSlice.actions;
 
 export const selectAllAlerts = (state) => state.alerts.alerts;
@@ -25,6 +25,7 @@ import {
 import { Bar } from 'react-chartjs-2';
 import 'chart.js/auto';
 import { checkAuthState } from '../features/auth/authSlice';
+import { alertAPI } from '../services/api';
 import {
   fetchLatestReadings,
   selectLatestReadings,
@@ -37,6 +38,7 @@ import {
 } from '../features/devices/deviceSlice';
 import {
   fetchAlerts,
+  alertEventReceived,
   selectUnreadAlerts,
   selectAlertsLoadingStatus
 } from '../features/alerts/alertSlice';
@@ -69,15 +71,27 @@ const Dashboard = () => {
     dispatch(fetchDevices());
     dispatch(fetchAlerts({ status: 'Unacknowledged' }));
 
-    // Set up polling for real-time updates (every 30 seconds)
+    // Set up polling for readings; alerts arrive over the alert stream
     const interval = setInterval(() => {
       dispatch(fetchLatestReadings());
-      dispatch(fetchAlerts({ status: 'Unacknowledged' }));
     }, 300000); // Every 5 minutes
 
     return () => clearInterval(interval);
   }, [dispatch, userId]);
 
+  // Live alert changes instead of re-running the alert query on a timer
+  useEffect(() => {
+    const stream = alertAPI.openAlertStream();
+    const onAlertEvent = (event) => dispatch(alertEventReceived(JSON.parse(event.data)));
+    const eventTypes = ['created', 'updated', 'acknowledged', 'resolved', 'suppressed', 'escalated', 'deleted'];
+
+    eventTypes.forEach(type => stream.addEventListener(type, onAlertEvent));
+    // The server could not replay what we missed, so reload the list
+    stream.addEventListener('reset', () => dispatch(fetchAlerts({ status: 'Unacknowledged' })));
+
+    return () => stream.close();
+  }, [dispatch]);
+
   //For Debugging
   // useEffect(() => {
   //   console.log('Latest readings from Redux:', latestReadings);
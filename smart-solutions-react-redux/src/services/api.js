@@ -51,4 +51,6 @@ export const sensorAPI = {
 export const alertAPI = {
   getAlerts: (filters) => API.get('/alerts/getAllAlerts', { params: filters }),
   acknowledgeAlert: (alertId) => API.patch(`/alerts/acknowledgeAlert/${alertId}`),
+  // EventSource reconnects on its own and resends Last-Event-ID
+  openAlertStream: () => new EventSource(`${API.defaults.baseURL}/alerts/stream`),
 };
\ No newline at end of file
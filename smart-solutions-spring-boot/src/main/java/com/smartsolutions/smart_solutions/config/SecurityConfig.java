@@ -46,6 +46,7 @@ public class SecurityConfig {
                                 "/api/v1/sensor-data/**",
                                 "/api/v1/devices/**",
                                 "/api/v1/users/**",
+                                "/ws/**",
                                 "/v3/api-docs",
                                 "/v3/api-docs/**",
                                 "/swagger-ui/**",
@@ -0,0 +1,54 @@
+package com.smartsolutions.smart_solutions.config;
+
+import com.smartsolutions.smart_solutions.controller.SensorStreamEndpoint;
+import jakarta.servlet.ServletContext;
+import jakarta.websocket.DeploymentException;
+import jakarta.websocket.server.ServerContainer;
+import jakarta.websocket.server.ServerEndpointConfig;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.ServletContextAware;
+
+// Registers the Spring-managed WebSocket endpoints with the servlet container's
+// jakarta.websocket ServerContainer (provided by embedded Tomcat)
+@Configuration
+public class WebSocketConfig implements ServletContextAware, SmartInitializingSingleton {
+
+    private final SensorStreamEndpoint sensorStreamEndpoint;
+    private ServletContext servletContext;
+
+    public WebSocketConfig(SensorStreamEndpoint sensorStreamEndpoint) {
+        this.sensorStreamEndpoint = sensorStreamEndpoint;
+    }
+
+    @Override
+    public void setServletContext(ServletContext servletContext) {
+        this.servletContext = servletContext;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        ServerContainer serverContainer = servletContext != null
+                ? (ServerContainer) servletContext.getAttribute(ServerContainer.class.getName())
+                : null;
+        // Absent in tests that run without a servlet container
+        if (serverContainer == null) {
+            return;
+        }
+
+        ServerEndpointConfig config = ServerEndpointConfig.Builder
+                .create(SensorStreamEndpoint.class, SensorStreamEndpoint.PATH)
+                .configurator(new ServerEndpointConfig.Configurator() {
+                    @Override
+                    public <T> T getEndpointInstance(Class<T> endpointClass) {
+                        return endpointClass.cast(sensorStreamEndpoint);
+                    }
+                })
+                .build();
+        try {
+            serverContainer.addEndpoint(config);
+        } catch (DeploymentException e) {
+            throw new IllegalStateException("Failed to register " + SensorStreamEndpoint.PATH, e);
+        }
+    }
+}
@@ -1,13 +1,23 @@
 package com.smartsolutions.smart_solutions.controller;
 
 import com.smartsolutions.smart_solutions.dto.AlertDTO;
+import com.smartsolutions.smart_solutions.dto.AlertHistogramDTO;
+import com.smartsolutions.smart_solutions.dto.AlertResponseTimeDTO;
+import com.smartsolutions.smart_solutions.dto.AlertSearchResultDTO;
+import com.smartsolutions.smart_solutions.dto.BulkAlertRequest;
+import com.smartsolutions.smart_solutions.dto.BulkAlertResultDTO;
+import com.smartsolutions.smart_solutions.exception.BadRequestException;
 import com.smartsolutions.smart_solutions.model.Alert;
 import com.smartsolutions.smart_solutions.model.Device;
 import com.smartsolutions.smart_solutions.model.User;
 import com.smartsolutions.smart_solutions.repository.AlertRepository;
 import com.smartsolutions.smart_solutions.repository.DeviceRepository;
 import com.smartsolutions.smart_solutions.repository.UserRepository;
+import com.smartsolutions.smart_solutions.service.AlertAnalyticsService;
+import com.smartsolutions.smart_solutions.service.AlertSearchService;
+import com.smartsolutions.smart_solutions.service.AlertTransitionService;
 import com.smartsolutions.smart_solutions.service.AlertService;
+import com.smartsolutions.smart_solutions.service.AlertStreamService;
 import com.smartsolutions.smart_solutions.util.AlertMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -30,12 +40,14 @@ import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/v1/alerts")
@@ -48,9 +60,17 @@ public class AlertController {
     private final AlertMapper alertMapper;
     private final UserRepository userRepository;
     private final DeviceRepository deviceRepository;
+    private final AlertStreamService alertStreamService;
+    private final AlertTransitionService alertTransitionService;
+    private final AlertAnalyticsService alertAnalyticsService;
+    private final AlertSearchService alertSearchService;
 
-    public AlertController(AlertRepository alertRepository, UserRepository userRepository, DeviceRepository deviceRepository, AlertService alertService, AlertMapper alertMapper) {
+    public AlertController(AlertRepository alertRepository, UserRepository userRepository, DeviceRepository deviceRepository, AlertService alertService, AlertMapper alertMapper, AlertStreamService alertStreamService, AlertTransitionService alertTransitionService, AlertAnalyticsService alertAnalyticsService, AlertSearchService alertSearchService) {
         this.alertRepository = alertRepository;
+        this.alertSearchService = alertSearchService;
+        this.alertAnalyticsService = alertAnalyticsService;
+        this.alertTransitionService = alertTransitionService;
+        this.alertStreamService = alertStreamService;
         this.alertService = alertService;
         this.alertMapper = alertMapper;
         this.userRepository = userRepository;
@@ -90,7 +110,7 @@ public class AlertController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant endDate) {
 
-        Page<Alert> alerts = alertService.findAlertsWithFilters(
+        Page<AlertDTO> dtoPage = alertService.findAlertViewsWithFilters(
                 deviceId,
                 alertType,
                 severity,
@@ -100,10 +120,40 @@ public class AlertController {
                 endDate,
                 pageable
         );
-        Page<AlertDTO> dtoPage = alerts.map(alertMapper::toDto);
         return ResponseEntity.ok(dtoPage);
     }
 
+    @Operation(
+            summary = "Search alerts",
+            description = "Full-text search over alert type and message (web search syntax: quoted phrases, OR, -word) " +
+                    "and/or containment on additional data, combinable with the listing filters. Results are ranked " +
+                    "best match first; pass nextCursor back as cursor for the next page. Archived alerts are not searched."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successfully searched alerts"),
+            @ApiResponse(responseCode = "400", description = "No search criteria, invalid JSON, page size or cursor")
+    })
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<AlertSearchResultDTO> searchAlerts(
+            @Parameter(description = "Search text", example = "compressor -test")
+            @RequestParam(required = false) String q,
+            @Parameter(description = "JSON object the alert's additional data must contain", example = "{\"serialNumber\": \"SN-48213\"}")
+            @RequestParam(required = false) String data,
+            @RequestParam(required = false) Long deviceId,
+            @RequestParam(required = false) String alertType,
+            @RequestParam(required = false) Alert.Severity severity,
+            @RequestParam(required = false) Alert.AlertStatus status,
+            @RequestParam(required = false) Boolean isActive,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant endDate,
+            @Parameter(description = "Page size", example = "20")
+            @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "nextCursor of the previous page")
+            @RequestParam(required = false) String cursor) {
+        return ResponseEntity.ok(alertSearchService.search(
+                q, data, deviceId, alertType, severity, status, isActive, startDate, endDate, size, cursor));
+    }
+
     @Operation(
             summary = "Get alert by ID",
             description = "Retrieve a single alert by its unique identifier"
@@ -210,6 +260,7 @@ public class AlertController {
             @ApiResponse(responseCode = "200", description = "Alert acknowledged successfully"),
             @ApiResponse(responseCode = "400", description = "Invalid user ID"),
             @ApiResponse(responseCode = "404", description = "Alert not found"),
+            @ApiResponse(responseCode = "409", description = "Alert is not Open or Unacknowledged"),
             @ApiResponse(responseCode = "401", description = "Unauthorized")
     })
     @PatchMapping("/acknowledgeAlert/{id}")
@@ -219,8 +270,7 @@ public class AlertController {
             @Parameter(description = "User ID from X-User-Id header", required = true)
             HttpServletRequest request) {
         String userIdStr = request.getHeader("X-User-Id");
-        Alert acknowledgedAlert = alertService.acknowledgeAlert(id, Long.valueOf(userIdStr));
-        return ResponseEntity.ok(alertMapper.toDto(acknowledgedAlert));
+        return ResponseEntity.ok(alertService.acknowledgeAlert(id, Long.valueOf(userIdStr)));
     }
 
     @Operation(
@@ -231,6 +281,7 @@ public class AlertController {
             @ApiResponse(responseCode = "200", description = "Alert resolved successfully"),
             @ApiResponse(responseCode = "400", description = "Invalid user ID"),
             @ApiResponse(responseCode = "404", description = "Alert not found"),
+            @ApiResponse(responseCode = "409", description = "Alert is already resolved"),
             @ApiResponse(responseCode = "401", description = "Unauthorized")
     })
     @PutMapping("/resolveAlert/{id}")
@@ -240,8 +291,7 @@ public class AlertController {
             @Parameter(description = "User ID from X-User-Id header", required = true)
             HttpServletRequest request) {
         String userIdStr = request.getHeader("X-User-Id");
-        Alert resolvedAlert = alertService.resolveAlert(id, Long.valueOf(userIdStr));
-        return ResponseEntity.ok(alertMapper.toDto(resolvedAlert));
+        return ResponseEntity.ok(alertService.resolveAlert(id, Long.valueOf(userIdStr)));
     }
 
     @Operation(
@@ -269,14 +319,50 @@ public class AlertController {
         return ResponseEntity.ok(updatedCount);
     }
 
+    @Operation(
+            summary = "Bulk alert operation",
+            description = "Acknowledges, resolves, suppresses or deletes every alert selected by the request: either " +
+                    "explicit alertIds or the same filters as the alert listing. Alerts whose status the action " +
+                    "does not apply to are skipped. Runs in chunks that each commit on their own."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Operation applied, with the number of affected alerts"),
+            @ApiResponse(responseCode = "400", description = "Unknown action, or neither ids nor filters given"),
+            @ApiResponse(responseCode = "404", description = "User not found")
+    })
+    @PostMapping(value = "/bulk/{action}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkAlertResultDTO> bulkAlertOperation(
+            @Parameter(description = "acknowledge, resolve, suppress or delete", example = "acknowledge")
+            @PathVariable String action,
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Alert ids or filter criteria",
+                    content = @Content(
+                            examples = @ExampleObject(value = "{\"deviceId\": 42, \"severity\": \"Critical\", \"status\": \"Open\"}")
+                    )
+            )
+            @RequestBody BulkAlertRequest bulkRequest,
+            HttpServletRequest request) {
+        AlertTransitionService.Action bulkAction;
+        try {
+            bulkAction = AlertTransitionService.Action.valueOf(action.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Unknown bulk action: " + action);
+        }
+        String userIdStr = request.getHeader("X-User-Id");
+        Long userId = userIdStr != null ? Long.valueOf(userIdStr) : null;
+        return ResponseEntity.ok(alertTransitionService.apply(bulkAction, bulkRequest, userId));
+    }
+
     @Operation(
             summary = "Count alerts by severity",
             description = "Returns a count of alerts grouped by severity level"
     )
     @ApiResponse(responseCode = "200", description = "Successfully retrieved counts")
     @GetMapping("/count-by-severity")
-    public ResponseEntity<Map<Alert.Severity, Long>> countAlertsBySeverity() {
-        return ResponseEntity.ok(alertService.countAlertsBySeverity());
+    public ResponseEntity<Map<Alert.Severity, Long>> countAlertsBySeverity(
+            @Parameter(description = "Only count alerts of devices of this type", example = "1")
+            @RequestParam(required = false) Long deviceTypeId) {
+        return ResponseEntity.ok(alertService.countAlertsBySeverity(deviceTypeId));
     }
 
     @Operation(
@@ -285,8 +371,53 @@ public class AlertController {
     )
     @ApiResponse(responseCode = "200", description = "Successfully retrieved counts")
     @GetMapping("/count-by-status")
-    public ResponseEntity<Map<Alert.AlertStatus, Long>> countAlertsByStatus() {
-        return ResponseEntity.ok(alertService.countAlertsByStatus());
+    public ResponseEntity<Map<Alert.AlertStatus, Long>> countAlertsByStatus(
+            @Parameter(description = "Only count alerts of devices of this type", example = "1")
+            @RequestParam(required = false) Long deviceTypeId) {
+        return ResponseEntity.ok(alertService.countAlertsByStatus(deviceTypeId));
+    }
+
+    @Operation(
+            summary = "Alert histogram",
+            description = "Counts alerts created per time bucket, grouped by severity, alert type or device type. " +
+                    "The range is rounded out to whole buckets, aligned to 2000-01-01T00:00:00Z. Closed buckets are " +
+                    "served from a cache; only the current bucket is recounted on every call."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successfully computed histogram"),
+            @ApiResponse(responseCode = "400", description = "Invalid range or bucket width, or too many buckets")
+    })
+    @GetMapping(value = "/analytics/histogram", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<AlertHistogramDTO> getAlertHistogram(
+            @Parameter(description = "Range start (ISO format)", example = "2024-01-01T00:00:00Z")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant startDate,
+            @Parameter(description = "Range end, exclusive (ISO format)", example = "2024-01-31T00:00:00Z")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant endDate,
+            @Parameter(description = "Bucket width in minutes", example = "60")
+            @RequestParam(defaultValue = "60") int bucketMinutes,
+            @Parameter(description = "SEVERITY, ALERT_TYPE, DEVICE_TYPE or NONE", example = "SEVERITY")
+            @RequestParam(defaultValue = "SEVERITY") AlertAnalyticsService.GroupBy groupBy) {
+        return ResponseEntity.ok(alertAnalyticsService.histogram(startDate, endDate, bucketMinutes, groupBy));
+    }
+
+    @Operation(
+            summary = "Alert response times",
+            description = "Mean and 50th/90th/99th percentile seconds from creation to acknowledgement and to " +
+                    "resolution, for alerts created in the range"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successfully computed response times"),
+            @ApiResponse(responseCode = "400", description = "Invalid range")
+    })
+    @GetMapping(value = "/analytics/response-times", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<AlertResponseTimeDTO>> getAlertResponseTimes(
+            @Parameter(description = "Range start (ISO format)", example = "2024-01-01T00:00:00Z")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant startDate,
+            @Parameter(description = "Range end, exclusive (ISO format)", example = "2024-01-31T00:00:00Z")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant endDate,
+            @Parameter(description = "SEVERITY, ALERT_TYPE, DEVICE_TYPE or NONE", example = "SEVERITY")
+            @RequestParam(defaultValue = "SEVERITY") AlertAnalyticsService.GroupBy groupBy) {
+        return ResponseEntity.ok(alertAnalyticsService.responseTimes(startDate, endDate, groupBy));
     }
 
     @Operation(
@@ -307,6 +438,24 @@ public class AlertController {
         return ResponseEntity.ok(alertMapper.toDtoList(alerts));
     }
 
+    @Operation(
+            summary = "Get latest alerts for many devices",
+            description = "The most recent alerts of each requested device (up to 500 devices), keyed by device ID " +
+                    "in request order. Devices without alerts map to an empty list."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved alerts"),
+            @ApiResponse(responseCode = "400", description = "Too many devices or count out of range")
+    })
+    @GetMapping(value = "/device/latest", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<Long, List<AlertDTO>>> getLatestAlertsForDevices(
+            @Parameter(description = "Comma-separated device IDs", example = "1,2,3")
+            @RequestParam List<Long> deviceIds,
+            @Parameter(description = "Number of alerts per device", example = "3")
+            @RequestParam(defaultValue = "3") int count) {
+        return ResponseEntity.ok(alertService.findLatestAlertViews(deviceIds, count));
+    }
+
     @Operation(
             summary = "Get critical unacknowledged alerts",
             description = "Retrieves all critical alerts that haven't been acknowledged"
@@ -314,8 +463,28 @@ public class AlertController {
     @ApiResponse(responseCode = "200", description = "Successfully retrieved alerts")
     @GetMapping("/critical-unacknowledged")
     public ResponseEntity<List<AlertDTO>> getCriticalUnacknowledgedAlerts() {
-        List<Alert> alerts = alertService.findCriticalUnacknowledgedAlerts();
-        return ResponseEntity.ok(alertMapper.toDtoList(alerts));
+        return ResponseEntity.ok(alertService.findCriticalUnacknowledgedAlerts());
+    }
+
+    @Operation(
+            summary = "Stream alert changes",
+            description = "Server-Sent Events stream of alert changes (created, updated, acknowledged, resolved, deleted). " +
+                    "Reconnecting clients send Last-Event-ID to replay missed events; a 'reset' event means the gap " +
+                    "is too old to replay and the client should refetch."
+    )
+    @ApiResponse(responseCode = "200", description = "Event stream opened")
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAlerts(
+            @Parameter(description = "Only stream alerts with these severities", example = "Critical")
+            @RequestParam(required = false) Set<Alert.Severity> severity,
+            @Parameter(description = "Only stream alerts of these devices", example = "1")
+            @RequestParam(required = false) Set<Long> deviceId,
+            @Parameter(in = ParameterIn.HEADER, description = "Id of the last event the client received")
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return alertStreamService.subscribe(
+                severity != null ? severity : Set.of(),
+                deviceId != null ? deviceId : Set.of(),
+                lastEventId);
     }
 
     @Operation(
@@ -331,7 +500,7 @@ public class AlertController {
     public ResponseEntity<Void> deleteAlert(
             @Parameter(description = "ID of the alert to delete", example = "1")
             @PathVariable Long id) {
-        alertRepository.deleteById(id);
+        alertService.deleteAlert(id);
         return ResponseEntity.noContent().build();
     }
 }
\ No newline at end of file
@@ -2,12 +2,15 @@ package com.smartsolutions.smart_solutions.controller;
 
 import com.smartsolutions.smart_solutions.dto.DeviceDTO;
 import com.smartsolutions.smart_solutions.dto.SensorDataDTO;
+import com.smartsolutions.smart_solutions.dto.SensorDataPointDTO;
 import com.smartsolutions.smart_solutions.model.*;
 import com.smartsolutions.smart_solutions.repository.DeviceTypeRepository;
 import com.smartsolutions.smart_solutions.repository.LocationRepository;
 import com.smartsolutions.smart_solutions.repository.UserRepository;
+import com.smartsolutions.smart_solutions.service.DeviceRegistryCache;
 import com.smartsolutions.smart_solutions.service.DeviceService;
 import com.smartsolutions.smart_solutions.util.DeviceMapper;
+import com.smartsolutions.smart_solutions.util.SensorDataDownsampler;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -94,6 +97,37 @@ public class DeviceController {
         return ResponseEntity.ok(deviceService.getDeviceById(id));
     }
 
+    @Operation(
+            summary = "Look up a device by serial number or MAC address",
+            description = "Resolves the identity a device reports itself with; served from the device registry cache"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Device found",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = DeviceRegistryCache.DeviceSnapshot.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Neither or both of serial number and MAC address given"
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Device not found"
+            )
+    })
+    @GetMapping("/lookup")
+    public ResponseEntity<DeviceRegistryCache.DeviceSnapshot> lookupDevice(
+            @Parameter(description = "Serial number of the device", example = "SN-1000")
+            @RequestParam(required = false) String serialNumber,
+            @Parameter(description = "MAC address of the device", example = "00:1A:2B:3C:4D:5E")
+            @RequestParam(required = false) String macAddress) {
+        return ResponseEntity.ok(deviceService.lookupDevice(serialNumber, macAddress));
+    }
+
     @Operation(
             summary = "Create a new device",
             description = "Registers a new IoT device in the system"
@@ -266,6 +300,52 @@ public class DeviceController {
         return ResponseEntity.ok(data);
     }
 
+    @Operation(
+            summary = "Get downsampled device sensor data",
+            description = "Reduces a sensor's readings over a time range to at most the requested number of points for charting",
+            parameters = {
+                    @Parameter(name = "deviceId", description = "Device ID", example = "1"),
+                    @Parameter(name = "sensorType", description = "Sensor type to downsample", example = "Temperature"),
+                    @Parameter(name = "startDate", description = "Range start (ISO format)", example = "2023-01-01T00:00:00Z"),
+                    @Parameter(name = "endDate", description = "Range end (ISO format)", example = "2023-12-31T23:59:59Z"),
+                    @Parameter(name = "points", description = "Maximum number of points to return (default: 1000)", example = "1000"),
+                    @Parameter(name = "mode", description = "Downsampling algorithm", schema = @Schema(implementation = SensorDataDownsampler.Mode.class))
+            }
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Successfully downsampled sensor data",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = SensorDataPointDTO[].class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid range or point count"
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Device not found"
+            )
+    })
+    @GetMapping(
+            value = "/sensor-data/{deviceId}/downsampled",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public ResponseEntity<List<SensorDataPointDTO>> getDownsampledSensorData(
+            @PathVariable Long deviceId,
+            @RequestParam String sensorType,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant endDate,
+            @RequestParam(defaultValue = "1000") int points,
+            @RequestParam(defaultValue = "LTTB") SensorDataDownsampler.Mode mode) {
+
+        return ResponseEntity.ok(deviceService.getDownsampledSensorData(
+                deviceId, sensorType, startDate, endDate, points, mode));
+    }
+
     @Operation(
             summary = "Get device sensor types",
             description = "Retrieves a list of all sensor types available for a device"
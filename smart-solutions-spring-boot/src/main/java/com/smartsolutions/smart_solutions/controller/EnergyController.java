@@ -0,0 +1,116 @@
+package com.smartsolutions.smart_solutions.controller;
+
+import com.smartsolutions.smart_solutions.dto.EnergyCounterDTO;
+import com.smartsolutions.smart_solutions.dto.EnergyTotalDTO;
+import com.smartsolutions.smart_solutions.model.DeviceEnergyCounter;
+import com.smartsolutions.smart_solutions.service.EnergyMeterService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/sensor-data/energy")
+@RequiredArgsConstructor
+@Tag(name = "Energy", description = "Energy consumption derived from power readings")
+@SecurityRequirement(name = "bearerAuth")
+public class EnergyController {
+
+    private final EnergyMeterService energyMeterService;
+
+    @Operation(
+            summary = "Get device energy counters",
+            description = "Returns hourly or daily kWh counters of a device; counters are flushed every few seconds",
+            parameters = {
+                    @Parameter(name = "deviceId", description = "Device ID", example = "1"),
+                    @Parameter(name = "granularity", description = "Counter granularity", schema = @Schema(implementation = DeviceEnergyCounter.Granularity.class)),
+                    @Parameter(name = "startDate", description = "Range start (ISO format)", example = "2024-01-01T00:00:00Z"),
+                    @Parameter(name = "endDate", description = "Range end, exclusive (ISO format)", example = "2024-01-02T00:00:00Z")
+            }
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Successfully retrieved energy counters",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = EnergyCounterDTO[].class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid range"
+            )
+    })
+    @GetMapping(value = "/devices/{deviceId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<EnergyCounterDTO>> getDeviceEnergy(
+            @PathVariable Long deviceId,
+            @RequestParam(defaultValue = "HOUR") DeviceEnergyCounter.Granularity granularity,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant endDate) {
+        return ResponseEntity.ok(energyMeterService.getDeviceEnergy(deviceId, granularity, startDate, endDate));
+    }
+
+    @Operation(
+            summary = "Get fleet energy total",
+            description = "Sums the daily counters of all devices for the days starting in the range"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Successfully computed fleet energy",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = EnergyTotalDTO.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid range"
+            )
+    })
+    @GetMapping(value = "/fleet", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<EnergyTotalDTO> getFleetEnergy(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant endDate) {
+        return ResponseEntity.ok(energyMeterService.getFleetEnergy(startDate, endDate));
+    }
+
+    @Operation(
+            summary = "Get location energy total",
+            description = "Sums the daily counters of the devices at a location for the days starting in the range"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Successfully computed location energy",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = EnergyTotalDTO.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid range"
+            )
+    })
+    @GetMapping(value = "/locations/{locationId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<EnergyTotalDTO> getLocationEnergy(
+            @PathVariable Long locationId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant endDate) {
+        return ResponseEntity.ok(energyMeterService.getLocationEnergy(locationId, startDate, endDate));
+    }
+}
@@ -0,0 +1,86 @@
+package com.smartsolutions.smart_solutions.controller;
+
+import com.smartsolutions.smart_solutions.dto.DeviceDTO;
+import com.smartsolutions.smart_solutions.dto.LocationRollupDTO;
+import com.smartsolutions.smart_solutions.service.LocationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/locations")
+@RequiredArgsConstructor
+@Tag(name = "Locations", description = "Devices and rollups over a location and its sub-locations")
+@SecurityRequirement(name = "bearerAuth")
+public class LocationController {
+
+    private final LocationService locationService;
+
+    @Operation(
+            summary = "Get devices below a location",
+            description = "Retrieves a paginated list of the devices in a location and all of its sub-locations",
+            parameters = {
+                    @Parameter(name = "page", description = "Page number (0-based)", example = "0"),
+                    @Parameter(name = "size", description = "Page size", example = "20"),
+                    @Parameter(name = "sort", description = "Sorting criteria (field,direction)", example = "name,asc")
+            }
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Successfully retrieved device list",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = Page.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Location not found"
+            )
+    })
+    @GetMapping(value = "/{locationId}/devices", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Page<DeviceDTO>> getSubtreeDevices(
+            @Parameter(description = "ID of the location", example = "1")
+            @PathVariable Long locationId,
+            Pageable pageable) {
+        return ResponseEntity.ok(locationService.getSubtreeDevices(locationId, pageable));
+    }
+
+    @Operation(
+            summary = "Get the rollup of a location",
+            description = "Device count, online count, active alerts and the average of each device's latest reading " +
+                    "per sensor type over a location and all of its sub-locations; served from memory"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Successfully retrieved the rollup",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = LocationRollupDTO.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Location not found"
+            )
+    })
+    @GetMapping(value = "/{locationId}/rollup", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<LocationRollupDTO> getSubtreeRollup(
+            @Parameter(description = "ID of the location", example = "1")
+            @PathVariable Long locationId) {
+        return ResponseEntity.ok(locationService.getSubtreeRollup(locationId));
+    }
+}
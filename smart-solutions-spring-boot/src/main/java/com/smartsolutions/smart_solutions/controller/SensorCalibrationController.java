@@ -0,0 +1,97 @@
+package com.smartsolutions.smart_solutions.controller;
+
+import com.smartsolutions.smart_solutions.dto.SensorCalibrationDTO;
+import com.smartsolutions.smart_solutions.service.SensorCalibrationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/devices/{deviceId}/calibrations")
+@RequiredArgsConstructor
+@Tag(name = "Sensor Calibration", description = "Calibration offsets and gains applied to incoming readings")
+@SecurityRequirement(name = "bearerAuth")
+public class SensorCalibrationController {
+
+    private final SensorCalibrationService calibrationService;
+
+    @Operation(
+            summary = "Get device calibrations",
+            description = "Lists the calibration history of a device, newest first per sensor type"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Successfully retrieved calibrations",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = SensorCalibrationDTO[].class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Device not found"
+            )
+    })
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<SensorCalibrationDTO>> getCalibrations(
+            @Parameter(description = "Device ID", example = "1")
+            @PathVariable Long deviceId) {
+        return ResponseEntity.ok(calibrationService.getCalibrations(deviceId));
+    }
+
+    @Operation(
+            summary = "Record a calibration",
+            description = "Applies to readings ingested from now on. A past effective-from also schedules " +
+                    "re-correction of the readings stored since then, including their energy counters"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "201",
+                    description = "Calibration recorded",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = SensorCalibrationDTO.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid gain, offset or effective-from"
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Device not found"
+            )
+    })
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<SensorCalibrationDTO> createCalibration(
+            @Parameter(description = "Device ID", example = "1")
+            @PathVariable Long deviceId,
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Calibration payload",
+                    required = true,
+                    content = @Content(
+                            schema = @Schema(implementation = SensorCalibrationDTO.class),
+                            examples = @ExampleObject(
+                                    value = "{\"sensorType\": \"Temperature\", \"gain\": 1.02, \"offset\": -0.4, \"effectiveFrom\": \"2024-01-01T00:00:00.000Z\"}"
+                            )
+                    )
+            )
+            @RequestBody @Valid SensorCalibrationDTO calibration) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(calibrationService.createCalibration(deviceId, calibration));
+    }
+}
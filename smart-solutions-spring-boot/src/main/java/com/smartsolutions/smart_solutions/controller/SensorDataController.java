@@ -1,7 +1,10 @@
 package com.smartsolutions.smart_solutions.controller;
 
+import com.smartsolutions.smart_solutions.dto.AlignedSensorDataDTO;
 import com.smartsolutions.smart_solutions.dto.SensorDataDTO;
+import com.smartsolutions.smart_solutions.dto.SensorStatisticsDTO;
 import com.smartsolutions.smart_solutions.service.SensorDataService;
+import com.smartsolutions.smart_solutions.util.SensorSeriesAligner;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -13,8 +16,12 @@ import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Instant;
 import java.util.List;
 
 @RestController
@@ -67,4 +74,120 @@ public class SensorDataController {
         List<SensorDataDTO> latestReadings = sensorDataService.getLatestReadings(count);
         return ResponseEntity.ok(latestReadings);
     }
-}
\ No newline at end of file
+
+    @Operation(
+            summary = "Get aligned multi-sensor readings",
+            description = "Averages several sensor types of one or more devices onto a common time grid and returns one row per device and bucket",
+            parameters = {
+                    @Parameter(name = "deviceIds", description = "Devices to include", example = "1,2"),
+                    @Parameter(name = "sensorTypes", description = "Sensor types, in column order", example = "Temperature,Humidity,Power"),
+                    @Parameter(name = "startDate", description = "Grid start (ISO format)", example = "2023-05-15T00:00:00Z"),
+                    @Parameter(name = "endDate", description = "Grid end, exclusive (ISO format)", example = "2023-05-16T00:00:00Z"),
+                    @Parameter(name = "bucket", description = "Bucket width as an ISO-8601 duration (default: PT5M)", example = "PT15M"),
+                    @Parameter(name = "fill", description = "How empty buckets are filled", schema = @Schema(implementation = SensorSeriesAligner.FillStrategy.class))
+            }
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Successfully aligned sensor readings",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = AlignedSensorDataDTO.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid range, bucket or grid too large"
+            )
+    })
+    @GetMapping(
+            value = "/aligned",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public ResponseEntity<AlignedSensorDataDTO> getAlignedReadings(
+            @RequestParam List<Long> deviceIds,
+            @RequestParam List<String> sensorTypes,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant endDate,
+            @RequestParam(defaultValue = "PT5M") String bucket,
+            @RequestParam(defaultValue = "NULL") SensorSeriesAligner.FillStrategy fill) {
+
+        return ResponseEntity.ok(sensorDataService.getAlignedReadings(
+                deviceIds, sensorTypes, startDate, endDate, bucket, fill));
+    }
+
+    @Operation(
+            summary = "Get sensor statistics",
+            description = "Computes count, min, max and average of a device's readings; long ranges are split by day and scanned in parallel",
+            parameters = {
+                    @Parameter(name = "deviceId", description = "Device ID", example = "1"),
+                    @Parameter(name = "sensorType", description = "Optional sensor type filter", example = "Temperature"),
+                    @Parameter(name = "startDate", description = "Range start (ISO format)", example = "2023-01-01T00:00:00Z"),
+                    @Parameter(name = "endDate", description = "Range end, exclusive (ISO format)", example = "2024-01-01T00:00:00Z")
+            }
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Successfully computed statistics",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = SensorStatisticsDTO.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid range"
+            )
+    })
+    @GetMapping(
+            value = "/statistics/{deviceId}",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public ResponseEntity<SensorStatisticsDTO> getStatistics(
+            @PathVariable Long deviceId,
+            @RequestParam(required = false) String sensorType,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant endDate) {
+
+        return ResponseEntity.ok(sensorDataService.getStatistics(deviceId, sensorType, startDate, endDate));
+    }
+
+    @Operation(
+            summary = "Export sensor readings as CSV",
+            description = "Streams a device's readings in time order; long ranges are fetched by day in parallel",
+            parameters = {
+                    @Parameter(name = "deviceId", description = "Device ID", example = "1"),
+                    @Parameter(name = "sensorType", description = "Optional sensor type filter", example = "Temperature"),
+                    @Parameter(name = "startDate", description = "Range start (ISO format)", example = "2023-01-01T00:00:00Z"),
+                    @Parameter(name = "endDate", description = "Range end, exclusive (ISO format)", example = "2024-01-01T00:00:00Z")
+            }
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "CSV stream of readings",
+                    content = @Content(mediaType = "text/csv")
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid range"
+            )
+    })
+    @GetMapping(value = "/export/{deviceId}", produces = "text/csv")
+    public ResponseEntity<StreamingResponseBody> exportReadings(
+            @PathVariable Long deviceId,
+            @RequestParam(required = false) String sensorType,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant endDate) {
+
+        StreamingResponseBody body = outputStream ->
+                sensorDataService.exportCsv(deviceId, sensorType, startDate, endDate, outputStream);
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"sensor-data-" + deviceId + ".csv\"")
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .body(body);
+    }
+}
@@ -0,0 +1,113 @@
+package com.smartsolutions.smart_solutions.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartsolutions.smart_solutions.service.SensorStreamHub;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Endpoint;
+import jakarta.websocket.EndpointConfig;
+import jakarta.websocket.MessageHandler;
+import jakarta.websocket.Session;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+// WebSocket endpoint at /ws/sensors. Clients send
+// {"action":"subscribe","deviceId":1,"sensorType":"Temperature"} (sensorType omitted for all types)
+// or "unsubscribe", and receive JSON arrays of readings.
+@Slf4j
+@Component
+public class SensorStreamEndpoint extends Endpoint {
+
+    public static final String PATH = "/ws/sensors";
+
+    private record Command(String action, Long deviceId, String sensorType) {
+    }
+
+    private final SensorStreamHub hub;
+    private final ObjectMapper objectMapper;
+    private final long sendTimeoutMs;
+
+    public SensorStreamEndpoint(
+            SensorStreamHub hub,
+            ObjectMapper objectMapper,
+            @Value("${sensor-stream.send-timeout-ms:10000}") long sendTimeoutMs) {
+        this.hub = hub;
+        this.objectMapper = objectMapper;
+        this.sendTimeoutMs = sendTimeoutMs;
+    }
+
+    @Override
+    public void onOpen(Session session, EndpointConfig config) {
+        // A frame that cannot be written within the timeout closes the connection
+        session.getAsyncRemote().setSendTimeout(sendTimeoutMs);
+        SensorStreamHub.Connection connection = hub.connect(new SessionSink(session));
+        session.getUserProperties().put(SensorStreamHub.Connection.class.getName(), connection);
+        session.addMessageHandler(String.class, (MessageHandler.Whole<String>) text -> onCommand(session, connection, text));
+    }
+
+    @Override
+    public void onClose(Session session, CloseReason closeReason) {
+        SensorStreamHub.Connection connection =
+                (SensorStreamHub.Connection) session.getUserProperties().get(SensorStreamHub.Connection.class.getName());
+        if (connection != null) {
+            hub.disconnect(connection);
+        }
+    }
+
+    @Override
+    public void onError(Session session, Throwable error) {
+        log.debug("Sensor stream connection {} failed: {}", session.getId(), error.getMessage());
+    }
+
+    private void onCommand(Session session, SensorStreamHub.Connection connection, String text) {
+        Command command;
+        try {
+            command = objectMapper.readValue(text, Command.class);
+        } catch (IOException e) {
+            close(session, CloseReason.CloseCodes.CANNOT_ACCEPT, "Malformed command");
+            return;
+        }
+        if (command.deviceId() == null) {
+            close(session, CloseReason.CloseCodes.CANNOT_ACCEPT, "deviceId is required");
+            return;
+        }
+
+        if ("subscribe".equals(command.action())) {
+            if (!connection.subscribe(command.deviceId(), command.sensorType())) {
+                close(session, CloseReason.CloseCodes.VIOLATED_POLICY, "Too many subscriptions");
+            }
+        } else if ("unsubscribe".equals(command.action())) {
+            connection.unsubscribe(command.deviceId(), command.sensorType());
+        } else {
+            close(session, CloseReason.CloseCodes.CANNOT_ACCEPT, "Unknown action: " + command.action());
+        }
+    }
+
+    private static void close(Session session, CloseReason.CloseCode code, String reason) {
+        try {
+            session.close(new CloseReason(code, reason));
+        } catch (IOException e) {
+            log.debug("Failed to close sensor stream connection {}", session.getId(), e);
+        }
+    }
+
+    private record SessionSink(Session session) implements SensorStreamHub.Sink {
+
+        @Override
+        public void send(String text, Consumer<Throwable> onComplete) {
+            try {
+                session.getAsyncRemote().sendText(text, result -> onComplete.accept(result.isOK() ? null : result.getException()));
+            } catch (IllegalStateException e) {
+                onComplete.accept(e);
+            }
+        }
+
+        @Override
+        public void close(String reason) {
+            SensorStreamEndpoint.close(session, CloseReason.CloseCodes.TRY_AGAIN_LATER, reason);
+        }
+    }
+}
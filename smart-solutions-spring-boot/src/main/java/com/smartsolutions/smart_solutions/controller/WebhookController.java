@@ -0,0 +1,167 @@
+package com.smartsolutions.smart_solutions.controller;
+
+import com.smartsolutions.smart_solutions.dto.WebhookSubscriptionDTO;
+import com.smartsolutions.smart_solutions.service.WebhookService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/webhooks")
+@RequiredArgsConstructor
+@Tag(name = "Webhooks", description = "HTTP endpoints that receive new and escalated alerts in batches")
+@SecurityRequirement(name = "bearerAuth")
+public class WebhookController {
+
+    private final WebhookService webhookService;
+
+    @Operation(
+            summary = "Get webhook subscriptions",
+            description = "Lists all webhook subscriptions; secrets are never returned"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Successfully retrieved subscriptions",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = WebhookSubscriptionDTO[].class)
+                    )
+            )
+    })
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<WebhookSubscriptionDTO>> getSubscriptions() {
+        return ResponseEntity.ok(webhookService.getSubscriptions());
+    }
+
+    @Operation(
+            summary = "Get a webhook subscription"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Successfully retrieved subscription",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = WebhookSubscriptionDTO.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Subscription not found"
+            )
+    })
+    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<WebhookSubscriptionDTO> getSubscription(
+            @Parameter(description = "Subscription ID", example = "1")
+            @PathVariable Long id) {
+        return ResponseEntity.ok(webhookService.getSubscription(id));
+    }
+
+    @Operation(
+            summary = "Create a webhook subscription",
+            description = "Alerts at or above the minimum severity (optionally of one device) are POSTed to the URL " +
+                    "as {subscriptionId, deliveryId, attempt, alerts[]}. With a secret, the body is signed in the " +
+                    "X-Webhook-Signature header as sha256=<hex HMAC-SHA256>. A delivery may arrive more than once; " +
+                    "receivers should de-duplicate on deliveryId"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "201",
+                    description = "Subscription created",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = WebhookSubscriptionDTO.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid URL or payload"
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Device not found"
+            )
+    })
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<WebhookSubscriptionDTO> createSubscription(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Subscription payload",
+                    required = true,
+                    content = @Content(
+                            schema = @Schema(implementation = WebhookSubscriptionDTO.class),
+                            examples = @ExampleObject(
+                                    value = "{\"name\": \"Ops pager\", \"url\": \"https://hooks.example.com/alerts\", \"secret\": \"s3cret\", \"minSeverity\": \"High\"}"
+                            )
+                    )
+            )
+            @RequestBody @Valid WebhookSubscriptionDTO subscription) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(webhookService.createSubscription(subscription));
+    }
+
+    @Operation(
+            summary = "Update a webhook subscription",
+            description = "Replaces the subscription settings; an omitted secret keeps the current one, an empty one removes it"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Subscription updated",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = WebhookSubscriptionDTO.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid URL or payload"
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Subscription or device not found"
+            )
+    })
+    @PutMapping(value = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<WebhookSubscriptionDTO> updateSubscription(
+            @Parameter(description = "Subscription ID", example = "1")
+            @PathVariable Long id,
+            @RequestBody @Valid WebhookSubscriptionDTO subscription) {
+        return ResponseEntity.ok(webhookService.updateSubscription(id, subscription));
+    }
+
+    @Operation(
+            summary = "Delete a webhook subscription",
+            description = "Batches still queued for the subscription are discarded"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "204",
+                    description = "Subscription deleted"
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Subscription not found"
+            )
+    })
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteSubscription(
+            @Parameter(description = "Subscription ID", example = "1")
+            @PathVariable Long id) {
+        webhookService.deleteSubscription(id);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,13 +1,18 @@
 package com.smartsolutions.smart_solutions.dto;
 
+import com.smartsolutions.smart_solutions.model.Alert;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Map;
 
 @Getter
 @Setter
+@NoArgsConstructor
 public class AlertDTO {
     private Long id;
     private String alertType;
@@ -27,4 +32,31 @@ public class AlertDTO {
     private String deviceName;
     private String deviceType;
     private Map<String, Object> additionalData;
+
+    // Constructor expression target of AlertRepositoryCustom.findAlertViews; mirrors AlertMapper.toDto
+    public AlertDTO(Long id, String alertType, Alert.Severity severity, String message, Alert.AlertStatus status,
+                    Map<String, Object> additionalData,
+                    Long deviceId, String deviceName, String deviceType,
+                    String createdBy, String acknowledgedBy, String resolvedBy,
+                    Instant createdAt, Instant updatedAt, Instant acknowledgedAt, Instant resolvedAt) {
+        ZoneId zoneId = ZoneId.systemDefault();
+        this.id = id;
+        this.alertType = alertType;
+        this.severity = severity != null ? severity.name() : null;
+        this.message = message;
+        this.status = status != null ? status.name() : null;
+        this.isActive = status == Alert.AlertStatus.Open || status == Alert.AlertStatus.Acknowledged;
+        this.additionalData = additionalData;
+        this.deviceId = deviceId;
+        this.deviceName = deviceName;
+        this.deviceType = deviceType;
+        this.createdBy = createdBy;
+        this.acknowledgedBy = acknowledgedBy;
+        this.acknowledged = acknowledgedBy != null;
+        this.resolvedBy = resolvedBy;
+        this.createdAt = createdAt != null ? createdAt.atZone(zoneId).toLocalDateTime() : null;
+        this.updatedAt = updatedAt != null ? updatedAt.atZone(zoneId).toLocalDateTime() : null;
+        this.acknowledgedAt = acknowledgedAt != null ? acknowledgedAt.atZone(zoneId).toLocalDateTime() : null;
+        this.resolvedAt = resolvedAt != null ? resolvedAt.atZone(zoneId).toLocalDateTime() : null;
+    }
 }
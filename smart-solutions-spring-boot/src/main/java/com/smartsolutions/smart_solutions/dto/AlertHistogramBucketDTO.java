@@ -0,0 +1,20 @@
+package com.smartsolutions.smart_solutions.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlertHistogramBucketDTO {
+    private Instant bucketStart;
+    // Alerts created in the bucket per group; groups without alerts are left out
+    private Map<String, Long> counts;
+    private long total;
+}
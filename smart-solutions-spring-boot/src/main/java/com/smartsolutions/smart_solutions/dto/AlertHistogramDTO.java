@@ -0,0 +1,22 @@
+package com.smartsolutions.smart_solutions.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlertHistogramDTO {
+    private int bucketMinutes;
+    private String groupBy;
+    // Range rounded out to bucket boundaries
+    private Instant startDate;
+    private Instant endDate;
+    private List<AlertHistogramBucketDTO> buckets;
+}
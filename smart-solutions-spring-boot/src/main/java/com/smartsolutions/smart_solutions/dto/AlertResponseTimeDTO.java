@@ -0,0 +1,28 @@
+package com.smartsolutions.smart_solutions.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlertResponseTimeDTO {
+    private String group;
+    private long alertCount;
+
+    // Seconds from creation; null when no alert of the group got that far
+    private long acknowledgedCount;
+    private Double meanTimeToAcknowledge;
+    private Double p50TimeToAcknowledge;
+    private Double p90TimeToAcknowledge;
+    private Double p99TimeToAcknowledge;
+
+    private long resolvedCount;
+    private Double meanTimeToResolve;
+    private Double p50TimeToResolve;
+    private Double p90TimeToResolve;
+    private Double p99TimeToResolve;
+}
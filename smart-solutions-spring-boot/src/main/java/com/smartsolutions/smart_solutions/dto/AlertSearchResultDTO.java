@@ -0,0 +1,19 @@
+package com.smartsolutions.smart_solutions.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlertSearchResultDTO {
+    // Best match first
+    private List<AlertDTO> alerts;
+    // Pass back as `cursor` for the next page; null on the last page
+    private String nextCursor;
+}
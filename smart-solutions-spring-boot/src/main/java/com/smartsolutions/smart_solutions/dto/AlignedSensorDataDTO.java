@@ -0,0 +1,20 @@
+package com.smartsolutions.smart_solutions.dto;
+
+import com.smartsolutions.smart_solutions.util.SensorSeriesAligner;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlignedSensorDataDTO {
+    private List<String> sensorTypes;
+    private long bucketSeconds;
+    private SensorSeriesAligner.FillStrategy fill;
+    private List<AlignedSensorRowDTO> rows;
+}
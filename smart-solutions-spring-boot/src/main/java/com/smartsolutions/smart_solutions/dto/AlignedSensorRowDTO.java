@@ -0,0 +1,22 @@
+package com.smartsolutions.smart_solutions.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlignedSensorRowDTO {
+    private Long deviceId;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSX", timezone = "UTC")
+    private Instant bucket;
+
+    // One value per entry of AlignedSensorDataDTO.sensorTypes
+    private List<Double> values;
+}
@@ -0,0 +1,26 @@
+package com.smartsolutions.smart_solutions.dto;
+
+import com.smartsolutions.smart_solutions.model.Alert;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+// Selects the alerts of a bulk operation: explicit ids, or the same criteria as the alert listing
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkAlertRequest {
+    private List<Long> alertIds;
+    private Long deviceId;
+    private String alertType;
+    private Alert.Severity severity;
+    private Alert.AlertStatus status;
+    private Boolean isActive;
+    private Instant startDate;
+    private Instant endDate;
+}
@@ -0,0 +1,16 @@
+package com.smartsolutions.smart_solutions.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkAlertResultDTO {
+    private String action;
+    private int affected;
+    private int chunks;
+}
@@ -1,15 +1,19 @@
 package com.smartsolutions.smart_solutions.dto;
 
-import jakarta.persistence.Column;
+import com.smartsolutions.smart_solutions.model.Device;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Map;
 
 @Getter
 @Setter
+@NoArgsConstructor
 public class DeviceDTO {
     private Long id;
     private String name;
@@ -32,4 +36,35 @@ public class DeviceDTO {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private Map<String, Object> metadata;
+
+    // Constructor expression target of DeviceRepository.findDeviceViews; mirrors DeviceMapper.toDto
+    public DeviceDTO(Long id, String name, Long typeId, String type,
+                     String serialNumber, String macAddress, String ipAddress,
+                     Device.DeviceStatus status, Boolean isOnline, Instant lastSeenAt, String firmwareVersion,
+                     Long locationId, String location, BigDecimal latitude, BigDecimal longitude,
+                     Long alertsCount, String createdBy, Long createdById,
+                     Instant createdAt, Instant updatedAt, Map<String, Object> metadata) {
+        ZoneId zoneId = ZoneId.systemDefault();
+        this.id = id;
+        this.name = name;
+        this.typeId = typeId;
+        this.type = type;
+        this.serialNumber = serialNumber;
+        this.macAddress = macAddress;
+        this.ipAddress = ipAddress;
+        this.status = status != null ? status.name() : null;
+        this.isOnline = Boolean.TRUE.equals(isOnline);
+        this.lastSeenAt = lastSeenAt != null ? lastSeenAt.atZone(zoneId).toLocalDateTime() : null;
+        this.firmwareVersion = firmwareVersion;
+        this.locationId = locationId;
+        this.location = location;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.alertsCount = alertsCount != null ? alertsCount.intValue() : 0;
+        this.createdBy = createdBy;
+        this.createdById = createdById;
+        this.createdAt = createdAt != null ? createdAt.atZone(zoneId).toLocalDateTime() : null;
+        this.updatedAt = updatedAt != null ? updatedAt.atZone(zoneId).toLocalDateTime() : null;
+        this.metadata = metadata;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.smartsolutions.smart_solutions.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EnergyTotalDTO {
+    private Long locationId;
+    private Instant startDate;
+    private Instant endDate;
+    private double energyKwh;
+    private long deviceCount;
+}
@@ -0,0 +1,21 @@
+package com.smartsolutions.smart_solutions.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LocationRollupDTO {
+    private Long locationId;
+    private long deviceCount;
+    private long onlineCount;
+    private long activeAlerts;
+    // Average of each device's latest valid reading, by sensor type
+    private Map<String, Double> latestAverages;
+}
@@ -0,0 +1,39 @@
+package com.smartsolutions.smart_solutions.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.smartsolutions.smart_solutions.model.SensorData.SensorType;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorCalibrationDTO {
+    private Long id;
+    private Long deviceId;
+
+    @NotNull(message = "Sensor type is required")
+    private SensorType sensorType;
+
+    // corrected = raw * gain + offset, in the sensor type's canonical unit
+    private Double gain;
+    private Double offset;
+
+    // Defaults to now; a past instant re-corrects readings stored since then
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSX", timezone = "UTC")
+    private Instant effectiveFrom;
+
+    private String notes;
+    private Long createdBy;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSX", timezone = "UTC")
+    private Instant createdAt;
+
+    private Boolean recorrectionPending;
+}
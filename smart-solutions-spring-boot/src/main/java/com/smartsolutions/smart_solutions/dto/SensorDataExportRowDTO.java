@@ -0,0 +1,18 @@
+package com.smartsolutions.smart_solutions.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorDataExportRowDTO {
+    private Instant timestamp;
+    private String sensorType;
+    private Double value;
+    private String unit;
+    private Integer statusCode;
+}
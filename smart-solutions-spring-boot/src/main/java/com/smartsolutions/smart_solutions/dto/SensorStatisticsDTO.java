@@ -0,0 +1,38 @@
+package com.smartsolutions.smart_solutions.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorStatisticsDTO {
+    private long count;
+    private Double min;
+    private Double max;
+    private Double sum;
+
+    public static SensorStatisticsDTO empty() {
+        return new SensorStatisticsDTO(0, null, null, null);
+    }
+
+    public Double getAverage() {
+        return count > 0 && sum != null ? sum / count : null;
+    }
+
+    // Combines the partial statistics of two disjoint ranges
+    public SensorStatisticsDTO combine(SensorStatisticsDTO other) {
+        if (other == null || other.count == 0) {
+            return this;
+        }
+        if (count == 0) {
+            return other;
+        }
+        return new SensorStatisticsDTO(
+                count + other.count,
+                Math.min(min, other.min),
+                Math.max(max, other.max),
+                sum + other.sum);
+    }
+}
@@ -0,0 +1,46 @@
+package com.smartsolutions.smart_solutions.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.smartsolutions.smart_solutions.model.Alert;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WebhookSubscriptionDTO {
+    private Long id;
+
+    @NotBlank(message = "Name is required")
+    @Size(max = 100, message = "Name must be at most 100 characters")
+    private String name;
+
+    @NotBlank(message = "URL is required")
+    @Size(max = 2048, message = "URL must be at most 2048 characters")
+    private String url;
+
+    // Never returned; deliveries are signed with it when set
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+    private String secret;
+
+    // Defaults to Low, i.e. every alert
+    private Alert.Severity minSeverity;
+
+    private Long deviceId;
+    private Boolean active;
+    private Long createdBy;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSX", timezone = "UTC")
+    private Instant createdAt;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss.SSSX", timezone = "UTC")
+    private Instant updatedAt;
+}
@@ -0,0 +1,18 @@
+package com.smartsolutions.smart_solutions.event;
+
+import com.smartsolutions.smart_solutions.dto.AlertDTO;
+
+import java.time.Instant;
+
+// Published by AlertService for every alert change; `alert` is the state after the change
+// (the last known state for DELETED). Listeners must treat the DTO as read-only.
+public record AlertLifecycleEvent(
+        Type type,
+        AlertDTO alert,
+        String previousStatus,
+        Instant occurredAt) {
+
+    public enum Type {
+        CREATED, UPDATED, ACKNOWLEDGED, RESOLVED, SUPPRESSED, ESCALATED, DELETED
+    }
+}
@@ -0,0 +1,17 @@
+package com.smartsolutions.smart_solutions.event;
+
+import com.smartsolutions.smart_solutions.dto.DeviceDTO;
+
+import java.time.Instant;
+
+// Published by DeviceService for every device change; `device` is the state after the change
+// (the last known state for DELETED)
+public record DeviceLifecycleEvent(
+        Type type,
+        DeviceDTO device,
+        Instant occurredAt) {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+}
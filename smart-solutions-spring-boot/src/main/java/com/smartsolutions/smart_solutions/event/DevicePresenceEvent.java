@@ -0,0 +1,13 @@
+package com.smartsolutions.smart_solutions.event;
+
+import java.time.Instant;
+
+// Published by DevicePresenceTracker when a device comes online (first reading after being
+// offline) or goes offline (no reading for its heartbeat window). Not transactional: the
+// database catches up on the next presence flush.
+public record DevicePresenceEvent(
+        Long deviceId,
+        boolean online,
+        Instant lastSeenAt,
+        Instant occurredAt) {
+}
@@ -0,0 +1,21 @@
+package com.smartsolutions.smart_solutions.event;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.time.Instant;
+
+// Published by OutboxRelay once the change that produced it has committed. Delivery is at
+// least once: a listener that throws gets the message again after a backoff, and a relay that
+// dies mid-batch leaves its claimed messages to be picked up when the claim expires.
+public record OutboxMessage(
+        long eventId,
+        AggregateType aggregateType,
+        long aggregateId,
+        String eventType,
+        JsonNode payload,
+        Instant createdAt) {
+
+    public enum AggregateType {
+        ALERT, DEVICE
+    }
+}
@@ -0,0 +1,18 @@
+package com.smartsolutions.smart_solutions.event;
+
+import java.time.Instant;
+
+// Published by the ingest path once a reading has been persisted
+public record SensorDataIngestedEvent(
+        Long dataId,
+        Long deviceId,
+        String sensorType,
+        double value,
+        String unit,
+        Integer statusCode,
+        Instant timestamp) {
+
+    public boolean isValid() {
+        return statusCode == null || statusCode < 300;
+    }
+}
@@ -0,0 +1,7 @@
+package com.smartsolutions.smart_solutions.exception;
+
+public class ConflictException extends RuntimeException {
+    public ConflictException(String message) {
+        super(message);
+    }
+}
@@ -75,6 +75,12 @@ public class Alert {
     @Column(name = "resolved_at")
     private Instant resolvedAt;
 
+    @Column(name = "escalation_level", nullable = false)
+    private int escalationLevel;
+
+    @Column(name = "next_escalation_at")
+    private Instant nextEscalationAt;
+
     @Getter
     public enum Severity {
         Low("Low"), Medium("Medium"), High("High"), Critical("Critical");
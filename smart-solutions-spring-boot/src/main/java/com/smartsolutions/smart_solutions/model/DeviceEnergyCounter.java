@@ -0,0 +1,50 @@
+package com.smartsolutions.smart_solutions.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "device_energy_counters", schema = "iot",
+        uniqueConstraints = @UniqueConstraint(name = "uq_device_energy_counters", columnNames = {"device_id", "granularity", "period_start"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DeviceEnergyCounter {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "counter_id")
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "device_id", nullable = false)
+    private Device device;
+
+    @Column(nullable = false, length = 10)
+    @Enumerated(EnumType.STRING)
+    private Granularity granularity;
+
+    @Column(name = "period_start", nullable = false)
+    private Instant periodStart;
+
+    @Column(name = "energy_kwh", nullable = false)
+    private Double energyKwh;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @Getter
+    public enum Granularity {
+        HOUR("Hour"), DAY("Day");
+
+        private final String displayName;
+
+        Granularity(String displayName) {
+            this.displayName = displayName;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import jakarta.persistence.*;
 import lombok.*;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -18,6 +19,8 @@ import java.util.Map;
 @AllArgsConstructor
 @Builder
 public class DeviceType {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "type_id")
@@ -41,14 +44,18 @@ public class DeviceType {
     @OneToMany(mappedBy = "type")
     private List<Device> devices = new ArrayList<>();
 
-    // Helper method to work with capabilities as Map
+    // Helper method to work with capabilities as Map.
+    // Parses on every call; hot paths go through DeviceTypeCapabilitiesCache instead.
     @Transient
     public Map<String, Object> getCapabilities() throws JsonProcessingException {
-        return new ObjectMapper().readValue(capabilitiesJson, new TypeReference<Map<String, Object>>() {});
+        if (capabilitiesJson == null) {
+            return Collections.emptyMap();
+        }
+        return OBJECT_MAPPER.readValue(capabilitiesJson, new TypeReference<Map<String, Object>>() {});
     }
 
     @Transient
     public void setCapabilities(Map<String, Object> capabilities) throws JsonProcessingException {
-        this.capabilitiesJson = new ObjectMapper().writeValueAsString(capabilities);
+        this.capabilitiesJson = OBJECT_MAPPER.writeValueAsString(capabilities);
     }
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.smartsolutions.smart_solutions.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serializable;
+
+// One ancestor/descendant pair of the location tree, written only by the triggers on
+// iot.locations; mapped so queries can select a subtree with a subquery on ancestorId
+@Entity
+@Immutable
+@Table(name = "location_closure", schema = "iot")
+@IdClass(LocationClosure.Key.class)
+@Getter
+@NoArgsConstructor
+public class LocationClosure {
+
+    @Id
+    @Column(name = "ancestor_id")
+    private Long ancestorId;
+
+    @Id
+    @Column(name = "descendant_id")
+    private Long descendantId;
+
+    @Column(nullable = false)
+    private Integer depth;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long ancestorId;
+        private Long descendantId;
+    }
+}
@@ -0,0 +1,60 @@
+package com.smartsolutions.smart_solutions.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "sensor_calibrations", schema = "iot")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SensorCalibration {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "calibration_id")
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "device_id", nullable = false)
+    private Device device;
+
+    @Column(name = "sensor_type", nullable = false, length = 50)
+    private String sensorType;
+
+    @Column(nullable = false)
+    private Double gain;
+
+    @Column(name = "offset_value", nullable = false)
+    private Double offset;
+
+    @Column(name = "effective_from", nullable = false)
+    private Instant effectiveFrom;
+
+    @Column(name = "notes")
+    private String notes;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "created_by")
+    private User createdBy;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    // Set when effectiveFrom lies in the past and stored readings still need correcting
+    @Column(name = "recorrection_pending", nullable = false)
+    private boolean recorrectionPending;
+
+    // Keyset position (timestamp, data_id) of the last re-corrected reading
+    @Column(name = "recorrection_cursor_ts")
+    private Instant recorrectionCursorTimestamp;
+
+    @Column(name = "recorrection_cursor_id")
+    private Long recorrectionCursorId;
+}
@@ -19,6 +19,11 @@ import java.util.Map;
 @Builder
 public class SensorData {
 
+    // Values for statusCode; anything >= 300 is reported as a warning
+    public static final int STATUS_OK = 200;
+    public static final int STATUS_UNKNOWN_UNIT = 415;
+    public static final int STATUS_OUT_OF_RANGE = 422;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "data_id")
@@ -85,4 +90,11 @@ public class SensorData {
     public boolean hasWarningStatus() {
         return statusCode != null && statusCode >= 300;
     }
+
+    // Never overwrites a warning status the device reported itself
+    public void tagStatus(int warningStatus) {
+        if (!hasWarningStatus()) {
+            statusCode = warningStatus;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.smartsolutions.smart_solutions.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "webhook_subscriptions", schema = "iot")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WebhookSubscription {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "subscription_id")
+    private Long id;
+
+    @Column(nullable = false, length = 100)
+    private String name;
+
+    @Column(nullable = false, length = 2048)
+    private String url;
+
+    @Column(name = "secret")
+    private String secret;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "min_severity", nullable = false, length = 20)
+    @Builder.Default
+    private Alert.Severity minSeverity = Alert.Severity.Low;
+
+    // Restricts the subscription to one device; all devices when null
+    @Column(name = "device_id")
+    private Long deviceId;
+
+    @Column(name = "is_active", nullable = false)
+    @Builder.Default
+    private boolean active = true;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "created_by")
+    private User createdBy;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
@@ -1,25 +1,20 @@
 package com.smartsolutions.smart_solutions.repository;
 
 import com.smartsolutions.smart_solutions.model.Alert;
-import com.smartsolutions.smart_solutions.model.User;
-import jakarta.persistence.criteria.Predicate;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface AlertRepository extends JpaRepository<Alert, Long>, JpaSpecificationExecutor<Alert> {
+public interface AlertRepository extends JpaRepository<Alert, Long>, JpaSpecificationExecutor<Alert>, AlertRepositoryCustom {
 
     // Basic CRUD operations are provided by JpaRepository
 
@@ -64,17 +59,12 @@ public interface AlertRepository extends JpaRepository<Alert, Long>, JpaSpecific
     @Query("SELECT a.status, COUNT(a) FROM Alert a GROUP BY a.status")
     List<Object[]> countByStatus();
 
-    // Bulk acknowledge alerts
-    @Modifying
-    @Query("UPDATE Alert a SET a.status = 'ACKNOWLEDGED', a.acknowledgedAt = :timestamp, a.acknowledgedBy = :userId WHERE a.id IN :ids")
-    int acknowledgeAlerts(@Param("ids") List<Long> alertIds, @Param("userId") User user, @Param("timestamp") Instant timestamp);
-
     // Find latest alerts
-    @Query(value = "SELECT a FROM Alert a JOIN a.device d WHERE d.id = :deviceId ORDER BY a.createdAt DESC LIMIT :count", nativeQuery = true)
+    @Query(value = "SELECT a.* FROM iot.device_alerts a WHERE a.device_id = :deviceId ORDER BY a.created_at DESC LIMIT :count", nativeQuery = true)
     List<Alert> findLatestAlerts(@Param("deviceId") Long deviceId, @Param("count") int count);
 
     // Find alerts with metadata containing specific key/value
-    @Query(value = "SELECT a FROM Alert a WHERE a.additionalData @> :jsonQuery", nativeQuery = true)
+    @Query(value = "SELECT a.* FROM iot.device_alerts a WHERE a.additional_data @> CAST(:jsonQuery AS jsonb)", nativeQuery = true)
     List<Alert> findByMetadata(@Param("jsonQuery") String jsonQuery);
 
     // Custom query using specifications
@@ -98,53 +88,9 @@ public interface AlertRepository extends JpaRepository<Alert, Long>, JpaSpecific
             Instant endDate,
             Pageable pageable) {
 
-        return findAll(createFilterSpecification(
+        return findAll(AlertSpecifications.withFilters(
                         deviceId, alertType, severity, status, isActive, startDate, endDate),
                 pageable
         );
     }
-
-    private Specification<Alert> createFilterSpecification(
-            Long deviceId,
-            String alertType,
-            Alert.Severity severity,
-            Alert.AlertStatus status,
-            Boolean isActive,
-            Instant startDate,
-            Instant endDate) {
-
-        return (root, query, cb) -> {
-            List<Predicate> predicates = new ArrayList<>();
-
-            if (deviceId != null) {
-                predicates.add(cb.equal(root.get("device").get("id"), deviceId));
-            }
-
-            if (alertType != null && !alertType.isEmpty()) {
-                predicates.add(cb.equal(root.get("alertType"), alertType));
-            }
-
-            if (severity != null) {
-                predicates.add(cb.equal(root.get("severity"), severity));
-            }
-
-            if (status != null) {
-                predicates.add(cb.equal(root.get("status"), status));
-            }
-
-            if (isActive != null) {
-                predicates.add(cb.equal(root.get("isActive"), isActive));
-            }
-
-            if (startDate != null && endDate != null) {
-                predicates.add(cb.between(root.get("createdAt"), startDate, endDate));
-            } else if (startDate != null) {
-                predicates.add(cb.greaterThanOrEqualTo(root.get("createdAt"), startDate));
-            } else if (endDate != null) {
-                predicates.add(cb.lessThanOrEqualTo(root.get("createdAt"), endDate));
-            }
-
-            return cb.and(predicates.toArray(new Predicate[0]));
-        };
-    }
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.smartsolutions.smart_solutions.repository;
+
+import com.smartsolutions.smart_solutions.dto.AlertDTO;
+import com.smartsolutions.smart_solutions.model.Alert;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface AlertRepositoryCustom {
+
+    record SearchHit(AlertDTO alert, float rank) {
+    }
+
+    // Alert rows with device, type and user names joined in: one SELECT per page plus the count
+    Page<AlertDTO> findAlertViews(Specification<Alert> specification, Pageable pageable);
+
+    // Same view over device_alerts and the archived alerts in device_alerts_history
+    Page<AlertDTO> findAlertViewsWithHistory(
+            Long deviceId,
+            String alertType,
+            Alert.Severity severity,
+            Alert.AlertStatus status,
+            Boolean isActive,
+            Instant startDate,
+            Instant endDate,
+            Pageable pageable);
+
+    // Alerts matching `text` (web search syntax, on alert type and message) and/or whose additional_data
+    // contains the JSON object `dataContains`, best rank first and then newest first. With afterId set,
+    // continues after that (rank, id) position.
+    List<SearchHit> searchAlertViews(
+            String text,
+            String dataContains,
+            Long deviceId,
+            String alertType,
+            Alert.Severity severity,
+            Alert.AlertStatus status,
+            Boolean isActive,
+            Instant startDate,
+            Instant endDate,
+            Float afterRank,
+            Long afterId,
+            int limit);
+
+    // The newest `perDevice` alerts of each device, newest first, in one statement
+    Map<Long, List<AlertDTO>> findLatestAlertViews(Collection<Long> deviceIds, int perDevice);
+}
@@ -0,0 +1,407 @@
+package com.smartsolutions.smart_solutions.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartsolutions.smart_solutions.dto.AlertDTO;
+import com.smartsolutions.smart_solutions.exception.BadRequestException;
+import com.smartsolutions.smart_solutions.model.Alert;
+import com.smartsolutions.smart_solutions.model.Device;
+import com.smartsolutions.smart_solutions.model.DeviceType;
+import com.smartsolutions.smart_solutions.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Slf4j
+public class AlertRepositoryImpl implements AlertRepositoryCustom {
+
+    private static final String HISTORY_COLUMNS =
+            "alert_id, device_id, alert_type, severity, message, additional_data, status, " +
+            "created_by, acknowledged_by, resolved_by, created_at, updated_at, acknowledged_at, resolved_at";
+
+    private static final String VIEW_SELECT =
+            "SELECT a.alert_id, a.alert_type, a.severity, a.message, a.status, CAST(a.additional_data AS text), " +
+            "a.device_id, d.device_name, dt.type_name, cu.username, au.username, ru.username, " +
+            "a.created_at, a.updated_at, a.acknowledged_at, a.resolved_at";
+
+    private static final String USER_JOINS =
+            "LEFT JOIN iot.users cu ON cu.user_id = a.created_by " +
+            "LEFT JOIN iot.users au ON au.user_id = a.acknowledged_by " +
+            "LEFT JOIN iot.users ru ON ru.user_id = a.resolved_by";
+
+    private static final String VIEW_JOINS =
+            "LEFT JOIN iot.devices d ON d.device_id = a.device_id " +
+            "LEFT JOIN iot.device_types dt ON dt.type_id = d.type_id " +
+            USER_JOINS;
+
+    // %1$s and %2$s are the filters of the two branches, so each is narrowed by its own indexes
+    private static final String VIEW_WITH_HISTORY =
+            VIEW_SELECT + " " +
+            "FROM (" +
+            "  SELECT " + HISTORY_COLUMNS + " FROM iot.device_alerts%1$s" +
+            "  UNION ALL" +
+            "  SELECT " + HISTORY_COLUMNS + " FROM iot.device_alerts_history%2$s" +
+            ") a " +
+            VIEW_JOINS + "%3$s";
+
+    private static final String COUNT_WITH_HISTORY =
+            "SELECT (SELECT COUNT(*) FROM iot.device_alerts%1$s) + (SELECT COUNT(*) FROM iot.device_alerts_history%2$s)";
+
+    // %1$s is the rank expression, %2$s the filters and %3$s the keyset condition
+    private static final String SEARCH =
+            VIEW_SELECT + ", a.rank " +
+            "FROM (SELECT " + HISTORY_COLUMNS + ", %1$s AS rank FROM iot.device_alerts%2$s) a " +
+            VIEW_JOINS + "%3$s " +
+            "ORDER BY a.rank DESC, a.alert_id DESC";
+
+    // Walks idx_device_alerts_device_created once per device; %s are the device id placeholders
+    private static final String LATEST_PER_DEVICE =
+            VIEW_SELECT + " " +
+            "FROM iot.devices d " +
+            "CROSS JOIN LATERAL (" +
+            "  SELECT " + HISTORY_COLUMNS + " FROM iot.device_alerts x " +
+            "  WHERE x.device_id = d.device_id ORDER BY x.created_at DESC LIMIT ?" +
+            ") a " +
+            "LEFT JOIN iot.device_types dt ON dt.type_id = d.type_id " +
+            USER_JOINS + " " +
+            "WHERE d.device_id IN (%s) " +
+            "ORDER BY a.device_id, a.created_at DESC";
+
+    private static final String TEXT_RANK = "ts_rank_cd(search_vector, websearch_to_tsquery('english', ?))";
+
+    private static final String NO_RANK = "CAST(0 AS real)";
+
+    private static final String AFTER_KEYSET =
+            " WHERE (a.rank < CAST(? AS real) OR (a.rank = CAST(? AS real) AND a.alert_id < ?))";
+
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+            "id", "alert_id",
+            "alertType", "alert_type",
+            "severity", "severity",
+            "message", "message",
+            "status", "status",
+            "createdAt", "created_at",
+            "updatedAt", "updated_at",
+            "acknowledgedAt", "acknowledged_at",
+            "resolvedAt", "resolved_at");
+
+    private static final TypeReference<Map<String, Object>> JSON_OBJECT = new TypeReference<>() {
+    };
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ObjectMapper objectMapper;
+
+    public AlertRepositoryImpl(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Page<AlertDTO> findAlertViews(Specification<Alert> specification, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<AlertDTO> query = cb.createQuery(AlertDTO.class);
+        Root<Alert> alert = query.from(Alert.class);
+        Join<Alert, Device> device = alert.join("device", JoinType.LEFT);
+        Join<Device, DeviceType> type = device.join("type", JoinType.LEFT);
+        Join<Alert, User> createdBy = alert.join("createdBy", JoinType.LEFT);
+        Join<Alert, User> acknowledgedBy = alert.join("acknowledgedBy", JoinType.LEFT);
+        Join<Alert, User> resolvedBy = alert.join("resolvedBy", JoinType.LEFT);
+
+        query.select(cb.construct(AlertDTO.class,
+                alert.get("id"),
+                alert.get("alertType"),
+                alert.get("severity"),
+                alert.get("message"),
+                alert.get("status"),
+                alert.get("additionalData"),
+                device.get("id"),
+                device.get("name"),
+                type.get("typeName"),
+                createdBy.get("name"),
+                acknowledgedBy.get("name"),
+                resolvedBy.get("name"),
+                alert.get("createdAt"),
+                alert.get("updatedAt"),
+                alert.get("acknowledgedAt"),
+                alert.get("resolvedAt")));
+
+        Predicate predicate = specification != null ? specification.toPredicate(alert, query, cb) : null;
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        if (pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), alert, cb));
+        }
+
+        TypedQuery<AlertDTO> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        List<AlertDTO> content = typedQuery.getResultList();
+
+        // The count is skipped when the page itself shows the total (first or last page)
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(specification));
+    }
+
+    private long count(Specification<Alert> specification) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Alert> alert = query.from(Alert.class);
+        query.select(cb.count(alert));
+
+        Predicate predicate = specification != null ? specification.toPredicate(alert, query, cb) : null;
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    @Override
+    public Page<AlertDTO> findAlertViewsWithHistory(
+            Long deviceId,
+            String alertType,
+            Alert.Severity severity,
+            Alert.AlertStatus status,
+            Boolean isActive,
+            Instant startDate,
+            Instant endDate,
+            Pageable pageable) {
+
+        List<Object> params = new ArrayList<>();
+        String hotFilter = filter(false, new ArrayList<>(), deviceId, alertType, severity, status, isActive, startDate, endDate, params);
+        String historyFilter = filter(true, new ArrayList<>(), deviceId, alertType, severity, status, isActive, startDate, endDate, params);
+
+        Query query = entityManager.createNativeQuery(
+                String.format(VIEW_WITH_HISTORY, hotFilter, historyFilter, orderBy(pageable.getSort())));
+        bind(query, params);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = query.getResultList();
+        List<AlertDTO> content = rows.stream().map(this::toView).collect(Collectors.toList());
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> {
+            Query count = entityManager.createNativeQuery(String.format(COUNT_WITH_HISTORY, hotFilter, historyFilter));
+            bind(count, params);
+            return ((Number) count.getSingleResult()).longValue();
+        });
+    }
+
+    @Override
+    public List<SearchHit> searchAlertViews(
+            String text,
+            String dataContains,
+            Long deviceId,
+            String alertType,
+            Alert.Severity severity,
+            Alert.AlertStatus status,
+            Boolean isActive,
+            Instant startDate,
+            Instant endDate,
+            Float afterRank,
+            Long afterId,
+            int limit) {
+
+        // Placeholders run rank, search conditions, filters, keyset; the values are collected in that order
+        List<Object> params = new ArrayList<>();
+        List<String> conditions = new ArrayList<>();
+        if (text != null) {
+            params.add(text);
+            conditions.add("search_vector @@ websearch_to_tsquery('english', ?)");
+            params.add(text);
+        }
+        if (dataContains != null) {
+            conditions.add("additional_data @> CAST(? AS jsonb)");
+            params.add(dataContains);
+        }
+        String where = filter(false, conditions, deviceId, alertType, severity, status, isActive, startDate, endDate, params);
+        String keyset = "";
+        if (afterId != null) {
+            keyset = AFTER_KEYSET;
+            params.add(afterRank);
+            params.add(afterRank);
+            params.add(afterId);
+        }
+
+        Query query = entityManager.createNativeQuery(String.format(SEARCH, text != null ? TEXT_RANK : NO_RANK, where, keyset));
+        bind(query, params);
+        query.setMaxResults(limit);
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = query.getResultList();
+        return rows.stream()
+                .map(row -> new SearchHit(toView(row), ((Number) row[16]).floatValue()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Map<Long, List<AlertDTO>> findLatestAlertViews(Collection<Long> deviceIds, int perDevice) {
+        Map<Long, List<AlertDTO>> latest = new LinkedHashMap<>();
+        deviceIds.forEach(deviceId -> latest.put(deviceId, new ArrayList<>()));
+        if (latest.isEmpty() || perDevice < 1) {
+            return latest;
+        }
+
+        List<Object> params = new ArrayList<>(latest.size() + 1);
+        params.add(perDevice);
+        params.addAll(latest.keySet());
+        Query query = entityManager.createNativeQuery(String.format(LATEST_PER_DEVICE,
+                String.join(", ", Collections.nCopies(latest.size(), "?"))));
+        bind(query, params);
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = query.getResultList();
+        rows.stream().map(this::toView).forEach(alert -> latest.get(alert.getDeviceId()).add(alert));
+        return latest;
+    }
+
+    // Mirrors AlertSpecifications.withFilters, after any conditions already given; archived alerts are never active
+    private static String filter(
+            boolean history,
+            List<String> conditions,
+            Long deviceId,
+            String alertType,
+            Alert.Severity severity,
+            Alert.AlertStatus status,
+            Boolean isActive,
+            Instant startDate,
+            Instant endDate,
+            List<Object> params) {
+
+        if (deviceId != null) {
+            conditions.add("device_id = ?");
+            params.add(deviceId);
+        }
+        if (alertType != null && !alertType.isEmpty()) {
+            conditions.add("alert_type = ?");
+            params.add(alertType);
+        }
+        if (severity != null) {
+            conditions.add("severity = ?");
+            params.add(severity.name());
+        }
+        if (status != null) {
+            conditions.add("status = ?");
+            params.add(status.name());
+        }
+        if (isActive != null) {
+            if (!history) {
+                conditions.add("is_active = ?");
+                params.add(isActive);
+            } else if (isActive) {
+                conditions.add("FALSE");
+            }
+        }
+        if (startDate != null) {
+            conditions.add("created_at >= ?");
+            params.add(utc(startDate));
+        }
+        if (endDate != null) {
+            conditions.add("created_at <= ?");
+            params.add(utc(endDate));
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    private static String orderBy(Sort sort) {
+        if (sort.isUnsorted()) {
+            return "";
+        }
+        return sort.stream()
+                .map(order -> {
+                    String column = SORT_COLUMNS.get(order.getProperty());
+                    if (column == null) {
+                        throw new BadRequestException("Cannot sort archived alerts by " + order.getProperty());
+                    }
+                    return "a." + column + (order.isAscending() ? " ASC" : " DESC");
+                })
+                .collect(Collectors.joining(", ", " ORDER BY ", ""));
+    }
+
+    // Values are collected in the order their placeholders appear in the statement
+    private static void bind(Query query, List<Object> params) {
+        for (int i = 0; i < params.size(); i++) {
+            query.setParameter(i + 1, params.get(i));
+        }
+    }
+
+    private AlertDTO toView(Object[] row) {
+        return new AlertDTO(
+                ((Number) row[0]).longValue(),
+                (String) row[1],
+                Alert.Severity.valueOf((String) row[2]),
+                (String) row[3],
+                Alert.AlertStatus.valueOf((String) row[4]),
+                readJson((String) row[5]),
+                ((Number) row[6]).longValue(),
+                (String) row[7],
+                (String) row[8],
+                (String) row[9],
+                (String) row[10],
+                (String) row[11],
+                instant(row[12]),
+                instant(row[13]),
+                instant(row[14]),
+                instant(row[15]));
+    }
+
+    private Map<String, Object> readJson(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, JSON_OBJECT);
+        } catch (JsonProcessingException e) {
+            log.warn("Unreadable additional_data on alert: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // Drivers and Hibernate versions disagree on what a timestamptz comes back as
+    private static Instant instant(Object value) {
+        if (value instanceof Instant instant) {
+            return instant;
+        }
+        if (value instanceof OffsetDateTime offsetDateTime) {
+            return offsetDateTime.toInstant();
+        }
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toInstant();
+        }
+        return null;
+    }
+
+    private static OffsetDateTime utc(Instant instant) {
+        return OffsetDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,65 @@
+package com.smartsolutions.smart_solutions.repository;
+
+import com.smartsolutions.smart_solutions.model.Alert;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Alert filters shared by the entity queries and the DTO read model
+public final class AlertSpecifications {
+
+    private AlertSpecifications() {
+    }
+
+    public static Specification<Alert> withStatusIn(Collection<Alert.AlertStatus> statuses) {
+        return (root, query, cb) -> root.get("status").in(statuses);
+    }
+
+    public static Specification<Alert> withFilters(
+            Long deviceId,
+            String alertType,
+            Alert.Severity severity,
+            Alert.AlertStatus status,
+            Boolean isActive,
+            Instant startDate,
+            Instant endDate) {
+
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (deviceId != null) {
+                predicates.add(cb.equal(root.get("device").get("id"), deviceId));
+            }
+
+            if (alertType != null && !alertType.isEmpty()) {
+                predicates.add(cb.equal(root.get("alertType"), alertType));
+            }
+
+            if (severity != null) {
+                predicates.add(cb.equal(root.get("severity"), severity));
+            }
+
+            if (status != null) {
+                predicates.add(cb.equal(root.get("status"), status));
+            }
+
+            if (isActive != null) {
+                predicates.add(cb.equal(root.get("isActive"), isActive));
+            }
+
+            if (startDate != null && endDate != null) {
+                predicates.add(cb.between(root.get("createdAt"), startDate, endDate));
+            } else if (startDate != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("createdAt"), startDate));
+            } else if (endDate != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("createdAt"), endDate));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+}
@@ -0,0 +1,28 @@
+package com.smartsolutions.smart_solutions.repository;
+
+import com.smartsolutions.smart_solutions.model.DeviceEnergyCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface DeviceEnergyCounterRepository extends JpaRepository<DeviceEnergyCounter, Long> {
+
+    List<DeviceEnergyCounter> findByDeviceIdAndGranularityAndPeriodStartGreaterThanEqualAndPeriodStartLessThanOrderByPeriodStart(
+            Long deviceId, DeviceEnergyCounter.Granularity granularity, Instant startDate, Instant endDate);
+
+    // [total kWh, reporting devices] over daily counters
+    @Query("SELECT COALESCE(SUM(c.energyKwh), 0), COUNT(DISTINCT c.device.id) FROM DeviceEnergyCounter c " +
+            "WHERE c.granularity = com.smartsolutions.smart_solutions.model.DeviceEnergyCounter.Granularity.DAY " +
+            "AND c.periodStart >= :startDate AND c.periodStart < :endDate")
+    List<Object[]> sumFleetEnergy(@Param("startDate") Instant startDate, @Param("endDate") Instant endDate);
+
+    @Query("SELECT COALESCE(SUM(c.energyKwh), 0), COUNT(DISTINCT c.device.id) FROM DeviceEnergyCounter c " +
+            "WHERE c.device.location.id = :locationId " +
+            "AND c.granularity = com.smartsolutions.smart_solutions.model.DeviceEnergyCounter.Granularity.DAY " +
+            "AND c.periodStart >= :startDate AND c.periodStart < :endDate")
+    List<Object[]> sumLocationEnergy(
+            @Param("locationId") Long locationId, @Param("startDate") Instant startDate, @Param("endDate") Instant endDate);
+}
@@ -1,9 +1,13 @@
 package com.smartsolutions.smart_solutions.repository;
 
+import com.smartsolutions.smart_solutions.dto.DeviceDTO;
 import com.smartsolutions.smart_solutions.model.Device;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.Instant;
 import java.util.List;
@@ -11,6 +15,30 @@ import java.util.Optional;
 
 public interface DeviceRepository extends JpaRepository<Device, Long>, JpaSpecificationExecutor<Device> {
 
+    String DEVICE_VIEW_SELECT =
+            "SELECT new com.smartsolutions.smart_solutions.dto.DeviceDTO(" +
+            "d.id, d.name, t.id, t.typeName, d.serialNumber, d.macAddress, d.ipAddress, " +
+            "d.status, d.isOnline, d.lastSeenAt, d.firmwareVersion, " +
+            "l.id, l.name, l.latitude, l.longitude, " +
+            "(SELECT COUNT(a) FROM Alert a WHERE a.device = d), " +
+            "u.name, u.id, d.createdAt, d.updatedAt, d.metadata) " +
+            "FROM Device d LEFT JOIN d.type t LEFT JOIN d.location l LEFT JOIN d.createdBy u";
+
+    // Device rows with type, location and creator joined in and the alert count from an
+    // index-backed subquery, instead of initializing every device's alerts collection
+    @Query(value = DEVICE_VIEW_SELECT, countQuery = "SELECT COUNT(d) FROM Device d")
+    Page<DeviceDTO> findDeviceViews(Pageable pageable);
+
+    @Query(DEVICE_VIEW_SELECT + " WHERE d.id = :id")
+    Optional<DeviceDTO> findDeviceViewById(@Param("id") Long id);
+
+    String IN_SUBTREE =
+            " WHERE d.location.id IN (SELECT c.descendantId FROM LocationClosure c WHERE c.ancestorId = :locationId)";
+
+    // Devices anywhere below the location, resolved from the closure table in one index range
+    @Query(value = DEVICE_VIEW_SELECT + IN_SUBTREE, countQuery = "SELECT COUNT(d) FROM Device d" + IN_SUBTREE)
+    Page<DeviceDTO> findDeviceViewsInSubtree(@Param("locationId") Long locationId, Pageable pageable);
+
     Optional<Device> findBySerialNumber(String serialNumber);
 
     Optional<Device> findByMacAddress(String macAddress);
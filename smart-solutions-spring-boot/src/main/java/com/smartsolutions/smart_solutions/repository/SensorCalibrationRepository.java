@@ -0,0 +1,13 @@
+package com.smartsolutions.smart_solutions.repository;
+
+import com.smartsolutions.smart_solutions.model.SensorCalibration;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface SensorCalibrationRepository extends JpaRepository<SensorCalibration, Long> {
+
+    List<SensorCalibration> findByDeviceIdOrderBySensorTypeAscEffectiveFromDesc(Long deviceId);
+
+    List<SensorCalibration> findByRecorrectionPendingTrueOrderByCreatedAt();
+}
@@ -1,14 +1,21 @@
 package com.smartsolutions.smart_solutions.repository;
 
+import com.smartsolutions.smart_solutions.dto.SensorDataExportRowDTO;
+import com.smartsolutions.smart_solutions.dto.SensorDataPointDTO;
+import com.smartsolutions.smart_solutions.dto.SensorStatisticsDTO;
 import com.smartsolutions.smart_solutions.model.SensorData;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface SensorDataRepository extends JpaRepository<SensorData, Long> {
 
@@ -27,4 +34,76 @@ public interface SensorDataRepository extends JpaRepository<SensorData, Long> {
 
     @Query("SELECT DISTINCT sd.sensorType FROM SensorData sd WHERE sd.device.id = :deviceId")
     List<String> findDistinctSensorTypesByDeviceId(@Param("deviceId") Long deviceId);
-}
\ No newline at end of file
+
+    // Streams a time-ordered (timestamp, value) projection without materializing entities
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"))
+    @Query("SELECT new com.smartsolutions.smart_solutions.dto.SensorDataPointDTO(sd.timestamp, sd.value) " +
+            "FROM SensorData sd " +
+            "WHERE sd.device.id = :deviceId AND sd.sensorType = :sensorType " +
+            "AND sd.timestamp BETWEEN :startDate AND :endDate " +
+            "ORDER BY sd.timestamp")
+    Stream<SensorDataPointDTO> streamPoints(
+            @Param("deviceId") Long deviceId,
+            @Param("sensorType") String sensorType,
+            @Param("startDate") Instant startDate,
+            @Param("endDate") Instant endDate);
+
+    // Per-bucket centroid: [bucket index, avg ms since start, avg value]
+    @Query(value = "SELECT LEAST(FLOOR((FLOOR(EXTRACT(EPOCH FROM sd.timestamp) * 1000) - :startMs) / :bucketWidthMs), :bucketCount - 1) AS bucket, " +
+            "AVG(FLOOR(EXTRACT(EPOCH FROM sd.timestamp) * 1000) - :startMs) AS avg_x, " +
+            "AVG(sd.value) AS avg_y " +
+            "FROM iot.sensor_data sd " +
+            "WHERE sd.device_id = :deviceId AND sd.sensor_type = :sensorType " +
+            "AND sd.timestamp BETWEEN :startDate AND :endDate " +
+            "GROUP BY 1", nativeQuery = true)
+    List<Object[]> findBucketAverages(
+            @Param("deviceId") Long deviceId,
+            @Param("sensorType") String sensorType,
+            @Param("startDate") Instant startDate,
+            @Param("endDate") Instant endDate,
+            @Param("startMs") long startMs,
+            @Param("bucketWidthMs") double bucketWidthMs,
+            @Param("bucketCount") int bucketCount);
+
+    // Average per (device, sensor type, grid bucket), sorted so each series is one contiguous run
+    @Query(value = "SELECT sd.device_id, sd.sensor_type, " +
+            "FLOOR((FLOOR(EXTRACT(EPOCH FROM sd.timestamp) * 1000) - :startMs) / :bucketMillis) AS bucket, " +
+            "AVG(sd.value) AS avg_value " +
+            "FROM iot.sensor_data sd " +
+            "WHERE sd.device_id IN (:deviceIds) AND sd.sensor_type IN (:sensorTypes) " +
+            "AND sd.timestamp >= :startDate AND sd.timestamp < :endDate " +
+            "GROUP BY sd.device_id, sd.sensor_type, 3 " +
+            "ORDER BY sd.device_id, sd.sensor_type, 3", nativeQuery = true)
+    List<Object[]> findBucketedAverages(
+            @Param("deviceIds") List<Long> deviceIds,
+            @Param("sensorTypes") List<String> sensorTypes,
+            @Param("startDate") Instant startDate,
+            @Param("endDate") Instant endDate,
+            @Param("startMs") long startMs,
+            @Param("bucketMillis") long bucketMillis);
+
+    // Partial statistics over a half-open sub-range; sensorType is optional
+    @Query("SELECT new com.smartsolutions.smart_solutions.dto.SensorStatisticsDTO(" +
+            "COUNT(sd), MIN(sd.value), MAX(sd.value), SUM(sd.value)) " +
+            "FROM SensorData sd " +
+            "WHERE sd.device.id = :deviceId AND (:sensorType IS NULL OR sd.sensorType = :sensorType) " +
+            "AND sd.timestamp >= :from AND sd.timestamp < :to")
+    SensorStatisticsDTO findStatistics(
+            @Param("deviceId") Long deviceId,
+            @Param("sensorType") String sensorType,
+            @Param("from") Instant from,
+            @Param("to") Instant to);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"))
+    @Query("SELECT new com.smartsolutions.smart_solutions.dto.SensorDataExportRowDTO(" +
+            "sd.timestamp, sd.sensorType, sd.value, sd.unit, sd.statusCode) " +
+            "FROM SensorData sd " +
+            "WHERE sd.device.id = :deviceId AND (:sensorType IS NULL OR sd.sensorType = :sensorType) " +
+            "AND sd.timestamp >= :from AND sd.timestamp < :to " +
+            "ORDER BY sd.timestamp")
+    List<SensorDataExportRowDTO> findExportRows(
+            @Param("deviceId") Long deviceId,
+            @Param("sensorType") String sensorType,
+            @Param("from") Instant from,
+            @Param("to") Instant to);
+}
@@ -0,0 +1,13 @@
+package com.smartsolutions.smart_solutions.repository;
+
+import com.smartsolutions.smart_solutions.model.WebhookSubscription;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface WebhookSubscriptionRepository extends JpaRepository<WebhookSubscription, Long> {
+
+    List<WebhookSubscription> findByActiveTrue();
+
+    List<WebhookSubscription> findAllByOrderByIdAsc();
+}
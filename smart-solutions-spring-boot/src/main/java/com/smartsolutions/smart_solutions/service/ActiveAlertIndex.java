@@ -0,0 +1,294 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.dto.AlertDTO;
+import com.smartsolutions.smart_solutions.event.AlertLifecycleEvent;
+import com.smartsolutions.smart_solutions.model.Alert;
+import com.smartsolutions.smart_solutions.repository.AlertRepository;
+import com.smartsolutions.smart_solutions.repository.AlertSpecifications;
+import com.smartsolutions.smart_solutions.util.LongObjectHashMap;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+
+// Unresolved alerts held in memory, bucketed by device, severity and alert type, so the
+// dashboard's active-alert filters never reach PostgreSQL. Kept current by AlertLifecycleEvents
+// after commit and rebuilt from the database on startup and periodically.
+@Slf4j
+@Component
+public class ActiveAlertIndex {
+
+    public static final Set<Alert.AlertStatus> INDEXED_STATUSES =
+            EnumSet.of(Alert.AlertStatus.Open, Alert.AlertStatus.Acknowledged, Alert.AlertStatus.Unacknowledged);
+
+    private static final Map<String, Comparator<AlertDTO>> SORTABLE = Map.of(
+            "id", Comparator.comparing(AlertDTO::getId),
+            "createdAt", Comparator.comparing(AlertDTO::getCreatedAt, Comparator.nullsFirst(Comparator.naturalOrder())),
+            "updatedAt", Comparator.comparing(AlertDTO::getUpdatedAt, Comparator.nullsFirst(Comparator.naturalOrder())),
+            "severity", Comparator.comparing(alert -> Alert.Severity.valueOf(alert.getSeverity())),
+            "status", Comparator.comparing(alert -> Alert.AlertStatus.valueOf(alert.getStatus())),
+            "alertType", Comparator.comparing(AlertDTO::getAlertType),
+            "deviceId", Comparator.comparing(AlertDTO::getDeviceId));
+
+    private final AlertRepository alertRepository;
+    private final StampedLock lock = new StampedLock();
+
+    // Guarded by lock
+    private Buckets buckets = new Buckets(16);
+    private List<AlertLifecycleEvent> eventsDuringRebuild;
+
+    private volatile boolean ready;
+
+    public ActiveAlertIndex(AlertRepository alertRepository, MeterRegistry meterRegistry) {
+        this.alertRepository = alertRepository;
+        Gauge.builder("alerts.active.index.size", this, ActiveAlertIndex::size)
+                .description("Alerts held in the in-memory active-alert index")
+                .register(meterRegistry);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // True when the filter only selects indexed alerts and the sort is one the index supports
+    public boolean canServe(Alert.AlertStatus status, Boolean isActive, Pageable pageable) {
+        if (!ready) {
+            return false;
+        }
+        boolean activeOnly = status != null ? INDEXED_STATUSES.contains(status) : Boolean.TRUE.equals(isActive);
+        return activeOnly && pageable.getSort().stream().allMatch(order -> SORTABLE.containsKey(order.getProperty()));
+    }
+
+    public Page<AlertDTO> find(
+            Long deviceId,
+            String alertType,
+            Alert.Severity severity,
+            Alert.AlertStatus status,
+            Boolean isActive,
+            Instant startDate,
+            Instant endDate,
+            Pageable pageable) {
+
+        // The DTOs carry local date-times, so the bounds are compared in the same zone
+        ZoneId zoneId = ZoneId.systemDefault();
+        LocalDateTime from = startDate != null ? LocalDateTime.ofInstant(startDate, zoneId) : null;
+        LocalDateTime to = endDate != null ? LocalDateTime.ofInstant(endDate, zoneId) : null;
+        String statusName = status != null ? status.name() : null;
+        String severityName = severity != null ? severity.name() : null;
+        String type = alertType != null && !alertType.isEmpty() ? alertType : null;
+
+        List<AlertDTO> matches = new ArrayList<>();
+        long stamp = lock.readLock();
+        try {
+            buckets.candidates(deviceId, type, severity).forEachValue(alert -> {
+                if ((deviceId == null || deviceId.equals(alert.getDeviceId()))
+                        && (type == null || type.equals(alert.getAlertType()))
+                        && (severityName == null || severityName.equals(alert.getSeverity()))
+                        && (statusName == null || statusName.equals(alert.getStatus()))
+                        && (isActive == null || isActive == alert.isActive())
+                        && (from == null || alert.getCreatedAt() != null && !alert.getCreatedAt().isBefore(from))
+                        && (to == null || alert.getCreatedAt() != null && !alert.getCreatedAt().isAfter(to))) {
+                    matches.add(alert);
+                }
+            });
+        } finally {
+            lock.unlockRead(stamp);
+        }
+
+        matches.sort(comparator(pageable.getSort()));
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(matches, pageable, matches.size());
+        }
+        int fromIndex = (int) Math.min(pageable.getOffset(), matches.size());
+        int toIndex = Math.min(fromIndex + pageable.getPageSize(), matches.size());
+        return new PageImpl<>(new ArrayList<>(matches.subList(fromIndex, toIndex)), pageable, matches.size());
+    }
+
+    public List<AlertDTO> findCriticalUnacknowledged() {
+        Page<AlertDTO> open = find(null, null, Alert.Severity.Critical, Alert.AlertStatus.Open, null, null, null, Pageable.unpaged());
+        Page<AlertDTO> unacknowledged = find(null, null, Alert.Severity.Critical, Alert.AlertStatus.Unacknowledged, null, null, null, Pageable.unpaged());
+        List<AlertDTO> alerts = new ArrayList<>(open.getContent());
+        alerts.addAll(unacknowledged.getContent());
+        alerts.sort(comparator(Sort.by(Sort.Direction.DESC, "createdAt")));
+        return alerts;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAlertChanged(AlertLifecycleEvent event) {
+        long stamp = lock.writeLock();
+        try {
+            buckets.apply(event);
+            if (eventsDuringRebuild != null) {
+                eventsDuringRebuild.add(event);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Events committed while the snapshot loads are replayed onto it before the swap, so
+    // nothing that happens during a rebuild is lost
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${alerts.active-index.rebuild-interval-ms:600000}",
+            fixedDelayString = "${alerts.active-index.rebuild-interval-ms:600000}")
+    public void rebuild() {
+        long stamp = lock.writeLock();
+        eventsDuringRebuild = new ArrayList<>();
+        lock.unlockWrite(stamp);
+
+        try {
+            List<AlertDTO> active = alertRepository
+                    .findAlertViews(AlertSpecifications.withStatusIn(INDEXED_STATUSES), Pageable.unpaged())
+                    .getContent();
+            Buckets fresh = new Buckets(active.size());
+            active.forEach(fresh::add);
+
+            stamp = lock.writeLock();
+            try {
+                eventsDuringRebuild.forEach(fresh::apply);
+                buckets = fresh;
+                ready = true;
+            } finally {
+                eventsDuringRebuild = null;
+                lock.unlockWrite(stamp);
+            }
+            log.debug("Active alert index rebuilt with {} alerts", active.size());
+        } catch (RuntimeException e) {
+            stamp = lock.writeLock();
+            eventsDuringRebuild = null;
+            lock.unlockWrite(stamp);
+            log.warn("Failed to rebuild the active alert index, keeping the current one", e);
+        }
+    }
+
+    private int size() {
+        long stamp = lock.tryOptimisticRead();
+        int size = buckets.byId.size();
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                size = buckets.byId.size();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    private static Comparator<AlertDTO> comparator(Sort sort) {
+        Comparator<AlertDTO> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<AlertDTO> next = SORTABLE.get(order.getProperty());
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        Comparator<AlertDTO> newestFirst = SORTABLE.get("id").reversed();
+        return comparator == null ? newestFirst : comparator.thenComparing(newestFirst);
+    }
+
+    private static final class Buckets {
+        private static final LongObjectHashMap<AlertDTO> EMPTY = new LongObjectHashMap<>(0);
+
+        private final LongObjectHashMap<AlertDTO> byId;
+        private final LongObjectHashMap<LongObjectHashMap<AlertDTO>> byDevice = new LongObjectHashMap<>();
+        private final Map<Alert.Severity, LongObjectHashMap<AlertDTO>> bySeverity = new EnumMap<>(Alert.Severity.class);
+        private final Map<String, LongObjectHashMap<AlertDTO>> byType = new HashMap<>();
+
+        private Buckets(int expectedSize) {
+            this.byId = new LongObjectHashMap<>(expectedSize);
+        }
+
+        private void apply(AlertLifecycleEvent event) {
+            AlertDTO alert = event.alert();
+            remove(alert.getId());
+            if (event.type() != AlertLifecycleEvent.Type.DELETED
+                    && alert.getStatus() != null
+                    && INDEXED_STATUSES.contains(Alert.AlertStatus.valueOf(alert.getStatus()))) {
+                add(alert);
+            }
+        }
+
+        private void add(AlertDTO alert) {
+            long id = alert.getId();
+            remove(id);
+            byId.put(id, alert);
+            bucket(byDevice, alert.getDeviceId()).put(id, alert);
+            bySeverity.computeIfAbsent(Alert.Severity.valueOf(alert.getSeverity()), key -> new LongObjectHashMap<>()).put(id, alert);
+            byType.computeIfAbsent(alert.getAlertType(), key -> new LongObjectHashMap<>()).put(id, alert);
+        }
+
+        private void remove(long id) {
+            AlertDTO previous = byId.remove(id);
+            if (previous == null) {
+                return;
+            }
+            LongObjectHashMap<AlertDTO> device = byDevice.get(previous.getDeviceId());
+            if (device != null && device.remove(id) != null && device.isEmpty()) {
+                byDevice.remove(previous.getDeviceId());
+            }
+            removeFrom(bySeverity, Alert.Severity.valueOf(previous.getSeverity()), id);
+            removeFrom(byType, previous.getAlertType(), id);
+        }
+
+        // Smallest bucket that every match must be in
+        private LongObjectHashMap<AlertDTO> candidates(Long deviceId, String alertType, Alert.Severity severity) {
+            LongObjectHashMap<AlertDTO> smallest = byId;
+            if (deviceId != null) {
+                smallest = smaller(smallest, byDevice.get(deviceId));
+            }
+            if (alertType != null) {
+                smallest = smaller(smallest, byType.get(alertType));
+            }
+            if (severity != null) {
+                smallest = smaller(smallest, bySeverity.get(severity));
+            }
+            return smallest;
+        }
+
+        private static LongObjectHashMap<AlertDTO> smaller(LongObjectHashMap<AlertDTO> current, LongObjectHashMap<AlertDTO> bucket) {
+            if (bucket == null) {
+                return EMPTY;
+            }
+            return bucket.size() < current.size() ? bucket : current;
+        }
+
+        private static LongObjectHashMap<AlertDTO> bucket(LongObjectHashMap<LongObjectHashMap<AlertDTO>> buckets, long key) {
+            LongObjectHashMap<AlertDTO> bucket = buckets.get(key);
+            if (bucket == null) {
+                bucket = new LongObjectHashMap<>();
+                buckets.put(key, bucket);
+            }
+            return bucket;
+        }
+
+        private static <K> void removeFrom(Map<K, LongObjectHashMap<AlertDTO>> buckets, K key, long id) {
+            LongObjectHashMap<AlertDTO> bucket = buckets.get(key);
+            if (bucket != null && bucket.remove(id) != null && bucket.isEmpty()) {
+                buckets.remove(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.dto.AlertHistogramBucketDTO;
+import com.smartsolutions.smart_solutions.dto.AlertHistogramDTO;
+import com.smartsolutions.smart_solutions.dto.AlertResponseTimeDTO;
+import com.smartsolutions.smart_solutions.event.AlertLifecycleEvent;
+import com.smartsolutions.smart_solutions.exception.BadRequestException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Alert histograms and response times computed in SQL. Histogram buckets that have closed
+// are cached per bucket width and grouping, so a 30-day hourly report only queries the
+// current hour once warm. A bucket is evicted when an alert created in it is created late,
+// changed (escalation moves severity) or deleted. Archiving moves alerts without changing
+// any bucket, so ranges reaching back past the archive cutoff read both tables.
+@Service
+public class AlertAnalyticsService {
+
+    public enum GroupBy {
+        SEVERITY("a.severity"),
+        ALERT_TYPE("a.alert_type"),
+        DEVICE_TYPE("COALESCE(dt.type_name, 'Unknown')"),
+        NONE("'All'");
+
+        private final String expression;
+
+        GroupBy(String expression) {
+            this.expression = expression;
+        }
+    }
+
+    // Buckets are aligned to this origin, so the same width always yields the same buckets
+    private static final Instant ORIGIN = Instant.parse("2000-01-01T00:00:00Z");
+
+    private static final String HISTOGRAM =
+            "SELECT date_bin(make_interval(secs => ?), a.created_at, TIMESTAMPTZ '2000-01-01 00:00:00+00') AS bucket, " +
+            "%s AS grp, COUNT(*) AS alert_count " +
+            "FROM %s a %s" +
+            "WHERE a.created_at >= ? AND a.created_at < ? " +
+            "GROUP BY 1, 2";
+
+    private static final String RESPONSE_TIMES =
+            "SELECT %s AS grp, COUNT(*) AS alert_count, " +
+            "COUNT(a.acknowledged_at) AS acknowledged_count, " +
+            "AVG(EXTRACT(EPOCH FROM a.acknowledged_at - a.created_at)) AS ack_mean, " +
+            "percentile_cont(ARRAY[0.5, 0.9, 0.99]) WITHIN GROUP (ORDER BY EXTRACT(EPOCH FROM a.acknowledged_at - a.created_at)) AS ack_percentiles, " +
+            "COUNT(a.resolved_at) AS resolved_count, " +
+            "AVG(EXTRACT(EPOCH FROM a.resolved_at - a.created_at)) AS resolve_mean, " +
+            "percentile_cont(ARRAY[0.5, 0.9, 0.99]) WITHIN GROUP (ORDER BY EXTRACT(EPOCH FROM a.resolved_at - a.created_at)) AS resolve_percentiles " +
+            "FROM %s a %s" +
+            "WHERE a.created_at >= ? AND a.created_at < ? " +
+            "GROUP BY 1 ORDER BY 1";
+
+    private static final String ALERTS = "iot.device_alerts";
+
+    // The range condition is pushed down into both branches
+    private static final String ALERTS_WITH_HISTORY =
+            "(SELECT device_id, alert_type, severity, created_at, acknowledged_at, resolved_at FROM iot.device_alerts " +
+            "UNION ALL " +
+            "SELECT device_id, alert_type, severity, created_at, acknowledged_at, resolved_at FROM iot.device_alerts_history)";
+
+    private static final String DEVICE_TYPE_JOIN =
+            "JOIN iot.devices d ON d.device_id = a.device_id " +
+            "LEFT JOIN iot.device_types dt ON dt.type_id = d.type_id ";
+
+    private record SeriesKey(long bucketSeconds, GroupBy groupBy) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AlertArchivalService alertArchivalService;
+    private final int maxBucketsPerRequest;
+    private final int maxCachedBucketsPerSeries;
+    private final int maxCachedSeries;
+    private final Map<SeriesKey, NavigableMap<Instant, Map<String, Long>>> closedBuckets = new ConcurrentHashMap<>();
+    // Bumped by every eviction; a query result is only cached if none happened meanwhile
+    private final AtomicLong evictions = new AtomicLong();
+    private final Counter cachedBucketsServed;
+    private final Counter queriedBuckets;
+
+    public AlertAnalyticsService(
+            JdbcTemplate jdbcTemplate,
+            AlertArchivalService alertArchivalService,
+            MeterRegistry meterRegistry,
+            @Value("${alerts.analytics.max-buckets-per-request:10000}") int maxBucketsPerRequest,
+            @Value("${alerts.analytics.max-cached-buckets-per-series:50000}") int maxCachedBucketsPerSeries,
+            @Value("${alerts.analytics.max-cached-series:32}") int maxCachedSeries) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.alertArchivalService = alertArchivalService;
+        this.maxBucketsPerRequest = maxBucketsPerRequest;
+        this.maxCachedBucketsPerSeries = maxCachedBucketsPerSeries;
+        this.maxCachedSeries = maxCachedSeries;
+        this.cachedBucketsServed = Counter.builder("alerts.analytics.buckets.cached")
+                .description("Histogram buckets served from the closed-bucket cache")
+                .register(meterRegistry);
+        this.queriedBuckets = Counter.builder("alerts.analytics.buckets.queried")
+                .description("Histogram buckets read from the database")
+                .register(meterRegistry);
+    }
+
+    public AlertHistogramDTO histogram(Instant startDate, Instant endDate, int bucketMinutes, GroupBy groupBy) {
+        validateRange(startDate, endDate);
+        if (bucketMinutes < 1 || bucketMinutes > 43_200) {
+            throw new BadRequestException("Bucket width must be between 1 minute and 30 days");
+        }
+        Duration width = Duration.ofMinutes(bucketMinutes);
+        Instant first = align(startDate, width);
+        Instant end = align(endDate.minusNanos(1), width).plus(width);
+        long bucketCount = Duration.between(first, end).dividedBy(width);
+        if (bucketCount > maxBucketsPerRequest) {
+            throw new BadRequestException(String.format(
+                    "Range spans %d buckets, at most %d are allowed; use wider buckets", bucketCount, maxBucketsPerRequest));
+        }
+
+        SeriesKey key = new SeriesKey(width.toSeconds(), groupBy);
+        NavigableMap<Instant, Map<String, Long>> cache = series(key);
+        // Buckets starting before the current one cannot gain alerts any more
+        Instant closedEnd = align(Instant.now(), width);
+        Instant cachedEnd = end.isBefore(closedEnd) ? end : closedEnd;
+
+        // Served from the cache up to the first closed bucket that is missing, read from there on
+        Map<Instant, Map<String, Long>> cached = new HashMap<>();
+        Instant queryFrom = cachedEnd.isAfter(first) ? cachedEnd : first;
+        for (Instant bucket = first; bucket.isBefore(cachedEnd); bucket = bucket.plus(width)) {
+            Map<String, Long> counts = cache.get(bucket);
+            if (counts == null) {
+                queryFrom = bucket;
+                break;
+            }
+            cached.put(bucket, counts);
+        }
+
+        Map<Instant, Map<String, Long>> queried = Map.of();
+        if (queryFrom.isBefore(end)) {
+            long generation = evictions.get();
+            queried = queryHistogram(queryFrom, end, width, groupBy);
+            List<Instant> added = new ArrayList<>();
+            for (Instant bucket = queryFrom; bucket.isBefore(cachedEnd); bucket = bucket.plus(width)) {
+                cache.put(bucket, queried.getOrDefault(bucket, Map.of()));
+                added.add(bucket);
+            }
+            // An alert in these buckets changed while we were reading; don't keep what may be stale
+            if (evictions.get() != generation) {
+                added.forEach(cache::remove);
+            }
+            if (cache.size() > maxCachedBucketsPerSeries) {
+                cache.clear();
+            }
+            queriedBuckets.increment(Duration.between(queryFrom, end).dividedBy(width));
+        }
+
+        List<AlertHistogramBucketDTO> buckets = new ArrayList<>((int) bucketCount);
+        for (Instant bucket = first; bucket.isBefore(end); bucket = bucket.plus(width)) {
+            Map<String, Long> counts = (bucket.isBefore(queryFrom) ? cached : queried).getOrDefault(bucket, Map.of());
+            buckets.add(AlertHistogramBucketDTO.builder()
+                    .bucketStart(bucket)
+                    .counts(counts)
+                    .total(counts.values().stream().mapToLong(Long::longValue).sum())
+                    .build());
+        }
+        cachedBucketsServed.increment(cached.size());
+
+        return AlertHistogramDTO.builder()
+                .bucketMinutes(bucketMinutes)
+                .groupBy(groupBy.name())
+                .startDate(first)
+                .endDate(end)
+                .buckets(buckets)
+                .build();
+    }
+
+    public List<AlertResponseTimeDTO> responseTimes(Instant startDate, Instant endDate, GroupBy groupBy) {
+        validateRange(startDate, endDate);
+        String sql = String.format(RESPONSE_TIMES, groupBy.expression, source(startDate),
+                groupBy == GroupBy.DEVICE_TYPE ? DEVICE_TYPE_JOIN : "");
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            Double[] ack = percentiles(rs.getArray("ack_percentiles"));
+            Double[] resolve = percentiles(rs.getArray("resolve_percentiles"));
+            return AlertResponseTimeDTO.builder()
+                    .group(rs.getString("grp"))
+                    .alertCount(rs.getLong("alert_count"))
+                    .acknowledgedCount(rs.getLong("acknowledged_count"))
+                    .meanTimeToAcknowledge(nullableDouble(rs, "ack_mean"))
+                    .p50TimeToAcknowledge(ack[0])
+                    .p90TimeToAcknowledge(ack[1])
+                    .p99TimeToAcknowledge(ack[2])
+                    .resolvedCount(rs.getLong("resolved_count"))
+                    .meanTimeToResolve(nullableDouble(rs, "resolve_mean"))
+                    .p50TimeToResolve(resolve[0])
+                    .p90TimeToResolve(resolve[1])
+                    .p99TimeToResolve(resolve[2])
+                    .build();
+        }, utc(startDate), utc(endDate));
+    }
+
+    // Acknowledge, resolve and suppress change neither the creation bucket nor any grouping
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAlertChanged(AlertLifecycleEvent event) {
+        switch (event.type()) {
+            case CREATED, UPDATED, ESCALATED, DELETED -> {
+                if (event.alert().getCreatedAt() != null) {
+                    evict(event.alert().getCreatedAt().atZone(ZoneId.systemDefault()).toInstant());
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void evict(Instant createdAt) {
+        evictions.incrementAndGet();
+        closedBuckets.forEach((key, cache) -> cache.remove(align(createdAt, Duration.ofSeconds(key.bucketSeconds()))));
+    }
+
+    private NavigableMap<Instant, Map<String, Long>> series(SeriesKey key) {
+        if (closedBuckets.size() >= maxCachedSeries && !closedBuckets.containsKey(key)) {
+            closedBuckets.clear();
+        }
+        return closedBuckets.computeIfAbsent(key, k -> new ConcurrentSkipListMap<>());
+    }
+
+    private Map<Instant, Map<String, Long>> queryHistogram(Instant from, Instant to, Duration width, GroupBy groupBy) {
+        String sql = String.format(HISTOGRAM, groupBy.expression, source(from),
+                groupBy == GroupBy.DEVICE_TYPE ? DEVICE_TYPE_JOIN : "");
+        Map<Instant, Map<String, Long>> buckets = new TreeMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            buckets.computeIfAbsent(rs.getObject("bucket", OffsetDateTime.class).toInstant(), bucket -> new HashMap<>())
+                    .put(rs.getString("grp"), rs.getLong("alert_count"));
+        }, (double) width.toSeconds(), utc(from), utc(to));
+        buckets.replaceAll((bucket, counts) -> Map.copyOf(counts));
+        return buckets;
+    }
+
+    private String source(Instant from) {
+        return alertArchivalService.mayHaveArchived(from) ? ALERTS_WITH_HISTORY : ALERTS;
+    }
+
+    private static Instant align(Instant instant, Duration width) {
+        long widthSeconds = width.toSeconds();
+        long offset = Math.floorDiv(instant.getEpochSecond() - ORIGIN.getEpochSecond(), widthSeconds);
+        return ORIGIN.plusSeconds(offset * widthSeconds);
+    }
+
+    private static void validateRange(Instant startDate, Instant endDate) {
+        if (!startDate.isBefore(endDate)) {
+            throw new BadRequestException("Start date must be before end date");
+        }
+    }
+
+    private static Double[] percentiles(Array array) throws SQLException {
+        if (array == null) {
+            return new Double[3];
+        }
+        Object[] values = (Object[]) array.getArray();
+        Double[] result = new Double[3];
+        for (int i = 0; i < result.length && i < values.length; i++) {
+            result[i] = values[i] != null ? ((Number) values[i]).doubleValue() : null;
+        }
+        return result;
+    }
+
+    private static Double nullableDouble(ResultSet rs, String column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static OffsetDateTime utc(Instant instant) {
+        return OffsetDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,184 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.model.Alert;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Moves resolved and suppressed alerts that have been closed for `archiveAfter` out of
+// device_alerts into the month-partitioned device_alerts_history. Each chunk is one
+// DELETE ... RETURNING feeding an INSERT, so an alert is always in exactly one of the two
+// tables, and SKIP LOCKED lets several nodes run the job at once. Alert counters only
+// count device_alerts (that is what reconcile recounts), so moved alerts are subtracted.
+@Slf4j
+@Service
+public class AlertArchivalService {
+
+    private static final String MOVE_CHUNK =
+            "WITH candidates AS (" +
+            "  SELECT alert_id FROM iot.device_alerts " +
+            "  WHERE status IN (?, ?) AND COALESCE(resolved_at, updated_at) < ? " +
+            "  ORDER BY COALESCE(resolved_at, updated_at) LIMIT ? FOR UPDATE SKIP LOCKED" +
+            "), moved AS (" +
+            "  DELETE FROM iot.device_alerts a USING candidates c WHERE a.alert_id = c.alert_id " +
+            "  RETURNING a.*" +
+            "), archived AS (" +
+            "  INSERT INTO iot.device_alerts_history (alert_id, device_id, alert_type, severity, message, additional_data, " +
+            "    status, created_by, acknowledged_by, resolved_by, created_at, updated_at, acknowledged_at, resolved_at, " +
+            "    escalation_level, archived_at) " +
+            "  SELECT alert_id, device_id, alert_type, severity, message, additional_data, " +
+            "    status, created_by, acknowledged_by, resolved_by, created_at, updated_at, acknowledged_at, resolved_at, " +
+            "    escalation_level, ? FROM moved " +
+            "  RETURNING severity, status, device_id" +
+            ") " +
+            "SELECT ar.severity, ar.status, COALESCE(d.type_id, 0) AS device_type_id, COUNT(*) AS alert_count " +
+            "FROM archived ar LEFT JOIN iot.devices d ON d.device_id = ar.device_id " +
+            "GROUP BY ar.severity, ar.status, COALESCE(d.type_id, 0)";
+
+    // Every archived alert was created before this, so it bounds the months needing a partition
+    private static final String SELECT_OLDEST_ALERT = "SELECT MIN(created_at) FROM iot.device_alerts";
+
+    private static final String SELECT_NEWEST_ARCHIVED = "SELECT MAX(created_at) FROM iot.device_alerts_history";
+
+    private static final String CREATE_PARTITION =
+            "CREATE TABLE IF NOT EXISTS iot.device_alerts_history_y%dm%02d PARTITION OF iot.device_alerts_history " +
+            "FOR VALUES FROM ('%s') TO ('%s')";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AlertCounterService alertCounterService;
+    private final Duration archiveAfter;
+    private final int chunkSize;
+    private final Counter archived;
+    private final Set<YearMonth> partitions = ConcurrentHashMap.newKeySet();
+
+    // Creation time of the newest archived alert; null while the history is empty
+    private volatile Instant archivedThrough;
+
+    public AlertArchivalService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            AlertCounterService alertCounterService,
+            MeterRegistry meterRegistry,
+            @Value("${alerts.archive.after-days:30}") long archiveAfterDays,
+            @Value("${alerts.archive.chunk-size:2000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.alertCounterService = alertCounterService;
+        this.archiveAfter = Duration.ofDays(archiveAfterDays);
+        this.chunkSize = chunkSize;
+        this.archived = Counter.builder("alerts.archived")
+                .description("Alerts moved from device_alerts to device_alerts_history")
+                .register(meterRegistry);
+    }
+
+    // True when alerts created at or after startDate (null: any time) may have been archived.
+    // Uses the later of what this node last saw in the history and the archive cutoff itself,
+    // so alerts archived meanwhile by another node are not missed.
+    public boolean mayHaveArchived(Instant startDate) {
+        Instant through = archivedThrough;
+        if (through == null) {
+            return false;
+        }
+        Instant cutoff = Instant.now().minus(archiveAfter);
+        return startDate == null || startDate.isBefore(through.isAfter(cutoff) ? through : cutoff);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadArchivedThrough() {
+        try {
+            OffsetDateTime newest = jdbcTemplate.queryForObject(SELECT_NEWEST_ARCHIVED, OffsetDateTime.class);
+            archivedThrough = newest != null ? newest.toInstant() : null;
+        } catch (DataAccessException e) {
+            log.warn("Failed to read the alert history bounds", e);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${alerts.archive.interval-ms:600000}",
+            fixedDelayString = "${alerts.archive.interval-ms:600000}")
+    public void archive() {
+        archiveBefore(Instant.now().minus(archiveAfter));
+    }
+
+    // Returns how many alerts were moved
+    long archiveBefore(Instant cutoff) {
+        ensurePartitions(cutoff);
+
+        long moved = 0;
+        long chunk;
+        do {
+            chunk = moveChunk(cutoff);
+            moved += chunk;
+        } while (chunk == chunkSize);
+
+        loadArchivedThrough();
+        if (moved > 0) {
+            log.info("Archived {} alerts closed before {}", moved, cutoff);
+        }
+        return moved;
+    }
+
+    private long moveChunk(Instant cutoff) {
+        return transactionTemplate.execute(status -> {
+            Map<AlertCounterService.CounterKey, Long> deltas = new HashMap<>();
+            jdbcTemplate.query(MOVE_CHUNK, rs -> {
+                deltas.merge(new AlertCounterService.CounterKey(
+                        Alert.Severity.valueOf(rs.getString("severity")),
+                        Alert.AlertStatus.valueOf(rs.getString("status")),
+                        rs.getLong("device_type_id")), -rs.getLong("alert_count"), Long::sum);
+            }, Alert.AlertStatus.Resolved.name(), Alert.AlertStatus.Suppressed.name(), utc(cutoff), chunkSize,
+                    utc(Instant.now()));
+            alertCounterService.applyDeltas(deltas);
+
+            long count = -deltas.values().stream().mapToLong(Long::longValue).sum();
+            archived.increment(count);
+            return count;
+        });
+    }
+
+    // Partitions have to exist before rows arrive: one cannot be created over rows that
+    // already went to the default partition
+    private void ensurePartitions(Instant cutoff) {
+        OffsetDateTime oldest = jdbcTemplate.queryForObject(SELECT_OLDEST_ALERT, OffsetDateTime.class);
+        if (oldest == null) {
+            return;
+        }
+        YearMonth last = YearMonth.from(utc(cutoff));
+        for (YearMonth month = YearMonth.from(oldest.withOffsetSameInstant(ZoneOffset.UTC)); !month.isAfter(last); month = month.plusMonths(1)) {
+            if (partitions.contains(month)) {
+                continue;
+            }
+            try {
+                jdbcTemplate.execute(String.format(CREATE_PARTITION, month.getYear(), month.getMonthValue(),
+                        utc(month.atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC)),
+                        utc(month.plusMonths(1).atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC))));
+                partitions.add(month);
+            } catch (DataAccessException e) {
+                log.warn("Could not create alert history partition for {}, its alerts go to the default partition", month, e);
+            }
+        }
+    }
+
+    private static OffsetDateTime utc(Instant instant) {
+        return OffsetDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,196 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.model.Alert;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Alert counts per severity x status x device type, maintained by deltas written in the
+// same transaction as the alert change. Reads touch at most |severity| x |status| x |types|
+// rows, independent of how many alerts exist. Device type 0 stands for "no type".
+@Slf4j
+@Service
+public class AlertCounterService {
+
+    public static final long NO_DEVICE_TYPE = 0L;
+
+    private static final String APPLY_DELTA =
+            "INSERT INTO iot.alert_counters (severity, status, device_type_id, alert_count) " +
+            "SELECT ?, ?, COALESCE(d.type_id, 0), ? FROM iot.devices d WHERE d.device_id = ? " +
+            "ON CONFLICT (severity, status, device_type_id) DO UPDATE " +
+            "SET alert_count = iot.alert_counters.alert_count + EXCLUDED.alert_count";
+
+    private static final String APPLY_TYPED_DELTA =
+            "INSERT INTO iot.alert_counters (severity, status, device_type_id, alert_count) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (severity, status, device_type_id) DO UPDATE " +
+            "SET alert_count = iot.alert_counters.alert_count + EXCLUDED.alert_count";
+
+    private static final String SELECT_COUNTERS =
+            "SELECT severity, status, device_type_id, alert_count FROM iot.alert_counters";
+
+    private static final String SELECT_ACTUAL_COUNTS =
+            "SELECT a.severity, a.status, COALESCE(d.type_id, 0), COUNT(*) " +
+            "FROM iot.device_alerts a JOIN iot.devices d ON d.device_id = a.device_id " +
+            "GROUP BY a.severity, a.status, COALESCE(d.type_id, 0)";
+
+    public record CounterKey(Alert.Severity severity, Alert.AlertStatus status, long deviceTypeId) {
+    }
+
+    private record StatusKey(Alert.Severity severity, Alert.AlertStatus status) {
+    }
+
+    // Rows are always locked in this order, so two transactions moving alerts in opposite
+    // directions (Open -> Acknowledged and back) cannot deadlock on the counter rows
+    private static final Comparator<StatusKey> LOCK_ORDER = Comparator
+            .comparing((StatusKey key) -> key.severity().name())
+            .thenComparing(key -> key.status().name());
+
+    private static final Comparator<CounterKey> COUNTER_ORDER = Comparator
+            .comparing((CounterKey key) -> key.severity().name())
+            .thenComparing(key -> key.status().name())
+            .thenComparingLong(CounterKey::deviceTypeId);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshotTransaction;
+    private final TransactionTemplate repairTransaction;
+
+    public AlertCounterService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setReadOnly(true);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.repairTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void created(Long deviceId, Alert.Severity severity, Alert.AlertStatus status) {
+        apply(deviceId, Map.of(new StatusKey(severity, status), 1L));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deleted(Long deviceId, Alert.Severity severity, Alert.AlertStatus status) {
+        apply(deviceId, Map.of(new StatusKey(severity, status), -1L));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void changed(Long deviceId,
+                        Alert.Severity oldSeverity, Alert.AlertStatus oldStatus,
+                        Alert.Severity newSeverity, Alert.AlertStatus newStatus) {
+        if (oldSeverity == newSeverity && oldStatus == newStatus) {
+            return;
+        }
+        Map<StatusKey, Long> deltas = new HashMap<>();
+        deltas.merge(new StatusKey(oldSeverity, oldStatus), -1L, Long::sum);
+        deltas.merge(new StatusKey(newSeverity, newStatus), 1L, Long::sum);
+        apply(deviceId, deltas);
+    }
+
+    // For bulk changes that already know the device types; deltas of zero are skipped
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void applyDeltas(Map<CounterKey, Long> deltas) {
+        List<Object[]> batch = new ArrayList<>();
+        deltas.entrySet().stream()
+                .filter(entry -> entry.getValue() != 0)
+                .sorted(Map.Entry.comparingByKey(COUNTER_ORDER))
+                .forEach(entry -> batch.add(new Object[]{
+                        entry.getKey().severity().name(), entry.getKey().status().name(),
+                        entry.getKey().deviceTypeId(), entry.getValue()}));
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(APPLY_TYPED_DELTA, batch);
+        }
+    }
+
+    private void apply(Long deviceId, Map<StatusKey, Long> deltas) {
+        List<Object[]> batch = new ArrayList<>();
+        deltas.entrySet().stream()
+                .filter(entry -> entry.getValue() != 0)
+                .sorted(Map.Entry.comparingByKey(LOCK_ORDER))
+                .forEach(entry -> batch.add(new Object[]{
+                        entry.getKey().severity().name(), entry.getKey().status().name(), entry.getValue(), deviceId}));
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(APPLY_DELTA, batch);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public Map<Alert.Severity, Long> countBySeverity(Long deviceTypeId) {
+        Map<Alert.Severity, Long> counts = new EnumMap<>(Alert.Severity.class);
+        for (Map.Entry<CounterKey, Long> entry : readCounters().entrySet()) {
+            if (entry.getValue() > 0 && (deviceTypeId == null || entry.getKey().deviceTypeId() == deviceTypeId)) {
+                counts.merge(entry.getKey().severity(), entry.getValue(), Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    @Transactional(readOnly = true)
+    public Map<Alert.AlertStatus, Long> countByStatus(Long deviceTypeId) {
+        Map<Alert.AlertStatus, Long> counts = new EnumMap<>(Alert.AlertStatus.class);
+        for (Map.Entry<CounterKey, Long> entry : readCounters().entrySet()) {
+            if (entry.getValue() > 0 && (deviceTypeId == null || entry.getKey().deviceTypeId() == deviceTypeId)) {
+                counts.merge(entry.getKey().status(), entry.getValue(), Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    // Recomputes every counter from device_alerts and repairs drift (alerts changed outside
+    // the service, devices moved to another type) without blocking writers. Counters and
+    // recount are read from one snapshot, which sees each alert change together with its
+    // delta or not at all, so their difference is exactly the drift. It is then added as a
+    // delta of its own, which stays right whatever deltas commit after the snapshot.
+    @Scheduled(initialDelayString = "${alerts.counters.reconcile-interval-ms:300000}",
+            fixedDelayString = "${alerts.counters.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        Map<CounterKey, Long> drift = snapshotTransaction.execute(status -> {
+            Map<CounterKey, Long> differences = new HashMap<>();
+            jdbcTemplate.query(SELECT_ACTUAL_COUNTS, rs -> {
+                CounterKey key = toKey(rs.getString(1), rs.getString(2), rs.getLong(3));
+                if (key != null) {
+                    differences.merge(key, rs.getLong(4), Long::sum);
+                }
+            });
+            readCounters().forEach((key, stored) -> differences.merge(key, -stored, Long::sum));
+            differences.values().removeIf(difference -> difference == 0);
+            return differences;
+        });
+
+        if (drift != null && !drift.isEmpty()) {
+            repairTransaction.executeWithoutResult(status -> applyDeltas(drift));
+            log.warn("Repaired {} drifted alert counters", drift.size());
+        }
+    }
+
+    private Map<CounterKey, Long> readCounters() {
+        Map<CounterKey, Long> counters = new HashMap<>();
+        jdbcTemplate.query(SELECT_COUNTERS, rs -> {
+            CounterKey key = toKey(rs.getString(1), rs.getString(2), rs.getLong(3));
+            if (key != null) {
+                counters.put(key, rs.getLong(4));
+            }
+        });
+        return counters;
+    }
+
+    private CounterKey toKey(String severity, String status, long deviceTypeId) {
+        try {
+            return new CounterKey(Alert.Severity.valueOf(severity), Alert.AlertStatus.valueOf(status), deviceTypeId);
+        } catch (IllegalArgumentException e) {
+            // Rows written outside the application with other spellings are left alone
+            return null;
+        }
+    }
+}
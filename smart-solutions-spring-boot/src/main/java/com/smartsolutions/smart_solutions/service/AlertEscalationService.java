@@ -0,0 +1,193 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.dto.AlertDTO;
+import com.smartsolutions.smart_solutions.event.AlertLifecycleEvent;
+import com.smartsolutions.smart_solutions.model.Alert;
+import com.smartsolutions.smart_solutions.util.HashedTimingWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Escalates alerts nobody acknowledges: each level waits its configured delay, then bumps the
+// severity one step and publishes an ESCALATED lifecycle event for notifications and streams.
+// Timers live in a hashed timing wheel (O(1) arm and disarm); the next deadline is persisted on
+// the alert, so the wheel is rebuilt from the database on startup.
+@Slf4j
+@Service
+public class AlertEscalationService {
+
+    private static final String SELECT_PENDING =
+            "SELECT alert_id, escalation_level, next_escalation_at FROM iot.device_alerts " +
+            "WHERE next_escalation_at IS NOT NULL AND status IN (?, ?)";
+
+    private static final Duration RETRY_DELAY = Duration.ofMinutes(1);
+
+    private record Escalation(long alertId, int level) {
+    }
+
+    private final AlertTransitionService alertTransitionService;
+    // Own template so the streaming fetch size does not leak into the shared one
+    private final JdbcTemplate recoveryJdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final HashedTimingWheel<Escalation> wheel;
+    private final ExecutorService escalationExecutor;
+    private final Map<Long, HashedTimingWheel<Escalation>.Timeout> timers = new ConcurrentHashMap<>();
+    private final Duration[] levelDelays;
+    private final Alert.Severity minSeverity;
+    private final Counter escalations;
+
+    public AlertEscalationService(
+            AlertTransitionService alertTransitionService,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${alerts.escalation.delay-minutes:15,30,60}") long[] delayMinutes,
+            @Value("${alerts.escalation.min-severity:Medium}") Alert.Severity minSeverity,
+            @Value("${alerts.escalation.tick-ms:1000}") long tickMs,
+            @Value("${alerts.escalation.wheel-size:512}") int wheelSize) {
+        this.alertTransitionService = alertTransitionService;
+        this.recoveryJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.recoveryJdbcTemplate.setFetchSize(10_000);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.minSeverity = minSeverity;
+
+        this.levelDelays = new Duration[delayMinutes.length];
+        for (int i = 0; i < delayMinutes.length; i++) {
+            levelDelays[i] = Duration.ofMinutes(delayMinutes[i]);
+        }
+
+        AtomicInteger sequence = new AtomicInteger();
+        this.escalationExecutor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "alert-escalation-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.wheel = new HashedTimingWheel<>("alert-escalation-wheel", tickMs, TimeUnit.MILLISECONDS, wheelSize,
+                this::fire, escalationExecutor);
+
+        this.escalations = Counter.builder("alerts.escalations")
+                .description("Escalation levels fired for unacknowledged alerts")
+                .register(meterRegistry);
+        Gauge.builder("alerts.escalation.pending", wheel, HashedTimingWheel::pending)
+                .description("Armed escalation timers")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        wheel.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        wheel.stop();
+        escalationExecutor.shutdownNow();
+    }
+
+    // Called by AlertService.createAlert before the insert, so the deadline commits with the alert
+    public void plan(Alert alert) {
+        if (isEscalatable(alert.getSeverity(), alert.getStatus()) && levelDelays.length > 0) {
+            alert.setEscalationLevel(0);
+            alert.setNextEscalationAt(Instant.now().plus(levelDelays[0]));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAlertChanged(AlertLifecycleEvent event) {
+        AlertDTO alert = event.alert();
+        switch (event.type()) {
+            case CREATED -> {
+                if (isEscalatable(Alert.Severity.valueOf(alert.getSeverity()), Alert.AlertStatus.valueOf(alert.getStatus()))
+                        && levelDelays.length > 0) {
+                    arm(alert.getId(), 0, levelDelays[0]);
+                }
+            }
+            case ACKNOWLEDGED, RESOLVED, SUPPRESSED, DELETED -> disarm(alert.getId());
+            default -> {
+            }
+        }
+    }
+
+    // Re-arms every persisted deadline; overdue ones fire on the first tick
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        Instant now = Instant.now();
+        AtomicInteger recovered = new AtomicInteger();
+        // Streamed in fetch-size chunks (needs the transaction), never materialized as a list
+        readOnlyTransaction.executeWithoutResult(status ->
+                recoveryJdbcTemplate.query(SELECT_PENDING, rs -> {
+                    Instant deadline = rs.getObject(3, OffsetDateTime.class).toInstant();
+                    arm(rs.getLong(1), rs.getInt(2), Duration.between(now, deadline));
+                    recovered.incrementAndGet();
+                }, Alert.AlertStatus.Open.name(), Alert.AlertStatus.Unacknowledged.name()));
+        log.info("Recovered {} alert escalation timers", recovered.get());
+    }
+
+    private void arm(long alertId, int level, Duration delay) {
+        HashedTimingWheel<Escalation>.Timeout timeout =
+                wheel.schedule(new Escalation(alertId, level), Math.max(0, delay.toMillis()), TimeUnit.MILLISECONDS);
+        HashedTimingWheel<Escalation>.Timeout previous = timers.put(alertId, timeout);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    private void disarm(long alertId) {
+        HashedTimingWheel<Escalation>.Timeout timeout = timers.remove(alertId);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    private void fire(Escalation escalation) {
+        timers.computeIfPresent(escalation.alertId(),
+                (id, timeout) -> timeout.payload() == escalation ? null : timeout);
+
+        int nextLevel = escalation.level() + 1;
+        Instant nextEscalationAt = nextLevel < levelDelays.length ? Instant.now().plus(levelDelays[nextLevel]) : null;
+        try {
+            Optional<AlertDTO> escalated = alertTransitionService.escalate(
+                    escalation.alertId(), escalation.level(), nextEscalationAt);
+            if (escalated.isEmpty()) {
+                return;
+            }
+            escalations.increment();
+            log.info("Escalated alert {} to level {} ({})", escalation.alertId(), nextLevel, escalated.get().getSeverity());
+            if (nextEscalationAt != null) {
+                arm(escalation.alertId(), nextLevel, levelDelays[nextLevel]);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to escalate alert {} at level {}, retrying in {}",
+                    escalation.alertId(), escalation.level(), RETRY_DELAY, e);
+            arm(escalation.alertId(), escalation.level(), RETRY_DELAY);
+        }
+    }
+
+    private boolean isEscalatable(Alert.Severity severity, Alert.AlertStatus status) {
+        return severity != null && severity.compareTo(minSeverity) >= 0
+                && (status == Alert.AlertStatus.Open || status == Alert.AlertStatus.Unacknowledged);
+    }
+}
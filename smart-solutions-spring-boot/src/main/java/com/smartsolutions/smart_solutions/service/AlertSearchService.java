@@ -0,0 +1,120 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartsolutions.smart_solutions.dto.AlertSearchResultDTO;
+import com.smartsolutions.smart_solutions.exception.BadRequestException;
+import com.smartsolutions.smart_solutions.model.Alert;
+import com.smartsolutions.smart_solutions.repository.AlertRepository;
+import com.smartsolutions.smart_solutions.repository.AlertRepositoryCustom;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Ranked alert search over the generated search_vector column and additional_data, both
+// GIN-indexed. Pages are keyset-paged on (rank, alert id): the cursor carries the last
+// position, so a page costs the same however deep it is and alerts created meanwhile
+// don't shift later pages. Only device_alerts is searched, not the archived history.
+@Service
+public class AlertSearchService {
+
+    private final AlertRepository alertRepository;
+    private final ObjectMapper objectMapper;
+    private final int maxPageSize;
+
+    public AlertSearchService(
+            AlertRepository alertRepository,
+            ObjectMapper objectMapper,
+            @Value("${alerts.search.max-page-size:100}") int maxPageSize) {
+        this.alertRepository = alertRepository;
+        this.objectMapper = objectMapper;
+        this.maxPageSize = maxPageSize;
+    }
+
+    @Transactional(readOnly = true)
+    public AlertSearchResultDTO search(
+            String text,
+            String dataContains,
+            Long deviceId,
+            String alertType,
+            Alert.Severity severity,
+            Alert.AlertStatus status,
+            Boolean isActive,
+            Instant startDate,
+            Instant endDate,
+            int size,
+            String cursor) {
+
+        String query = text != null && !text.isBlank() ? text.trim() : null;
+        String data = dataContains != null && !dataContains.isBlank() ? validateJsonObject(dataContains) : null;
+        if (query == null && data == null) {
+            throw new BadRequestException("Either a search text or an additional data object is required");
+        }
+        if (size < 1 || size > maxPageSize) {
+            throw new BadRequestException("Page size must be between 1 and " + maxPageSize);
+        }
+
+        Float afterRank = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] position = decodeCursor(cursor);
+            afterRank = Float.parseFloat(position[0]);
+            afterId = Long.parseLong(position[1]);
+        }
+
+        // One row past the page tells whether there is a next one
+        List<AlertRepositoryCustom.SearchHit> hits = alertRepository.searchAlertViews(
+                query, data, deviceId, alertType, severity, status, isActive, startDate, endDate,
+                afterRank, afterId, size + 1);
+        List<AlertRepositoryCustom.SearchHit> page = hits.size() > size ? hits.subList(0, size) : hits;
+
+        String nextCursor = null;
+        if (hits.size() > size) {
+            AlertRepositoryCustom.SearchHit last = page.get(page.size() - 1);
+            nextCursor = encodeCursor(last.rank(), last.alert().getId());
+        }
+        return AlertSearchResultDTO.builder()
+                .alerts(page.stream().map(AlertRepositoryCustom.SearchHit::alert).collect(Collectors.toList()))
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    private String validateJsonObject(String json) {
+        try {
+            JsonNode node = objectMapper.readTree(json);
+            if (node == null || !node.isObject()) {
+                throw new BadRequestException("Additional data filter must be a JSON object");
+            }
+            return node.toString();
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("Additional data filter is not valid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    // Float.toString round-trips exactly, so the rank compares equal to the one in the database
+    private static String encodeCursor(float rank, long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((Float.toString(rank) + ":" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            if (position.length != 2) {
+                throw new BadRequestException("Invalid search cursor");
+            }
+            Float.parseFloat(position[0]);
+            Long.parseLong(position[1]);
+            return position;
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid search cursor");
+        }
+    }
+}
@@ -1,32 +1,48 @@
 package com.smartsolutions.smart_solutions.service;
 
 import com.smartsolutions.smart_solutions.dto.AlertDTO;
+import com.smartsolutions.smart_solutions.dto.BulkAlertRequest;
 import com.smartsolutions.smart_solutions.dto.DeviceDTO;
+import com.smartsolutions.smart_solutions.event.AlertLifecycleEvent;
+import com.smartsolutions.smart_solutions.exception.BadRequestException;
+import com.smartsolutions.smart_solutions.exception.ResourceNotFoundException;
 import com.smartsolutions.smart_solutions.model.Alert;
 import com.smartsolutions.smart_solutions.model.Device;
-import com.smartsolutions.smart_solutions.model.User;
 import com.smartsolutions.smart_solutions.repository.AlertRepository;
-import com.smartsolutions.smart_solutions.repository.UserRepository;
+import com.smartsolutions.smart_solutions.repository.AlertSpecifications;
 import com.smartsolutions.smart_solutions.util.AlertMapper;
-import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class AlertService {
 
+    private static final int MAX_LATEST_DEVICES = 500;
+    private static final int MAX_LATEST_PER_DEVICE = 50;
+
     private final AlertRepository alertRepository;
-    private final UserRepository userRepository;
     private final AlertMapper alertMapper;
+    private final AlertCounterService alertCounterService;
+    private final ActiveAlertIndex activeAlertIndex;
+    private final AlertTransitionService alertTransitionService;
+    private final AlertEscalationService alertEscalationService;
+    private final AlertArchivalService alertArchivalService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Page<Alert> findAlertsWithFilters(
             Long deviceId,
@@ -43,74 +59,87 @@ public class AlertService {
                 deviceId, alertType, severity, status, isActive, startDate, endDate, pageable);
     }
 
+    // Read model for listings: device, type and user names come from the same query.
+    // Filters that only select unresolved alerts are answered from the in-memory index;
+    // ranges reaching back past the archive cutoff also read device_alerts_history.
+    @Transactional(readOnly = true)
+    public Page<AlertDTO> findAlertViewsWithFilters(
+            Long deviceId,
+            String alertType,
+            Alert.Severity severity,
+            Alert.AlertStatus status,
+            Boolean isActive,
+            Instant startDate,
+            Instant endDate,
+            Pageable pageable) {
+
+        if (activeAlertIndex.canServe(status, isActive, pageable)) {
+            return activeAlertIndex.find(deviceId, alertType, severity, status, isActive, startDate, endDate, pageable);
+        }
+        // Only resolved and suppressed alerts are ever archived
+        boolean archivable = (status == null || status == Alert.AlertStatus.Resolved || status == Alert.AlertStatus.Suppressed)
+                && !Boolean.TRUE.equals(isActive);
+        if (archivable && alertArchivalService.mayHaveArchived(startDate)) {
+            return alertRepository.findAlertViewsWithHistory(
+                    deviceId, alertType, severity, status, isActive, startDate, endDate, pageable);
+        }
+        return alertRepository.findAlertViews(
+                AlertSpecifications.withFilters(deviceId, alertType, severity, status, isActive, startDate, endDate),
+                pageable);
+    }
+
     @Transactional
     public Alert createAlert(Alert alert) {
-        return alertRepository.save(alert);
+        alertEscalationService.plan(alert);
+        Alert saved = alertRepository.save(alert);
+        alertCounterService.created(saved.getDevice().getId(), saved.getSeverity(), saved.getStatus());
+        publish(AlertLifecycleEvent.Type.CREATED, saved, null);
+        return saved;
     }
 
-    @Transactional
+    // Only message and additional data are editable; written by a targeted statement so a
+    // concurrent transition or escalation is not overwritten with the state read here
     public AlertDTO updateAlert(Long id, AlertDTO alertDTO) {
-        Alert existingAlert = alertRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(
-                        String.format("Alert with ID %d not found", id)));
-
-        alertMapper.updateEntityFromDto(alertDTO, existingAlert);
-        existingAlert.setUpdatedAt(Instant.now());
-        return alertMapper.toDto(alertRepository.save(existingAlert));
+        return alertTransitionService.edit(id, alertDTO.getMessage(), alertDTO.getAdditionalData());
     }
 
 
-    @Transactional
-    public Alert acknowledgeAlert(Long alertId, Long userId) {
-        Alert alert = alertRepository.findById(alertId)
-                .orElseThrow(() -> new RuntimeException("Alert not found"));
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        alert.setStatus(Alert.AlertStatus.Acknowledged);
-        alert.setAcknowledgedBy(user);
-        alert.setAcknowledgedAt(Instant.now());
-
-        return alertRepository.save(alert);
+    // Conditional single-statement transitions; a concurrent or invalid change is a ConflictException
+    public AlertDTO acknowledgeAlert(Long alertId, Long userId) {
+        return alertTransitionService.transition(AlertTransitionService.Action.ACKNOWLEDGE, alertId, userId);
     }
 
-    @Transactional
-    public Alert resolveAlert(Long alertId, Long userId) {
-        Alert alert = alertRepository.findById(alertId)
-                .orElseThrow(() -> new RuntimeException("Alert not found"));
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        alert.setStatus(Alert.AlertStatus.Resolved);
-        alert.setResolvedBy(user);
-        alert.setResolvedAt(Instant.now());
-
-        return alertRepository.save(alert);
+    public AlertDTO resolveAlert(Long alertId, Long userId) {
+        return alertTransitionService.transition(AlertTransitionService.Action.RESOLVE, alertId, userId);
     }
 
-    @Transactional
+    // Kept for the batch-acknowledge endpoint; runs as a set-based bulk acknowledge
     public int acknowledgeMultipleAlerts(List<Long> alertIds, Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        if (alertIds == null || alertIds.isEmpty()) {
+            return 0;
+        }
+        return alertTransitionService.apply(AlertTransitionService.Action.ACKNOWLEDGE,
+                BulkAlertRequest.builder().alertIds(alertIds).build(), userId).getAffected();
+    }
 
-        return alertRepository.acknowledgeAlerts(
-                alertIds, user, Instant.now());
+    @Transactional
+    public void deleteAlert(Long alertId) {
+        Alert alert = alertRepository.findById(alertId)
+                .orElseThrow(() -> new ResourceNotFoundException("Alert not found with id: " + alertId));
+        AlertDTO lastState = alertMapper.toDto(alert);
+        alertRepository.delete(alert);
+        alertCounterService.deleted(alert.getDevice().getId(), alert.getSeverity(), alert.getStatus());
+        eventPublisher.publishEvent(new AlertLifecycleEvent(
+                AlertLifecycleEvent.Type.DELETED, lastState, lastState.getStatus(), Instant.now()));
     }
 
-    public Map<Alert.Severity, Long> countAlertsBySeverity() {
-        return alertRepository.findAll().stream()
-                .collect(Collectors.groupingBy(
-                        Alert::getSeverity,
-                        Collectors.counting()
-                ));
+    // Served from the maintained counters rather than by scanning alerts
+    public Map<Alert.Severity, Long> countAlertsBySeverity(Long deviceTypeId) {
+        return alertCounterService.countBySeverity(deviceTypeId);
     }
 
-    public Map<Alert.AlertStatus, Long> countAlertsByStatus() {
-        return alertRepository.findAll().stream()
-                .collect(Collectors.groupingBy(
-                        Alert::getStatus,
-                        Collectors.counting()
-                ));
+    public Map<Alert.AlertStatus, Long> countAlertsByStatus(Long deviceTypeId) {
+        return alertCounterService.countByStatus(deviceTypeId);
     }
 
     public List<Alert> findLatestDeviceAlerts(Long deviceId, int count) {
@@ -120,8 +149,40 @@ public class AlertService {
                 .collect(Collectors.toList());
     }
 
-    public List<Alert> findCriticalUnacknowledgedAlerts() {
-        return alertRepository.findCriticalUnacknowledgedAlerts(
-                Alert.Severity.Critical, Alert.AlertStatus.Acknowledged);
+    // Device list page: one statement for every visible device instead of one call per device
+    @Transactional(readOnly = true)
+    public Map<Long, List<AlertDTO>> findLatestAlertViews(Collection<Long> deviceIds, int count) {
+        Set<Long> distinct = new LinkedHashSet<>(deviceIds);
+        if (distinct.size() > MAX_LATEST_DEVICES) {
+            throw new BadRequestException("At most " + MAX_LATEST_DEVICES + " devices can be requested at once");
+        }
+        if (count < 1 || count > MAX_LATEST_PER_DEVICE) {
+            throw new BadRequestException("Count must be between 1 and " + MAX_LATEST_PER_DEVICE);
+        }
+        return alertRepository.findLatestAlertViews(distinct, count);
+    }
+
+    // Critical alerts nobody has picked up yet; resolved alerts are no longer included
+    @Transactional(readOnly = true)
+    public List<AlertDTO> findCriticalUnacknowledgedAlerts() {
+        if (activeAlertIndex.isReady()) {
+            return activeAlertIndex.findCriticalUnacknowledged();
+        }
+        return alertRepository.findAlertViews(
+                AlertSpecifications.withFilters(null, null, Alert.Severity.Critical, null, null, null, null)
+                        .and(AlertSpecifications.withStatusIn(
+                                EnumSet.of(Alert.AlertStatus.Open, Alert.AlertStatus.Unacknowledged))),
+                Pageable.unpaged(Sort.by(Sort.Direction.DESC, "createdAt"))).getContent();
+    }
+
+    // Listeners (index, streams) receive the committed state, so the DTO is built here while
+    // the entity is still attached
+    private void publish(AlertLifecycleEvent.Type type, Alert alert, Alert.AlertStatus previousStatus) {
+        eventPublisher.publishEvent(new AlertLifecycleEvent(
+                type, alertMapper.toDto(alert), nameOf(previousStatus), Instant.now()));
+    }
+
+    private static String nameOf(Alert.AlertStatus status) {
+        return status != null ? status.name() : null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,357 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.event.AlertLifecycleEvent;
+import com.smartsolutions.smart_solutions.model.Alert;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+// Pushes committed alert changes to Server-Sent Events subscribers. Emitters are async servlet
+// responses, so subscribers hold no thread while idle. One dispatcher thread numbers events,
+// keeps the replay buffer and fans each event out into the subscribers' bounded queues without
+// blocking; a small sender pool drains every queue, at most one drain per subscriber at a time,
+// so each subscriber still sees its events in id order. A subscriber whose queue overflows is
+// too slow to keep up and is closed; it reconnects with Last-Event-ID and catches up from the
+// replay buffer, so a slow client never holds back the others. A send blocks on the client's
+// socket, so one stuck past the send timeout closes its subscriber too, and the sender pool
+// gets a stand-in thread until the stuck send returns; stalled clients cannot pin every sender.
+@Slf4j
+@Component
+public class AlertStreamService {
+
+    // Sent instead of a replay when Last-Event-ID is older than the buffer; clients refetch
+    public static final String RESET_EVENT = "reset";
+
+    private record StreamedEvent(long id, AlertLifecycleEvent event) {
+    }
+
+    private final class Subscription {
+        private final SseEmitter emitter;
+        private final Set<Alert.Severity> severities;
+        private final Set<Long> deviceIds;
+
+        // Guarded by this
+        private final ArrayDeque<SseEmitter.SseEventBuilder> queue = new ArrayDeque<>();
+        private boolean draining;
+        private boolean closed;
+        private boolean sending;
+        private long sendStartedNanos;
+        private boolean stalled;
+
+        private Subscription(SseEmitter emitter, Set<Alert.Severity> severities, Set<Long> deviceIds) {
+            this.emitter = emitter;
+            this.severities = severities;
+            this.deviceIds = deviceIds;
+        }
+
+        private boolean accepts(AlertLifecycleEvent event) {
+            return (severities.isEmpty() || severities.contains(Alert.Severity.valueOf(event.alert().getSeverity())))
+                    && (deviceIds.isEmpty() || deviceIds.contains(event.alert().getDeviceId()));
+        }
+
+        // False when the subscriber is closed or, unless `replay`, its queue is full
+        private boolean offer(SseEmitter.SseEventBuilder frame, boolean replay) {
+            synchronized (this) {
+                if (closed || !replay && queue.size() >= queueCapacity) {
+                    return false;
+                }
+                queue.add(frame);
+                if (draining) {
+                    return true;
+                }
+                draining = true;
+            }
+            try {
+                sender.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                log.debug("Alert stream is shutting down, dropping frame");
+            }
+            return true;
+        }
+
+        private boolean idle() {
+            synchronized (this) {
+                return queue.isEmpty() && !draining;
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                SseEmitter.SseEventBuilder frame;
+                synchronized (this) {
+                    frame = closed ? null : queue.poll();
+                    if (frame == null) {
+                        draining = false;
+                        return;
+                    }
+                    sending = true;
+                    sendStartedNanos = nanoClock.getAsLong();
+                }
+                Exception failure = null;
+                try {
+                    emitter.send(frame);
+                } catch (IOException | IllegalStateException e) {
+                    failure = e;
+                }
+                boolean evictedWhileSending;
+                synchronized (this) {
+                    sending = false;
+                    evictedWhileSending = stalled;
+                }
+                if (evictedWhileSending) {
+                    // Completed here rather than by the eviction, which would have waited on this send
+                    removeStandIn();
+                    emitter.complete();
+                    return;
+                }
+                if (failure != null) {
+                    // Unsubscribing is the dispatcher's job, so it cannot race the fan-out
+                    close();
+                    dispatch(() -> subscriptions.remove(this));
+                    emitter.completeWithError(failure);
+                    log.debug("Dropped alert stream subscriber: {}", failure.getMessage());
+                    return;
+                }
+            }
+        }
+
+        // Closes the subscriber if its current send has been blocked longer than the timeout
+        private boolean closeIfStalled(long nowNanos) {
+            synchronized (this) {
+                if (!sending || stalled || nowNanos - sendStartedNanos < sendTimeoutNanos) {
+                    return false;
+                }
+                stalled = true;
+                closed = true;
+                queue.clear();
+                return true;
+            }
+        }
+
+        private void close() {
+            synchronized (this) {
+                closed = true;
+                queue.clear();
+            }
+        }
+    }
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final Executor dispatcher;
+    private final Executor sender;
+    private final long timeoutMs;
+    private final int queueCapacity;
+    private final long sendTimeoutNanos;
+    private final LongSupplier nanoClock;
+    private final Counter evictions;
+    private final Counter stalls;
+
+    // Ring buffer for Last-Event-ID replay, only touched on the dispatcher thread
+    private final StreamedEvent[] replayBuffer;
+    private long lastEventId;
+
+    @Autowired
+    public AlertStreamService(
+            MeterRegistry meterRegistry,
+            @Value("${alerts.stream.replay-buffer-size:1024}") int replayBufferSize,
+            @Value("${alerts.stream.timeout-ms:1800000}") long timeoutMs,
+            @Value("${alerts.stream.subscriber-queue-size:256}") int queueCapacity,
+            @Value("${alerts.stream.send-timeout-ms:10000}") long sendTimeoutMs,
+            @Value("${alerts.stream.sender-threads:4}") int senderThreads) {
+        this(meterRegistry, replayBufferSize, timeoutMs, queueCapacity, sendTimeoutMs, System::nanoTime,
+                Executors.newSingleThreadExecutor(daemon("alert-stream")),
+                Executors.newFixedThreadPool(senderThreads, daemon("alert-stream-sender")));
+    }
+
+    AlertStreamService(MeterRegistry meterRegistry, int replayBufferSize, long timeoutMs, int queueCapacity,
+                       long sendTimeoutMs, LongSupplier nanoClock, Executor dispatcher, Executor sender) {
+        this.replayBuffer = new StreamedEvent[replayBufferSize];
+        this.timeoutMs = timeoutMs;
+        this.queueCapacity = queueCapacity;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        this.nanoClock = nanoClock;
+        this.dispatcher = dispatcher;
+        this.sender = sender;
+        this.evictions = Counter.builder("alerts.stream.subscribers.evicted")
+                .description("Alert stream subscribers closed because their queue overflowed")
+                .register(meterRegistry);
+        this.stalls = Counter.builder("alerts.stream.subscribers.stalled")
+                .description("Alert stream subscribers closed because a send blocked past the send timeout")
+                .register(meterRegistry);
+        Gauge.builder("alerts.stream.subscribers", subscriptions, List::size)
+                .description("Open alert stream connections")
+                .register(meterRegistry);
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public SseEmitter subscribe(Set<Alert.Severity> severities, Set<Long> deviceIds, Long lastEventId) {
+        return subscribe(new SseEmitter(timeoutMs), severities, deviceIds, lastEventId);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, Set<Alert.Severity> severities, Set<Long> deviceIds, Long lastEventId) {
+        Subscription subscription = new Subscription(emitter, Set.copyOf(severities), Set.copyOf(deviceIds));
+        Runnable unsubscribe = () -> {
+            subscription.close();
+            dispatch(() -> subscriptions.remove(subscription));
+        };
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+
+        dispatch(() -> {
+            if (lastEventId != null) {
+                replay(subscription, lastEventId);
+            }
+            subscriptions.add(subscription);
+        });
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAlertChanged(AlertLifecycleEvent event) {
+        dispatch(() -> {
+            StreamedEvent streamed = new StreamedEvent(++lastEventId, event);
+            replayBuffer[(int) (streamed.id() % replayBuffer.length)] = streamed;
+            for (Subscription subscription : subscriptions) {
+                if (subscription.accepts(event) && !subscription.offer(frame(streamed), false)) {
+                    evict(subscription);
+                }
+            }
+        });
+    }
+
+    // Comment lines keep idle connections open through proxies and surface dead clients
+    @Scheduled(fixedDelayString = "${alerts.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        dispatch(() -> {
+            for (Subscription subscription : subscriptions) {
+                if (subscription.idle()) {
+                    subscription.offer(SseEmitter.event().comment("heartbeat"), false);
+                }
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${alerts.stream.stall-check-ms:1000}")
+    public void evictStalled() {
+        dispatch(() -> {
+            long now = nanoClock.getAsLong();
+            for (Subscription subscription : subscriptions) {
+                if (subscription.closeIfStalled(now)) {
+                    subscriptions.remove(subscription);
+                    stalls.increment();
+                    addStandIn();
+                    log.debug("Evicted alert stream subscriber whose send blocked for over {} ms",
+                            TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos));
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (dispatcher instanceof ExecutorService executor) {
+            executor.shutdownNow();
+        }
+        if (sender instanceof ExecutorService executor) {
+            executor.shutdownNow();
+        }
+        subscriptions.forEach(subscription -> subscription.emitter.complete());
+    }
+
+    // Queues the missed events ahead of live ones; the replay buffer bounds how many there are
+    private void replay(Subscription subscription, long fromId) {
+        long oldestBuffered = Math.max(1, lastEventId - replayBuffer.length + 1);
+        if (fromId + 1 < oldestBuffered || fromId > lastEventId) {
+            subscription.offer(SseEmitter.event()
+                    .id(Long.toString(lastEventId))
+                    .name(RESET_EVENT)
+                    .data(lastEventId), true);
+            return;
+        }
+
+        for (long id = fromId + 1; id <= lastEventId; id++) {
+            StreamedEvent streamed = replayBuffer[(int) (id % replayBuffer.length)];
+            if (subscription.accepts(streamed.event())) {
+                subscription.offer(frame(streamed), true);
+            }
+        }
+    }
+
+    private static SseEmitter.SseEventBuilder frame(StreamedEvent streamed) {
+        return SseEmitter.event()
+                .id(Long.toString(streamed.id()))
+                .name(streamed.event().type().name().toLowerCase(Locale.ROOT))
+                .data(streamed.event());
+    }
+
+    // Completing may wait for a send blocked on the slow client, so it runs on the sender pool
+    private void evict(Subscription subscription) {
+        subscription.close();
+        subscriptions.remove(subscription);
+        evictions.increment();
+        try {
+            sender.execute(subscription.emitter::complete);
+        } catch (RejectedExecutionException e) {
+            log.debug("Alert stream is shutting down, not completing evicted subscriber");
+        }
+        log.debug("Evicted alert stream subscriber that fell {} events behind", queueCapacity);
+    }
+
+    // A sender thread stuck in a stalled send is replaced until the send returns
+    private void addStandIn() {
+        if (sender instanceof ThreadPoolExecutor pool) {
+            synchronized (pool) {
+                pool.setMaximumPoolSize(pool.getMaximumPoolSize() + 1);
+                pool.setCorePoolSize(pool.getCorePoolSize() + 1);
+            }
+        }
+    }
+
+    private void removeStandIn() {
+        if (sender instanceof ThreadPoolExecutor pool) {
+            synchronized (pool) {
+                pool.setCorePoolSize(pool.getCorePoolSize() - 1);
+                pool.setMaximumPoolSize(pool.getMaximumPoolSize() - 1);
+            }
+        }
+    }
+
+    private void dispatch(Runnable task) {
+        try {
+            dispatcher.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.debug("Alert stream is shutting down, dropping task");
+        }
+    }
+}
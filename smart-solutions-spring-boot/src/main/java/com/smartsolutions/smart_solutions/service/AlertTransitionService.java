@@ -0,0 +1,438 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartsolutions.smart_solutions.dto.AlertDTO;
+import com.smartsolutions.smart_solutions.dto.BulkAlertRequest;
+import com.smartsolutions.smart_solutions.dto.BulkAlertResultDTO;
+import com.smartsolutions.smart_solutions.event.AlertLifecycleEvent;
+import com.smartsolutions.smart_solutions.exception.BadRequestException;
+import com.smartsolutions.smart_solutions.exception.ConflictException;
+import com.smartsolutions.smart_solutions.exception.ResourceNotFoundException;
+import com.smartsolutions.smart_solutions.model.Alert;
+import com.smartsolutions.smart_solutions.model.User;
+import com.smartsolutions.smart_solutions.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Alert lifecycle transitions as conditional set-based statements: a row changes only if its
+// current status allows the action, and the new state comes back in the same round trip.
+// Bulk operations run in chunks that commit on their own, so an outage of thousands of alerts
+// never holds one long transaction; counters and lifecycle events are written from the
+// returned rows.
+@Slf4j
+@Service
+public class AlertTransitionService {
+
+    public enum Action {
+        ACKNOWLEDGE(Alert.AlertStatus.Acknowledged, AlertLifecycleEvent.Type.ACKNOWLEDGED,
+                EnumSet.of(Alert.AlertStatus.Open, Alert.AlertStatus.Unacknowledged)),
+        RESOLVE(Alert.AlertStatus.Resolved, AlertLifecycleEvent.Type.RESOLVED,
+                EnumSet.complementOf(EnumSet.of(Alert.AlertStatus.Resolved))),
+        SUPPRESS(Alert.AlertStatus.Suppressed, AlertLifecycleEvent.Type.SUPPRESSED,
+                EnumSet.of(Alert.AlertStatus.Open, Alert.AlertStatus.Acknowledged, Alert.AlertStatus.Unacknowledged)),
+        DELETE(null, AlertLifecycleEvent.Type.DELETED, EnumSet.allOf(Alert.AlertStatus.class));
+
+        private final Alert.AlertStatus targetStatus;
+        private final AlertLifecycleEvent.Type eventType;
+        // Alerts in other statuses are left untouched and not counted
+        private final Set<Alert.AlertStatus> fromStatuses;
+
+        Action(Alert.AlertStatus targetStatus, AlertLifecycleEvent.Type eventType, Set<Alert.AlertStatus> fromStatuses) {
+            this.targetStatus = targetStatus;
+            this.eventType = eventType;
+            this.fromStatuses = fromStatuses;
+        }
+    }
+
+    private static final String TARGET =
+            "WITH target AS (" +
+            "  SELECT a.alert_id, a.device_id, a.status AS previous_status FROM iot.device_alerts a " +
+            "  WHERE a.alert_id > ? %s " +
+            "  ORDER BY a.alert_id LIMIT ? FOR UPDATE OF a" +
+            ") ";
+
+    // Last id of the next chunk's keyset range, none when fewer than a chunk of matches remain
+    private static final String CHUNK_END =
+            "SELECT a.alert_id FROM iot.device_alerts a WHERE a.alert_id > ? %s ORDER BY a.alert_id OFFSET ? LIMIT 1";
+
+    private static final String JOINS =
+            "target t JOIN iot.devices d ON d.device_id = t.device_id " +
+            "LEFT JOIN iot.device_types dt ON dt.type_id = d.type_id ";
+
+    private static final String RETURNING =
+            "RETURNING a.alert_id, a.alert_type, a.severity, a.message, a.status, a.additional_data, " +
+            "a.device_id, d.device_name, dt.type_name, COALESCE(d.type_id, 0) AS device_type_id, t.previous_status, " +
+            "(SELECT u.username FROM iot.users u WHERE u.user_id = a.created_by) AS created_by_name, " +
+            "(SELECT u.username FROM iot.users u WHERE u.user_id = a.acknowledged_by) AS acknowledged_by_name, " +
+            "(SELECT u.username FROM iot.users u WHERE u.user_id = a.resolved_by) AS resolved_by_name, " +
+            "a.created_at, a.updated_at, a.acknowledged_at, a.resolved_at";
+
+    // Bumps severity one step (Critical stays Critical) if the alert is still unacknowledged and
+    // at the expected level, so a timer that fires twice or late escalates at most once
+    private static final String ESCALATE =
+            "WITH target AS (" +
+            "  SELECT a.alert_id, a.device_id, a.status AS previous_status, a.severity AS previous_severity " +
+            "  FROM iot.device_alerts a " +
+            "  WHERE a.alert_id = ? AND a.escalation_level = ? AND a.status IN (?, ?) FOR UPDATE OF a" +
+            ") " +
+            "UPDATE iot.device_alerts a SET escalation_level = a.escalation_level + 1, next_escalation_at = ?, updated_at = ?, " +
+            "severity = CASE a.severity WHEN 'Low' THEN 'Medium' WHEN 'Medium' THEN 'High' WHEN 'High' THEN 'Critical' ELSE a.severity END " +
+            "FROM " + JOINS + "WHERE a.alert_id = t.alert_id " + RETURNING + ", t.previous_severity";
+
+    // Touches only the editable columns, so a transition or escalation committed meanwhile is kept;
+    // a null argument leaves its column as it is
+    private static final String EDIT =
+            "WITH target AS (" +
+            "  SELECT a.alert_id, a.device_id, a.status AS previous_status FROM iot.device_alerts a " +
+            "  WHERE a.alert_id = ? FOR UPDATE OF a" +
+            ") " +
+            "UPDATE iot.device_alerts a SET message = COALESCE(?, a.message), " +
+            "additional_data = COALESCE(CAST(? AS jsonb), a.additional_data), updated_at = ? " +
+            "FROM " + JOINS + "WHERE a.alert_id = t.alert_id " + RETURNING;
+
+    private static final String SELECT_STATUS = "SELECT status FROM iot.device_alerts WHERE alert_id = ?";
+
+    private static final TypeReference<Map<String, Object>> JSON_OBJECT = new TypeReference<>() {
+    };
+
+    private record ChangedAlert(AlertDTO alert, Alert.AlertStatus previousStatus, long deviceTypeId) {
+    }
+
+    private record EscalatedAlert(ChangedAlert changed, Alert.Severity previousSeverity) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserRepository userRepository;
+    private final AlertCounterService alertCounterService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    public AlertTransitionService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            UserRepository userRepository,
+            AlertCounterService alertCounterService,
+            ApplicationEventPublisher eventPublisher,
+            ObjectMapper objectMapper,
+            @Value("${alerts.bulk.chunk-size:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.userRepository = userRepository;
+        this.alertCounterService = alertCounterService;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    // Single statement for one alert. Two operators acknowledging at once both run it; the
+    // second one's status check fails after the first commits and it gets a conflict.
+    public AlertDTO transition(Action action, Long alertId, Long userId) {
+        if (action != Action.DELETE && action != Action.SUPPRESS && userId == null) {
+            throw new BadRequestException("X-User-Id header is required to " + action.name().toLowerCase());
+        }
+
+        List<Object> params = new ArrayList<>();
+        String filter = filter(action, new BulkAlertRequest(), params) + " AND a.alert_id = ?";
+        params.add(alertId);
+
+        List<ChangedAlert> changed;
+        try {
+            changed = runChunk(action, filter, params, 0L, userId);
+        } catch (DataIntegrityViolationException e) {
+            // acknowledged_by / resolved_by reference a user that does not exist
+            throw new ResourceNotFoundException("User not found with id: " + userId);
+        }
+        if (!changed.isEmpty()) {
+            return changed.get(0).alert();
+        }
+
+        // Only the losing side of a race or an invalid transition pays for this lookup
+        List<String> current = jdbcTemplate.queryForList(SELECT_STATUS, String.class, alertId);
+        if (current.isEmpty()) {
+            throw new ResourceNotFoundException("Alert not found with id: " + alertId);
+        }
+        throw new ConflictException(String.format("Alert %d is %s and cannot be %s",
+                alertId, current.get(0), action.eventType.name().toLowerCase()));
+    }
+
+    // Edits message and additional data in place; the UPDATED event carries the row as written
+    public AlertDTO edit(Long alertId, String message, Map<String, Object> additionalData) {
+        String json;
+        try {
+            json = additionalData != null ? objectMapper.writeValueAsString(additionalData) : null;
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("additionalData is not serializable: " + e.getOriginalMessage());
+        }
+        Instant now = Instant.now();
+        return transactionTemplate.execute(status -> {
+            List<ChangedAlert> rows = jdbcTemplate.query(EDIT, (rs, rowNum) -> toChangedAlert(rs),
+                    alertId, message, json, utc(now));
+            if (rows.isEmpty()) {
+                throw new ResourceNotFoundException("Alert not found with id: " + alertId);
+            }
+            ChangedAlert edited = rows.get(0);
+            eventPublisher.publishEvent(new AlertLifecycleEvent(
+                    AlertLifecycleEvent.Type.UPDATED, edited.alert(), edited.previousStatus().name(), now));
+            return edited.alert();
+        });
+    }
+
+    // Empty when the alert was acknowledged, resolved or already escalated past this level
+    public Optional<AlertDTO> escalate(long alertId, int fromLevel, Instant nextEscalationAt) {
+        Instant now = Instant.now();
+        return transactionTemplate.execute(status -> {
+            List<EscalatedAlert> rows = jdbcTemplate.query(ESCALATE, (rs, rowNum) -> new EscalatedAlert(
+                            toChangedAlert(rs), Alert.Severity.valueOf(rs.getString("previous_severity"))),
+                    alertId, fromLevel, Alert.AlertStatus.Open.name(), Alert.AlertStatus.Unacknowledged.name(),
+                    nextEscalationAt != null ? utc(nextEscalationAt) : null, utc(now));
+            if (rows.isEmpty()) {
+                return Optional.empty();
+            }
+
+            ChangedAlert escalated = rows.get(0).changed();
+            Alert.Severity previousSeverity = rows.get(0).previousSeverity();
+            Map<AlertCounterService.CounterKey, Long> deltas = new HashMap<>();
+            deltas.merge(new AlertCounterService.CounterKey(
+                    previousSeverity, escalated.previousStatus(), escalated.deviceTypeId()), -1L, Long::sum);
+            deltas.merge(new AlertCounterService.CounterKey(
+                    Alert.Severity.valueOf(escalated.alert().getSeverity()), escalated.previousStatus(), escalated.deviceTypeId()), 1L, Long::sum);
+            alertCounterService.applyDeltas(deltas);
+
+            eventPublisher.publishEvent(new AlertLifecycleEvent(
+                    AlertLifecycleEvent.Type.ESCALATED, escalated.alert(), escalated.previousStatus().name(), now));
+            return Optional.of(escalated.alert());
+        });
+    }
+
+    public BulkAlertResultDTO apply(Action action, BulkAlertRequest request, Long userId) {
+        String userName = null;
+        if (action == Action.ACKNOWLEDGE || action == Action.RESOLVE) {
+            if (userId == null) {
+                throw new BadRequestException("X-User-Id header is required to " + action.name().toLowerCase());
+            }
+            User user = userRepository.findById(userId)
+                    .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+            userName = user.getName();
+        }
+
+        List<Object> params = new ArrayList<>();
+        String filter = filter(action, request, params);
+        int affected = 0;
+        int chunks = 0;
+
+        if (request.getAlertIds() != null && !request.getAlertIds().isEmpty()) {
+            List<Long> ids = request.getAlertIds().stream().distinct().sorted().toList();
+            for (int from = 0; from < ids.size(); from += chunkSize) {
+                List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+                List<Object> chunkParams = new ArrayList<>(params);
+                chunkParams.addAll(chunk);
+                String chunkFilter = filter + " AND a.alert_id IN ("
+                        + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+                affected += runChunk(action, chunkFilter, chunkParams, 0L, userId).size();
+                chunks++;
+            }
+        } else if (hasCriteria(request)) {
+            // Each chunk covers a keyset range fixed before it runs. Rows changed concurrently drop
+            // out of a chunk's lock and make it come back short, so the short chunk says nothing
+            // about what is left; the walk ends after the open-ended last range instead.
+            long lastId = 0L;
+            while (true) {
+                List<Object> scanParams = new ArrayList<>();
+                scanParams.add(lastId);
+                scanParams.addAll(params);
+                scanParams.add(chunkSize - 1);
+                List<Long> chunkEnd = jdbcTemplate.queryForList(String.format(CHUNK_END, filter), Long.class, scanParams.toArray());
+
+                String chunkFilter = filter;
+                List<Object> chunkParams = new ArrayList<>(params);
+                if (!chunkEnd.isEmpty()) {
+                    chunkFilter += " AND a.alert_id <= ?";
+                    chunkParams.add(chunkEnd.get(0));
+                }
+                affected += runChunk(action, chunkFilter, chunkParams, lastId, userId).size();
+                chunks++;
+                if (chunkEnd.isEmpty()) {
+                    break;
+                }
+                lastId = chunkEnd.get(0);
+            }
+        } else {
+            throw new BadRequestException("Bulk alert operations need alert ids or at least one filter");
+        }
+
+        log.info("Bulk {} by {} affected {} alerts in {} chunks", action, userName, affected, chunks);
+        return BulkAlertResultDTO.builder()
+                .action(action.name())
+                .affected(affected)
+                .chunks(chunks)
+                .build();
+    }
+
+    private List<ChangedAlert> runChunk(Action action, String filter, List<Object> filterParams, long afterId, Long userId) {
+        Instant now = Instant.now();
+        List<Object> params = new ArrayList<>();
+        params.add(afterId);
+        params.addAll(filterParams);
+        params.add(chunkSize);
+
+        StringBuilder sql = new StringBuilder(String.format(TARGET, filter));
+        if (action == Action.DELETE) {
+            sql.append("DELETE FROM iot.device_alerts a USING ").append(JOINS)
+                    .append("WHERE a.alert_id = t.alert_id ");
+        } else {
+            // Every update action leaves Open/Unacknowledged, which ends any pending escalation
+            sql.append("UPDATE iot.device_alerts a SET status = ?, updated_at = ?, next_escalation_at = NULL");
+            params.add(action.targetStatus.name());
+            params.add(utc(now));
+            if (action == Action.ACKNOWLEDGE) {
+                sql.append(", acknowledged_by = ?, acknowledged_at = ?");
+                params.add(userId);
+                params.add(utc(now));
+            } else if (action == Action.RESOLVE) {
+                sql.append(", resolved_by = ?, resolved_at = ?");
+                params.add(userId);
+                params.add(utc(now));
+            }
+            sql.append(" FROM ").append(JOINS).append("WHERE a.alert_id = t.alert_id ");
+        }
+        sql.append(RETURNING);
+
+        return transactionTemplate.execute(status -> {
+            List<ChangedAlert> changed = jdbcTemplate.query(sql.toString(), (rs, rowNum) -> toChangedAlert(rs), params.toArray());
+
+            Map<AlertCounterService.CounterKey, Long> deltas = new HashMap<>();
+            for (ChangedAlert alert : changed) {
+                Alert.Severity severity = Alert.Severity.valueOf(alert.alert().getSeverity());
+                deltas.merge(new AlertCounterService.CounterKey(severity, alert.previousStatus(), alert.deviceTypeId()), -1L, Long::sum);
+                if (action != Action.DELETE) {
+                    deltas.merge(new AlertCounterService.CounterKey(severity, action.targetStatus, alert.deviceTypeId()), 1L, Long::sum);
+                }
+                eventPublisher.publishEvent(new AlertLifecycleEvent(
+                        action.eventType, alert.alert(), alert.previousStatus().name(), now));
+            }
+            alertCounterService.applyDeltas(deltas);
+            return changed;
+        });
+    }
+
+    // Mirrors AlertSpecifications.withFilters, restricted to the statuses the action applies to
+    private static String filter(Action action, BulkAlertRequest request, List<Object> params) {
+        StringBuilder where = new StringBuilder();
+
+        Set<Alert.AlertStatus> statuses = EnumSet.copyOf(action.fromStatuses);
+        if (request.getStatus() != null) {
+            statuses.retainAll(EnumSet.of(request.getStatus()));
+        }
+        if (statuses.isEmpty()) {
+            where.append(" AND FALSE");
+        } else if (statuses.size() < Alert.AlertStatus.values().length) {
+            where.append(" AND a.status IN (")
+                    .append(statuses.stream().map(status -> "?").collect(Collectors.joining(",")))
+                    .append(")");
+            statuses.forEach(status -> params.add(status.name()));
+        }
+
+        if (request.getDeviceId() != null) {
+            where.append(" AND a.device_id = ?");
+            params.add(request.getDeviceId());
+        }
+        if (request.getAlertType() != null && !request.getAlertType().isEmpty()) {
+            where.append(" AND a.alert_type = ?");
+            params.add(request.getAlertType());
+        }
+        if (request.getSeverity() != null) {
+            where.append(" AND a.severity = ?");
+            params.add(request.getSeverity().name());
+        }
+        if (request.getIsActive() != null) {
+            where.append(" AND a.is_active = ?");
+            params.add(request.getIsActive());
+        }
+        if (request.getStartDate() != null) {
+            where.append(" AND a.created_at >= ?");
+            params.add(utc(request.getStartDate()));
+        }
+        if (request.getEndDate() != null) {
+            where.append(" AND a.created_at <= ?");
+            params.add(utc(request.getEndDate()));
+        }
+        return where.toString();
+    }
+
+    private static boolean hasCriteria(BulkAlertRequest request) {
+        return request.getDeviceId() != null
+                || (request.getAlertType() != null && !request.getAlertType().isEmpty())
+                || request.getSeverity() != null
+                || request.getStatus() != null
+                || request.getIsActive() != null
+                || request.getStartDate() != null
+                || request.getEndDate() != null;
+    }
+
+    private ChangedAlert toChangedAlert(ResultSet rs) throws SQLException {
+        AlertDTO alert = new AlertDTO(
+                rs.getLong("alert_id"),
+                rs.getString("alert_type"),
+                Alert.Severity.valueOf(rs.getString("severity")),
+                rs.getString("message"),
+                Alert.AlertStatus.valueOf(rs.getString("status")),
+                readJson(rs.getString("additional_data")),
+                rs.getLong("device_id"),
+                rs.getString("device_name"),
+                rs.getString("type_name"),
+                rs.getString("created_by_name"),
+                rs.getString("acknowledged_by_name"),
+                rs.getString("resolved_by_name"),
+                instant(rs, "created_at"),
+                instant(rs, "updated_at"),
+                instant(rs, "acknowledged_at"),
+                instant(rs, "resolved_at"));
+        return new ChangedAlert(alert, Alert.AlertStatus.valueOf(rs.getString("previous_status")), rs.getLong("device_type_id"));
+    }
+
+    private Map<String, Object> readJson(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, JSON_OBJECT);
+        } catch (JsonProcessingException e) {
+            log.warn("Unreadable additional_data on alert: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static Instant instant(ResultSet rs, String column) throws SQLException {
+        OffsetDateTime value = rs.getObject(column, OffsetDateTime.class);
+        return value != null ? value.toInstant() : null;
+    }
+
+    private static OffsetDateTime utc(Instant instant) {
+        return OffsetDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,45 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.model.SensorData;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+// Applies the calibration in force for the reading's (device, sensor type). Runs on the
+// normalized value, so gains and offsets are expressed in canonical units; the raw value
+// and calibration id are kept in metadata for later re-correction.
+@Component
+@Order(20)
+@RequiredArgsConstructor
+public class CalibrationStage implements SensorDataIngestStage {
+
+    private final SensorCalibrationRegistry calibrationRegistry;
+
+    @Override
+    public void process(SensorData reading, DeviceRegistryCache.DeviceSnapshot device) {
+        if (device == null || reading.getValue() == null
+                || reading.getStatusCode() != null && reading.getStatusCode() == SensorData.STATUS_UNKNOWN_UNIT) {
+            return;
+        }
+
+        // The timestamp is assigned on insert, so a new reading is calibrated as of now
+        Instant at = reading.getTimestamp() != null ? reading.getTimestamp() : Instant.now();
+        SensorCalibrationRegistry.Calibration calibration =
+                calibrationRegistry.find(device.id(), reading.getSensorType(), at);
+        if (calibration == null) {
+            return;
+        }
+
+        Map<String, Object> metadata = reading.getMetadata() != null
+                ? new HashMap<>(reading.getMetadata())
+                : new HashMap<>();
+        metadata.put("raw_value", reading.getValue());
+        metadata.put("calibration_id", calibration.id());
+        reading.setMetadata(metadata);
+        reading.setValue(calibration.apply(reading.getValue()));
+    }
+}
@@ -0,0 +1,328 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.event.DeviceLifecycleEvent;
+import com.smartsolutions.smart_solutions.event.DevicePresenceEvent;
+import com.smartsolutions.smart_solutions.event.SensorDataIngestedEvent;
+import com.smartsolutions.smart_solutions.repository.DeviceTypeRepository;
+import com.smartsolutions.smart_solutions.util.HashedTimingWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Tracks which devices are reporting. A reading only stores its arrival time in memory; one
+// timer per online device sits in a hashed timing wheel and, when it fires, either re-arms for
+// the rest of the window (the device reported meanwhile) or takes the device offline. Timers
+// are therefore armed once per window rather than once per reading. is_online and last_seen_at
+// are written behind in batches: transitions at the next flush, last_seen_at only once it has
+// moved by the configured resolution, so a chatty device costs one row update per resolution.
+@Slf4j
+@Service
+public class DevicePresenceTracker {
+
+    // Several nodes may track the same device: last_seen_at never goes back, and an offline
+    // write loses to a sighting another node has already stored
+    private static final String FLUSH_PRESENCE =
+            "UPDATE iot.devices SET " +
+            "is_online = CASE WHEN ? THEN TRUE ELSE COALESCE(last_seen_at > ?, FALSE) END, " +
+            "last_seen_at = GREATEST(last_seen_at, ?) " +
+            "WHERE device_id = ?";
+
+    private static final String SELECT_TYPE = "SELECT type_id FROM iot.devices WHERE device_id = ?";
+
+    private static final String SELECT_ONLINE =
+            "SELECT device_id, type_id, last_seen_at FROM iot.devices WHERE is_online";
+
+    private static final class Presence {
+        private final long deviceId;
+        private volatile long lastSeenMillis;
+        private volatile boolean online;
+        private volatile long offlineAfterMillis;
+        // Guarded by the presence itself
+        private boolean armed;
+        private long persistedLastSeenMillis;
+
+        private Presence(long deviceId, long lastSeenMillis, long offlineAfterMillis) {
+            this.deviceId = deviceId;
+            this.lastSeenMillis = lastSeenMillis;
+            this.offlineAfterMillis = offlineAfterMillis;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DeviceTypeRepository deviceTypeRepository;
+    private final DeviceTypeCapabilitiesCache capabilitiesCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final HashedTimingWheel<Presence> wheel;
+    private final ExecutorService presenceExecutor;
+    private final Map<Long, Presence> presences = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private final Duration defaultHeartbeat;
+    private final int missedHeartbeats;
+    private final long lastSeenResolutionMillis;
+    private final Counter transitions;
+    private final Counter flushedRows;
+
+    public DevicePresenceTracker(
+            JdbcTemplate jdbcTemplate,
+            DeviceTypeRepository deviceTypeRepository,
+            DeviceTypeCapabilitiesCache capabilitiesCache,
+            ApplicationEventPublisher eventPublisher,
+            MeterRegistry meterRegistry,
+            @Value("${devices.presence.default-heartbeat-seconds:60}") long defaultHeartbeatSeconds,
+            @Value("${devices.presence.missed-heartbeats:3}") int missedHeartbeats,
+            @Value("${devices.presence.last-seen-resolution-ms:60000}") long lastSeenResolutionMillis,
+            @Value("${devices.presence.tick-ms:1000}") long tickMs,
+            @Value("${devices.presence.wheel-size:512}") int wheelSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.deviceTypeRepository = deviceTypeRepository;
+        this.capabilitiesCache = capabilitiesCache;
+        this.eventPublisher = eventPublisher;
+        this.defaultHeartbeat = Duration.ofSeconds(defaultHeartbeatSeconds);
+        this.missedHeartbeats = Math.max(1, missedHeartbeats);
+        this.lastSeenResolutionMillis = lastSeenResolutionMillis;
+
+        this.presenceExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "device-presence");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.wheel = new HashedTimingWheel<>("device-presence-wheel", tickMs, TimeUnit.MILLISECONDS, wheelSize,
+                this::check, presenceExecutor);
+
+        this.transitions = Counter.builder("devices.presence.transitions")
+                .description("Devices that came online or went offline")
+                .register(meterRegistry);
+        this.flushedRows = Counter.builder("devices.presence.flushed")
+                .description("Device rows written by presence flushes")
+                .register(meterRegistry);
+        Gauge.builder("devices.online", presences, map -> map.values().stream().filter(presence -> presence.online).count())
+                .description("Devices currently considered online by this node")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        wheel.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        flush();
+        wheel.stop();
+        presenceExecutor.shutdownNow();
+    }
+
+    // Arrival time, not the reading's timestamp: backfilled readings say nothing about presence
+    @TransactionalEventListener
+    public void onReadingIngested(SensorDataIngestedEvent event) {
+        if (event.deviceId() != null) {
+            seen(event.deviceId(), System.currentTimeMillis());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceChanged(DeviceLifecycleEvent event) {
+        Long deviceId = event.device().getId();
+        switch (event.type()) {
+            // The type, and with it the heartbeat, may have changed
+            case UPDATED -> {
+                Presence presence = presences.get(deviceId);
+                if (presence != null) {
+                    presence.offlineAfterMillis = offlineAfterMillis(event.device().getTypeId());
+                }
+            }
+            case DELETED -> {
+                presences.remove(deviceId);
+                dirty.remove(deviceId);
+            }
+            default -> {
+            }
+        }
+    }
+
+    // Devices stored as online get a timer too, so they go offline if they stay silent
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        long now = System.currentTimeMillis();
+        Map<Long, Long> offlineAfterByType = new HashMap<>();
+        try {
+            jdbcTemplate.query(SELECT_ONLINE, rs -> {
+                long deviceId = rs.getLong("device_id");
+                Long typeId = rs.getObject("type_id") != null ? rs.getLong("type_id") : null;
+                OffsetDateTime lastSeen = rs.getObject("last_seen_at", OffsetDateTime.class);
+                long lastSeenMillis = lastSeen != null ? lastSeen.toInstant().toEpochMilli() : now;
+                long offlineAfter = offlineAfterByType.computeIfAbsent(typeId, this::offlineAfterMillis);
+
+                Presence presence = new Presence(deviceId, lastSeenMillis, offlineAfter);
+                presence.persistedLastSeenMillis = lastSeenMillis;
+                if (presences.putIfAbsent(deviceId, presence) == null) {
+                    synchronized (presence) {
+                        presence.online = true;
+                        arm(presence, lastSeenMillis + offlineAfter - now);
+                    }
+                }
+            });
+        } catch (DataAccessException e) {
+            log.warn("Failed to load online devices, they stay online until they report", e);
+        }
+    }
+
+    public boolean isOnline(long deviceId) {
+        Presence presence = presences.get(deviceId);
+        return presence != null && presence.online;
+    }
+
+    void seen(long deviceId, long nowMillis) {
+        Presence presence = presences.get(deviceId);
+        if (presence == null) {
+            Presence loaded = new Presence(deviceId, nowMillis, offlineAfterMillis(typeOf(deviceId)));
+            presence = presences.putIfAbsent(deviceId, loaded);
+            if (presence == null) {
+                presence = loaded;
+            }
+        }
+
+        presence.lastSeenMillis = nowMillis;
+        if (!presence.online) {
+            comeOnline(presence);
+        } else if (nowMillis - presence.persistedLastSeenMillis >= lastSeenResolutionMillis) {
+            dirty.add(deviceId);
+        }
+    }
+
+    private void comeOnline(Presence presence) {
+        synchronized (presence) {
+            if (presence.online) {
+                return;
+            }
+            presence.online = true;
+            if (!presence.armed) {
+                arm(presence, presence.offlineAfterMillis);
+            }
+        }
+        transition(presence, true);
+    }
+
+    // Runs on the presence executor when a device's window may have run out
+    private void check(Presence presence) {
+        synchronized (presence) {
+            presence.armed = false;
+            if (!presence.online || presences.get(presence.deviceId) != presence) {
+                return;
+            }
+            long remaining = presence.lastSeenMillis + presence.offlineAfterMillis - System.currentTimeMillis();
+            if (remaining > 0) {
+                arm(presence, remaining);
+                return;
+            }
+            presence.online = false;
+            // A reading that saw the device still online while we decided otherwise: undo
+            if (presence.lastSeenMillis + presence.offlineAfterMillis > System.currentTimeMillis()) {
+                presence.online = true;
+                arm(presence, presence.offlineAfterMillis);
+                return;
+            }
+        }
+        transition(presence, false);
+    }
+
+    private void arm(Presence presence, long delayMillis) {
+        presence.armed = true;
+        wheel.schedule(presence, Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+    }
+
+    private void transition(Presence presence, boolean online) {
+        dirty.add(presence.deviceId);
+        transitions.increment();
+        eventPublisher.publishEvent(new DevicePresenceEvent(
+                presence.deviceId, online, Instant.ofEpochMilli(presence.lastSeenMillis), Instant.now()));
+    }
+
+    @Scheduled(fixedDelayString = "${devices.presence.flush-interval-ms:5000}")
+    public void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+
+        List<Presence> flushed = new ArrayList<>();
+        List<Long> lastSeen = new ArrayList<>();
+        List<Object[]> batch = new ArrayList<>();
+        for (Long deviceId : dirty) {
+            dirty.remove(deviceId);
+            Presence presence = presences.get(deviceId);
+            if (presence == null) {
+                continue;
+            }
+            long lastSeenMillis = presence.lastSeenMillis;
+            OffsetDateTime lastSeenAt = utc(Instant.ofEpochMilli(lastSeenMillis));
+            flushed.add(presence);
+            lastSeen.add(lastSeenMillis);
+            batch.add(new Object[]{presence.online, lastSeenAt, lastSeenAt, deviceId});
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(FLUSH_PRESENCE, batch);
+            for (int i = 0; i < flushed.size(); i++) {
+                Presence presence = flushed.get(i);
+                synchronized (presence) {
+                    presence.persistedLastSeenMillis = Math.max(presence.persistedLastSeenMillis, lastSeen.get(i));
+                }
+            }
+            flushedRows.increment(batch.size());
+        } catch (DataAccessException e) {
+            // Marked again so the next flush writes their then-current state
+            flushed.forEach(presence -> dirty.add(presence.deviceId));
+            log.warn("Failed to flush presence of {} devices, will retry", flushed.size(), e);
+        }
+    }
+
+    private Long typeOf(long deviceId) {
+        try {
+            List<Long> types = jdbcTemplate.queryForList(SELECT_TYPE, Long.class, deviceId);
+            return types.isEmpty() ? null : types.get(0);
+        } catch (DataAccessException e) {
+            log.warn("Failed to read the type of device {}, using the default heartbeat", deviceId, e);
+            return null;
+        }
+    }
+
+    private long offlineAfterMillis(Long typeId) {
+        Duration heartbeat = null;
+        if (typeId != null) {
+            heartbeat = deviceTypeRepository.findById(typeId)
+                    .map(type -> capabilitiesCache.get(type).heartbeatInterval())
+                    .orElse(null);
+        }
+        return (heartbeat != null ? heartbeat : defaultHeartbeat).toMillis() * missedHeartbeats;
+    }
+
+    private static OffsetDateTime utc(Instant instant) {
+        return OffsetDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+}
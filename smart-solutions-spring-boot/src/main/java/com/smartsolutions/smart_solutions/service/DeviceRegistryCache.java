@@ -0,0 +1,355 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.smartsolutions.smart_solutions.event.DeviceLifecycleEvent;
+import com.smartsolutions.smart_solutions.model.Device;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Devices by id, serial number and MAC address, the keys devices identify themselves with.
+// Snapshots are immutable and all three indexes change together under one lock, so a lookup
+// by any key sees the same device. Entries are evicted least recently used beyond maxEntries.
+// Updates and deletes evict locally once committed and, through a NOTIFY sent inside the
+// changing transaction, on every other node listening on the channel. While this node is not
+// listening, nothing is cached: it could not tell when an entry went stale. That includes the
+// time before the first LISTEN succeeds. A snapshot carries its type's capabilities, which is
+// all the ingest stages need, so a reading costs no device or type query on a hit.
+@Slf4j
+@Component
+public class DeviceRegistryCache {
+
+    static final String CHANNEL = "device_registry";
+
+    private static final String SELECT_DEVICE =
+            "SELECT d.device_id, d.device_name, d.type_id, dt.capabilities AS type_capabilities, " +
+            "d.serial_number, d.mac_address, d.status, d.location_id " +
+            "FROM iot.devices d LEFT JOIN iot.device_types dt ON dt.type_id = d.type_id ";
+
+    private static final String SELECT_BY_ID = SELECT_DEVICE + "WHERE d.device_id = ?";
+
+    private static final String SELECT_BY_SERIAL = SELECT_DEVICE + "WHERE d.serial_number = ?";
+
+    private static final String SELECT_BY_MAC = SELECT_DEVICE + "WHERE d.mac_address = ?";
+
+    // The payload is always a device id, so it is safe to inline
+    private static final String NOTIFY = "NOTIFY " + CHANNEL + ", '%d'";
+
+    public record DeviceSnapshot(
+            long id,
+            String name,
+            Long typeId,
+            // Capabilities JSON of the type, read through DeviceTypeCapabilitiesCache
+            @JsonIgnore String typeCapabilities,
+            String serialNumber,
+            String macAddress,
+            Device.DeviceStatus status,
+            Long locationId) {
+    }
+
+    private enum Key {
+        ID, SERIAL, MAC
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final int maxEntries;
+    private final long listenTimeoutMs;
+    private final long reconnectDelayMs;
+
+    // Guarded by itself, as are bySerial, byMac and generation
+    private final LinkedHashMap<Long, DeviceSnapshot> byId;
+    private final Map<String, Long> bySerial = new HashMap<>();
+    private final Map<String, Long> byMac = new HashMap<>();
+    // Bumped by every invalidation; a load only caches its row if none happened meanwhile
+    private long generation;
+
+    // Off until the listener is connected, and again whenever it loses its connection
+    private volatile boolean caching;
+    private volatile boolean listening;
+    private final ExecutorService listenerExecutor;
+
+    private final Map<Key, Counter> hits = new EnumMap<>(Key.class);
+    private final Map<Key, Counter> misses = new EnumMap<>(Key.class);
+    private final Counter evictions;
+    private final Timer loadTimer;
+
+    public DeviceRegistryCache(
+            JdbcTemplate jdbcTemplate,
+            DataSource dataSource,
+            MeterRegistry meterRegistry,
+            @Value("${devices.registry.max-entries:50000}") int maxEntries,
+            @Value("${devices.registry.listen-timeout-ms:10000}") long listenTimeoutMs,
+            @Value("${devices.registry.reconnect-delay-ms:5000}") long reconnectDelayMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.maxEntries = maxEntries;
+        this.listenTimeoutMs = listenTimeoutMs;
+        this.reconnectDelayMs = reconnectDelayMs;
+
+        this.byId = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, DeviceSnapshot> eldest) {
+                if (size() <= DeviceRegistryCache.this.maxEntries) {
+                    return false;
+                }
+                unindex(eldest.getValue());
+                evictions.increment();
+                return true;
+            }
+        };
+
+        this.listenerExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "device-registry-listener");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for (Key key : Key.values()) {
+            String tag = key.name().toLowerCase();
+            hits.put(key, Counter.builder("devices.registry.lookups")
+                    .description("Device registry lookups")
+                    .tag("key", tag)
+                    .tag("result", "hit")
+                    .register(meterRegistry));
+            misses.put(key, Counter.builder("devices.registry.lookups")
+                    .description("Device registry lookups")
+                    .tag("key", tag)
+                    .tag("result", "miss")
+                    .register(meterRegistry));
+        }
+        this.evictions = Counter.builder("devices.registry.evictions")
+                .description("Device snapshots evicted to stay within the configured size")
+                .register(meterRegistry);
+        this.loadTimer = Timer.builder("devices.registry.load")
+                .description("Time to load a device snapshot on a miss")
+                .register(meterRegistry);
+        Gauge.builder("devices.registry.size", this, DeviceRegistryCache::size)
+                .description("Device snapshots currently cached")
+                .register(meterRegistry);
+    }
+
+    public Optional<DeviceSnapshot> findById(long id) {
+        DeviceSnapshot cached;
+        synchronized (byId) {
+            cached = byId.get(id);
+        }
+        return lookup(Key.ID, cached, SELECT_BY_ID, id);
+    }
+
+    public Optional<DeviceSnapshot> findBySerialNumber(String serialNumber) {
+        if (serialNumber == null) {
+            return Optional.empty();
+        }
+        DeviceSnapshot cached;
+        synchronized (byId) {
+            Long id = bySerial.get(serialNumber);
+            cached = id != null ? byId.get(id) : null;
+        }
+        return lookup(Key.SERIAL, cached, SELECT_BY_SERIAL, serialNumber);
+    }
+
+    public Optional<DeviceSnapshot> findByMacAddress(String macAddress) {
+        if (macAddress == null) {
+            return Optional.empty();
+        }
+        DeviceSnapshot cached;
+        synchronized (byId) {
+            Long id = byMac.get(macAddress);
+            cached = id != null ? byId.get(id) : null;
+        }
+        return lookup(Key.MAC, cached, SELECT_BY_MAC, macAddress);
+    }
+
+    private Optional<DeviceSnapshot> lookup(Key key, DeviceSnapshot cached, String sql, Object value) {
+        if (cached != null) {
+            hits.get(key).increment();
+            return Optional.of(cached);
+        }
+        misses.get(key).increment();
+
+        long loadedAt;
+        synchronized (byId) {
+            loadedAt = generation;
+        }
+        long start = System.nanoTime();
+        List<DeviceSnapshot> rows = jdbcTemplate.query(sql, (rs, rowNum) -> snapshot(rs), value);
+        loadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+
+        DeviceSnapshot snapshot = rows.get(0);
+        synchronized (byId) {
+            if (caching && generation == loadedAt) {
+                put(snapshot);
+            }
+        }
+        return Optional.of(snapshot);
+    }
+
+    // Sent inside the changing transaction, so other nodes only hear of committed changes
+    @EventListener
+    public void notifyChanged(DeviceLifecycleEvent event) {
+        if (event.type() != DeviceLifecycleEvent.Type.CREATED) {
+            jdbcTemplate.execute(String.format(NOTIFY, event.device().getId()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceChanged(DeviceLifecycleEvent event) {
+        if (event.type() != DeviceLifecycleEvent.Type.CREATED) {
+            invalidate(event.device().getId());
+        }
+    }
+
+    public void invalidate(long id) {
+        synchronized (byId) {
+            generation++;
+            DeviceSnapshot removed = byId.remove(id);
+            if (removed != null) {
+                unindex(removed);
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (byId) {
+            generation++;
+            byId.clear();
+            bySerial.clear();
+            byMac.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (byId) {
+            return byId.size();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startListening() {
+        listening = true;
+        listenerExecutor.execute(this::listen);
+    }
+
+    @PreDestroy
+    public void stop() {
+        listening = false;
+        listenerExecutor.shutdownNow();
+    }
+
+    // One dedicated connection, outside any transaction, held for as long as it works
+    private void listen() {
+        while (listening) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                listenerConnected();
+                log.info("Listening for device registry changes on {}", CHANNEL);
+
+                while (listening) {
+                    PGNotification[] notifications = pgConnection.getNotifications((int) listenTimeoutMs);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            onNotification(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                caching = false;
+                invalidateAll();
+                if (!listening) {
+                    return;
+                }
+                log.warn("Lost the device registry change listener, caching is off until it reconnects", e);
+                try {
+                    Thread.sleep(reconnectDelayMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    void listenerConnected() {
+        // Changes made while nobody was listening went unheard
+        invalidateAll();
+        caching = true;
+    }
+
+    void onNotification(String payload) {
+        try {
+            invalidate(Long.parseLong(payload));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring device registry notification with payload '{}'", payload);
+        }
+    }
+
+    // Callers hold the lock. A serial or MAC now claimed by another device keeps pointing there.
+    private void put(DeviceSnapshot snapshot) {
+        DeviceSnapshot previous = byId.put(snapshot.id(), snapshot);
+        if (previous != null) {
+            unindex(previous);
+        }
+        if (snapshot.serialNumber() != null) {
+            bySerial.put(snapshot.serialNumber(), snapshot.id());
+        }
+        if (snapshot.macAddress() != null) {
+            byMac.put(snapshot.macAddress(), snapshot.id());
+        }
+    }
+
+    private void unindex(DeviceSnapshot snapshot) {
+        if (snapshot.serialNumber() != null) {
+            bySerial.remove(snapshot.serialNumber(), snapshot.id());
+        }
+        if (snapshot.macAddress() != null) {
+            byMac.remove(snapshot.macAddress(), snapshot.id());
+        }
+    }
+
+    private static DeviceSnapshot snapshot(ResultSet rs) throws SQLException {
+        String status = rs.getString("status");
+        return new DeviceSnapshot(
+                rs.getLong("device_id"),
+                rs.getString("device_name"),
+                rs.getObject("type_id") != null ? rs.getLong("type_id") : null,
+                rs.getString("type_capabilities"),
+                rs.getString("serial_number"),
+                rs.getString("mac_address"),
+                status != null ? Device.DeviceStatus.valueOf(status) : null,
+                rs.getObject("location_id") != null ? rs.getLong("location_id") : null);
+    }
+}
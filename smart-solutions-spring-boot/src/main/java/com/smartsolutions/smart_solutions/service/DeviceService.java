@@ -2,22 +2,31 @@ package com.smartsolutions.smart_solutions.service;
 
 import com.smartsolutions.smart_solutions.dto.DeviceDTO;
 import com.smartsolutions.smart_solutions.dto.SensorDataDTO;
+import com.smartsolutions.smart_solutions.dto.SensorDataPointDTO;
+import com.smartsolutions.smart_solutions.event.DeviceLifecycleEvent;
+import com.smartsolutions.smart_solutions.event.SensorDataIngestedEvent;
+import com.smartsolutions.smart_solutions.exception.BadRequestException;
 import com.smartsolutions.smart_solutions.model.Alert;
 import com.smartsolutions.smart_solutions.model.Device;
 import com.smartsolutions.smart_solutions.model.SensorData;
 import com.smartsolutions.smart_solutions.repository.DeviceRepository;
 import com.smartsolutions.smart_solutions.repository.SensorDataRepository;
 import com.smartsolutions.smart_solutions.util.DeviceMapper;
+import com.smartsolutions.smart_solutions.util.SensorDataDownsampler;
 import com.smartsolutions.smart_solutions.util.SensorDataMapper;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -26,6 +35,10 @@ public class DeviceService {
     private final SensorDataMapper sensorDataMapper;
     private final DeviceRepository deviceRepository;
     private final DeviceMapper deviceMapper;
+    private final SensorDataDownsampler sensorDataDownsampler;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SensorDataIngestPipeline ingestPipeline;
+    private final DeviceRegistryCache deviceRegistryCache;
 
     @Transactional(readOnly = true)
     public Page<SensorDataDTO> getDeviceSensorData(
@@ -49,6 +62,52 @@ public class DeviceService {
         return dataPage.map(sensorDataMapper::toDto);
     }
 
+    @Transactional(readOnly = true)
+    public List<SensorDataPointDTO> getDownsampledSensorData(
+            Long deviceId, String sensorType, Instant startDate, Instant endDate,
+            int points, SensorDataDownsampler.Mode mode) {
+
+        validateDeviceExists(deviceId);
+        if (points < 3) {
+            throw new BadRequestException("Point count must be at least 3");
+        }
+        if (!startDate.isBefore(endDate)) {
+            throw new BadRequestException("Start date must be before end date");
+        }
+
+        if (mode == SensorDataDownsampler.Mode.MIN_MAX) {
+            // Each bucket contributes its min and max
+            SensorDataDownsampler.TimeBuckets buckets =
+                    SensorDataDownsampler.TimeBuckets.of(startDate, endDate, points / 2);
+            try (Stream<SensorDataPointDTO> stream =
+                         sensorDataRepository.streamPoints(deviceId, sensorType, startDate, endDate)) {
+                return sensorDataDownsampler.minMax(stream.iterator(), buckets);
+            }
+        }
+
+        // First and last points are always kept, the remainder is one point per bucket
+        SensorDataDownsampler.TimeBuckets buckets =
+                SensorDataDownsampler.TimeBuckets.of(startDate, endDate, points - 2);
+        double[] avgX = new double[buckets.count()];
+        double[] avgY = new double[buckets.count()];
+        Arrays.fill(avgX, Double.NaN);
+        Arrays.fill(avgY, Double.NaN);
+
+        List<Object[]> averages = sensorDataRepository.findBucketAverages(
+                deviceId, sensorType, startDate, endDate,
+                buckets.startMs(), buckets.widthMs(), buckets.count());
+        for (Object[] row : averages) {
+            int bucket = ((Number) row[0]).intValue();
+            avgX[bucket] = ((Number) row[1]).doubleValue();
+            avgY[bucket] = ((Number) row[2]).doubleValue();
+        }
+
+        try (Stream<SensorDataPointDTO> stream =
+                     sensorDataRepository.streamPoints(deviceId, sensorType, startDate, endDate)) {
+            return sensorDataDownsampler.largestTriangleThreeBuckets(stream.iterator(), buckets, avgX, avgY);
+        }
+    }
+
     @Transactional(readOnly = true)
     public List<String> getDeviceSensorTypes(Long deviceId) {
         return sensorDataRepository.findDistinctSensorTypesByDeviceId(deviceId);
@@ -57,14 +116,29 @@ public class DeviceService {
     @Transactional
     public SensorDataDTO addReading(Long deviceId, SensorDataDTO sensorDataDTO) {
         SensorData sensorData = sensorDataMapper.toEntity(sensorDataDTO);
-        // Set device references
+        // The stages validate against the registry snapshot; the device reference is only
+        // there for the foreign key and is never loaded
+        DeviceRegistryCache.DeviceSnapshot device = null;
         if (deviceId != null) {
-            Device device = deviceRepository.findById(deviceId)
+            device = deviceRegistryCache.findById(deviceId)
                     .orElseThrow(() -> new EntityNotFoundException("Device not found with id: " + deviceId));
-            sensorData.setDevice(device);
+            sensorData.setDevice(deviceRepository.getReferenceById(deviceId));
         }
+        ingestPipeline.process(sensorData, device);
         SensorData savedData = sensorDataRepository.save(sensorData);
-        return sensorDataMapper.toDto(savedData);
+        eventPublisher.publishEvent(new SensorDataIngestedEvent(
+                savedData.getId(),
+                deviceId,
+                savedData.getSensorType(),
+                savedData.getValue(),
+                savedData.getUnit(),
+                savedData.getStatusCode(),
+                savedData.getTimestamp()));
+        SensorDataDTO saved = sensorDataMapper.toDto(savedData);
+        if (device != null) {
+            saved.setDeviceName(device.name());
+        }
+        return saved;
     }
 
     @Transactional(readOnly = true)
@@ -72,30 +146,44 @@ public class DeviceService {
         if (deviceId == null) {
             throw new IllegalArgumentException("Device ID cannot be null");
         }
-        if (!deviceRepository.existsById(deviceId)) {
+        if (deviceRegistryCache.findById(deviceId).isEmpty()) {
             throw new EntityNotFoundException(
                     String.format("Device with ID %d not found", deviceId));
         }
     }
 
+    // Resolves a device by the serial number or MAC address it identifies itself with
+    public DeviceRegistryCache.DeviceSnapshot lookupDevice(String serialNumber, String macAddress) {
+        if ((serialNumber == null) == (macAddress == null)) {
+            throw new BadRequestException("Exactly one of serial number and MAC address is required");
+        }
+        Optional<DeviceRegistryCache.DeviceSnapshot> device = serialNumber != null
+                ? deviceRegistryCache.findBySerialNumber(serialNumber)
+                : deviceRegistryCache.findByMacAddress(macAddress);
+        return device.orElseThrow(() -> new EntityNotFoundException(serialNumber != null
+                ? String.format("Device with serial number %s not found", serialNumber)
+                : String.format("Device with MAC address %s not found", macAddress)));
+    }
+
 
         @Transactional(readOnly = true)
         public Page<DeviceDTO> getAllDevices(Pageable pageable) {
-            return deviceRepository.findAll(pageable)
-                    .map(deviceMapper::toDto);
+            return deviceRepository.findDeviceViews(pageable);
         }
 
         @Transactional(readOnly = true)
         public DeviceDTO getDeviceById(Long id) {
-            return deviceRepository.findById(id)
-                    .map(deviceMapper::toDto)
+            return deviceRepository.findDeviceViewById(id)
                     .orElseThrow(() -> new EntityNotFoundException(
                             String.format("Device with ID %d not found", id)));
         }
 
         @Transactional
         public Device createDevice(Device device) {
-            return deviceRepository.save(device);
+            Device saved = deviceRepository.save(device);
+            deviceRepository.findDeviceViewById(saved.getId())
+                    .ifPresent(view -> publish(DeviceLifecycleEvent.Type.CREATED, view));
+            return saved;
         }
 
         @Transactional
@@ -106,7 +194,12 @@ public class DeviceService {
 
             deviceMapper.updateEntityFromDto(deviceDTO, existingDevice);
             existingDevice.setUpdatedAt(Instant.now());
-            return deviceMapper.toDto(deviceRepository.save(existingDevice));
+            deviceRepository.save(existingDevice);
+            DeviceDTO updated = deviceRepository.findDeviceViewById(id)
+                    .orElseThrow(() -> new EntityNotFoundException(
+                            String.format("Device with ID %d not found", id)));
+            publish(DeviceLifecycleEvent.Type.UPDATED, updated);
+            return updated;
         }
 
         @Transactional
@@ -115,6 +208,13 @@ public class DeviceService {
                     .orElseThrow(() -> new EntityNotFoundException(
                             String.format("Device with ID %d not found", id)));
 
+            // Last known state, read before the row goes away
+            DeviceDTO last = deviceRepository.findDeviceViewById(id).orElseGet(() -> deviceMapper.toDto(device));
             deviceRepository.delete(device);
+            publish(DeviceLifecycleEvent.Type.DELETED, last);
+        }
+
+        private void publish(DeviceLifecycleEvent.Type type, DeviceDTO device) {
+            eventPublisher.publishEvent(new DeviceLifecycleEvent(type, device, Instant.now()));
         }
 }
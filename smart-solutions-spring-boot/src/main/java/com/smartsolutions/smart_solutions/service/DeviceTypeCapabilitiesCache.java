@@ -0,0 +1,144 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartsolutions.smart_solutions.model.DeviceType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Parsed device-type capabilities keyed by type id, so the JSON is read once per type
+// rather than once per reading. Each entry remembers the JSON it was parsed from and is
+// reparsed as soon as a loaded type or device snapshot carries different capabilities, so
+// edits to a type apply without any write path having to invalidate this cache. Device
+// snapshots are reloaded after a type edit through the trigger added in V14.
+//
+// Three declarations are understood:
+//   "ranges": {"Temperature": {"min": -40, "max": 125}}   per sensor type
+//   "measurement_range": "-40 to 125"                      any sensor type of the device
+//   "heartbeat_interval_seconds": 60                       how often the device reports
+@Slf4j
+@Component
+public class DeviceTypeCapabilitiesCache {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final TypeReference<Map<String, Object>> JSON_OBJECT = new TypeReference<>() {
+    };
+
+    private static final Pattern LEGACY_RANGE =
+            Pattern.compile("^\\s*(-?\\d+(?:\\.\\d+)?)\\s*to\\s*(-?\\d+(?:\\.\\d+)?)\\s*$");
+
+    public record ValueRange(double min, double max) {
+        public boolean contains(double value) {
+            return value >= min && value <= max;
+        }
+    }
+
+    // heartbeatInterval is null when the type does not declare one
+    public record Capabilities(Map<String, ValueRange> ranges, ValueRange defaultRange, Duration heartbeatInterval) {
+        public static final Capabilities EMPTY = new Capabilities(Collections.emptyMap(), null, null);
+
+        public ValueRange rangeFor(String sensorType) {
+            ValueRange range = ranges.get(sensorType);
+            return range != null ? range : defaultRange;
+        }
+    }
+
+    private record Entry(String json, Capabilities capabilities) {
+    }
+
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    public Capabilities get(DeviceType type) {
+        return get(type.getId(), type.getCapabilitiesJson());
+    }
+
+    // For callers holding the type's id and capabilities JSON rather than the entity
+    public Capabilities get(Long typeId, String json) {
+        Entry entry = typeId != null ? entries.get(typeId) : null;
+        if (entry != null && Objects.equals(entry.json(), json)) {
+            return entry.capabilities();
+        }
+
+        Capabilities capabilities = parse(typeId, json);
+        if (typeId != null) {
+            entries.put(typeId, new Entry(json, capabilities));
+        }
+        return capabilities;
+    }
+
+    private Capabilities parse(Long typeId, String json) {
+        if (json == null) {
+            return Capabilities.EMPTY;
+        }
+        Map<String, Object> raw;
+        try {
+            raw = OBJECT_MAPPER.readValue(json, JSON_OBJECT);
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring unreadable capabilities of device type {}", typeId, e);
+            return Capabilities.EMPTY;
+        }
+
+        Map<String, ValueRange> ranges = new HashMap<>();
+        if (raw.get("ranges") instanceof Map<?, ?> declared) {
+            declared.forEach((sensorType, bounds) -> {
+                ValueRange range = toRange(bounds);
+                if (range != null) {
+                    ranges.put(String.valueOf(sensorType), range);
+                }
+            });
+        }
+
+        ValueRange defaultRange = null;
+        if (raw.get("measurement_range") instanceof String legacy) {
+            Matcher matcher = LEGACY_RANGE.matcher(legacy);
+            if (matcher.matches()) {
+                defaultRange = new ValueRange(Double.parseDouble(matcher.group(1)), Double.parseDouble(matcher.group(2)));
+            }
+        }
+
+        Double heartbeatSeconds = toDouble(raw.get("heartbeat_interval_seconds"));
+        Duration heartbeatInterval = heartbeatSeconds != null && heartbeatSeconds > 0
+                ? Duration.ofMillis((long) (heartbeatSeconds * 1000))
+                : null;
+        return new Capabilities(Map.copyOf(ranges), defaultRange, heartbeatInterval);
+    }
+
+    private ValueRange toRange(Object bounds) {
+        if (!(bounds instanceof Map<?, ?> map)) {
+            return null;
+        }
+        Double min = toDouble(map.get("min"));
+        Double max = toDouble(map.get("max"));
+        if (min == null && max == null) {
+            return null;
+        }
+        return new ValueRange(
+                min != null ? min : Double.NEGATIVE_INFINITY,
+                max != null ? max : Double.POSITIVE_INFINITY);
+    }
+
+    private Double toDouble(Object value) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        if (value instanceof String text) {
+            try {
+                return Double.parseDouble(text.trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
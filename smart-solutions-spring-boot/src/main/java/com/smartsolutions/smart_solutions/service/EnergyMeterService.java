@@ -0,0 +1,367 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.dto.EnergyCounterDTO;
+import com.smartsolutions.smart_solutions.dto.EnergyTotalDTO;
+import com.smartsolutions.smart_solutions.event.SensorDataIngestedEvent;
+import com.smartsolutions.smart_solutions.exception.BadRequestException;
+import com.smartsolutions.smart_solutions.model.DeviceEnergyCounter;
+import com.smartsolutions.smart_solutions.model.SensorData;
+import com.smartsolutions.smart_solutions.repository.DeviceEnergyCounterRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// Integrates power readings into hourly and daily kWh counters as they are ingested.
+// Readings arrive normalized to W, V and A by the ingest stages; tagged readings are skipped.
+@Slf4j
+@Service
+public class EnergyMeterService {
+
+    private static final String UPSERT_COUNTER =
+            "INSERT INTO iot.device_energy_counters (device_id, granularity, period_start, energy_kwh, updated_at) " +
+            "VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (device_id, granularity, period_start) DO UPDATE " +
+            "SET energy_kwh = iot.device_energy_counters.energy_kwh + EXCLUDED.energy_kwh, updated_at = CURRENT_TIMESTAMP";
+
+    private static final String SELECT_ENERGY_READINGS =
+            "SELECT sensor_type, value, timestamp FROM iot.sensor_data " +
+            "WHERE device_id = ? AND sensor_type IN ('Power', 'Voltage', 'Current') " +
+            "AND timestamp >= ? AND timestamp < ? AND (status_code IS NULL OR status_code < 300) " +
+            "ORDER BY timestamp, data_id";
+
+    private static final String EXISTS_POWER_READINGS =
+            "SELECT EXISTS (SELECT 1 FROM iot.sensor_data WHERE device_id = ? AND sensor_type = 'Power' " +
+            "AND timestamp >= ? AND timestamp < ?)";
+
+    private static final String DELETE_COUNTERS =
+            "DELETE FROM iot.device_energy_counters " +
+            "WHERE device_id = ? AND granularity = ? AND period_start >= ? AND period_start < ?";
+
+    private static final String INSERT_HOUR_COUNTER =
+            "INSERT INTO iot.device_energy_counters (device_id, granularity, period_start, energy_kwh, updated_at) " +
+            "VALUES (?, 'HOUR', ?, ?, CURRENT_TIMESTAMP)";
+
+    private static final String INSERT_DAY_COUNTERS_FROM_HOURS =
+            "INSERT INTO iot.device_energy_counters (device_id, granularity, period_start, energy_kwh, updated_at) " +
+            "SELECT device_id, 'DAY', date_trunc('day', period_start, 'UTC'), SUM(energy_kwh), CURRENT_TIMESTAMP " +
+            "FROM iot.device_energy_counters " +
+            "WHERE device_id = ? AND granularity = 'HOUR' AND period_start >= ? AND period_start < ? " +
+            "GROUP BY device_id, date_trunc('day', period_start, 'UTC')";
+
+    @FunctionalInterface
+    private interface HourlyEnergySink {
+        void add(Instant hour, double kwh);
+    }
+
+    private record CounterKey(long deviceId, DeviceEnergyCounter.Granularity granularity, Instant periodStart) {
+    }
+
+    private static final class DeviceEnergyState {
+        private Instant lastPowerAt;
+        private double lastPowerWatts;
+        private boolean reportsPower;
+        private Instant voltageAt;
+        private double voltage;
+        private Instant currentAt;
+        private double current;
+    }
+
+    private final DeviceEnergyCounterRepository counterRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration maxGap;
+    private final Duration pairingWindow;
+
+    private final ConcurrentHashMap<Long, DeviceEnergyState> states = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<CounterKey, Double> pendingKwh = new ConcurrentHashMap<>();
+    // Held by flushes and rebuilds, so a flush already in flight cannot land on top of a rebuilt counter
+    private final Object flushLock = new Object();
+
+    public EnergyMeterService(
+            DeviceEnergyCounterRepository counterRepository,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${energy.max-gap-seconds:900}") long maxGapSeconds,
+            @Value("${energy.pairing-window-seconds:10}") long pairingWindowSeconds) {
+        this.counterRepository = counterRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxGap = Duration.ofSeconds(maxGapSeconds);
+        this.pairingWindow = Duration.ofSeconds(pairingWindowSeconds);
+    }
+
+    @TransactionalEventListener
+    public void onReadingIngested(SensorDataIngestedEvent event) {
+        if (event.deviceId() == null || event.timestamp() == null || !event.isValid()) {
+            return;
+        }
+        DeviceEnergyState state = states.computeIfAbsent(event.deviceId(), id -> new DeviceEnergyState());
+        synchronized (state) {
+            feed(state, event.sensorType(), event.timestamp(), event.value(),
+                    (hour, kwh) -> addEnergy(event.deviceId(), hour, kwh));
+        }
+    }
+
+    private void feed(DeviceEnergyState state, String sensorType, Instant at, double value, HourlyEnergySink sink) {
+        boolean power = SensorData.SensorType.Power.name().equalsIgnoreCase(sensorType);
+        boolean voltage = SensorData.SensorType.Voltage.name().equalsIgnoreCase(sensorType);
+        boolean current = SensorData.SensorType.Current.name().equalsIgnoreCase(sensorType);
+        if (!power && !voltage && !current) {
+            return;
+        }
+
+        if (power) {
+            state.reportsPower = true;
+            recordPower(state, at, value, sink);
+            return;
+        }
+
+        if (voltage) {
+            state.voltage = value;
+            state.voltageAt = at;
+        } else {
+            state.current = value;
+            state.currentAt = at;
+        }
+
+        // Derive P = V x I only for devices that never report power themselves
+        if (!state.reportsPower && state.voltageAt != null && state.currentAt != null
+                && Duration.between(state.voltageAt, state.currentAt).abs().compareTo(pairingWindow) <= 0) {
+            Instant pairedAt = state.voltageAt.isAfter(state.currentAt) ? state.voltageAt : state.currentAt;
+            recordPower(state, pairedAt, state.voltage * state.current, sink);
+        }
+    }
+
+    private void recordPower(DeviceEnergyState state, Instant at, double watts, HourlyEnergySink sink) {
+        if (state.lastPowerAt != null) {
+            if (!at.isAfter(state.lastPowerAt)) {
+                // Late or duplicate sample, the interval it belongs to is already integrated
+                return;
+            }
+            // Beyond the gap limit consumption is unknown, so the interval is not integrated
+            if (Duration.between(state.lastPowerAt, at).compareTo(maxGap) <= 0) {
+                integrate(state.lastPowerAt, state.lastPowerWatts, at, watts, sink);
+            }
+        }
+        state.lastPowerAt = at;
+        state.lastPowerWatts = watts;
+    }
+
+    // Trapezoidal rule, split on hour boundaries so each piece lands in a single counter
+    private void integrate(Instant from, double fromWatts, Instant to, double toWatts, HourlyEnergySink sink) {
+        double spanMillis = to.toEpochMilli() - from.toEpochMilli();
+        Instant segmentStart = from;
+        double segmentStartWatts = fromWatts;
+
+        while (segmentStart.isBefore(to)) {
+            Instant hour = segmentStart.truncatedTo(ChronoUnit.HOURS);
+            Instant nextHour = hour.plus(1, ChronoUnit.HOURS);
+            Instant segmentEnd = nextHour.isBefore(to) ? nextHour : to;
+            double segmentEndWatts = fromWatts
+                    + (toWatts - fromWatts) * (segmentEnd.toEpochMilli() - from.toEpochMilli()) / spanMillis;
+
+            double hours = (segmentEnd.toEpochMilli() - segmentStart.toEpochMilli()) / 3_600_000.0;
+            double kwh = (segmentStartWatts + segmentEndWatts) / 2 * hours / 1000;
+            sink.add(hour, kwh);
+
+            segmentStart = segmentEnd;
+            segmentStartWatts = segmentEndWatts;
+        }
+    }
+
+    private void addEnergy(long deviceId, Instant hour, double kwh) {
+        pendingKwh.merge(new CounterKey(deviceId, DeviceEnergyCounter.Granularity.HOUR, hour), kwh, Double::sum);
+        pendingKwh.merge(new CounterKey(deviceId, DeviceEnergyCounter.Granularity.DAY, hour.truncatedTo(ChronoUnit.DAYS)), kwh, Double::sum);
+    }
+
+    @Scheduled(fixedDelayString = "${energy.flush-interval-ms:10000}")
+    public void flushCounters() {
+        synchronized (flushLock) {
+            flushPending();
+        }
+    }
+
+    private void flushPending() {
+        if (pendingKwh.isEmpty()) {
+            return;
+        }
+
+        List<CounterKey> keys = new ArrayList<>();
+        List<Double> values = new ArrayList<>();
+        for (CounterKey key : pendingKwh.keySet()) {
+            Double kwh = pendingKwh.remove(key);
+            if (kwh != null) {
+                keys.add(key);
+                values.add(kwh);
+            }
+        }
+
+        List<Object[]> batch = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            CounterKey key = keys.get(i);
+            batch.add(new Object[]{
+                    key.deviceId(),
+                    key.granularity().name(),
+                    utc(key.periodStart()),
+                    values.get(i)});
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_COUNTER, batch);
+        } catch (DataAccessException e) {
+            // Put the increments back so the next flush retries them
+            for (int i = 0; i < keys.size(); i++) {
+                pendingKwh.merge(keys.get(i), values.get(i), Double::sum);
+            }
+            log.warn("Failed to flush {} energy counters, will retry", keys.size(), e);
+        }
+    }
+
+    // Recomputes the counters covering [from, to] from the stored readings, for when readings were
+    // rewritten after ingest. The device's pending increments for the affected days are drained first:
+    // those for the rebuilt hours are dropped, since the stored readings already account for them, and
+    // those for the other hours of the days are written with the rebuild, ahead of the day totals.
+    public void rebuildDeviceEnergy(long deviceId, Instant from, Instant to) {
+        Instant windowStart = from.truncatedTo(ChronoUnit.HOURS);
+        Instant windowEnd = to.truncatedTo(ChronoUnit.HOURS).plus(1, ChronoUnit.HOURS);
+        Instant dayStart = windowStart.truncatedTo(ChronoUnit.DAYS);
+        Instant dayEnd = windowEnd.minusNanos(1).truncatedTo(ChronoUnit.DAYS).plus(1, ChronoUnit.DAYS);
+        Instant readFrom = windowStart.minus(maxGap);
+        Instant readTo = windowEnd.plus(maxGap);
+
+        synchronized (flushLock) {
+            Map<CounterKey, Double> drained = new HashMap<>();
+            for (CounterKey key : pendingKwh.keySet()) {
+                if (key.deviceId() == deviceId
+                        && !key.periodStart().isBefore(dayStart) && key.periodStart().isBefore(dayEnd)) {
+                    Double kwh = pendingKwh.remove(key);
+                    if (kwh != null) {
+                        drained.put(key, kwh);
+                    }
+                }
+            }
+
+            try {
+                rebuild(deviceId, windowStart, windowEnd, dayStart, dayEnd, readFrom, readTo, drained);
+            } catch (RuntimeException e) {
+                // Nothing was rewritten, so the drained increments still belong in the counters
+                drained.forEach((key, kwh) -> pendingKwh.merge(key, kwh, Double::sum));
+                throw e;
+            }
+        }
+    }
+
+    private void rebuild(long deviceId, Instant windowStart, Instant windowEnd, Instant dayStart, Instant dayEnd,
+                         Instant readFrom, Instant readTo, Map<CounterKey, Double> drained) {
+        DeviceEnergyState state = new DeviceEnergyState();
+        state.reportsPower = Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                EXISTS_POWER_READINGS, Boolean.class, deviceId, utc(readFrom), utc(readTo)));
+
+        // Intervals reaching into the window from either side are integrated, only the window's hours kept
+        TreeMap<Instant, Double> hours = new TreeMap<>();
+        jdbcTemplate.query(SELECT_ENERGY_READINGS, (RowCallbackHandler) rs -> feed(
+                        state,
+                        rs.getString("sensor_type"),
+                        rs.getObject("timestamp", OffsetDateTime.class).toInstant(),
+                        rs.getDouble("value"),
+                        (hour, kwh) -> {
+                            if (!hour.isBefore(windowStart) && hour.isBefore(windowEnd)) {
+                                hours.merge(hour, kwh, Double::sum);
+                            }
+                        }),
+                deviceId, utc(readFrom), utc(readTo));
+
+        List<Object[]> batch = new ArrayList<>(hours.size());
+        hours.forEach((hour, kwh) -> batch.add(new Object[]{deviceId, utc(hour), kwh}));
+        List<Object[]> carried = new ArrayList<>();
+        drained.forEach((key, kwh) -> {
+            if (key.granularity() == DeviceEnergyCounter.Granularity.HOUR
+                    && (key.periodStart().isBefore(windowStart) || !key.periodStart().isBefore(windowEnd))) {
+                carried.add(new Object[]{deviceId, key.granularity().name(), utc(key.periodStart()), kwh});
+            }
+        });
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update(DELETE_COUNTERS, deviceId, DeviceEnergyCounter.Granularity.HOUR.name(), utc(windowStart), utc(windowEnd));
+            jdbcTemplate.batchUpdate(INSERT_HOUR_COUNTER, batch);
+            if (!carried.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPSERT_COUNTER, carried);
+            }
+            jdbcTemplate.update(DELETE_COUNTERS, deviceId, DeviceEnergyCounter.Granularity.DAY.name(), utc(dayStart), utc(dayEnd));
+            jdbcTemplate.update(INSERT_DAY_COUNTERS_FROM_HOURS, deviceId, utc(dayStart), utc(dayEnd));
+        });
+    }
+
+    private static OffsetDateTime utc(Instant instant) {
+        return OffsetDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushCounters();
+    }
+
+    @Transactional(readOnly = true)
+    public List<EnergyCounterDTO> getDeviceEnergy(
+            Long deviceId, DeviceEnergyCounter.Granularity granularity, Instant startDate, Instant endDate) {
+        validateRange(startDate, endDate);
+        return counterRepository
+                .findByDeviceIdAndGranularityAndPeriodStartGreaterThanEqualAndPeriodStartLessThanOrderByPeriodStart(
+                        deviceId, granularity, startDate, endDate)
+                .stream()
+                .map(counter -> new EnergyCounterDTO(counter.getPeriodStart(), counter.getEnergyKwh()))
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public EnergyTotalDTO getFleetEnergy(Instant startDate, Instant endDate) {
+        validateRange(startDate, endDate);
+        return toTotal(null, startDate, endDate, counterRepository.sumFleetEnergy(startDate, endDate));
+    }
+
+    @Transactional(readOnly = true)
+    public EnergyTotalDTO getLocationEnergy(Long locationId, Instant startDate, Instant endDate) {
+        validateRange(startDate, endDate);
+        return toTotal(locationId, startDate, endDate,
+                counterRepository.sumLocationEnergy(locationId, startDate, endDate));
+    }
+
+    private EnergyTotalDTO toTotal(Long locationId, Instant startDate, Instant endDate, List<Object[]> result) {
+        Object[] row = result.isEmpty() ? new Object[]{0, 0} : result.get(0);
+        return EnergyTotalDTO.builder()
+                .locationId(locationId)
+                .startDate(startDate)
+                .endDate(endDate)
+                .energyKwh(((Number) row[0]).doubleValue())
+                .deviceCount(((Number) row[1]).longValue())
+                .build();
+    }
+
+    private void validateRange(Instant startDate, Instant endDate) {
+        if (!startDate.isBefore(endDate)) {
+            throw new BadRequestException("Start date must be before end date");
+        }
+    }
+}
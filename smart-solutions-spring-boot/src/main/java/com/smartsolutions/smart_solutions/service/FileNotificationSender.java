@@ -0,0 +1,52 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Stand-in for real email/push/SMS gateways: appends each digest as a JSON line to one file
+// per channel. Off unless notifications.file-sink.enabled is set, as the dev profile does.
+@Component
+@ConditionalOnProperty(name = "notifications.file-sink.enabled", havingValue = "true")
+public class FileNotificationSender implements NotificationSender {
+
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final Map<Channel, Object> fileLocks = new EnumMap<>(Channel.class);
+
+    public FileNotificationSender(
+            ObjectMapper objectMapper,
+            @Value("${notifications.file-sink.directory:${java.io.tmpdir}/smart-solutions-notifications}") String directory) {
+        this.objectMapper = objectMapper;
+        this.directory = Path.of(directory);
+        for (Channel channel : Channel.values()) {
+            fileLocks.put(channel, new Object());
+        }
+    }
+
+    @Override
+    public boolean supports(Channel channel) {
+        return true;
+    }
+
+    @Override
+    public void send(Digest digest) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(digest.channel().name().toLowerCase(Locale.ROOT) + ".jsonl");
+        String line = objectMapper.writeValueAsString(digest) + System.lineSeparator();
+        // One writer per channel file at a time, so lines never interleave; channels write in parallel
+        synchronized (fileLocks.get(digest.channel())) {
+            Files.writeString(file, line, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+}
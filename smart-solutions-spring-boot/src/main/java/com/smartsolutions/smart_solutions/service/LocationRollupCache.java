@@ -0,0 +1,395 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.dto.AlertDTO;
+import com.smartsolutions.smart_solutions.dto.LocationRollupDTO;
+import com.smartsolutions.smart_solutions.event.AlertLifecycleEvent;
+import com.smartsolutions.smart_solutions.event.DeviceLifecycleEvent;
+import com.smartsolutions.smart_solutions.event.DevicePresenceEvent;
+import com.smartsolutions.smart_solutions.event.SensorDataIngestedEvent;
+import com.smartsolutions.smart_solutions.model.Alert;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+// Device count, online count, active alerts and the average latest reading per sensor type
+// for the subtree of every location, held in memory so a rollup is a map lookup. A device's
+// share is added to its own location and each ancestor from location_closure, and device,
+// presence, alert and reading events move only that share. Rebuilt from the database on
+// startup and periodically, which also picks up location moves and changes made through
+// other nodes; readings older than the latest-window at rebuild time are left out.
+@Slf4j
+@Component
+public class LocationRollupCache {
+
+    private static final String SELECT_CLOSURE = "SELECT descendant_id, ancestor_id FROM iot.location_closure";
+
+    private static final String SELECT_ANCESTORS = "SELECT ancestor_id FROM iot.location_closure WHERE descendant_id = ?";
+
+    private static final String SELECT_DEVICES = "SELECT device_id, location_id, is_online FROM iot.devices";
+
+    private static final String SELECT_ACTIVE_ALERTS =
+            "SELECT alert_id, device_id FROM iot.device_alerts WHERE device_id IS NOT NULL AND status IN (" +
+            String.join(", ", Collections.nCopies(ActiveAlertIndex.INDEXED_STATUSES.size(), "?")) + ")";
+
+    // Served by idx_sensor_data_device_type_ts
+    private static final String SELECT_LATEST_READINGS =
+            "SELECT DISTINCT ON (device_id, sensor_type) device_id, sensor_type, value, timestamp " +
+            "FROM iot.sensor_data " +
+            "WHERE device_id IS NOT NULL AND timestamp > ? AND (status_code IS NULL OR status_code < 300) " +
+            "ORDER BY device_id, sensor_type, timestamp DESC";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DeviceRegistryCache deviceRegistryCache;
+    private final Duration latestWindow;
+    private final StampedLock lock = new StampedLock();
+
+    // Guarded by lock
+    private State state;
+    private List<Consumer<State>> changesDuringRebuild;
+
+    public LocationRollupCache(
+            JdbcTemplate jdbcTemplate,
+            DeviceRegistryCache deviceRegistryCache,
+            MeterRegistry meterRegistry,
+            @Value("${locations.rollup.latest-window-hours:24}") long latestWindowHours) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.deviceRegistryCache = deviceRegistryCache;
+        this.latestWindow = Duration.ofHours(latestWindowHours);
+        this.state = new State();
+        Gauge.builder("locations.rollup.devices", this, LocationRollupCache::trackedDevices)
+                .description("Devices contributing to the in-memory location rollups")
+                .register(meterRegistry);
+    }
+
+    // Zero for a location without devices below it
+    public LocationRollupDTO rollup(long locationId) {
+        long stamp = lock.readLock();
+        try {
+            Rollup rollup = state.rollups.get(locationId);
+            if (rollup == null) {
+                return LocationRollupDTO.builder().locationId(locationId).latestAverages(Map.of()).build();
+            }
+            Map<String, Double> averages = new HashMap<>();
+            rollup.readings.forEach((sensorType, sum) -> averages.put(sensorType, sum[0] / sum[1]));
+            return LocationRollupDTO.builder()
+                    .locationId(locationId)
+                    .deviceCount(rollup.devices)
+                    .onlineCount(rollup.online)
+                    .activeAlerts(rollup.activeAlerts)
+                    .latestAverages(averages)
+                    .build();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceChanged(DeviceLifecycleEvent event) {
+        long deviceId = event.device().getId();
+        Long locationId = event.device().getLocationId();
+        boolean online = event.device().isOnline();
+        switch (event.type()) {
+            case CREATED, UPDATED -> apply(locationId, state -> state.place(deviceId, locationId, online));
+            case DELETED -> apply(state -> state.remove(deviceId));
+        }
+    }
+
+    // Devices unknown to the rollups are placed where the registry has them, looked up before
+    // taking the lock; events for devices that no longer exist are dropped
+    @EventListener
+    public void onPresenceChanged(DevicePresenceEvent event) {
+        deviceRegistryCache.findById(event.deviceId()).ifPresent(device -> apply(device.locationId(),
+                state -> state.presence(device.id(), device.locationId(), event.online())));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAlertChanged(AlertLifecycleEvent event) {
+        AlertDTO alert = event.alert();
+        boolean active = event.type() != AlertLifecycleEvent.Type.DELETED
+                && alert.getStatus() != null
+                && ActiveAlertIndex.INDEXED_STATUSES.contains(Alert.AlertStatus.valueOf(alert.getStatus()));
+        Optional<DeviceRegistryCache.DeviceSnapshot> device = alert.getDeviceId() != null
+                ? deviceRegistryCache.findById(alert.getDeviceId())
+                : Optional.empty();
+        Long locationId = device.map(DeviceRegistryCache.DeviceSnapshot::locationId).orElse(null);
+        apply(locationId, state -> state.alert(alert.getId(), alert.getDeviceId(), active && device.isPresent(),
+                locationId));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReadingIngested(SensorDataIngestedEvent event) {
+        if (event.deviceId() == null || !event.isValid() || event.timestamp() == null) {
+            return;
+        }
+        deviceRegistryCache.findById(event.deviceId()).ifPresent(device -> apply(device.locationId(),
+                state -> state.reading(device.id(), device.locationId(), event.sensorType(), event.value(),
+                        event.timestamp())));
+    }
+
+    // Changes committed while the snapshot loads are replayed onto it before the swap, so
+    // nothing that happens during a rebuild is lost
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${locations.rollup.rebuild-interval-ms:600000}",
+            fixedDelayString = "${locations.rollup.rebuild-interval-ms:600000}")
+    public void rebuild() {
+        long stamp = lock.writeLock();
+        changesDuringRebuild = new ArrayList<>();
+        lock.unlockWrite(stamp);
+
+        try {
+            State fresh = new State();
+            jdbcTemplate.query(SELECT_CLOSURE, rs -> {
+                fresh.ancestors.computeIfAbsent(rs.getLong("descendant_id"), key -> new ArrayList<>())
+                        .add(rs.getLong("ancestor_id"));
+            });
+            // Nothing is locked yet, so locations created since the closure was read are loaded here
+            jdbcTemplate.query(SELECT_DEVICES, rs -> {
+                Long locationId = rs.getObject("location_id") != null ? rs.getLong("location_id") : null;
+                if (locationId != null) {
+                    fresh.ancestors.computeIfAbsent(locationId, this::loadAncestors);
+                }
+                fresh.place(rs.getLong("device_id"), locationId, rs.getBoolean("is_online"));
+            });
+            jdbcTemplate.query(SELECT_ACTIVE_ALERTS, rs -> {
+                long deviceId = rs.getLong("device_id");
+                DeviceState device = fresh.devices.get(deviceId);
+                if (device != null) {
+                    fresh.alert(rs.getLong("alert_id"), deviceId, true, device.locationId);
+                }
+            }, ActiveAlertIndex.INDEXED_STATUSES.stream().map(Enum::name).toArray());
+            jdbcTemplate.query(SELECT_LATEST_READINGS, rs -> {
+                long deviceId = rs.getLong("device_id");
+                DeviceState device = fresh.devices.get(deviceId);
+                if (device != null) {
+                    fresh.reading(deviceId, device.locationId, rs.getString("sensor_type"), rs.getDouble("value"),
+                            rs.getObject("timestamp", OffsetDateTime.class).toInstant());
+                }
+            }, utc(Instant.now().minus(latestWindow)));
+
+            stamp = lock.writeLock();
+            try {
+                changesDuringRebuild.forEach(change -> change.accept(fresh));
+                state = fresh;
+            } finally {
+                changesDuringRebuild = null;
+                lock.unlockWrite(stamp);
+            }
+            log.debug("Location rollups rebuilt over {} devices", fresh.devices.size());
+        } catch (RuntimeException e) {
+            stamp = lock.writeLock();
+            changesDuringRebuild = null;
+            lock.unlockWrite(stamp);
+            log.warn("Failed to rebuild the location rollups, keeping the current ones", e);
+        }
+    }
+
+    // The ancestors of the location a change may place a device at are resolved before taking
+    // the lock, and every state the change is applied to (a replayed rebuild included) learns
+    // them first; locations a device is already at are known to its state
+    private void apply(Long locationId, Consumer<State> change) {
+        if (locationId == null) {
+            apply(change);
+            return;
+        }
+        List<Long> ancestors = ancestorsOf(locationId);
+        apply(state -> {
+            state.ancestors.putIfAbsent(locationId, ancestors);
+            change.accept(state);
+        });
+    }
+
+    private void apply(Consumer<State> change) {
+        long stamp = lock.writeLock();
+        try {
+            change.accept(state);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(change);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private List<Long> ancestorsOf(long locationId) {
+        long stamp = lock.readLock();
+        List<Long> known;
+        try {
+            known = state.ancestors.get(locationId);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return known != null ? known : loadAncestors(locationId);
+    }
+
+    // Only for locations created since the last rebuild
+    private List<Long> loadAncestors(long locationId) {
+        return jdbcTemplate.queryForList(SELECT_ANCESTORS, Long.class, locationId);
+    }
+
+    private int trackedDevices() {
+        long stamp = lock.readLock();
+        try {
+            return state.devices.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static OffsetDateTime utc(Instant instant) {
+        return OffsetDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    private record Reading(double value, Instant timestamp) {
+    }
+
+    private static final class DeviceState {
+        private Long locationId;
+        private boolean online;
+        private int activeAlerts;
+        private final Map<String, Reading> latest = new HashMap<>(4);
+
+        private DeviceState(Long locationId, boolean online) {
+            this.locationId = locationId;
+            this.online = online;
+        }
+    }
+
+    private static final class Rollup {
+        private long devices;
+        private long online;
+        private long activeAlerts;
+        // Sum and count of the latest readings, by sensor type
+        private final Map<String, double[]> readings = new HashMap<>();
+    }
+
+    // Every change is idempotent, so replaying one the fresh snapshot already saw is harmless
+    private static final class State {
+        // Holds every location a device of this state is at; never loaded while the lock is held
+        private final Map<Long, List<Long>> ancestors = new HashMap<>();
+        private final Map<Long, DeviceState> devices = new HashMap<>();
+        private final Map<Long, Long> activeAlerts = new HashMap<>();
+        private final Map<Long, Rollup> rollups = new HashMap<>();
+
+        private void place(long deviceId, Long locationId, boolean online) {
+            DeviceState device = devices.get(deviceId);
+            if (device == null) {
+                device = new DeviceState(locationId, online);
+                devices.put(deviceId, device);
+                contribute(device, 1);
+            } else if (!Objects.equals(device.locationId, locationId)) {
+                contribute(device, -1);
+                device.locationId = locationId;
+                contribute(device, 1);
+            }
+        }
+
+        private void remove(long deviceId) {
+            DeviceState device = devices.remove(deviceId);
+            if (device != null) {
+                contribute(device, -1);
+                activeAlerts.values().removeIf(alertDevice -> alertDevice == deviceId);
+            }
+        }
+
+        private void presence(long deviceId, Long locationId, boolean online) {
+            DeviceState device = device(deviceId, locationId);
+            if (device.online != online) {
+                device.online = online;
+                forEachRollup(device.locationId, rollup -> rollup.online += online ? 1 : -1);
+            }
+        }
+
+        private void alert(long alertId, Long deviceId, boolean active, Long locationId) {
+            Long previousDevice = activeAlerts.remove(alertId);
+            if (previousDevice != null) {
+                DeviceState device = devices.get(previousDevice);
+                if (device != null) {
+                    device.activeAlerts--;
+                    forEachRollup(device.locationId, rollup -> rollup.activeAlerts--);
+                }
+            }
+            if (active && deviceId != null) {
+                DeviceState device = device(deviceId, locationId);
+                activeAlerts.put(alertId, deviceId);
+                device.activeAlerts++;
+                forEachRollup(device.locationId, rollup -> rollup.activeAlerts++);
+            }
+        }
+
+        // A backfilled reading older than the one held does not replace it
+        private void reading(long deviceId, Long locationId, String sensorType, double value, Instant timestamp) {
+            DeviceState device = device(deviceId, locationId);
+            Reading previous = device.latest.get(sensorType);
+            if (previous != null && previous.timestamp().isAfter(timestamp)) {
+                return;
+            }
+            device.latest.put(sensorType, new Reading(value, timestamp));
+            forEachRollup(device.locationId, rollup -> {
+                double[] sum = rollup.readings.computeIfAbsent(sensorType, key -> new double[2]);
+                sum[0] += previous != null ? value - previous.value() : value;
+                sum[1] += previous != null ? 0 : 1;
+            });
+        }
+
+        // Devices first seen through an event start offline with no alerts or readings
+        private DeviceState device(long deviceId, Long locationId) {
+            DeviceState device = devices.get(deviceId);
+            if (device == null) {
+                device = new DeviceState(locationId, false);
+                devices.put(deviceId, device);
+                contribute(device, 1);
+            }
+            return device;
+        }
+
+        private void contribute(DeviceState device, int sign) {
+            forEachRollup(device.locationId, rollup -> {
+                rollup.devices += sign;
+                rollup.online += device.online ? sign : 0;
+                rollup.activeAlerts += (long) sign * device.activeAlerts;
+                device.latest.forEach((sensorType, reading) -> {
+                    double[] sum = rollup.readings.computeIfAbsent(sensorType, key -> new double[2]);
+                    sum[0] += sign * reading.value();
+                    sum[1] += sign;
+                    if (sum[1] == 0) {
+                        rollup.readings.remove(sensorType);
+                    }
+                });
+            });
+        }
+
+        private void forEachRollup(Long locationId, Consumer<Rollup> update) {
+            if (locationId == null) {
+                return;
+            }
+            for (Long ancestorId : ancestors.get(locationId)) {
+                Rollup rollup = rollups.computeIfAbsent(ancestorId, key -> new Rollup());
+                update.accept(rollup);
+                if (rollup.devices == 0) {
+                    rollups.remove(ancestorId);
+                }
+            }
+        }
+    }
+}
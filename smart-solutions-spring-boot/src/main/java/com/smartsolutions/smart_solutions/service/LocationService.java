@@ -0,0 +1,38 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.dto.DeviceDTO;
+import com.smartsolutions.smart_solutions.dto.LocationRollupDTO;
+import com.smartsolutions.smart_solutions.exception.ResourceNotFoundException;
+import com.smartsolutions.smart_solutions.repository.DeviceRepository;
+import com.smartsolutions.smart_solutions.repository.LocationRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+// Queries over a location and everything below it, by way of the location_closure table
+@Service
+@RequiredArgsConstructor
+public class LocationService {
+    private final LocationRepository locationRepository;
+    private final DeviceRepository deviceRepository;
+    private final LocationRollupCache locationRollupCache;
+
+    @Transactional(readOnly = true)
+    public Page<DeviceDTO> getSubtreeDevices(Long locationId, Pageable pageable) {
+        validateLocationExists(locationId);
+        return deviceRepository.findDeviceViewsInSubtree(locationId, pageable);
+    }
+
+    public LocationRollupDTO getSubtreeRollup(Long locationId) {
+        validateLocationExists(locationId);
+        return locationRollupCache.rollup(locationId);
+    }
+
+    private void validateLocationExists(Long locationId) {
+        if (!locationRepository.existsById(locationId)) {
+            throw new ResourceNotFoundException(String.format("Location with ID %d not found", locationId));
+        }
+    }
+}
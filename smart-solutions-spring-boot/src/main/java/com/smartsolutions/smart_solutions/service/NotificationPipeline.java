@@ -0,0 +1,223 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.dto.AlertDTO;
+import com.smartsolutions.smart_solutions.event.AlertLifecycleEvent;
+import com.smartsolutions.smart_solutions.model.Alert;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Turns new and escalated alerts into per-recipient, per-channel digests. Recipients come from
+// NotificationRecipientCache, alerts are only appended to in-memory buffers on the committing
+// thread, and a digest is sent once its window closes (or it is full) on the delivery pool.
+// Failed digests wait in a retry queue with exponential backoff until they run out of attempts.
+@Slf4j
+@Service
+public class NotificationPipeline {
+
+    private record DigestKey(NotificationSender.Channel channel, long userId) {
+    }
+
+    private static final class DigestBuffer {
+        private final NotificationRecipientCache.Recipient recipient;
+        private final Instant windowStart = Instant.now();
+        private final List<AlertDTO> alerts = new ArrayList<>();
+
+        private DigestBuffer(NotificationRecipientCache.Recipient recipient) {
+            this.recipient = recipient;
+        }
+    }
+
+    private static final class Retry implements Delayed {
+        private final NotificationSender.Digest digest;
+        private final int attempt;
+        private final long dueNanos;
+
+        private Retry(NotificationSender.Digest digest, int attempt, Duration delay) {
+            this.digest = digest;
+            this.attempt = attempt;
+            this.dueNanos = System.nanoTime() + delay.toNanos();
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    private final NotificationRecipientCache recipientCache;
+    private final Map<NotificationSender.Channel, NotificationSender> senders = new EnumMap<>(NotificationSender.Channel.class);
+    private final Map<DigestKey, DigestBuffer> buffers = new ConcurrentHashMap<>();
+    private final DelayQueue<Retry> retries = new DelayQueue<>();
+    private final ExecutorService deliveryExecutor;
+    private final MeterRegistry meterRegistry;
+    private final Duration window;
+    private final int maxDigestSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+
+    public NotificationPipeline(
+            NotificationRecipientCache recipientCache,
+            List<NotificationSender> senderBeans,
+            MeterRegistry meterRegistry,
+            @Value("${notifications.digest-window-ms:60000}") long windowMs,
+            @Value("${notifications.max-digest-size:100}") int maxDigestSize,
+            @Value("${notifications.max-attempts:5}") int maxAttempts,
+            @Value("${notifications.initial-backoff-ms:5000}") long initialBackoffMs,
+            @Value("${notifications.delivery-threads:4}") int deliveryThreads) {
+        this.recipientCache = recipientCache;
+        this.meterRegistry = meterRegistry;
+        this.window = Duration.ofMillis(windowMs);
+        this.maxDigestSize = maxDigestSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = Duration.ofMillis(initialBackoffMs);
+
+        // First registered sender wins per channel
+        for (NotificationSender.Channel channel : NotificationSender.Channel.values()) {
+            senderBeans.stream().filter(sender -> sender.supports(channel)).findFirst()
+                    .ifPresent(sender -> senders.put(channel, sender));
+        }
+
+        AtomicInteger sequence = new AtomicInteger();
+        this.deliveryExecutor = new ThreadPoolExecutor(
+                deliveryThreads, deliveryThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(10_000),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "notification-delivery-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        Gauge.builder("notifications.retry.queue", retries, DelayQueue::size)
+                .description("Digests waiting for another delivery attempt")
+                .register(meterRegistry);
+        Gauge.builder("notifications.buffered.digests", buffers, Map::size)
+                .description("Digests collecting alerts within their window")
+                .register(meterRegistry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAlertChanged(AlertLifecycleEvent event) {
+        if (event.type() != AlertLifecycleEvent.Type.CREATED && event.type() != AlertLifecycleEvent.Type.ESCALATED) {
+            return;
+        }
+        Alert.Severity severity = Alert.Severity.valueOf(event.alert().getSeverity());
+        for (NotificationRecipientCache.Recipient recipient : recipientCache.recipients()) {
+            if (!recipient.wants(severity)) {
+                continue;
+            }
+            for (NotificationSender.Channel channel : recipient.channels()) {
+                if (!senders.containsKey(channel)) {
+                    continue;
+                }
+                DigestKey key = new DigestKey(channel, recipient.userId());
+                boolean full = buffers.compute(key, (k, buffer) -> {
+                    DigestBuffer target = buffer != null ? buffer : new DigestBuffer(recipient);
+                    target.alerts.add(event.alert());
+                    return target;
+                }).alerts.size() >= maxDigestSize;
+                if (full) {
+                    dispatch(key);
+                }
+            }
+        }
+    }
+
+    // Closes the windows that are due and retries what is due
+    @Scheduled(fixedDelayString = "${notifications.flush-interval-ms:5000}")
+    public void flush() {
+        Instant closeBefore = Instant.now().minus(window);
+        for (Map.Entry<DigestKey, DigestBuffer> entry : buffers.entrySet()) {
+            if (!entry.getValue().windowStart.isAfter(closeBefore)) {
+                dispatch(entry.getKey());
+            }
+        }
+
+        Retry retry;
+        while ((retry = retries.poll()) != null) {
+            submit(retry.digest, retry.attempt);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Best effort: hand over what is buffered before the pool stops
+        buffers.keySet().forEach(this::dispatch);
+        deliveryExecutor.shutdown();
+        try {
+            deliveryExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void dispatch(DigestKey key) {
+        DigestBuffer buffer = buffers.remove(key);
+        if (buffer != null && !buffer.alerts.isEmpty()) {
+            submit(new NotificationSender.Digest(key.channel(), buffer.recipient, List.copyOf(buffer.alerts), buffer.windowStart), 1);
+        }
+    }
+
+    private void submit(NotificationSender.Digest digest, int attempt) {
+        try {
+            deliveryExecutor.execute(() -> deliver(digest, attempt));
+        } catch (RejectedExecutionException e) {
+            scheduleRetry(digest, attempt, e);
+        }
+    }
+
+    private void deliver(NotificationSender.Digest digest, int attempt) {
+        NotificationSender sender = senders.get(digest.channel());
+        String channel = digest.channel().name();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            sender.send(digest);
+            sample.stop(meterRegistry.timer("notifications.delivery", "channel", channel));
+            meterRegistry.counter("notifications.delivered", "channel", channel).increment();
+            meterRegistry.counter("notifications.alerts.delivered", "channel", channel).increment(digest.alerts().size());
+        } catch (Exception e) {
+            meterRegistry.counter("notifications.failed", "channel", channel).increment();
+            scheduleRetry(digest, attempt + 1, e);
+        }
+    }
+
+    private void scheduleRetry(NotificationSender.Digest digest, int attempt, Exception cause) {
+        if (attempt > maxAttempts) {
+            meterRegistry.counter("notifications.dropped", "channel", digest.channel().name()).increment();
+            log.error("Dropping {} digest for user {} after {} attempts",
+                    digest.channel(), digest.recipient().userId(), maxAttempts, cause);
+            return;
+        }
+        Duration backoff = initialBackoff.multipliedBy(1L << Math.min(attempt - 1, 10));
+        log.warn("{} digest for user {} failed, attempt {} in {}: {}",
+                digest.channel(), digest.recipient().userId(), attempt, backoff, cause.getMessage());
+        retries.add(new Retry(digest, attempt, backoff));
+    }
+}
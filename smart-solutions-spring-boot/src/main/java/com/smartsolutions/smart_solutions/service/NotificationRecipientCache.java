@@ -0,0 +1,68 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.model.Alert;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+// Active users with their notification settings, reloaded in one query so resolving the
+// recipients of an alert never touches the database
+@Slf4j
+@Component
+public class NotificationRecipientCache {
+
+    private static final String SELECT_RECIPIENTS =
+            "SELECT u.user_id, u.username, u.email, s.email_alerts, s.push_notifications, s.sms_alerts, s.critical_only " +
+            "FROM iot.users u JOIN iot.user_notification_settings s ON s.user_id = u.user_id " +
+            "WHERE u.is_active";
+
+    public record Recipient(long userId, String name, String email, Set<NotificationSender.Channel> channels, boolean criticalOnly) {
+
+        public boolean wants(Alert.Severity severity) {
+            return !criticalOnly || severity == Alert.Severity.Critical;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile List<Recipient> recipients = List.of();
+
+    public NotificationRecipientCache(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<Recipient> recipients() {
+        return recipients;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${notifications.recipients-refresh-ms:60000}",
+            fixedDelayString = "${notifications.recipients-refresh-ms:60000}")
+    public void reload() {
+        try {
+            recipients = List.copyOf(jdbcTemplate.query(SELECT_RECIPIENTS, (rs, rowNum) -> {
+                Set<NotificationSender.Channel> channels = EnumSet.noneOf(NotificationSender.Channel.class);
+                if (rs.getBoolean("email_alerts")) {
+                    channels.add(NotificationSender.Channel.EMAIL);
+                }
+                if (rs.getBoolean("push_notifications")) {
+                    channels.add(NotificationSender.Channel.PUSH);
+                }
+                if (rs.getBoolean("sms_alerts")) {
+                    channels.add(NotificationSender.Channel.SMS);
+                }
+                return new Recipient(rs.getLong("user_id"), rs.getString("username"), rs.getString("email"),
+                        Set.copyOf(channels), rs.getBoolean("critical_only"));
+            }));
+        } catch (RuntimeException e) {
+            log.warn("Failed to reload notification recipients, keeping {} cached", recipients.size(), e);
+        }
+    }
+}
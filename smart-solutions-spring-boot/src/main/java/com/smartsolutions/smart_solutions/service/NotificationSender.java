@@ -0,0 +1,23 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.dto.AlertDTO;
+
+import java.time.Instant;
+import java.util.List;
+
+// Delivery backend for one or more channels. Implementations are picked up as beans by
+// NotificationPipeline; a thrown exception sends the digest to the retry queue.
+public interface NotificationSender {
+
+    enum Channel {
+        EMAIL, PUSH, SMS
+    }
+
+    // All alerts for one recipient and channel collected within one digest window
+    record Digest(Channel channel, NotificationRecipientCache.Recipient recipient, List<AlertDTO> alerts, Instant windowStart) {
+    }
+
+    boolean supports(Channel channel);
+
+    void send(Digest digest) throws Exception;
+}
@@ -0,0 +1,229 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartsolutions.smart_solutions.event.OutboxMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Relays committed outbox events to in-process OutboxMessage listeners. A batch is claimed
+// with one statement that takes row locks with SKIP LOCKED and stamps a lease, so several
+// nodes poll the same table without handing out an event twice, and nothing is locked while
+// listeners run. Events of one aggregate are delivered in event id order on every node: an
+// event is only claimed once no earlier event of its aggregate is still pending, so at most
+// one per aggregate is in flight and a failing event holds back its successors until it is
+// delivered or dead. Events of different aggregates carry no order.
+@Slf4j
+@Service
+public class OutboxRelay {
+
+    private static final String CLAIM_BATCH =
+            "UPDATE iot.event_outbox o SET locked_until = ? " +
+            "FROM (" +
+            "  SELECT e.event_id FROM iot.event_outbox e " +
+            "  WHERE e.published_at IS NULL AND e.attempts < ? AND (e.locked_until IS NULL OR e.locked_until < ?) " +
+            "  AND NOT EXISTS (" +
+            "    SELECT 1 FROM iot.event_outbox p " +
+            "    WHERE p.aggregate_type = e.aggregate_type AND p.aggregate_id = e.aggregate_id " +
+            "    AND p.event_id < e.event_id AND p.published_at IS NULL AND p.attempts < ?" +
+            "  ) " +
+            "  ORDER BY e.event_id LIMIT ? FOR UPDATE OF e SKIP LOCKED" +
+            ") c WHERE o.event_id = c.event_id " +
+            "RETURNING o.event_id, o.aggregate_type, o.aggregate_id, o.event_type, o.payload::text AS payload, o.created_at";
+
+    private static final String MARK_PUBLISHED =
+            "UPDATE iot.event_outbox SET published_at = ?, locked_until = NULL WHERE event_id = ?";
+
+    private static final String MARK_FAILED =
+            "UPDATE iot.event_outbox SET attempts = attempts + 1, last_error = ?, " +
+            "locked_until = ? + make_interval(secs => ? * power(2, LEAST(attempts, 12))) WHERE event_id = ?";
+
+    private static final String SELECT_BACKLOG =
+            "SELECT COUNT(*) AS pending, MIN(created_at) AS oldest, " +
+            "COUNT(*) FILTER (WHERE attempts >= ?) AS dead " +
+            "FROM iot.event_outbox WHERE published_at IS NULL";
+
+    private static final String DELETE_PUBLISHED =
+            "DELETE FROM iot.event_outbox WHERE event_id IN (" +
+            "  SELECT event_id FROM iot.event_outbox WHERE published_at < ? LIMIT ?" +
+            ")";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Timer lag;
+    private final Counter published;
+    private final Counter failed;
+    private final int batchSize;
+    private final int maxBatchesPerPoll;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration initialBackoff;
+    private final Duration retention;
+    private final int cleanupChunkSize;
+
+    private volatile long backlog;
+    private volatile long deadLetters;
+    private volatile Instant oldestPending;
+
+    public OutboxRelay(
+            JdbcTemplate jdbcTemplate,
+            ApplicationEventPublisher eventPublisher,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${outbox.relay.batch-size:500}") int batchSize,
+            @Value("${outbox.relay.max-batches-per-poll:20}") int maxBatchesPerPoll,
+            @Value("${outbox.relay.max-attempts:10}") int maxAttempts,
+            @Value("${outbox.relay.lease-ms:30000}") long leaseMs,
+            @Value("${outbox.relay.initial-backoff-ms:1000}") long initialBackoffMs,
+            @Value("${outbox.cleanup.retention-hours:72}") long retentionHours,
+            @Value("${outbox.cleanup.chunk-size:5000}") int cleanupChunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.maxBatchesPerPoll = maxBatchesPerPoll;
+        this.maxAttempts = maxAttempts;
+        this.lease = Duration.ofMillis(leaseMs);
+        this.initialBackoff = Duration.ofMillis(initialBackoffMs);
+        this.retention = Duration.ofHours(retentionHours);
+        this.cleanupChunkSize = cleanupChunkSize;
+
+        this.lag = Timer.builder("outbox.relay.lag")
+                .description("Time from commit of the change to delivery of its outbox event")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.published = Counter.builder("outbox.published")
+                .description("Outbox events delivered to listeners")
+                .register(meterRegistry);
+        this.failed = Counter.builder("outbox.failed")
+                .description("Outbox deliveries that threw and will be retried")
+                .register(meterRegistry);
+        Gauge.builder("outbox.backlog", this, relay -> relay.backlog)
+                .description("Unpublished outbox events at the last backlog check")
+                .register(meterRegistry);
+        Gauge.builder("outbox.dead", this, relay -> relay.deadLetters)
+                .description("Outbox events that ran out of attempts")
+                .register(meterRegistry);
+        Gauge.builder("outbox.oldest.age", this, OutboxRelay::oldestPendingSeconds)
+                .description("Age of the oldest unpublished outbox event")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.poll-interval-ms:500}")
+    public void poll() {
+        // Keep draining while batches claim anything, as each delivery may release the next event of
+        // its aggregate, but give the scheduler thread back now and then
+        for (int i = 0; i < maxBatchesPerPoll; i++) {
+            if (relayBatch() == 0) {
+                return;
+            }
+        }
+    }
+
+    // Returns how many events were claimed
+    int relayBatch() {
+        Instant now = Instant.now();
+        List<OutboxMessage> batch = new ArrayList<>(jdbcTemplate.query(CLAIM_BATCH, (rs, rowNum) -> new OutboxMessage(
+                        rs.getLong("event_id"),
+                        OutboxMessage.AggregateType.valueOf(rs.getString("aggregate_type")),
+                        rs.getLong("aggregate_id"),
+                        rs.getString("event_type"),
+                        readPayload(rs.getString("payload")),
+                        rs.getObject("created_at", OffsetDateTime.class).toInstant()),
+                utc(now.plus(lease)), maxAttempts, utc(now), maxAttempts, batchSize));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        batch.sort(Comparator.comparingLong(OutboxMessage::eventId));
+
+        // The claim holds no two events of one aggregate, so a failure only delays its own aggregate
+        List<Long> delivered = new ArrayList<>(batch.size());
+        for (OutboxMessage message : batch) {
+            try {
+                eventPublisher.publishEvent(message);
+            } catch (RuntimeException e) {
+                failed.increment();
+                log.warn("Outbox event {} ({} {} {}) failed, backing off: {}", message.eventId(),
+                        message.aggregateType(), message.aggregateId(), message.eventType(), e.getMessage());
+                jdbcTemplate.update(MARK_FAILED, String.valueOf(e), utc(Instant.now()),
+                        initialBackoff.toMillis() / 1000.0, message.eventId());
+                continue;
+            }
+            delivered.add(message.eventId());
+            lag.record(Duration.between(message.createdAt(), Instant.now()).toNanos(), TimeUnit.NANOSECONDS);
+        }
+
+        OffsetDateTime publishedAt = utc(Instant.now());
+        jdbcTemplate.batchUpdate(MARK_PUBLISHED, delivered, delivered.size(), (ps, eventId) -> {
+            ps.setObject(1, publishedAt);
+            ps.setLong(2, eventId);
+        });
+        published.increment(delivered.size());
+        return batch.size();
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.metrics.refresh-ms:15000}")
+    public void refreshBacklog() {
+        jdbcTemplate.query(SELECT_BACKLOG, rs -> {
+            backlog = rs.getLong("pending");
+            deadLetters = rs.getLong("dead");
+            OffsetDateTime oldest = rs.getObject("oldest", OffsetDateTime.class);
+            oldestPending = oldest != null ? oldest.toInstant() : null;
+        }, maxAttempts);
+    }
+
+    // Published events are only kept for troubleshooting; dead ones stay until handled by hand
+    @Scheduled(fixedDelayString = "${outbox.cleanup.interval-ms:3600000}")
+    public void cleanup() {
+        OffsetDateTime cutoff = utc(Instant.now().minus(retention));
+        long deleted = 0;
+        int chunk;
+        do {
+            chunk = jdbcTemplate.update(DELETE_PUBLISHED, cutoff, cleanupChunkSize);
+            deleted += chunk;
+        } while (chunk == cleanupChunkSize);
+        if (deleted > 0) {
+            log.info("Deleted {} published outbox events older than {}", deleted, retention);
+        }
+        meterRegistry.counter("outbox.cleaned").increment(deleted);
+    }
+
+    private double oldestPendingSeconds() {
+        Instant oldest = oldestPending;
+        return oldest != null ? Duration.between(oldest, Instant.now()).toMillis() / 1000.0 : 0;
+    }
+
+    private JsonNode readPayload(String payload) {
+        try {
+            return objectMapper.readTree(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable outbox payload", e);
+        }
+    }
+
+    private static OffsetDateTime utc(Instant instant) {
+        return OffsetDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+}
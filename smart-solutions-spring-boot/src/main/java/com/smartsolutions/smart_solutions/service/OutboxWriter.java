@@ -0,0 +1,105 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartsolutions.smart_solutions.event.AlertLifecycleEvent;
+import com.smartsolutions.smart_solutions.event.DeviceLifecycleEvent;
+import com.smartsolutions.smart_solutions.event.OutboxMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+// Writes alert and device lifecycle events to iot.event_outbox inside the transaction that
+// published them, so an event exists exactly when its change committed. Events of one
+// transaction are collected and inserted in a single batch just before commit; a bulk
+// operation chunk therefore costs one extra round trip, not one per alert.
+@Slf4j
+@Component
+public class OutboxWriter {
+
+    private static final String INSERT_EVENT =
+            "INSERT INTO iot.event_outbox (aggregate_type, aggregate_id, event_type, payload, created_at) " +
+            "VALUES (?, ?, ?, CAST(? AS jsonb), ?)";
+
+    private record PendingEvent(OutboxMessage.AggregateType aggregateType, long aggregateId, String eventType,
+                                String payload, Instant createdAt) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public OutboxWriter(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @EventListener
+    public void onAlertChanged(AlertLifecycleEvent event) {
+        append(new PendingEvent(OutboxMessage.AggregateType.ALERT, event.alert().getId(), event.type().name(),
+                toJson(event.alert()), event.occurredAt()));
+    }
+
+    @EventListener
+    public void onDeviceChanged(DeviceLifecycleEvent event) {
+        append(new PendingEvent(OutboxMessage.AggregateType.DEVICE, event.device().getId(), event.type().name(),
+                toJson(event.device()), event.occurredAt()));
+    }
+
+    private void append(PendingEvent event) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            // Nothing to be atomic with; write it straight away
+            insert(List.of(event));
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<PendingEvent> pending = (List<PendingEvent>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<PendingEvent> events = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, events);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    insert(events);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(OutboxWriter.this);
+                }
+            });
+            pending = events;
+        }
+        pending.add(event);
+    }
+
+    private void insert(List<PendingEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_EVENT, events, events.size(), (ps, event) -> {
+            ps.setString(1, event.aggregateType().name());
+            ps.setLong(2, event.aggregateId());
+            ps.setString(3, event.eventType());
+            ps.setString(4, event.payload());
+            ps.setObject(5, OffsetDateTime.ofInstant(event.createdAt(), ZoneOffset.UTC));
+        });
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize outbox payload", e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.model.SensorData;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+// Tags readings outside the physical range declared by the device type. Runs after
+// normalization, so declared ranges are in canonical units.
+@Component
+@Order(30)
+@RequiredArgsConstructor
+public class RangeValidationStage implements SensorDataIngestStage {
+
+    private final DeviceTypeCapabilitiesCache capabilitiesCache;
+
+    @Override
+    public void process(SensorData reading, DeviceRegistryCache.DeviceSnapshot device) {
+        if (device == null || device.typeId() == null || reading.getValue() == null
+                || reading.getStatusCode() != null && reading.getStatusCode() == SensorData.STATUS_UNKNOWN_UNIT) {
+            return;
+        }
+
+        DeviceTypeCapabilitiesCache.ValueRange range =
+                capabilitiesCache.get(device.typeId(), device.typeCapabilities()).rangeFor(reading.getSensorType());
+        if (range != null && !range.contains(reading.getValue())) {
+            reading.tagStatus(SensorData.STATUS_OUT_OF_RANGE);
+        }
+    }
+}
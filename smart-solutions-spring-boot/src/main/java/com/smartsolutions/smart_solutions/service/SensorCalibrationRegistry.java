@@ -0,0 +1,108 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.model.SensorCalibration;
+import com.smartsolutions.smart_solutions.repository.SensorCalibrationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-memory view of sensor_calibrations: per (device, sensor type) a map ordered by
+// effective_from, so the calibration in force at any instant is one floorEntry away.
+// Maps are copy-on-write; lookups on the ingest path never lock.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SensorCalibrationRegistry {
+
+    public record Calibration(long id, double gain, double offset, Instant effectiveFrom) {
+        public double apply(double rawValue) {
+            return rawValue * gain + offset;
+        }
+    }
+
+    private record Key(long deviceId, String sensorType) {
+    }
+
+    private final SensorCalibrationRepository calibrationRepository;
+
+    private volatile ConcurrentHashMap<Key, NavigableMap<Instant, Calibration>> calibrations = new ConcurrentHashMap<>();
+
+    public Calibration find(long deviceId, String sensorType, Instant at) {
+        NavigableMap<Instant, Calibration> history = calibrations.get(new Key(deviceId, sensorType));
+        if (history == null) {
+            return null;
+        }
+        Map.Entry<Instant, Calibration> entry = history.floorEntry(at);
+        return entry != null ? entry.getValue() : null;
+    }
+
+    // Effective-from of the calibration that supersedes the one in force at `at`, or null
+    public Instant nextEffectiveFrom(long deviceId, String sensorType, Instant at) {
+        NavigableMap<Instant, Calibration> history = calibrations.get(new Key(deviceId, sensorType));
+        return history != null ? history.higherKey(at) : null;
+    }
+
+    public void register(SensorCalibration calibration) {
+        Key key = new Key(calibration.getDevice().getId(), calibration.getSensorType());
+        Calibration entry = toEntry(calibration);
+        calibrations.compute(key, (k, history) -> {
+            TreeMap<Instant, Calibration> copy = history != null ? new TreeMap<>(history) : new TreeMap<>();
+            copy.put(entry.effectiveFrom(), entry);
+            return Collections.unmodifiableNavigableMap(copy);
+        });
+    }
+
+    // Registers once the surrounding transaction commits, so ingest never calibrates with a
+    // row that may still roll back; registers at once when no transaction is active
+    public void registerAfterCommit(SensorCalibration calibration) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            register(calibration);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                register(calibration);
+            }
+        });
+    }
+
+    // Also picks up calibrations recorded by other instances
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${calibration.registry-refresh-ms:60000}",
+            fixedDelayString = "${calibration.registry-refresh-ms:60000}")
+    public void reload() {
+        try {
+            Map<Key, TreeMap<Instant, Calibration>> loaded = new HashMap<>();
+            for (SensorCalibration calibration : calibrationRepository.findAll()) {
+                loaded.computeIfAbsent(
+                                new Key(calibration.getDevice().getId(), calibration.getSensorType()),
+                                key -> new TreeMap<>())
+                        .put(calibration.getEffectiveFrom(), toEntry(calibration));
+            }
+            ConcurrentHashMap<Key, NavigableMap<Instant, Calibration>> fresh = new ConcurrentHashMap<>();
+            loaded.forEach((key, history) -> fresh.put(key, Collections.unmodifiableNavigableMap(history)));
+            calibrations = fresh;
+        } catch (DataAccessException e) {
+            log.warn("Failed to reload sensor calibrations, keeping the previous set", e);
+        }
+    }
+
+    private Calibration toEntry(SensorCalibration calibration) {
+        return new Calibration(calibration.getId(), calibration.getGain(), calibration.getOffset(), calibration.getEffectiveFrom());
+    }
+}
@@ -0,0 +1,244 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.dto.SensorCalibrationDTO;
+import com.smartsolutions.smart_solutions.exception.BadRequestException;
+import com.smartsolutions.smart_solutions.exception.ResourceNotFoundException;
+import com.smartsolutions.smart_solutions.model.Device;
+import com.smartsolutions.smart_solutions.model.SensorCalibration;
+import com.smartsolutions.smart_solutions.model.SensorData;
+import com.smartsolutions.smart_solutions.repository.DeviceRepository;
+import com.smartsolutions.smart_solutions.repository.SensorCalibrationRepository;
+import com.smartsolutions.smart_solutions.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class SensorCalibrationService {
+
+    // One keyset batch: rewrites the readings that are not yet on this calibration from their
+    // raw value, and reports where the batch ended and which time span it actually changed.
+    private static final String RECORRECT_BATCH =
+            "WITH batch AS (" +
+            "  SELECT data_id, timestamp FROM iot.sensor_data " +
+            "  WHERE device_id = ? AND sensor_type = ? AND timestamp < ? AND (timestamp, data_id) > (?, ?) " +
+            "  ORDER BY timestamp, data_id LIMIT ?" +
+            "), updated AS (" +
+            "  UPDATE iot.sensor_data s " +
+            "  SET value = COALESCE((s.metadata->>'raw_value')::double precision, s.value) * ? + ?, " +
+            "      metadata = COALESCE(s.metadata, '{}'::jsonb) || jsonb_build_object(" +
+            "          'raw_value', COALESCE((s.metadata->>'raw_value')::double precision, s.value), " +
+            "          'calibration_id', ?::bigint) " +
+            "  FROM batch " +
+            "  WHERE s.data_id = batch.data_id AND s.timestamp = batch.timestamp " +
+            "    AND s.status_code IS DISTINCT FROM " + SensorData.STATUS_UNKNOWN_UNIT + " " +
+            "    AND (s.metadata->>'calibration_id') IS DISTINCT FROM CAST(? AS text) " +
+            "  RETURNING s.timestamp" +
+            ") " +
+            "SELECT last.timestamp, last.data_id, (SELECT MIN(timestamp) FROM updated), (SELECT MAX(timestamp) FROM updated) " +
+            "FROM (SELECT data_id, timestamp FROM batch ORDER BY timestamp DESC, data_id DESC LIMIT 1) last";
+
+    private static final Set<String> ENERGY_SENSOR_TYPES = Set.of(
+            SensorData.SensorType.Power.name(),
+            SensorData.SensorType.Voltage.name(),
+            SensorData.SensorType.Current.name());
+
+    private record BatchResult(Instant cursorTimestamp, long cursorId, Instant changedFrom, Instant changedTo) {
+    }
+
+    private final SensorCalibrationRepository calibrationRepository;
+    private final DeviceRepository deviceRepository;
+    private final UserRepository userRepository;
+    private final SensorCalibrationRegistry calibrationRegistry;
+    private final EnergyMeterService energyMeterService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int batchesPerRun;
+
+    public SensorCalibrationService(
+            SensorCalibrationRepository calibrationRepository,
+            DeviceRepository deviceRepository,
+            UserRepository userRepository,
+            SensorCalibrationRegistry calibrationRegistry,
+            EnergyMeterService energyMeterService,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${calibration.recorrection-batch-size:5000}") int batchSize,
+            @Value("${calibration.recorrection-batches-per-run:20}") int batchesPerRun) {
+        this.calibrationRepository = calibrationRepository;
+        this.deviceRepository = deviceRepository;
+        this.userRepository = userRepository;
+        this.calibrationRegistry = calibrationRegistry;
+        this.energyMeterService = energyMeterService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.batchesPerRun = batchesPerRun;
+    }
+
+    @Transactional(readOnly = true)
+    public List<SensorCalibrationDTO> getCalibrations(Long deviceId) {
+        if (!deviceRepository.existsById(deviceId)) {
+            throw new ResourceNotFoundException("Device not found with id: " + deviceId);
+        }
+        return calibrationRepository.findByDeviceIdOrderBySensorTypeAscEffectiveFromDesc(deviceId).stream()
+                .map(this::toDto)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional
+    public SensorCalibrationDTO createCalibration(Long deviceId, SensorCalibrationDTO request) {
+        Device device = deviceRepository.findById(deviceId)
+                .orElseThrow(() -> new ResourceNotFoundException("Device not found with id: " + deviceId));
+        double gain = request.getGain() != null ? request.getGain() : 1.0;
+        double offset = request.getOffset() != null ? request.getOffset() : 0.0;
+        if (gain == 0 || !Double.isFinite(gain) || !Double.isFinite(offset)) {
+            throw new BadRequestException("Gain must be a non-zero number and offset a finite number");
+        }
+
+        Instant now = Instant.now();
+        Instant effectiveFrom = request.getEffectiveFrom() != null ? request.getEffectiveFrom() : now;
+        if (effectiveFrom.isAfter(now)) {
+            throw new BadRequestException("Effective-from cannot lie in the future");
+        }
+
+        SensorCalibration calibration = SensorCalibration.builder()
+                .device(device)
+                .sensorType(request.getSensorType().name())
+                .gain(gain)
+                .offset(offset)
+                .effectiveFrom(effectiveFrom)
+                .notes(request.getNotes())
+                .createdBy(request.getCreatedBy() != null ? userRepository.findById(request.getCreatedBy()).orElse(null) : null)
+                .recorrectionPending(effectiveFrom.isBefore(now))
+                .build();
+        SensorCalibration saved = calibrationRepository.save(calibration);
+        calibrationRegistry.registerAfterCommit(saved);
+        return toDto(saved);
+    }
+
+    // Re-corrects readings stored before a back-dated calibration was recorded, a bounded
+    // number of batches per run. The cursor is persisted per batch, so a restart resumes.
+    @Scheduled(fixedDelayString = "${calibration.recorrection-interval-ms:30000}")
+    public void recorrectBackdatedCalibrations() {
+        int budget = batchesPerRun;
+        for (SensorCalibration calibration : calibrationRepository.findByRecorrectionPendingTrueOrderByCreatedAt()) {
+            if (budget <= 0) {
+                return;
+            }
+            try {
+                budget = recorrect(calibration, budget);
+            } catch (DataAccessException e) {
+                log.warn("Re-correction of calibration {} failed, will retry", calibration.getId(), e);
+                return;
+            }
+        }
+    }
+
+    private int recorrect(SensorCalibration calibration, int budget) {
+        long deviceId = calibration.getDevice().getId();
+        String sensorType = calibration.getSensorType();
+        Instant cursorTimestamp = calibration.getRecorrectionCursorTimestamp() != null
+                ? calibration.getRecorrectionCursorTimestamp()
+                : calibration.getEffectiveFrom();
+        long cursorId = calibration.getRecorrectionCursorId() != null ? calibration.getRecorrectionCursorId() : 0L;
+
+        while (budget-- > 0) {
+            // Readings after a later calibration belong to it; readings after this one was
+            // recorded were calibrated at ingest (a minute of slack covers the registration)
+            Instant next = calibrationRegistry.nextEffectiveFrom(deviceId, sensorType, calibration.getEffectiveFrom());
+            Instant until = next != null && next.isBefore(calibration.getCreatedAt())
+                    ? next
+                    : calibration.getCreatedAt().plusSeconds(60);
+
+            Instant fromTimestamp = cursorTimestamp;
+            long fromId = cursorId;
+            BatchResult result = transactionTemplate.execute(status -> {
+                BatchResult batch = runBatch(calibration, until, fromTimestamp, fromId);
+                if (batch == null) {
+                    calibration.setRecorrectionPending(false);
+                } else {
+                    calibration.setRecorrectionCursorTimestamp(batch.cursorTimestamp());
+                    calibration.setRecorrectionCursorId(batch.cursorId());
+                }
+                calibrationRepository.save(calibration);
+                return batch;
+            });
+
+            if (result == null) {
+                log.info("Re-correction of calibration {} complete", calibration.getId());
+                return budget;
+            }
+            if (result.changedFrom() != null && ENERGY_SENSOR_TYPES.contains(sensorType)) {
+                energyMeterService.rebuildDeviceEnergy(deviceId, result.changedFrom(), result.changedTo());
+            }
+            cursorTimestamp = result.cursorTimestamp();
+            cursorId = result.cursorId();
+        }
+        return 0;
+    }
+
+    private BatchResult runBatch(SensorCalibration calibration, Instant until, Instant cursorTimestamp, long cursorId) {
+        List<BatchResult> rows = jdbcTemplate.query(RECORRECT_BATCH,
+                (rs, rowNum) -> new BatchResult(
+                        rs.getObject(1, OffsetDateTime.class).toInstant(),
+                        rs.getLong(2),
+                        toInstant(rs.getObject(3, OffsetDateTime.class)),
+                        toInstant(rs.getObject(4, OffsetDateTime.class))),
+                calibration.getDevice().getId(),
+                calibration.getSensorType(),
+                utc(until),
+                utc(cursorTimestamp),
+                cursorId,
+                batchSize,
+                calibration.getGain(),
+                calibration.getOffset(),
+                calibration.getId(),
+                calibration.getId());
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private static OffsetDateTime utc(Instant instant) {
+        return OffsetDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    private static Instant toInstant(OffsetDateTime value) {
+        return value != null ? value.toInstant() : null;
+    }
+
+    private SensorCalibrationDTO toDto(SensorCalibration calibration) {
+        SensorData.SensorType sensorType;
+        try {
+            sensorType = SensorData.SensorType.valueOf(calibration.getSensorType());
+        } catch (IllegalArgumentException e) {
+            sensorType = SensorData.SensorType.OTHER;
+        }
+        return SensorCalibrationDTO.builder()
+                .id(calibration.getId())
+                .deviceId(calibration.getDevice().getId())
+                .sensorType(sensorType)
+                .gain(calibration.getGain())
+                .offset(calibration.getOffset())
+                .effectiveFrom(calibration.getEffectiveFrom())
+                .notes(calibration.getNotes())
+                .createdBy(calibration.getCreatedBy() != null ? calibration.getCreatedBy().getId() : null)
+                .createdAt(calibration.getCreatedAt())
+                .recorrectionPending(calibration.isRecorrectionPending())
+                .build();
+    }
+}
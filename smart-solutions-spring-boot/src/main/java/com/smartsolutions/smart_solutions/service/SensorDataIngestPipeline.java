@@ -0,0 +1,31 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.model.SensorData;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class SensorDataIngestPipeline {
+
+    private final List<SensorDataIngestStage> stages;
+    private final Timer stageTimer;
+
+    public SensorDataIngestPipeline(List<SensorDataIngestStage> stages, MeterRegistry meterRegistry) {
+        this.stages = stages;
+        this.stageTimer = Timer.builder("sensor.ingest.stages")
+                .description("Per-reading time spent in the ingest stages before the reading is stored")
+                .register(meterRegistry);
+    }
+
+    public void process(SensorData reading, DeviceRegistryCache.DeviceSnapshot device) {
+        long began = System.nanoTime();
+        for (SensorDataIngestStage stage : stages) {
+            stage.process(reading, device);
+        }
+        stageTimer.record(System.nanoTime() - began, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,12 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.model.SensorData;
+
+// One step applied to a reading before it is stored. Stages run in @Order order and
+// mutate the reading in place; a rejected reading is tagged through its statusCode.
+// Device and type data come from the registry snapshot, never from the reading's device.
+public interface SensorDataIngestStage {
+
+    // device is null for a reading without one
+    void process(SensorData reading, DeviceRegistryCache.DeviceSnapshot device);
+}
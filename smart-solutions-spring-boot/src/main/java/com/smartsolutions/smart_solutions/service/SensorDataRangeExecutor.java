@@ -0,0 +1,154 @@
+package com.smartsolutions.smart_solutions.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Splits long sensor-data scans on UTC day boundaries, so each sub-range is a timestamp index
+// range of at most one day and the same days always split the same way, and runs the
+// sub-ranges on a bounded pool that never holds more than its own connection budget.
+@Component
+public class SensorDataRangeExecutor {
+
+    // Half-open [from, to)
+    public record TimeRange(Instant from, Instant to) {
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final Semaphore connectionBudget;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Timer subRangeTimer;
+    private final int parallelism;
+
+    public SensorDataRangeExecutor(
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${sensor-data.parallel-query.threads:4}") int threads,
+            @Value("${sensor-data.parallel-query.max-connections:4}") int maxConnections) {
+        this.parallelism = Math.min(threads, maxConnections);
+        this.connectionBudget = new Semaphore(maxConnections);
+
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 64),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "sensor-range-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        this.subRangeTimer = Timer.builder("sensor.query.subrange")
+                .description("Time spent executing one sub-range of a split sensor-data query")
+                .register(meterRegistry);
+    }
+
+    public List<TimeRange> split(Instant start, Instant end) {
+        List<TimeRange> ranges = new ArrayList<>();
+        Instant from = start;
+        while (from.isBefore(end)) {
+            Instant nextDay = from.atOffset(ZoneOffset.UTC).truncatedTo(ChronoUnit.DAYS).plusDays(1).toInstant();
+            Instant to = nextDay.isBefore(end) ? nextDay : end;
+            ranges.add(new TimeRange(from, to));
+            from = to;
+        }
+        return ranges;
+    }
+
+    // Runs every sub-range and combines the partial results
+    public <P> P aggregate(Instant start, Instant end, Function<TimeRange, P> partial, BinaryOperator<P> combiner, P identity) {
+        P result = identity;
+        for (Future<P> future : submitAll(split(start, end), partial)) {
+            result = combiner.apply(result, await(future));
+        }
+        return result;
+    }
+
+    // Hands each sub-range's rows to the consumer in time order, keeping at most
+    // `parallelism` sub-ranges in flight so memory stays bounded for exports
+    public <T> void forEachOrdered(Instant start, Instant end, Function<TimeRange, List<T>> query, Consumer<List<T>> consumer) {
+        List<TimeRange> ranges = split(start, end);
+        Deque<Future<List<T>>> inFlight = new ArrayDeque<>();
+        int next = 0;
+        try {
+            while (next < ranges.size() || !inFlight.isEmpty()) {
+                while (next < ranges.size() && inFlight.size() < parallelism) {
+                    inFlight.add(submit(ranges.get(next++), query));
+                }
+                consumer.accept(await(inFlight.poll()));
+            }
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private <T> List<Future<T>> submitAll(List<TimeRange> ranges, Function<TimeRange, T> query) {
+        List<Future<T>> futures = new ArrayList<>(ranges.size());
+        try {
+            for (TimeRange range : ranges) {
+                futures.add(submit(range, query));
+            }
+        } catch (RuntimeException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e;
+        }
+        return futures;
+    }
+
+    private <T> Future<T> submit(TimeRange range, Function<TimeRange, T> query) {
+        return executor.submit(() -> {
+            connectionBudget.acquire();
+            try {
+                return subRangeTimer.recordCallable(() -> readOnlyTransaction.execute(status -> query.apply(range)));
+            } finally {
+                connectionBudget.release();
+            }
+        });
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for sensor data sub-range", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Sensor data sub-range query failed", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -1,16 +1,29 @@
 package com.smartsolutions.smart_solutions.service;
 
+import com.smartsolutions.smart_solutions.dto.AlignedSensorDataDTO;
 import com.smartsolutions.smart_solutions.dto.SensorDataDTO;
+import com.smartsolutions.smart_solutions.dto.SensorDataExportRowDTO;
+import com.smartsolutions.smart_solutions.dto.SensorStatisticsDTO;
+import com.smartsolutions.smart_solutions.exception.BadRequestException;
 import com.smartsolutions.smart_solutions.util.SensorDataMapper;
 import com.smartsolutions.smart_solutions.model.SensorData;
 import com.smartsolutions.smart_solutions.repository.SensorDataRepository;
+import com.smartsolutions.smart_solutions.util.SensorSeriesAligner;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -18,8 +31,12 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class SensorDataService {
 
+    private static final int MAX_ALIGNED_CELLS = 200_000;
+
     private final SensorDataRepository sensorDataRepository;
     private final SensorDataMapper sensorDataMapper;
+    private final SensorSeriesAligner sensorSeriesAligner;
+    private final SensorDataRangeExecutor sensorDataRangeExecutor;
 
     @Transactional(readOnly = true)
     public List<SensorDataDTO> getLatestReadings(int count) {
@@ -27,4 +44,116 @@ public class SensorDataService {
                 .map(sensorDataMapper::toDto)
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    @Transactional(readOnly = true)
+    public AlignedSensorDataDTO getAlignedReadings(
+            List<Long> deviceIds, List<String> requestedTypes, Instant startDate, Instant endDate,
+            String bucket, SensorSeriesAligner.FillStrategy fill) {
+
+        // One column per sensor type: a repeated type would otherwise leave its later columns empty
+        List<String> sensorTypes = requestedTypes.stream().distinct().toList();
+        deviceIds = deviceIds.stream().distinct().toList();
+        if (deviceIds.isEmpty() || sensorTypes.isEmpty()) {
+            throw new BadRequestException("At least one device and one sensor type are required");
+        }
+        validateRange(startDate, endDate);
+
+        long bucketMillis = parseBucket(bucket).toMillis();
+        long span = endDate.toEpochMilli() - startDate.toEpochMilli();
+        int bucketCount = (int) Math.min(Integer.MAX_VALUE, (span + bucketMillis - 1) / bucketMillis);
+        if ((long) bucketCount * deviceIds.size() * sensorTypes.size() > MAX_ALIGNED_CELLS) {
+            throw new BadRequestException("Requested grid is too large, use a wider bucket or a shorter range");
+        }
+
+        List<SensorSeriesAligner.SeriesBucket> buckets = sensorDataRepository.findBucketedAverages(
+                        deviceIds, sensorTypes, startDate, endDate, startDate.toEpochMilli(), bucketMillis)
+                .stream()
+                .map(row -> new SensorSeriesAligner.SeriesBucket(
+                        ((Number) row[0]).longValue(),
+                        (String) row[1],
+                        ((Number) row[2]).longValue(),
+                        ((Number) row[3]).doubleValue()))
+                .collect(Collectors.toList());
+
+        return AlignedSensorDataDTO.builder()
+                .sensorTypes(sensorTypes)
+                .bucketSeconds(bucketMillis / 1000)
+                .fill(fill)
+                .rows(sensorSeriesAligner.align(
+                        buckets, deviceIds, sensorTypes, startDate, bucketMillis, bucketCount, fill))
+                .build();
+    }
+
+    // Not transactional: every sub-range runs in its own read-only transaction on the range executor
+    public SensorStatisticsDTO getStatistics(Long deviceId, String sensorType, Instant startDate, Instant endDate) {
+        validateRange(startDate, endDate);
+        return sensorDataRangeExecutor.aggregate(
+                startDate, endDate,
+                range -> sensorDataRepository.findStatistics(deviceId, sensorType, range.from(), range.to()),
+                SensorStatisticsDTO::combine,
+                SensorStatisticsDTO.empty());
+    }
+
+    public void exportCsv(Long deviceId, String sensorType, Instant startDate, Instant endDate, OutputStream outputStream) {
+        validateRange(startDate, endDate);
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        try {
+            writer.write("timestamp,sensor_type,value,unit,status_code\n");
+            sensorDataRangeExecutor.forEachOrdered(
+                    startDate, endDate,
+                    range -> sensorDataRepository.findExportRows(deviceId, sensorType, range.from(), range.to()),
+                    rows -> writeCsvRows(writer, rows));
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeCsvRows(BufferedWriter writer, List<SensorDataExportRowDTO> rows) {
+        try {
+            for (SensorDataExportRowDTO row : rows) {
+                writer.write(row.getTimestamp().toString());
+                writer.write(',');
+                writer.write(csvField(row.getSensorType()));
+                writer.write(',');
+                writer.write(String.valueOf(row.getValue()));
+                writer.write(',');
+                writer.write(csvField(row.getUnit()));
+                writer.write(',');
+                writer.write(row.getStatusCode() != null ? row.getStatusCode().toString() : "");
+                writer.write('\n');
+            }
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+
+    private void validateRange(Instant startDate, Instant endDate) {
+        if (!startDate.isBefore(endDate)) {
+            throw new BadRequestException("Start date must be before end date");
+        }
+    }
+
+    private Duration parseBucket(String bucket) {
+        try {
+            Duration duration = Duration.parse(bucket);
+            if (duration.toSeconds() < 1) {
+                throw new BadRequestException("Bucket must be at least one second");
+            }
+            return duration;
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Bucket must be an ISO-8601 duration such as PT5M");
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartsolutions.smart_solutions.event.SensorDataIngestedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+// Fans ingested readings out to live-view subscribers of (device, sensor type) topics. Each
+// connection has at most one frame in flight; readings arriving meanwhile are conflated to the
+// newest value per key, so a slow client costs one slot per subscribed key and never a queue.
+@Slf4j
+@Component
+public class SensorStreamHub {
+
+    // Subscribes to every sensor type of a device
+    public static final String ALL_SENSOR_TYPES = "*";
+
+    public record StreamKey(long deviceId, String sensorType) {
+    }
+
+    // Transport of one connection, implemented over a WebSocket session by SensorStreamEndpoint
+    public interface Sink {
+        // Must call onComplete exactly once, with null on success
+        void send(String text, Consumer<Throwable> onComplete);
+
+        void close(String reason);
+    }
+
+    private record Update(String json, long publishedNanos) {
+    }
+
+    private final Map<StreamKey, Set<Connection>> topics = new ConcurrentHashMap<>();
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final ObjectMapper objectMapper;
+    private final Timer fanOutLatency;
+    private final Counter sentUpdates;
+    private final Counter droppedUpdates;
+    private final int maxSubscriptions;
+    private final int maxBatchSize;
+
+    public SensorStreamHub(
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${sensor-stream.max-subscriptions-per-connection:200}") int maxSubscriptions,
+            @Value("${sensor-stream.max-batch-size:50}") int maxBatchSize) {
+        this.objectMapper = objectMapper;
+        this.maxSubscriptions = maxSubscriptions;
+        this.maxBatchSize = maxBatchSize;
+        this.fanOutLatency = Timer.builder("sensor.stream.fanout.latency")
+                .description("Time from a reading being ingested to it being written to a subscriber")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.sentUpdates = Counter.builder("sensor.stream.updates.sent")
+                .description("Readings written to live-view subscribers")
+                .register(meterRegistry);
+        this.droppedUpdates = Counter.builder("sensor.stream.updates.dropped")
+                .description("Readings replaced by a newer value before a slow subscriber received them")
+                .register(meterRegistry);
+        Gauge.builder("sensor.stream.connections", connections, Set::size)
+                .description("Open live sensor stream connections")
+                .register(meterRegistry);
+    }
+
+    public Connection connect(Sink sink) {
+        Connection connection = new Connection(sink);
+        connections.add(connection);
+        return connection;
+    }
+
+    public void disconnect(Connection connection) {
+        if (!connections.remove(connection)) {
+            return;
+        }
+        for (StreamKey key : connection.subscriptions) {
+            unsubscribe(connection, key);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReadingIngested(SensorDataIngestedEvent event) {
+        if (event.deviceId() == null || event.sensorType() == null) {
+            return;
+        }
+        StreamKey key = new StreamKey(event.deviceId(), event.sensorType());
+        Set<Connection> exact = topics.get(key);
+        Set<Connection> wildcard = topics.get(new StreamKey(event.deviceId(), ALL_SENSOR_TYPES));
+        if (exact == null && wildcard == null) {
+            return;
+        }
+
+        Update update;
+        try {
+            // Serialized once and shared by every subscriber
+            update = new Update(objectMapper.writeValueAsString(event), System.nanoTime());
+        } catch (JsonProcessingException e) {
+            log.warn("Could not serialize reading {} for the live stream", event.dataId(), e);
+            return;
+        }
+
+        if (exact != null) {
+            exact.forEach(connection -> connection.offer(key, update));
+        }
+        if (wildcard != null) {
+            for (Connection connection : wildcard) {
+                if (exact == null || !exact.contains(connection)) {
+                    connection.offer(key, update);
+                }
+            }
+        }
+    }
+
+    private void unsubscribe(Connection connection, StreamKey key) {
+        topics.computeIfPresent(key, (k, subscribers) -> {
+            subscribers.remove(connection);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    public final class Connection {
+        private final Sink sink;
+        private final Set<StreamKey> subscriptions = ConcurrentHashMap.newKeySet();
+
+        // Newest unsent update per (device, sensor type), guarded by this
+        private final LinkedHashMap<StreamKey, Update> pending = new LinkedHashMap<>();
+        private boolean sending;
+
+        private Connection(Sink sink) {
+            this.sink = sink;
+        }
+
+        // False when the connection is already at its subscription limit
+        public boolean subscribe(long deviceId, String sensorType) {
+            StreamKey key = new StreamKey(deviceId, sensorType == null ? ALL_SENSOR_TYPES : sensorType);
+            if (!subscriptions.contains(key) && subscriptions.size() >= maxSubscriptions) {
+                return false;
+            }
+            subscriptions.add(key);
+            topics.compute(key, (k, subscribers) -> {
+                Set<Connection> set = subscribers != null ? subscribers : ConcurrentHashMap.newKeySet();
+                set.add(this);
+                return set;
+            });
+            return true;
+        }
+
+        public void unsubscribe(long deviceId, String sensorType) {
+            StreamKey key = new StreamKey(deviceId, sensorType == null ? ALL_SENSOR_TYPES : sensorType);
+            if (subscriptions.remove(key)) {
+                SensorStreamHub.this.unsubscribe(this, key);
+            }
+        }
+
+        private void offer(StreamKey key, Update update) {
+            synchronized (this) {
+                if (pending.put(key, update) != null) {
+                    droppedUpdates.increment();
+                }
+                if (sending) {
+                    return;
+                }
+                sending = true;
+            }
+            flush();
+        }
+
+        // Sends pending updates as one JSON array per frame until nothing is left. A send that
+        // completes inline is followed by the next one in this loop rather than from its
+        // callback, so a container that completes sends synchronously cannot grow the stack.
+        private void flush() {
+            while (true) {
+                List<Update> batch;
+                synchronized (this) {
+                    if (pending.isEmpty()) {
+                        sending = false;
+                        return;
+                    }
+                    batch = new ArrayList<>(Math.min(pending.size(), maxBatchSize));
+                    Iterator<Update> updates = pending.values().iterator();
+                    while (updates.hasNext() && batch.size() < maxBatchSize) {
+                        batch.add(updates.next());
+                        updates.remove();
+                    }
+                }
+
+                StringBuilder frame = new StringBuilder("[");
+                for (int i = 0; i < batch.size(); i++) {
+                    if (i > 0) {
+                        frame.append(',');
+                    }
+                    frame.append(batch.get(i).json());
+                }
+                frame.append(']');
+
+                // Whichever of the send returning and its successful completion comes second
+                // carries on flushing
+                AtomicBoolean handOff = new AtomicBoolean();
+                sink.send(frame.toString(), error -> {
+                    if (error != null) {
+                        log.debug("Closing slow or broken sensor stream connection: {}", error.getMessage());
+                        disconnect(this);
+                        sink.close("Send failed");
+                        return;
+                    }
+                    long now = System.nanoTime();
+                    for (Update update : batch) {
+                        fanOutLatency.record(now - update.publishedNanos(), TimeUnit.NANOSECONDS);
+                    }
+                    sentUpdates.increment(batch.size());
+                    if (!handOff.compareAndSet(false, true)) {
+                        flush();
+                    }
+                });
+                if (handOff.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.model.SensorData;
+import com.smartsolutions.smart_solutions.util.UnitConverters;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.DoubleUnaryOperator;
+
+// Rewrites value and unit into the sensor type's canonical unit, keeping the reported
+// pair in metadata. Readings in a unit the type does not accept are stored unchanged
+// and tagged STATUS_UNKNOWN_UNIT.
+@Component
+@Order(10)
+@RequiredArgsConstructor
+public class UnitNormalizationStage implements SensorDataIngestStage {
+
+    private final UnitConverters unitConverters;
+
+    @Override
+    public void process(SensorData reading, DeviceRegistryCache.DeviceSnapshot device) {
+        UnitConverters.SensorUnits sensorUnits = unitConverters.forSensorType(reading.getSensorType());
+        if (sensorUnits == null || reading.getValue() == null) {
+            return;
+        }
+
+        String unit = reading.getUnit();
+        if (unit == null || unit.isBlank()) {
+            // Nothing to convert from, the canonical unit is the only sensible reading
+            reading.setUnit(sensorUnits.canonicalUnit());
+            return;
+        }
+        if (unit.equals(sensorUnits.canonicalUnit())) {
+            return;
+        }
+
+        DoubleUnaryOperator converter = unitConverters.converter(sensorUnits, unit);
+        if (converter == null) {
+            reading.tagStatus(SensorData.STATUS_UNKNOWN_UNIT);
+            return;
+        }
+
+        Map<String, Object> metadata = reading.getMetadata() != null
+                ? new HashMap<>(reading.getMetadata())
+                : new HashMap<>();
+        metadata.put("source_value", reading.getValue());
+        metadata.put("source_unit", unit);
+        reading.setMetadata(metadata);
+        reading.setValue(converter.applyAsDouble(reading.getValue()));
+        reading.setUnit(sensorUnits.canonicalUnit());
+    }
+}
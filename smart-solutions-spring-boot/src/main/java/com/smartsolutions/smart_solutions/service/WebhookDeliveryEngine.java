@@ -0,0 +1,345 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartsolutions.smart_solutions.dto.AlertDTO;
+import com.smartsolutions.smart_solutions.event.AlertLifecycleEvent;
+import com.smartsolutions.smart_solutions.event.OutboxMessage;
+import com.smartsolutions.smart_solutions.model.Alert;
+import com.smartsolutions.smart_solutions.util.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// Pushes new and escalated alerts to subscribed HTTP endpoints. Alerts are queued per endpoint
+// and sent as one POST per batch (full, or older than the linger time) with the non-blocking
+// HttpClient, so a slow receiver only ever holds its own concurrency slots. Each endpoint has
+// its own bounded queue, in-flight limit and circuit breaker; failed batches keep their slot
+// and are retried with exponential backoff and jitter until they succeed or run out of attempts.
+@Slf4j
+@Service
+public class WebhookDeliveryEngine {
+
+    private static final Set<String> DELIVERED_EVENTS = Set.of(
+            AlertLifecycleEvent.Type.CREATED.name(), AlertLifecycleEvent.Type.ESCALATED.name());
+
+    public record Target(long subscriptionId, URI url, String secret, Alert.Severity minSeverity, Long deviceId) {
+
+        boolean accepts(AlertDTO alert, Alert.Severity severity) {
+            return severity.compareTo(minSeverity) >= 0 && (deviceId == null || deviceId.equals(alert.getDeviceId()));
+        }
+    }
+
+    private record Delivery(String id, List<AlertDTO> alerts, int attempt) {
+
+        Delivery next() {
+            return new Delivery(id, alerts, attempt + 1);
+        }
+    }
+
+    private final class Endpoint {
+        private volatile Target target;
+        private final CircuitBreaker breaker = new CircuitBreaker(failureThreshold, openDuration.toNanos());
+        // Guarded by this
+        private final ArrayDeque<AlertDTO> queue = new ArrayDeque<>();
+        private long firstQueuedAt;
+        private int inFlight;
+
+        private Endpoint(Target target) {
+            this.target = target;
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final Map<Long, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final HttpClient httpClient;
+    private final ExecutorService httpExecutor;
+    private final ScheduledExecutorService scheduler;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final int maxConcurrency;
+    private final int maxQueuedPerEndpoint;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration requestTimeout;
+    private final int failureThreshold;
+    private final Duration openDuration;
+
+    private final Timer deliveryTimer;
+    private final Counter batchesDelivered;
+    private final Counter alertsDelivered;
+    private final Counter batchesFailed;
+    private final Counter alertsDropped;
+
+    public WebhookDeliveryEngine(
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${webhooks.batch-size:50}") int batchSize,
+            @Value("${webhooks.linger-ms:1000}") long lingerMs,
+            @Value("${webhooks.max-concurrency-per-endpoint:2}") int maxConcurrency,
+            @Value("${webhooks.max-queued-per-endpoint:10000}") int maxQueuedPerEndpoint,
+            @Value("${webhooks.max-attempts:8}") int maxAttempts,
+            @Value("${webhooks.initial-backoff-ms:1000}") long initialBackoffMs,
+            @Value("${webhooks.max-backoff-ms:300000}") long maxBackoffMs,
+            @Value("${webhooks.request-timeout-ms:10000}") long requestTimeoutMs,
+            @Value("${webhooks.breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${webhooks.breaker.open-ms:30000}") long openMs,
+            @Value("${webhooks.http-threads:8}") int httpThreads) {
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        this.maxConcurrency = maxConcurrency;
+        this.maxQueuedPerEndpoint = maxQueuedPerEndpoint;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = Duration.ofMillis(initialBackoffMs);
+        this.maxBackoff = Duration.ofMillis(maxBackoffMs);
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.failureThreshold = failureThreshold;
+        this.openDuration = Duration.ofMillis(openMs);
+
+        AtomicInteger sequence = new AtomicInteger();
+        this.httpExecutor = Executors.newFixedThreadPool(httpThreads, runnable -> {
+            Thread thread = new Thread(runnable, "webhook-http-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.httpClient = HttpClient.newBuilder()
+                .executor(httpExecutor)
+                .connectTimeout(requestTimeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "webhook-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long tickMs = Math.max(10, lingerMs / 2);
+        scheduler.scheduleWithFixedDelay(this::flushLingering, tickMs, tickMs, TimeUnit.MILLISECONDS);
+
+        this.deliveryTimer = Timer.builder("webhook.delivery")
+                .description("Round trip of one webhook batch POST")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.batchesDelivered = Counter.builder("webhook.batches.delivered").register(meterRegistry);
+        this.alertsDelivered = Counter.builder("webhook.alerts.delivered").register(meterRegistry);
+        this.batchesFailed = Counter.builder("webhook.batches.failed")
+                .description("Failed POSTs, including ones that are retried")
+                .register(meterRegistry);
+        this.alertsDropped = Counter.builder("webhook.alerts.dropped")
+                .description("Alerts given up on: queue overflow, permanent rejection or attempts exhausted")
+                .register(meterRegistry);
+        Gauge.builder("webhook.endpoints", endpoints, Map::size).register(meterRegistry);
+        Gauge.builder("webhook.breakers.open", endpoints, map -> map.values().stream()
+                        .filter(endpoint -> endpoint.breaker.state() != CircuitBreaker.State.CLOSED).count())
+                .register(meterRegistry);
+    }
+
+    // Replaces the set of endpoints; queues and breakers of unchanged subscriptions are kept
+    public void updateTargets(Collection<Target> targets) {
+        Map<Long, Target> byId = targets.stream()
+                .collect(Collectors.toMap(Target::subscriptionId, target -> target, (a, b) -> b, LinkedHashMap::new));
+        endpoints.keySet().removeIf(id -> !byId.containsKey(id));
+        byId.forEach((id, target) -> endpoints.compute(id, (key, existing) -> {
+            if (existing == null) {
+                return new Endpoint(target);
+            }
+            existing.target = target;
+            return existing;
+        }));
+    }
+
+    @EventListener
+    public void onOutboxMessage(OutboxMessage message) throws JsonProcessingException {
+        if (message.aggregateType() != OutboxMessage.AggregateType.ALERT || !DELIVERED_EVENTS.contains(message.eventType())) {
+            return;
+        }
+        enqueue(objectMapper.treeToValue(message.payload(), AlertDTO.class));
+    }
+
+    public void enqueue(AlertDTO alert) {
+        Alert.Severity severity = Alert.Severity.valueOf(alert.getSeverity());
+        for (Endpoint endpoint : endpoints.values()) {
+            if (!endpoint.target.accepts(alert, severity)) {
+                continue;
+            }
+            boolean full;
+            synchronized (endpoint) {
+                if (endpoint.queue.isEmpty()) {
+                    endpoint.firstQueuedAt = System.nanoTime();
+                }
+                endpoint.queue.addLast(alert);
+                if (endpoint.queue.size() > maxQueuedPerEndpoint) {
+                    endpoint.queue.pollFirst();
+                    alertsDropped.increment();
+                }
+                full = endpoint.queue.size() >= batchSize;
+            }
+            if (full) {
+                drain(endpoint);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        httpExecutor.shutdownNow();
+    }
+
+    private void flushLingering() {
+        try {
+            endpoints.values().forEach(this::drain);
+        } catch (RuntimeException e) {
+            log.error("Webhook flush failed", e);
+        }
+    }
+
+    // Sends as many batches as the endpoint's free slots and breaker allow
+    private void drain(Endpoint endpoint) {
+        while (true) {
+            Delivery delivery;
+            synchronized (endpoint) {
+                if (endpoint.queue.isEmpty() || endpoint.inFlight >= maxConcurrency) {
+                    return;
+                }
+                if (endpoint.queue.size() < batchSize && System.nanoTime() - endpoint.firstQueuedAt < lingerNanos) {
+                    return;
+                }
+                if (!endpoint.breaker.tryAcquire()) {
+                    return;
+                }
+                List<AlertDTO> alerts = new ArrayList<>(Math.min(batchSize, endpoint.queue.size()));
+                while (alerts.size() < batchSize && !endpoint.queue.isEmpty()) {
+                    alerts.add(endpoint.queue.pollFirst());
+                }
+                endpoint.firstQueuedAt = System.nanoTime();
+                endpoint.inFlight++;
+                delivery = new Delivery(UUID.randomUUID().toString(), alerts, 1);
+            }
+            send(endpoint, delivery);
+        }
+    }
+
+    private void send(Endpoint endpoint, Delivery delivery) {
+        Target target = endpoint.target;
+        long start = System.nanoTime();
+        try {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("subscriptionId", target.subscriptionId());
+            payload.put("deliveryId", delivery.id());
+            payload.put("attempt", delivery.attempt());
+            payload.put("alerts", delivery.alerts());
+            byte[] body = objectMapper.writeValueAsBytes(payload);
+
+            HttpRequest.Builder request = HttpRequest.newBuilder(target.url())
+                    .timeout(requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .header("X-Webhook-Delivery", delivery.id())
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+            if (target.secret() != null && !target.secret().isEmpty()) {
+                request.header("X-Webhook-Signature", "sha256=" + sign(target.secret(), body));
+            }
+            httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> onComplete(endpoint, delivery, start,
+                            error == null ? response.statusCode() : -1, error));
+        } catch (JsonProcessingException | GeneralSecurityException | RuntimeException e) {
+            onComplete(endpoint, delivery, start, -1, e);
+        }
+    }
+
+    private void onComplete(Endpoint endpoint, Delivery delivery, long start, int status, Throwable error) {
+        deliveryTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (error == null && status >= 200 && status < 300) {
+            endpoint.breaker.onSuccess();
+            batchesDelivered.increment();
+            alertsDelivered.increment(delivery.alerts().size());
+            release(endpoint);
+            return;
+        }
+
+        batchesFailed.increment();
+        // Other 4xx mean the receiver is up but will never take this batch
+        boolean retriable = error != null || status == 429 || status >= 500;
+        if (retriable) {
+            endpoint.breaker.onFailure();
+        } else {
+            endpoint.breaker.onSuccess();
+        }
+        if (!retriable || delivery.attempt() >= maxAttempts || endpoints.get(endpoint.target.subscriptionId()) != endpoint) {
+            alertsDropped.increment(delivery.alerts().size());
+            log.warn("Dropping webhook delivery {} to subscription {} after attempt {}: {}", delivery.id(),
+                    endpoint.target.subscriptionId(), delivery.attempt(), error != null ? error.toString() : "HTTP " + status);
+            release(endpoint);
+            return;
+        }
+        retryLater(endpoint, delivery.next(), backoff(delivery.attempt()));
+    }
+
+    private void retryLater(Endpoint endpoint, Delivery delivery, long delayNanos) {
+        scheduler.schedule(() -> {
+            if (endpoints.get(endpoint.target.subscriptionId()) != endpoint) {
+                alertsDropped.increment(delivery.alerts().size());
+                release(endpoint);
+            } else if (endpoint.breaker.tryAcquire()) {
+                send(endpoint, delivery);
+            } else {
+                // Wait for the breaker to half-open, or for the current probe to finish
+                retryLater(endpoint, delivery, Math.max(endpoint.breaker.remainingOpenNanos(), initialBackoff.toNanos()));
+            }
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void release(Endpoint endpoint) {
+        synchronized (endpoint) {
+            endpoint.inFlight--;
+        }
+        drain(endpoint);
+    }
+
+    // Exponential, capped, with the upper half randomised so endpoints that failed together
+    // do not all retry in the same instant
+    private long backoff(int attempt) {
+        long capped = Math.min(maxBackoff.toNanos(), initialBackoff.toNanos() << Math.min(attempt - 1, 30));
+        return capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1);
+    }
+
+    private static String sign(String secret, byte[] body) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return HexFormat.of().formatHex(mac.doFinal(body));
+    }
+}
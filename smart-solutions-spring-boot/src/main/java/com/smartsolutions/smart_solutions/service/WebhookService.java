@@ -0,0 +1,153 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.dto.WebhookSubscriptionDTO;
+import com.smartsolutions.smart_solutions.exception.BadRequestException;
+import com.smartsolutions.smart_solutions.exception.ResourceNotFoundException;
+import com.smartsolutions.smart_solutions.model.Alert;
+import com.smartsolutions.smart_solutions.model.WebhookSubscription;
+import com.smartsolutions.smart_solutions.repository.DeviceRepository;
+import com.smartsolutions.smart_solutions.repository.UserRepository;
+import com.smartsolutions.smart_solutions.repository.WebhookSubscriptionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class WebhookService {
+
+    private final WebhookSubscriptionRepository subscriptionRepository;
+    private final DeviceRepository deviceRepository;
+    private final UserRepository userRepository;
+    private final WebhookDeliveryEngine deliveryEngine;
+
+    public WebhookService(
+            WebhookSubscriptionRepository subscriptionRepository,
+            DeviceRepository deviceRepository,
+            UserRepository userRepository,
+            WebhookDeliveryEngine deliveryEngine) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.deviceRepository = deviceRepository;
+        this.userRepository = userRepository;
+        this.deliveryEngine = deliveryEngine;
+    }
+
+    @Transactional(readOnly = true)
+    public List<WebhookSubscriptionDTO> getSubscriptions() {
+        return subscriptionRepository.findAllByOrderByIdAsc().stream()
+                .map(this::toDto)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public WebhookSubscriptionDTO getSubscription(Long id) {
+        return toDto(findSubscription(id));
+    }
+
+    @Transactional
+    public WebhookSubscriptionDTO createSubscription(WebhookSubscriptionDTO request) {
+        WebhookSubscription subscription = WebhookSubscription.builder()
+                .createdBy(request.getCreatedBy() != null ? userRepository.findById(request.getCreatedBy()).orElse(null) : null)
+                .build();
+        apply(request, subscription);
+        WebhookSubscription saved = subscriptionRepository.save(subscription);
+        reloadAfterCommit();
+        return toDto(saved);
+    }
+
+    @Transactional
+    public WebhookSubscriptionDTO updateSubscription(Long id, WebhookSubscriptionDTO request) {
+        WebhookSubscription subscription = findSubscription(id);
+        apply(request, subscription);
+        WebhookSubscription saved = subscriptionRepository.save(subscription);
+        reloadAfterCommit();
+        return toDto(saved);
+    }
+
+    @Transactional
+    public void deleteSubscription(Long id) {
+        subscriptionRepository.delete(findSubscription(id));
+        reloadAfterCommit();
+    }
+
+    // Also picks up changes made on other nodes
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${webhooks.subscriptions-refresh-ms:60000}",
+            fixedDelayString = "${webhooks.subscriptions-refresh-ms:60000}")
+    public void reloadTargets() {
+        try {
+            deliveryEngine.updateTargets(subscriptionRepository.findByActiveTrue().stream()
+                    .map(subscription -> new WebhookDeliveryEngine.Target(subscription.getId(), URI.create(subscription.getUrl()),
+                            subscription.getSecret(), subscription.getMinSeverity(), subscription.getDeviceId()))
+                    .collect(Collectors.toList()));
+        } catch (DataAccessException e) {
+            log.warn("Failed to reload webhook subscriptions, keeping the current ones", e);
+        }
+    }
+
+    private void reloadAfterCommit() {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                reloadTargets();
+            }
+        });
+    }
+
+    private void apply(WebhookSubscriptionDTO request, WebhookSubscription subscription) {
+        URI url;
+        try {
+            url = new URI(request.getUrl().trim());
+        } catch (URISyntaxException e) {
+            throw new BadRequestException("Invalid webhook URL: " + e.getMessage());
+        }
+        if (url.getHost() == null || !("https".equalsIgnoreCase(url.getScheme()) || "http".equalsIgnoreCase(url.getScheme()))) {
+            throw new BadRequestException("Webhook URL must be an absolute http or https URL");
+        }
+        if (request.getDeviceId() != null && !deviceRepository.existsById(request.getDeviceId())) {
+            throw new ResourceNotFoundException("Device not found with id: " + request.getDeviceId());
+        }
+
+        subscription.setName(request.getName().trim());
+        subscription.setUrl(url.toString());
+        subscription.setMinSeverity(request.getMinSeverity() != null ? request.getMinSeverity() : Alert.Severity.Low);
+        subscription.setDeviceId(request.getDeviceId());
+        if (request.getActive() != null) {
+            subscription.setActive(request.getActive());
+        }
+        // Omitting the secret on update keeps the current one
+        if (request.getSecret() != null) {
+            subscription.setSecret(request.getSecret().isEmpty() ? null : request.getSecret());
+        }
+    }
+
+    private WebhookSubscription findSubscription(Long id) {
+        return subscriptionRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Webhook subscription not found with id: " + id));
+    }
+
+    private WebhookSubscriptionDTO toDto(WebhookSubscription subscription) {
+        return WebhookSubscriptionDTO.builder()
+                .id(subscription.getId())
+                .name(subscription.getName())
+                .url(subscription.getUrl())
+                .minSeverity(subscription.getMinSeverity())
+                .deviceId(subscription.getDeviceId())
+                .active(subscription.isActive())
+                .createdBy(subscription.getCreatedBy() != null ? subscription.getCreatedBy().getId() : null)
+                .createdAt(subscription.getCreatedAt())
+                .updatedAt(subscription.getUpdatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,73 @@
+package com.smartsolutions.smart_solutions.util;
+
+import java.util.function.LongSupplier;
+
+// Consecutive-failure circuit breaker. CLOSED lets everything through; after `failureThreshold`
+// failures in a row it opens and rejects calls for `openNanos`. The first call after that is
+// the single probe of HALF_OPEN: its success closes the breaker, its failure opens it again.
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(int failureThreshold, long openNanos) {
+        this(failureThreshold, openNanos, System::nanoTime);
+    }
+
+    public CircuitBreaker(int failureThreshold, long openNanos, LongSupplier clock) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = openNanos;
+        this.clock = clock;
+    }
+
+    // True if the caller may make one call now and must report its outcome
+    public synchronized boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < openNanos) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+        } else if (probeInFlight) {
+            return false;
+        }
+        probeInFlight = true;
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = clock.getAsLong();
+            probeInFlight = false;
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    // How long until an open breaker lets a probe through; 0 when it would now
+    public synchronized long remainingOpenNanos() {
+        return state == State.OPEN ? Math.max(0, openNanos - (clock.getAsLong() - openedAt)) : 0;
+    }
+}
@@ -4,6 +4,7 @@ import com.smartsolutions.smart_solutions.dto.DeviceDTO;
 import com.smartsolutions.smart_solutions.model.Device;
 import com.smartsolutions.smart_solutions.model.DeviceType;
 import com.smartsolutions.smart_solutions.model.User;
+import org.hibernate.Hibernate;
 import org.springframework.stereotype.Component;
 
 import java.time.Instant;
@@ -34,7 +35,10 @@ public class DeviceMapper {
         dto.setStatus(device.getStatus().name());
         dto.setOnline(device.getIsOnline());
 
-        dto.setAlertsCount(device.getAlerts().size());
+        // Listings use DeviceRepository.findDeviceViews; here the count is only known if already loaded
+        if (Hibernate.isInitialized(device.getAlerts())) {
+            dto.setAlertsCount(device.getAlerts().size());
+        }
 
         // Convert Instant to LocalDateTime
         if (device.getLastSeenAt() != null) {
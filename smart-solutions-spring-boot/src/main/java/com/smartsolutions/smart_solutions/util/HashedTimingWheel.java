@@ -0,0 +1,206 @@
+package com.smartsolutions.smart_solutions.util;
+
+import java.lang.reflect.Array;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Hashed timing wheel (Varghese & Lauck): timers hash into a ring of buckets by deadline and
+// carry the number of full wheel rotations left. Adding and cancelling are O(1) for any number
+// of pending timers; precision is one tick. A single worker thread owns the buckets, other
+// threads only hand it new and cancelled timers through lock-free queues. Expired payloads are
+// passed to the handler on the given executor, so slow handlers never delay the wheel.
+public class HashedTimingWheel<T> {
+
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long tickNanos;
+    private final Consumer<T> onExpire;
+    private final Executor executor;
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Thread worker;
+
+    private volatile long startNanos;
+    private volatile boolean running;
+    private long tick;
+
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(String name, long tickDuration, TimeUnit unit, int wheelSize, Consumer<T> onExpire, Executor executor) {
+        int size = Integer.highestOneBit(Math.max(2, wheelSize) - 1) << 1;
+        this.wheel = (Bucket[]) Array.newInstance(Bucket.class, size);
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.onExpire = onExpire;
+        this.executor = executor;
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        startNanos = System.nanoTime();
+        running = true;
+        worker.start();
+    }
+
+    public void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    public int pending() {
+        return pending.get();
+    }
+
+    public Timeout schedule(T payload, long delay, TimeUnit unit) {
+        Timeout timeout = new Timeout(payload, System.nanoTime() + Math.max(0, unit.toNanos(delay)));
+        pending.incrementAndGet();
+        added.add(timeout);
+        return timeout;
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = startNanos + (tick + 1) * tickNanos;
+            long sleepNanos = deadline - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+            }
+            removeCancelled();
+            transferAdded();
+            expire(wheel[(int) (tick & mask)], deadline);
+            tick++;
+        }
+    }
+
+    private void transferAdded() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Timeout timeout = added.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.state.get() != Timeout.PENDING) {
+                continue;
+            }
+            // Deadlines already passed go into the current bucket and fire this tick
+            long ticks = Math.max(tick, (timeout.deadlineNanos - startNanos) / tickNanos);
+            timeout.remainingRounds = (ticks - tick) / wheel.length;
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void expire(Bucket bucket, long deadline) {
+        Timeout timeout = bucket.head;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.remainingRounds <= 0 && timeout.deadlineNanos <= deadline) {
+                bucket.remove(timeout);
+                if (timeout.state.compareAndSet(Timeout.PENDING, Timeout.EXPIRED)) {
+                    pending.decrementAndGet();
+                    T payload = timeout.payload;
+                    executor.execute(() -> onExpire.accept(payload));
+                }
+            } else {
+                timeout.remainingRounds--;
+            }
+            timeout = next;
+        }
+    }
+
+    public final class Timeout {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final T payload;
+        private final long deadlineNanos;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        // Owned by the worker thread
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout previous;
+        private Timeout next;
+
+        private Timeout(T payload, long deadlineNanos) {
+            this.payload = payload;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        public T payload() {
+            return payload;
+        }
+
+        // False when the timer already fired or was cancelled before
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            pending.decrementAndGet();
+            cancelled.add(this);
+            return true;
+        }
+    }
+
+    // Doubly linked, so a cancelled timer is unlinked without scanning its bucket
+    private final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.previous = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.previous != null) {
+                timeout.previous.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            } else {
+                tail = timeout.previous;
+            }
+            timeout.previous = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.smartsolutions.smart_solutions.util;
+
+import com.smartsolutions.smart_solutions.dto.SensorDataPointDTO;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+@Component
+public class SensorDataDownsampler {
+
+    public enum Mode {
+        LTTB, MIN_MAX
+    }
+
+    // Fixed-width time buckets over [start, end]; x coordinates are milliseconds since start
+    public record TimeBuckets(long startMs, double widthMs, int count) {
+
+        public static TimeBuckets of(Instant start, Instant end, int count) {
+            long span = Math.max(1, end.toEpochMilli() - start.toEpochMilli());
+            return new TimeBuckets(start.toEpochMilli(), (double) span / count, count);
+        }
+
+        public int indexOf(Instant timestamp) {
+            int index = (int) Math.floor((timestamp.toEpochMilli() - startMs) / widthMs);
+            return Math.max(0, Math.min(count - 1, index));
+        }
+
+        public double xOf(Instant timestamp) {
+            return timestamp.toEpochMilli() - startMs;
+        }
+    }
+
+    // Largest-Triangle-Three-Buckets over a time-ordered stream. The next-bucket averages are
+    // precomputed (NaN for empty buckets), so raw points are consumed in one pass without buffering.
+    public List<SensorDataPointDTO> largestTriangleThreeBuckets(
+            Iterator<SensorDataPointDTO> points, TimeBuckets buckets, double[] avgX, double[] avgY) {
+
+        List<SensorDataPointDTO> sampled = new ArrayList<>(buckets.count() + 2);
+        if (!points.hasNext()) {
+            return sampled;
+        }
+
+        int[] nextBucket = nextNonEmptyBuckets(avgX);
+
+        SensorDataPointDTO first = points.next();
+        sampled.add(first);
+        double ax = buckets.xOf(first.getTimestamp());
+        double ay = first.getValue();
+
+        int current = -1;
+        double cx = 0;
+        double cy = 0;
+        SensorDataPointDTO best = null;
+        double bestArea = -1;
+        SensorDataPointDTO last = first;
+
+        while (points.hasNext()) {
+            SensorDataPointDTO point = points.next();
+            last = point;
+            int bucket = buckets.indexOf(point.getTimestamp());
+
+            if (bucket != current) {
+                if (best != null) {
+                    sampled.add(best);
+                    ax = buckets.xOf(best.getTimestamp());
+                    ay = best.getValue();
+                }
+                current = bucket;
+                best = null;
+                bestArea = -1;
+
+                // Score against the next non-empty bucket, or this bucket's own centroid at the tail
+                int target = nextBucket[bucket];
+                if (target < 0 || Double.isNaN(avgX[target])) {
+                    target = bucket;
+                }
+                cx = Double.isNaN(avgX[target]) ? buckets.xOf(point.getTimestamp()) : avgX[target];
+                cy = Double.isNaN(avgY[target]) ? point.getValue() : avgY[target];
+            }
+
+            double px = buckets.xOf(point.getTimestamp());
+            double area = Math.abs((ax - cx) * (point.getValue() - ay) - (ax - px) * (cy - ay));
+            if (area > bestArea) {
+                bestArea = area;
+                best = point;
+            }
+        }
+
+        if (best != null && best != last) {
+            sampled.add(best);
+        }
+        if (last != first) {
+            sampled.add(last);
+        }
+        return sampled;
+    }
+
+    // Emits the minimum and maximum of every bucket in time order; O(buckets) memory
+    public List<SensorDataPointDTO> minMax(Iterator<SensorDataPointDTO> points, TimeBuckets buckets) {
+        List<SensorDataPointDTO> sampled = new ArrayList<>(buckets.count() * 2);
+
+        int current = -1;
+        SensorDataPointDTO min = null;
+        SensorDataPointDTO max = null;
+
+        while (points.hasNext()) {
+            SensorDataPointDTO point = points.next();
+            int bucket = buckets.indexOf(point.getTimestamp());
+
+            if (bucket != current) {
+                emitMinMax(sampled, min, max);
+                current = bucket;
+                min = point;
+                max = point;
+                continue;
+            }
+
+            if (point.getValue() < min.getValue()) {
+                min = point;
+            }
+            if (point.getValue() > max.getValue()) {
+                max = point;
+            }
+        }
+
+        emitMinMax(sampled, min, max);
+        return sampled;
+    }
+
+    private void emitMinMax(List<SensorDataPointDTO> sampled, SensorDataPointDTO min, SensorDataPointDTO max) {
+        if (min == null) {
+            return;
+        }
+        if (min == max) {
+            sampled.add(min);
+        } else if (min.getTimestamp().isAfter(max.getTimestamp())) {
+            sampled.add(max);
+            sampled.add(min);
+        } else {
+            sampled.add(min);
+            sampled.add(max);
+        }
+    }
+
+    // For each bucket, the index of the closest non-empty bucket after it (-1 if none)
+    private int[] nextNonEmptyBuckets(double[] avgX) {
+        int[] next = new int[avgX.length];
+        Arrays.fill(next, -1);
+        int following = -1;
+        for (int i = avgX.length - 1; i >= 0; i--) {
+            next[i] = following;
+            if (!Double.isNaN(avgX[i])) {
+                following = i;
+            }
+        }
+        return next;
+    }
+}
@@ -4,6 +4,7 @@ import com.smartsolutions.smart_solutions.dto.SensorDataDTO;
 import com.smartsolutions.smart_solutions.model.Device;
 import com.smartsolutions.smart_solutions.model.SensorData;
 import com.smartsolutions.smart_solutions.model.SensorData.SensorType;
+import org.hibernate.Hibernate;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
@@ -23,7 +24,10 @@ public class SensorDataMapper {
         // Device mapping
         if (entity.getDevice() != null) {
             dto.setDeviceId(entity.getDevice().getId());
-            dto.setDeviceName(entity.getDevice().getName());
+            // A bare reference stays unloaded; callers that have the name set it themselves
+            if (Hibernate.isInitialized(entity.getDevice())) {
+                dto.setDeviceName(entity.getDevice().getName());
+            }
         }
 
         // Sensor type mapping
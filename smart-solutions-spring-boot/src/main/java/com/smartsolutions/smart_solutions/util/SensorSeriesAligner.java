@@ -0,0 +1,98 @@
+package com.smartsolutions.smart_solutions.util;
+
+import com.smartsolutions.smart_solutions.dto.AlignedSensorRowDTO;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@Component
+public class SensorSeriesAligner {
+
+    public enum FillStrategy {
+        NULL, LOCF, LINEAR
+    }
+
+    // One aggregated grid cell of a (device, sensor type) series
+    public record SeriesBucket(long deviceId, String sensorType, long bucket, double value) {
+    }
+
+    // Merges bucketed series sorted by (device, sensor type, bucket) into one row per device and
+    // grid bucket. Each series is walked by its own cursor, so nothing is regrouped into maps.
+    public List<AlignedSensorRowDTO> align(
+            List<SeriesBucket> buckets, List<Long> deviceIds, List<String> sensorTypes,
+            Instant gridStart, long bucketMillis, int bucketCount, FillStrategy fill) {
+
+        List<AlignedSensorRowDTO> rows = new ArrayList<>(deviceIds.size() * bucketCount);
+        int position = 0;
+
+        for (Long deviceId : deviceIds.stream().sorted().distinct().toList()) {
+            // Skip series of devices that were not requested (defensive, the query filters them)
+            while (position < buckets.size() && buckets.get(position).deviceId() < deviceId) {
+                position++;
+            }
+
+            SeriesCursor[] cursors = new SeriesCursor[sensorTypes.size()];
+            while (position < buckets.size() && buckets.get(position).deviceId() == deviceId) {
+                int runStart = position;
+                String sensorType = buckets.get(position).sensorType();
+                while (position < buckets.size()
+                        && buckets.get(position).deviceId() == deviceId
+                        && buckets.get(position).sensorType().equals(sensorType)) {
+                    position++;
+                }
+                int column = sensorTypes.indexOf(sensorType);
+                if (column >= 0) {
+                    cursors[column] = new SeriesCursor(buckets, runStart, position);
+                }
+            }
+
+            for (int bucket = 0; bucket < bucketCount; bucket++) {
+                Double[] values = new Double[cursors.length];
+                for (int column = 0; column < cursors.length; column++) {
+                    values[column] = cursors[column] == null ? null : cursors[column].valueAt(bucket, fill);
+                }
+                rows.add(new AlignedSensorRowDTO(
+                        deviceId, gridStart.plusMillis(bucket * bucketMillis), Arrays.asList(values)));
+            }
+        }
+        return rows;
+    }
+
+    private static final class SeriesCursor {
+        private final List<SeriesBucket> run;
+        private final int end;
+        private int position;
+        private SeriesBucket previous;
+
+        private SeriesCursor(List<SeriesBucket> run, int start, int end) {
+            this.run = run;
+            this.position = start;
+            this.end = end;
+        }
+
+        // Must be called with increasing bucket indexes
+        private Double valueAt(long bucket, FillStrategy fill) {
+            if (position < end && run.get(position).bucket() == bucket) {
+                previous = run.get(position++);
+                return previous.value();
+            }
+
+            switch (fill) {
+                case LOCF:
+                    return previous != null ? previous.value() : null;
+                case LINEAR:
+                    if (previous == null || position >= end) {
+                        return null;
+                    }
+                    SeriesBucket next = run.get(position);
+                    double ratio = (double) (bucket - previous.bucket()) / (next.bucket() - previous.bucket());
+                    return previous.value() + (next.value() - previous.value()) * ratio;
+                default:
+                    return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.smartsolutions.smart_solutions.util;
+
+import com.smartsolutions.smart_solutions.model.SensorData.SensorType;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.DoubleUnaryOperator;
+
+// Canonical unit per sensor type and the functions converting accepted units into it.
+// Tables are built once; a lookup is two hash probes on the normalized unit spelling.
+@Component
+public class UnitConverters {
+
+    public record SensorUnits(String canonicalUnit, Map<String, DoubleUnaryOperator> converters) {
+    }
+
+    private final Map<String, SensorUnits> units = new HashMap<>();
+
+    public UnitConverters() {
+        register(SensorType.Temperature, "°C", Map.of(
+                "c", DoubleUnaryOperator.identity(),
+                "celsius", DoubleUnaryOperator.identity(),
+                "f", v -> (v - 32) * 5 / 9,
+                "fahrenheit", v -> (v - 32) * 5 / 9,
+                "k", v -> v - 273.15,
+                "kelvin", v -> v - 273.15));
+        register(SensorType.Humidity, "%", Map.of(
+                "%", DoubleUnaryOperator.identity(),
+                "%rh", DoubleUnaryOperator.identity(),
+                "rh", DoubleUnaryOperator.identity(),
+                "percent", DoubleUnaryOperator.identity()));
+        register(SensorType.Pressure, "hPa", Map.of(
+                "hpa", DoubleUnaryOperator.identity(),
+                "mbar", DoubleUnaryOperator.identity(),
+                "pa", v -> v / 100,
+                "kpa", v -> v * 10,
+                "bar", v -> v * 1000,
+                "atm", v -> v * 1013.25,
+                "psi", v -> v * 68.9475729,
+                "mmhg", v -> v * 1.33322368,
+                "inhg", v -> v * 33.8638866));
+        register(SensorType.Light_Intensity, "lx", Map.of(
+                "lx", DoubleUnaryOperator.identity(),
+                "lux", DoubleUnaryOperator.identity(),
+                "fc", v -> v * 10.7639104));
+        register(SensorType.Voltage, "V", Map.of(
+                "v", DoubleUnaryOperator.identity(),
+                "mv", v -> v / 1000,
+                "kv", v -> v * 1000));
+        register(SensorType.Current, "A", Map.of(
+                "a", DoubleUnaryOperator.identity(),
+                "ma", v -> v / 1000,
+                "ua", v -> v / 1_000_000,
+                "µa", v -> v / 1_000_000));
+        // "mW" is read as milliwatt; megawatt is not a realistic device reading
+        register(SensorType.Power, "W", Map.of(
+                "w", DoubleUnaryOperator.identity(),
+                "kw", v -> v * 1000,
+                "mw", v -> v / 1000));
+    }
+
+    private void register(SensorType sensorType, String canonicalUnit, Map<String, DoubleUnaryOperator> converters) {
+        units.put(sensorType.name(), new SensorUnits(canonicalUnit, Map.copyOf(converters)));
+    }
+
+    // Null when the sensor type has no canonical unit (Motion, Air Quality, Other)
+    public SensorUnits forSensorType(String sensorType) {
+        return units.get(sensorType);
+    }
+
+    // Null when the unit is not one the sensor type accepts
+    public DoubleUnaryOperator converter(SensorUnits sensorUnits, String unit) {
+        return sensorUnits.converters().get(normalize(unit));
+    }
+
+    static String normalize(String unit) {
+        StringBuilder key = new StringBuilder(unit.length());
+        for (int i = 0; i < unit.length(); i++) {
+            char c = unit.charAt(i);
+            if (c != '°' && c != 'º' && !Character.isWhitespace(c)) {
+                key.append(c);
+            }
+        }
+        return key.toString().toLowerCase(Locale.ROOT);
+    }
+}
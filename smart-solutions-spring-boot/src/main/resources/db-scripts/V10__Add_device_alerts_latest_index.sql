@@ -0,0 +1,12 @@
+-- Migration script for serving the latest alerts per device from the device_alerts table in iot schema
+-- Each device's newest alerts are the first entries of its range in this index, so a
+-- LATERAL ... ORDER BY created_at DESC LIMIT n reads exactly n index entries per device
+
+BEGIN;
+
+CREATE INDEX idx_device_alerts_device_created ON iot.device_alerts(device_id, created_at DESC);
+
+-- Covered by the leading column of the index above, including the cascade from devices
+DROP INDEX IF EXISTS iot.idx_device_alerts_device_id;
+
+COMMIT;
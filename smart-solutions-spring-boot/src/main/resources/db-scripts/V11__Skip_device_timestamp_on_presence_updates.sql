@@ -0,0 +1,33 @@
+-- Migration script for presence write-behind on the devices table in iot schema
+-- DevicePresenceTracker writes is_online and last_seen_at in batches; those writes are not
+-- changes to the device and should neither bump updated_at nor force a non-HOT update
+
+BEGIN;
+
+CREATE OR REPLACE FUNCTION iot.update_devices_timestamp()
+RETURNS TRIGGER AS $$
+BEGIN
+    -- Presence columns alone changed: keep updated_at as it was
+    IF to_jsonb(NEW) - 'is_online' - 'last_seen_at' - 'updated_at'
+            = to_jsonb(OLD) - 'is_online' - 'last_seen_at' - 'updated_at' THEN
+        RETURN NEW;
+    END IF;
+    NEW.updated_at = NOW();
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_devices_update ON iot.devices;
+
+CREATE TRIGGER trg_devices_update
+BEFORE UPDATE ON iot.devices
+FOR EACH ROW
+EXECUTE FUNCTION iot.update_devices_timestamp();
+
+-- Leave room on each page so last_seen_at updates (no indexed column changes) stay HOT
+ALTER TABLE iot.devices SET (fillfactor = 90);
+
+-- Add comments for documentation
+COMMENT ON COLUMN iot.devices.last_seen_at IS 'Last reading received, written behind by DevicePresenceTracker at a coarse resolution';
+
+COMMIT;
@@ -0,0 +1,86 @@
+-- Migration script for creating the location_closure table in iot schema
+-- Every ancestor/descendant pair of the location tree, so a subtree is one index range on
+-- ancestor_id instead of a walk down parent_location_id. Kept up to date by triggers on
+-- iot.locations, whoever inserts or moves a location.
+
+BEGIN;
+
+CREATE TABLE iot.location_closure (
+    ancestor_id INTEGER NOT NULL REFERENCES iot.locations(location_id) ON DELETE CASCADE,
+    descendant_id INTEGER NOT NULL REFERENCES iot.locations(location_id) ON DELETE CASCADE,
+    depth INTEGER NOT NULL,
+    PRIMARY KEY (ancestor_id, descendant_id)
+);
+
+-- Ancestors of a location, for moves and for rolling a device up its tree
+CREATE INDEX idx_location_closure_descendant ON iot.location_closure(descendant_id, ancestor_id);
+
+-- Seed from the existing tree
+INSERT INTO iot.location_closure (ancestor_id, descendant_id, depth)
+WITH RECURSIVE paths AS (
+    SELECT location_id AS ancestor_id, location_id AS descendant_id, 0 AS depth
+    FROM iot.locations
+    UNION ALL
+    SELECT p.ancestor_id, l.location_id, p.depth + 1
+    FROM paths p
+    JOIN iot.locations l ON l.parent_location_id = p.descendant_id
+)
+SELECT ancestor_id, descendant_id, depth FROM paths;
+
+CREATE OR REPLACE FUNCTION iot.location_closure_insert()
+RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO iot.location_closure (ancestor_id, descendant_id, depth)
+    SELECT ancestor_id, NEW.location_id, depth + 1
+    FROM iot.location_closure
+    WHERE descendant_id = NEW.parent_location_id
+    UNION ALL
+    SELECT NEW.location_id, NEW.location_id, 0;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION iot.location_closure_move()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF EXISTS (
+            SELECT 1 FROM iot.location_closure
+            WHERE ancestor_id = NEW.location_id AND descendant_id = NEW.parent_location_id) THEN
+        RAISE EXCEPTION 'Location % cannot be moved into its own subtree', NEW.location_id;
+    END IF;
+
+    -- Detach the subtree from its old ancestors; paths inside the subtree stay as they are
+    DELETE FROM iot.location_closure c
+    USING iot.location_closure sup, iot.location_closure sub
+    WHERE sup.descendant_id = NEW.location_id
+      AND sup.ancestor_id <> NEW.location_id
+      AND sub.ancestor_id = NEW.location_id
+      AND c.ancestor_id = sup.ancestor_id
+      AND c.descendant_id = sub.descendant_id;
+
+    -- and attach it below the new parent
+    INSERT INTO iot.location_closure (ancestor_id, descendant_id, depth)
+    SELECT sup.ancestor_id, sub.descendant_id, sup.depth + sub.depth + 1
+    FROM iot.location_closure sup
+    JOIN iot.location_closure sub ON sub.ancestor_id = NEW.location_id
+    WHERE sup.descendant_id = NEW.parent_location_id;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_locations_closure_insert
+AFTER INSERT ON iot.locations
+FOR EACH ROW
+EXECUTE FUNCTION iot.location_closure_insert();
+
+CREATE TRIGGER trg_locations_closure_move
+AFTER UPDATE OF parent_location_id ON iot.locations
+FOR EACH ROW
+WHEN (OLD.parent_location_id IS DISTINCT FROM NEW.parent_location_id)
+EXECUTE FUNCTION iot.location_closure_move();
+
+-- Add comments for documentation
+COMMENT ON TABLE iot.location_closure IS 'Transitive closure of the location tree, maintained by triggers on iot.locations';
+COMMENT ON COLUMN iot.location_closure.depth IS 'Levels between ancestor and descendant, 0 for the location itself';
+
+COMMIT;
@@ -0,0 +1,11 @@
+-- Migration script for ordering outbox delivery per aggregate in the event_outbox table in iot schema
+-- OutboxRelay only claims an event once no earlier event of the same aggregate is pending;
+-- this index answers that check with a short range scan per claimed event
+
+BEGIN;
+
+CREATE INDEX idx_event_outbox_unpublished_aggregate
+    ON iot.event_outbox(aggregate_type, aggregate_id, event_id)
+    WHERE published_at IS NULL;
+
+COMMIT;
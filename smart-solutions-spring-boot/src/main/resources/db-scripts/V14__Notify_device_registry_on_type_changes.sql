@@ -0,0 +1,25 @@
+-- Migration script for keeping cached device snapshots current with their type in iot schema
+-- DeviceRegistryCache snapshots carry the capabilities of the device's type, so a change to a
+-- type's capabilities notifies the registry channel once for every device of that type
+
+BEGIN;
+
+CREATE OR REPLACE FUNCTION iot.notify_device_type_changed()
+RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM pg_notify('device_registry', d.device_id::text)
+    FROM iot.devices d
+    WHERE d.type_id = NEW.type_id;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_device_types_notify ON iot.device_types;
+
+CREATE TRIGGER trg_device_types_notify
+AFTER UPDATE OF capabilities ON iot.device_types
+FOR EACH ROW
+WHEN (OLD.capabilities IS DISTINCT FROM NEW.capabilities)
+EXECUTE FUNCTION iot.notify_device_type_changed();
+
+COMMIT;
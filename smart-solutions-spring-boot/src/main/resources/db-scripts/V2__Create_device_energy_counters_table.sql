@@ -0,0 +1,37 @@
+-- Migration script for creating the device_energy_counters table in iot schema
+-- Holds hourly and daily kWh integrated from Power (or Voltage x Current) readings
+
+BEGIN;
+
+CREATE TABLE iot.device_energy_counters (
+    counter_id BIGSERIAL PRIMARY KEY,
+    device_id BIGINT NOT NULL,
+    granularity VARCHAR(10) NOT NULL,
+    period_start TIMESTAMPTZ NOT NULL,
+    energy_kwh DOUBLE PRECISION NOT NULL DEFAULT 0,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Add constraints
+ALTER TABLE iot.device_energy_counters
+    ADD CONSTRAINT fk_device_energy_counters_device
+    FOREIGN KEY (device_id) REFERENCES iot.devices(device_id) ON DELETE CASCADE;
+
+ALTER TABLE iot.device_energy_counters
+    ADD CONSTRAINT chk_device_energy_counters_granularity
+    CHECK (granularity IN ('HOUR', 'DAY'));
+
+-- Upsert target for the flush job; also serves per-device range reads
+ALTER TABLE iot.device_energy_counters
+    ADD CONSTRAINT uq_device_energy_counters
+    UNIQUE (device_id, granularity, period_start);
+
+-- Fleet and location totals read daily counters by period
+CREATE INDEX idx_device_energy_counters_period ON iot.device_energy_counters(granularity, period_start);
+
+-- Add comments for documentation
+COMMENT ON TABLE iot.device_energy_counters IS 'Hourly and daily energy consumption per device';
+COMMENT ON COLUMN iot.device_energy_counters.period_start IS 'UTC start of the hour or day the counter covers';
+COMMENT ON COLUMN iot.device_energy_counters.energy_kwh IS 'Energy integrated with the trapezoidal rule, in kWh';
+
+COMMIT;
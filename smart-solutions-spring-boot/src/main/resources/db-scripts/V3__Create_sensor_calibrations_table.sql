@@ -0,0 +1,46 @@
+-- Migration script for creating the sensor_calibrations table in iot schema
+-- Offsets and gains recorded by field technicians per device and sensor type
+
+BEGIN;
+
+CREATE TABLE iot.sensor_calibrations (
+    calibration_id BIGSERIAL PRIMARY KEY,
+    device_id BIGINT NOT NULL,
+    sensor_type VARCHAR(50) NOT NULL,
+    gain DOUBLE PRECISION NOT NULL DEFAULT 1,
+    offset_value DOUBLE PRECISION NOT NULL DEFAULT 0,
+    effective_from TIMESTAMPTZ NOT NULL,
+    notes TEXT,
+    created_by BIGINT,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    recorrection_pending BOOLEAN NOT NULL DEFAULT FALSE,
+    recorrection_cursor_ts TIMESTAMPTZ,
+    recorrection_cursor_id BIGINT
+);
+
+-- Add constraints
+ALTER TABLE iot.sensor_calibrations
+    ADD CONSTRAINT fk_sensor_calibrations_device
+    FOREIGN KEY (device_id) REFERENCES iot.devices(device_id) ON DELETE CASCADE;
+
+ALTER TABLE iot.sensor_calibrations
+    ADD CONSTRAINT fk_sensor_calibrations_created_by
+    FOREIGN KEY (created_by) REFERENCES iot.users(user_id) ON DELETE SET NULL;
+
+ALTER TABLE iot.sensor_calibrations
+    ADD CONSTRAINT chk_sensor_calibrations_gain
+    CHECK (gain <> 0);
+
+-- Create indexes
+CREATE INDEX idx_sensor_calibrations_device ON iot.sensor_calibrations(device_id, sensor_type, effective_from);
+CREATE INDEX idx_sensor_calibrations_pending ON iot.sensor_calibrations(created_at) WHERE recorrection_pending;
+
+-- Re-correction walks one series in (timestamp, data_id) order
+CREATE INDEX idx_sensor_data_device_type_ts ON iot.sensor_data(device_id, sensor_type, timestamp, data_id);
+
+-- Add comments for documentation
+COMMENT ON TABLE iot.sensor_calibrations IS 'Calibration history per device and sensor type';
+COMMENT ON COLUMN iot.sensor_calibrations.offset_value IS 'Added after the gain: corrected = raw * gain + offset_value, in canonical units';
+COMMENT ON COLUMN iot.sensor_calibrations.recorrection_pending IS 'Stored readings since effective_from still need correcting';
+
+COMMIT;
@@ -0,0 +1,25 @@
+-- Migration script for creating the alert_counters table in iot schema
+-- Alert counts per severity, status and device type, maintained alongside alert changes
+
+BEGIN;
+
+CREATE TABLE iot.alert_counters (
+    severity VARCHAR(20) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    device_type_id BIGINT NOT NULL DEFAULT 0,
+    alert_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (severity, status, device_type_id)
+);
+
+-- Seed from the existing alerts; the reconciliation job keeps it in line afterwards
+INSERT INTO iot.alert_counters (severity, status, device_type_id, alert_count)
+SELECT a.severity, a.status, COALESCE(d.type_id, 0), COUNT(*)
+FROM iot.device_alerts a
+JOIN iot.devices d ON d.device_id = a.device_id
+GROUP BY a.severity, a.status, COALESCE(d.type_id, 0);
+
+-- Add comments for documentation
+COMMENT ON TABLE iot.alert_counters IS 'Alert counts per severity x status x device type, updated in the alert transaction';
+COMMENT ON COLUMN iot.alert_counters.device_type_id IS 'Device type of the alerting device, 0 when the device has no type';
+
+COMMIT;
@@ -0,0 +1,18 @@
+-- Migration script for adding escalation state to the device_alerts table in iot schema
+-- The in-process escalation timers are rebuilt from these columns on startup
+
+BEGIN;
+
+ALTER TABLE iot.device_alerts
+    ADD COLUMN escalation_level SMALLINT NOT NULL DEFAULT 0,
+    ADD COLUMN next_escalation_at TIMESTAMPTZ;
+
+-- Recovery reads only the alerts that still have a timer
+CREATE INDEX idx_device_alerts_next_escalation ON iot.device_alerts(next_escalation_at)
+    WHERE next_escalation_at IS NOT NULL;
+
+-- Add comments for documentation
+COMMENT ON COLUMN iot.device_alerts.escalation_level IS 'Number of escalation levels already fired for the alert';
+COMMENT ON COLUMN iot.device_alerts.next_escalation_at IS 'When the next escalation level fires, NULL when none is pending';
+
+COMMIT;
@@ -0,0 +1,39 @@
+-- Migration script for creating the event_outbox table in iot schema
+-- Alert and device changes are written here in the same transaction as the change itself
+-- and relayed to in-process subscribers by OutboxRelay
+
+BEGIN;
+
+CREATE TABLE iot.event_outbox (
+    event_id BIGSERIAL PRIMARY KEY,
+    aggregate_type VARCHAR(20) NOT NULL,
+    aggregate_id BIGINT NOT NULL,
+    event_type VARCHAR(30) NOT NULL,
+    payload JSONB NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    published_at TIMESTAMPTZ,
+    locked_until TIMESTAMPTZ,
+    attempts SMALLINT NOT NULL DEFAULT 0,
+    last_error TEXT
+);
+
+-- Add constraints
+ALTER TABLE iot.event_outbox
+    ADD CONSTRAINT chk_event_outbox_aggregate_type
+    CHECK (aggregate_type IN ('ALERT', 'DEVICE'));
+
+-- The relay only ever scans unpublished events, in id order
+CREATE INDEX idx_event_outbox_unpublished ON iot.event_outbox(event_id)
+    WHERE published_at IS NULL;
+
+-- Cleanup deletes published events by age
+CREATE INDEX idx_event_outbox_published_at ON iot.event_outbox(published_at)
+    WHERE published_at IS NOT NULL;
+
+-- Add comments for documentation
+COMMENT ON TABLE iot.event_outbox IS 'Transactional outbox of alert and device change events';
+COMMENT ON COLUMN iot.event_outbox.payload IS 'AlertDTO or DeviceDTO state after the change';
+COMMENT ON COLUMN iot.event_outbox.locked_until IS 'Claimed by a relay, or backing off after a failure, until this time';
+COMMENT ON COLUMN iot.event_outbox.attempts IS 'Failed deliveries so far; events at the configured maximum are left for inspection';
+
+COMMIT;
@@ -0,0 +1,37 @@
+-- Migration script for creating the webhook_subscriptions table in iot schema
+-- HTTP endpoints that receive batches of new and escalated alerts
+
+BEGIN;
+
+CREATE TABLE iot.webhook_subscriptions (
+    subscription_id BIGSERIAL PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    url VARCHAR(2048) NOT NULL,
+    secret VARCHAR(255),
+    min_severity VARCHAR(20) NOT NULL DEFAULT 'Low',
+    device_id BIGINT,
+    is_active BOOLEAN NOT NULL DEFAULT TRUE,
+    created_by BIGINT,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Add constraints
+ALTER TABLE iot.webhook_subscriptions
+    ADD CONSTRAINT fk_webhook_subscriptions_device
+    FOREIGN KEY (device_id) REFERENCES iot.devices(device_id) ON DELETE CASCADE;
+
+ALTER TABLE iot.webhook_subscriptions
+    ADD CONSTRAINT fk_webhook_subscriptions_created_by
+    FOREIGN KEY (created_by) REFERENCES iot.users(user_id) ON DELETE SET NULL;
+
+ALTER TABLE iot.webhook_subscriptions
+    ADD CONSTRAINT chk_webhook_subscriptions_min_severity
+    CHECK (min_severity IN ('Low', 'Medium', 'High', 'Critical'));
+
+-- Add comments for documentation
+COMMENT ON TABLE iot.webhook_subscriptions IS 'Customer HTTP endpoints receiving alert batches';
+COMMENT ON COLUMN iot.webhook_subscriptions.secret IS 'HMAC-SHA256 key for the X-Webhook-Signature header, no signature when NULL';
+COMMENT ON COLUMN iot.webhook_subscriptions.device_id IS 'Only alerts of this device when set, all devices when NULL';
+
+COMMIT;
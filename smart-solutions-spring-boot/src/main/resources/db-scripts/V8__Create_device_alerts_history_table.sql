@@ -0,0 +1,49 @@
+-- Migration script for creating the device_alerts_history table in iot schema
+-- Resolved and suppressed alerts are moved here by AlertArchivalService once they are old
+-- enough, so device_alerts and its indexes only hold the alerts still being worked on
+
+BEGIN;
+
+-- Same columns as device_alerts, partitioned by month of creation.
+-- Monthly partitions are created by the archival job before it moves alerts into them.
+CREATE TABLE iot.device_alerts_history (
+    alert_id BIGINT NOT NULL,
+    device_id BIGINT NOT NULL,
+    alert_type VARCHAR(50) NOT NULL,
+    severity VARCHAR(20) NOT NULL,
+    message TEXT NOT NULL,
+    additional_data JSONB,
+    status VARCHAR(20) NOT NULL,
+    created_by BIGINT,
+    acknowledged_by BIGINT,
+    resolved_by BIGINT,
+    created_at TIMESTAMPTZ NOT NULL,
+    updated_at TIMESTAMPTZ NOT NULL,
+    acknowledged_at TIMESTAMPTZ,
+    resolved_at TIMESTAMPTZ,
+    escalation_level SMALLINT NOT NULL DEFAULT 0,
+    archived_at TIMESTAMPTZ NOT NULL DEFAULT CURRENT_TIMESTAMP
+) PARTITION BY RANGE (created_at);
+
+-- Catches rows for months whose partition could not be created
+CREATE TABLE iot.device_alerts_history_default PARTITION OF iot.device_alerts_history DEFAULT;
+
+-- Add constraints
+ALTER TABLE iot.device_alerts_history
+    ADD CONSTRAINT pk_device_alerts_history PRIMARY KEY (alert_id, created_at);
+
+-- Create indexes
+CREATE INDEX idx_device_alerts_history_created_at ON iot.device_alerts_history(created_at);
+CREATE INDEX idx_device_alerts_history_device_created ON iot.device_alerts_history(device_id, created_at);
+
+-- The archival job reads the oldest archivable alerts first
+CREATE INDEX idx_device_alerts_archivable ON iot.device_alerts(COALESCE(resolved_at, updated_at))
+    WHERE status IN ('Resolved', 'Suppressed');
+
+-- Add comments for documentation
+COMMENT ON TABLE iot.device_alerts_history IS 'Archived resolved and suppressed alerts, partitioned by month of creation';
+COMMENT ON COLUMN iot.device_alerts_history.alert_id IS 'alert_id the alert had in device_alerts';
+COMMENT ON COLUMN iot.device_alerts_history.device_id IS 'Device that generated the alert; not a foreign key so history outlives devices';
+COMMENT ON COLUMN iot.device_alerts_history.archived_at IS 'When the alert was moved out of device_alerts';
+
+COMMIT;
@@ -0,0 +1,22 @@
+-- Migration script for full-text and containment search over the device_alerts table in iot schema
+-- Backs GET /api/v1/alerts/search
+
+BEGIN;
+
+-- Alert type words weigh more than message words in the ranking
+ALTER TABLE iot.device_alerts
+    ADD COLUMN search_vector TSVECTOR GENERATED ALWAYS AS (
+        setweight(to_tsvector('english', COALESCE(alert_type, '')), 'A') ||
+        setweight(to_tsvector('english', COALESCE(message, '')), 'B')
+    ) STORED;
+
+-- Create indexes
+CREATE INDEX idx_device_alerts_search_vector ON iot.device_alerts USING GIN (search_vector);
+
+-- jsonb_path_ops only supports @>, but is smaller and faster for it than the default operator class
+CREATE INDEX idx_device_alerts_additional_data ON iot.device_alerts USING GIN (additional_data jsonb_path_ops);
+
+-- Add comments for documentation
+COMMENT ON COLUMN iot.device_alerts.search_vector IS 'English text search vector of alert_type (weight A) and message (weight B)';
+
+COMMIT;
@@ -0,0 +1,87 @@
+package com.smartsolutions.smart_solutions.repository;
+
+import com.smartsolutions.smart_solutions.dto.AlertDTO;
+import com.smartsolutions.smart_solutions.dto.AlertSearchResultDTO;
+import com.smartsolutions.smart_solutions.model.Alert;
+import com.smartsolutions.smart_solutions.model.Device;
+import com.smartsolutions.smart_solutions.service.AlertSearchService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class AlertSearchQueryTests {
+
+	@Autowired
+	private AlertSearchService alertSearchService;
+
+	@Autowired
+	private AlertRepository alertRepository;
+
+	@Autowired
+	private DeviceRepository deviceRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private Device device;
+
+	@BeforeEach
+	void createAlerts() {
+		device = new Device();
+		device.setName("alert-search-device");
+		device.setStatus(Device.DeviceStatus.Active);
+		deviceRepository.save(device);
+
+		for (int i = 0; i < 25; i++) {
+			Alert alert = new Alert();
+			alert.setDevice(device);
+			// Every fifth alert mentions the compressor twice and should rank first
+			alert.setAlertType(i % 5 == 0 ? "COMPRESSOR_FAULT" : "TEMPERATURE_HIGH");
+			alert.setSeverity(Alert.Severity.High);
+			alert.setMessage(i % 5 == 0 ? "Compressor stalled, compressor restarted" : "Cabinet warm after compressor cycle " + i);
+			alert.setStatus(Alert.AlertStatus.Open);
+			alert.setAdditionalData(Map.of("serialNumber", "SN-" + (1000 + i)));
+			alertRepository.save(alert);
+		}
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	@Test
+	void keysetPagesCoverEveryMatchOnceBestFirst() {
+		List<AlertDTO> seen = new ArrayList<>();
+		String cursor = null;
+		do {
+			AlertSearchResultDTO page = alertSearchService.search(
+					"compressor", null, device.getId(), null, null, null, null, null, null, 7, cursor);
+			seen.addAll(page.getAlerts());
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+
+		assertThat(seen).hasSize(25);
+		assertThat(new HashSet<>(seen.stream().map(AlertDTO::getId).toList())).hasSize(25);
+		assertThat(seen.subList(0, 5)).allSatisfy(alert -> assertThat(alert.getAlertType()).isEqualTo("COMPRESSOR_FAULT"));
+	}
+
+	@Test
+	void additionalDataContainmentCombinesWithFilters() {
+		AlertSearchResultDTO page = alertSearchService.search(
+				null, "{\"serialNumber\": \"SN-1007\"}", device.getId(), null, Alert.Severity.High, null, null, null, null, 20, null);
+
+		assertThat(page.getAlerts()).singleElement()
+				.satisfies(alert -> assertThat(alert.getMessage()).isEqualTo("Cabinet warm after compressor cycle 7"));
+		assertThat(page.getNextCursor()).isNull();
+	}
+}
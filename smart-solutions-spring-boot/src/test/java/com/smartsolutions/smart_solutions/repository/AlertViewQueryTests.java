@@ -0,0 +1,132 @@
+package com.smartsolutions.smart_solutions.repository;
+
+import com.smartsolutions.smart_solutions.dto.AlertDTO;
+import com.smartsolutions.smart_solutions.model.Alert;
+import com.smartsolutions.smart_solutions.model.Device;
+import com.smartsolutions.smart_solutions.model.User;
+import com.smartsolutions.smart_solutions.service.ActiveAlertIndex;
+import com.smartsolutions.smart_solutions.service.AlertService;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.transaction.TestTransaction;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class AlertViewQueryTests {
+
+	@Autowired
+	private AlertService alertService;
+
+	@Autowired
+	private DeviceRepository deviceRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private AlertRepository alertRepository;
+
+	@Autowired
+	private ActiveAlertIndex activeAlertIndex;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private Device device;
+
+	@BeforeEach
+	void createAlerts() {
+		User operator = new User();
+		operator.setName("alert-view-operator");
+		operator.setEmail("alert-view-operator@example.com");
+		operator.setPassword("secret");
+		userRepository.save(operator);
+
+		device = new Device();
+		device.setName("alert-view-device");
+		device.setStatus(Device.DeviceStatus.Active);
+		deviceRepository.save(device);
+
+		for (int i = 0; i < 45; i++) {
+			Alert alert = new Alert();
+			alert.setDevice(device);
+			alert.setAlertType("TEMPERATURE_HIGH");
+			alert.setSeverity(Alert.Severity.values()[i % Alert.Severity.values().length]);
+			alert.setMessage("Alert " + i);
+			alert.setStatus(i % 2 == 0 ? Alert.AlertStatus.Open : Alert.AlertStatus.Acknowledged);
+			alert.setCreatedBy(operator);
+			alert.setAcknowledgedBy(i % 2 == 0 ? null : operator);
+			alertRepository.save(alert);
+		}
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	@Test
+	void pageCostsTwoStatementsRegardlessOfSize() {
+		assertThat(statementsForPage(5)).isEqualTo(2);
+		assertThat(statementsForPage(20)).isEqualTo(2);
+	}
+
+	@Test
+	void viewCarriesJoinedNames() {
+		// Acknowledged is answered by ActiveAlertIndex; its rebuild reads through this test's
+		// transaction, so it sees the seeded alerts the after-commit events never deliver
+		activeAlertIndex.rebuild();
+		Page<AlertDTO> page = alertService.findAlertViewsWithFilters(
+				device.getId(), null, null, Alert.AlertStatus.Acknowledged, null, null, null, PageRequest.of(0, 5));
+
+		assertThat(page.getTotalElements()).isEqualTo(22);
+		assertThat(page.getContent()).allSatisfy(alert -> {
+			assertThat(alert.getDeviceName()).isEqualTo("alert-view-device");
+			assertThat(alert.getCreatedBy()).isEqualTo("alert-view-operator");
+			assertThat(alert.isAcknowledged()).isTrue();
+		});
+
+		// Drop the seeded alerts from the shared index again once they are rolled back
+		TestTransaction.end();
+		activeAlertIndex.rebuild();
+	}
+
+	@Test
+	void latestAlertsForManyDevicesCostOneStatement() {
+		Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		Map<Long, List<AlertDTO>> latest = alertService.findLatestAlertViews(List.of(device.getId(), -1L), 3);
+
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(latest.get(-1L)).isEmpty();
+		assertThat(latest.get(device.getId())).hasSize(3)
+				.extracting(AlertDTO::getCreatedAt)
+				.isSortedAccordingTo(Comparator.reverseOrder());
+	}
+
+	private long statementsForPage(int size) {
+		Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		Page<AlertDTO> page = alertService.findAlertViewsWithFilters(
+				device.getId(), null, null, null, null, null, null,
+				PageRequest.of(1, size, Sort.by(Sort.Direction.DESC, "createdAt")));
+		assertThat(page.getContent()).hasSize(size);
+		entityManager.clear();
+
+		return statistics.getPrepareStatementCount();
+	}
+}
@@ -0,0 +1,104 @@
+package com.smartsolutions.smart_solutions.repository;
+
+import com.smartsolutions.smart_solutions.dto.DeviceDTO;
+import com.smartsolutions.smart_solutions.service.DeviceService;
+import com.smartsolutions.smart_solutions.util.DeviceMapper;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Statement counts over 10k devices x 100 alerts, seeded inside the test transaction and rolled back.
+// The time of each path is reported as a test report entry for comparison, never asserted on.
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class DeviceViewQueryTests {
+
+	private static final int DEVICES = 10_000;
+	private static final int ALERTS_PER_DEVICE = 100;
+
+	@Autowired
+	private DeviceService deviceService;
+
+	@Autowired
+	private DeviceRepository deviceRepository;
+
+	@Autowired
+	private DeviceMapper deviceMapper;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@BeforeEach
+	void seed() {
+		jdbcTemplate.update(
+				"INSERT INTO iot.devices (device_name, serial_number, status) " +
+				"SELECT 'bench-device-' || i, 'BENCH-' || i, 'Active' FROM generate_series(1, ?) AS i",
+				DEVICES);
+		jdbcTemplate.update(
+				"INSERT INTO iot.device_alerts (device_id, alert_type, severity, message, status) " +
+				"SELECT d.device_id, 'BENCH', 'Low', 'bench', 'Open' " +
+				"FROM iot.devices d CROSS JOIN generate_series(1, ?) " +
+				"WHERE d.serial_number LIKE 'BENCH-%'",
+				ALERTS_PER_DEVICE);
+		entityManager.clear();
+	}
+
+	@Test
+	void listingCostsTwoStatementsPerPage(TestReporter reporter) {
+		Statistics statistics = statistics();
+		Pageable pageable = PageRequest.of(1, 1000, Sort.by("id"));
+
+		statistics.clear();
+		long began = System.nanoTime();
+		Page<DeviceDTO> page = deviceService.getAllDevices(pageable);
+		long viewNanos = System.nanoTime() - began;
+
+		// Page and count
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+		assertThat(page.getContent()).hasSize(1000);
+		assertThat(page.getContent())
+				.filteredOn(device -> device.getName().startsWith("bench-device-"))
+				.allSatisfy(device -> assertThat(device.getAlertsCount()).isEqualTo(ALERTS_PER_DEVICE));
+
+		// The previous path: entity page, then the mapper initializing each alerts collection
+		entityManager.clear();
+		statistics.clear();
+		began = System.nanoTime();
+		List<DeviceDTO> legacy = deviceRepository.findAll(pageable).map(device -> {
+			device.getAlerts().size();
+			return deviceMapper.toDto(device);
+		}).getContent();
+		long legacyNanos = System.nanoTime() - began;
+		reporter.publishEntry(Map.of(
+				"viewMillis", String.valueOf(TimeUnit.NANOSECONDS.toMillis(viewNanos)),
+				"entityMappingMillis", String.valueOf(TimeUnit.NANOSECONDS.toMillis(legacyNanos))));
+
+		// Page and count, then one statement per device for its alerts
+		assertThat(legacy).hasSize(1000);
+		assertThat(statistics.getPrepareStatementCount()).isGreaterThanOrEqualTo(2 + legacy.size());
+	}
+
+	private Statistics statistics() {
+		return entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+	}
+}
@@ -0,0 +1,128 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.dto.AlertDTO;
+import com.smartsolutions.smart_solutions.event.AlertLifecycleEvent;
+import com.smartsolutions.smart_solutions.model.Alert;
+import com.smartsolutions.smart_solutions.repository.AlertRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ActiveAlertIndexTests {
+
+	// Rows the rebuild's snapshot query returns
+	private final List<AlertDTO> stored = new ArrayList<>();
+
+	// Runs while the snapshot loads, standing in for transactions that commit meanwhile
+	private Runnable duringSnapshot = () -> {
+	};
+
+	private final AlertRepository alertRepository = (AlertRepository) Proxy.newProxyInstance(
+			AlertRepository.class.getClassLoader(), new Class<?>[]{AlertRepository.class},
+			(proxy, method, args) -> {
+				if (!method.getName().equals("findAlertViews")) {
+					throw new UnsupportedOperationException(method.getName());
+				}
+				List<AlertDTO> snapshot = List.copyOf(stored);
+				duringSnapshot.run();
+				return new PageImpl<>(snapshot);
+			});
+
+	private final ActiveAlertIndex index = new ActiveAlertIndex(alertRepository, new SimpleMeterRegistry());
+
+	@Test
+	void transitionsIndexAndUnindexAlerts() {
+		index.rebuild();
+		index.onAlertChanged(event(AlertLifecycleEvent.Type.CREATED, alert(1, 10, Alert.Severity.High, Alert.AlertStatus.Open)));
+		index.onAlertChanged(event(AlertLifecycleEvent.Type.CREATED, alert(2, 10, Alert.Severity.Low, Alert.AlertStatus.Open)));
+		index.onAlertChanged(event(AlertLifecycleEvent.Type.CREATED, alert(3, 20, Alert.Severity.High, Alert.AlertStatus.Open)));
+
+		index.onAlertChanged(event(AlertLifecycleEvent.Type.ACKNOWLEDGED, alert(1, 10, Alert.Severity.High, Alert.AlertStatus.Acknowledged)));
+		assertThat(ids(index.find(10L, null, null, Alert.AlertStatus.Acknowledged, null, null, null, Pageable.unpaged())))
+				.containsExactly(1L);
+		assertThat(ids(index.find(null, null, Alert.Severity.High, Alert.AlertStatus.Open, null, null, null, Pageable.unpaged())))
+				.containsExactly(3L);
+
+		index.onAlertChanged(event(AlertLifecycleEvent.Type.RESOLVED, alert(1, 10, Alert.Severity.High, Alert.AlertStatus.Resolved)));
+		index.onAlertChanged(event(AlertLifecycleEvent.Type.SUPPRESSED, alert(2, 10, Alert.Severity.Low, Alert.AlertStatus.Suppressed)));
+		index.onAlertChanged(event(AlertLifecycleEvent.Type.DELETED, alert(3, 20, Alert.Severity.High, Alert.AlertStatus.Open)));
+
+		assertThat(index.find(null, null, null, null, true, null, null, Pageable.unpaged())).isEmpty();
+		assertThat(index.find(10L, null, null, null, null, null, null, Pageable.unpaged())).isEmpty();
+		assertThat(index.find(null, null, Alert.Severity.High, null, null, null, null, Pageable.unpaged())).isEmpty();
+	}
+
+	@Test
+	void rebuildReplaysChangesCommittedWhileTheSnapshotLoads() {
+		stored.add(alert(1, 10, Alert.Severity.High, Alert.AlertStatus.Open));
+		stored.add(alert(2, 10, Alert.Severity.Low, Alert.AlertStatus.Open));
+		index.rebuild();
+		assertThat(index.isReady()).isTrue();
+
+		// The snapshot still has both alerts open, but alert 1 was resolved and alert 3 created meanwhile
+		duringSnapshot = () -> {
+			index.onAlertChanged(event(AlertLifecycleEvent.Type.RESOLVED, alert(1, 10, Alert.Severity.High, Alert.AlertStatus.Resolved)));
+			index.onAlertChanged(event(AlertLifecycleEvent.Type.CREATED, alert(3, 10, Alert.Severity.Critical, Alert.AlertStatus.Open)));
+		};
+		index.rebuild();
+
+		assertThat(ids(index.find(10L, null, null, null, true, null, null, PageRequest.of(0, 10, Sort.by("id")))))
+				.containsExactly(2L, 3L);
+		assertThat(index.findCriticalUnacknowledged()).extracting(AlertDTO::getId).containsExactly(3L);
+	}
+
+	@Test
+	void failedRebuildKeepsTheCurrentIndex() {
+		stored.add(alert(1, 10, Alert.Severity.High, Alert.AlertStatus.Open));
+		index.rebuild();
+
+		duringSnapshot = () -> {
+			throw new IllegalStateException("connection lost");
+		};
+		index.rebuild();
+		index.onAlertChanged(event(AlertLifecycleEvent.Type.CREATED, alert(2, 10, Alert.Severity.High, Alert.AlertStatus.Open)));
+
+		assertThat(ids(index.find(10L, null, null, null, null, null, null, PageRequest.of(0, 10, Sort.by("id")))))
+				.containsExactly(1L, 2L);
+	}
+
+	@Test
+	void servesOnlyActiveFiltersOnceBuilt() {
+		Pageable byCreatedAt = PageRequest.of(0, 10, Sort.by("createdAt"));
+		assertThat(index.canServe(Alert.AlertStatus.Open, null, byCreatedAt)).isFalse();
+
+		index.rebuild();
+
+		assertThat(index.canServe(Alert.AlertStatus.Open, null, byCreatedAt)).isTrue();
+		assertThat(index.canServe(null, true, byCreatedAt)).isTrue();
+		assertThat(index.canServe(Alert.AlertStatus.Resolved, null, byCreatedAt)).isFalse();
+		assertThat(index.canServe(null, null, byCreatedAt)).isFalse();
+		assertThat(index.canServe(Alert.AlertStatus.Open, null, PageRequest.of(0, 10, Sort.by("message")))).isFalse();
+	}
+
+	private static List<Long> ids(Iterable<AlertDTO> alerts) {
+		List<Long> ids = new ArrayList<>();
+		alerts.forEach(alert -> ids.add(alert.getId()));
+		return ids;
+	}
+
+	private static AlertLifecycleEvent event(AlertLifecycleEvent.Type type, AlertDTO alert) {
+		return new AlertLifecycleEvent(type, alert, null, Instant.now());
+	}
+
+	private static AlertDTO alert(long id, long deviceId, Alert.Severity severity, Alert.AlertStatus status) {
+		return new AlertDTO(id, "TEMPERATURE_HIGH", severity, "Alert " + id, status, null,
+				deviceId, "device-" + deviceId, null, null, null, null,
+				Instant.parse("2024-03-01T10:00:00Z").plusSeconds(id), null, null, null);
+	}
+}
@@ -0,0 +1,173 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.dto.AlertDTO;
+import com.smartsolutions.smart_solutions.dto.AlertHistogramBucketDTO;
+import com.smartsolutions.smart_solutions.dto.AlertHistogramDTO;
+import com.smartsolutions.smart_solutions.event.AlertLifecycleEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AlertAnalyticsServiceTests {
+
+	private static final Duration HOUR = Duration.ofHours(1);
+	private static final Duration DAY = Duration.ofDays(1);
+
+	private final Instant currentHour = Instant.now().truncatedTo(ChronoUnit.HOURS);
+
+	// Alert counts per group stored in each bucket, as the histogram query would find them
+	private final Map<Instant, Map<String, Long>> stored = new ConcurrentHashMap<>();
+
+	// The [from, to) range of every histogram query
+	private final List<Instant[]> queries = new ArrayList<>();
+
+	// Runs while a query is reading, to interleave alert changes with it
+	private Runnable duringQuery = () -> {
+	};
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+		@Override
+		public void query(String sql, RowCallbackHandler rch, Object... args) {
+			Instant from = ((OffsetDateTime) args[1]).toInstant();
+			Instant to = ((OffsetDateTime) args[2]).toInstant();
+			queries.add(new Instant[]{from, to});
+			duringQuery.run();
+			stored.forEach((bucket, counts) -> {
+				if (!bucket.isBefore(from) && bucket.isBefore(to)) {
+					counts.forEach((group, count) -> {
+						try {
+							rch.processRow(resultSet(bucket, group, count));
+						} catch (SQLException e) {
+							throw new IllegalStateException(e);
+						}
+					});
+				}
+			});
+		}
+	};
+
+	// Nothing archived yet, so every query reads the live table only
+	private final AlertArchivalService alertArchivalService =
+			new AlertArchivalService(jdbcTemplate, null, null, meterRegistry, 30, 2000);
+
+	private final AlertAnalyticsService service =
+			new AlertAnalyticsService(jdbcTemplate, alertArchivalService, meterRegistry, 10_000, 50_000, 32);
+
+	@Test
+	void closedBucketsAreQueriedOnceAndThenServedFromTheCache() {
+		stored.put(hoursAgo(5), Map.of("High", 2L));
+		stored.put(hoursAgo(3), Map.of("Low", 1L));
+
+		AlertHistogramDTO cold = hourly(hoursAgo(6), hoursAgo(1));
+		AlertHistogramDTO warm = hourly(hoursAgo(6), hoursAgo(1));
+
+		assertThat(totals(cold)).containsExactly(0L, 2L, 0L, 1L, 0L);
+		assertThat(totals(warm)).containsExactly(0L, 2L, 0L, 1L, 0L);
+		assertThat(warm.getBuckets().get(1).getCounts()).containsExactly(Map.entry("High", 2L));
+		assertThat(queries).hasSize(1);
+		assertThat(queries.get(0)).containsExactly(hoursAgo(6), hoursAgo(1));
+		assertThat(meterRegistry.get("alerts.analytics.buckets.queried").counter().count()).isEqualTo(5);
+		assertThat(meterRegistry.get("alerts.analytics.buckets.cached").counter().count()).isEqualTo(5);
+	}
+
+	@Test
+	void currentBucketIsReadEveryTime() {
+		Instant today = Instant.now().truncatedTo(ChronoUnit.DAYS);
+		stored.put(today.minus(DAY.multipliedBy(2)), Map.of("All", 3L));
+		service.histogram(today.minus(DAY.multipliedBy(3)), today.plus(DAY), 1440, AlertAnalyticsService.GroupBy.NONE);
+
+		stored.put(today, Map.of("All", 4L));
+		AlertHistogramDTO histogram = service.histogram(
+				today.minus(DAY.multipliedBy(3)), today.plus(DAY), 1440, AlertAnalyticsService.GroupBy.NONE);
+
+		assertThat(totals(histogram)).containsExactly(0L, 3L, 0L, 4L);
+		assertThat(queries).hasSize(2);
+		assertThat(queries.get(1)).containsExactly(today, today.plus(DAY));
+	}
+
+	@Test
+	void changedAlertEvictsOnlyTheBucketItWasCreatedIn() {
+		stored.put(hoursAgo(3), Map.of("Low", 1L));
+		hourly(hoursAgo(6), hoursAgo(1));
+
+		// Escalated from Low to High; acknowledging another alert leaves its bucket alone
+		stored.put(hoursAgo(3), Map.of("High", 1L));
+		service.onAlertChanged(event(AlertLifecycleEvent.Type.ESCALATED, hoursAgo(3).plus(Duration.ofMinutes(10))));
+		service.onAlertChanged(event(AlertLifecycleEvent.Type.ACKNOWLEDGED, hoursAgo(5).plus(Duration.ofMinutes(10))));
+		AlertHistogramDTO histogram = hourly(hoursAgo(6), hoursAgo(1));
+
+		assertThat(histogram.getBuckets().get(3).getCounts()).containsExactly(Map.entry("High", 1L));
+		// Cached up to the evicted bucket, read from there on
+		assertThat(queries).hasSize(2);
+		assertThat(queries.get(1)).containsExactly(hoursAgo(3), hoursAgo(1));
+		assertThat(meterRegistry.get("alerts.analytics.buckets.cached").counter().count()).isEqualTo(3);
+
+		hourly(hoursAgo(6), hoursAgo(1));
+		assertThat(queries).hasSize(2);
+	}
+
+	@Test
+	void resultOfAQueryThatRacedWithAnEvictionIsNotCached() {
+		stored.put(hoursAgo(2), Map.of("Low", 1L));
+		duringQuery = () -> service.onAlertChanged(event(AlertLifecycleEvent.Type.CREATED, hoursAgo(2)));
+		hourly(hoursAgo(6), hoursAgo(1));
+
+		duringQuery = () -> {
+		};
+		hourly(hoursAgo(6), hoursAgo(1));
+		hourly(hoursAgo(6), hoursAgo(1));
+
+		// The first read may have missed the new alert, so the whole range is read again once
+		assertThat(queries).hasSize(2);
+		assertThat(queries.get(1)).containsExactly(hoursAgo(6), hoursAgo(1));
+	}
+
+	private AlertHistogramDTO hourly(Instant from, Instant to) {
+		return service.histogram(from, to, 60, AlertAnalyticsService.GroupBy.SEVERITY);
+	}
+
+	private Instant hoursAgo(int hours) {
+		return currentHour.minus(HOUR.multipliedBy(hours));
+	}
+
+	private static List<Long> totals(AlertHistogramDTO histogram) {
+		return histogram.getBuckets().stream().map(AlertHistogramBucketDTO::getTotal).toList();
+	}
+
+	private static AlertLifecycleEvent event(AlertLifecycleEvent.Type type, Instant createdAt) {
+		AlertDTO alert = new AlertDTO();
+		alert.setId(1L);
+		alert.setCreatedAt(LocalDateTime.ofInstant(createdAt, ZoneId.systemDefault()));
+		return new AlertLifecycleEvent(type, alert, null, Instant.now());
+	}
+
+	private static ResultSet resultSet(Instant bucket, String group, long count) {
+		return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+				(proxy, method, args) -> switch (method.getName()) {
+					case "getObject" -> OffsetDateTime.ofInstant(bucket, ZoneOffset.UTC);
+					case "getString" -> group;
+					case "getLong" -> count;
+					default -> throw new UnsupportedOperationException(method.getName());
+				});
+	}
+}
@@ -0,0 +1,128 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.dto.AlertDTO;
+import com.smartsolutions.smart_solutions.model.Alert;
+import com.smartsolutions.smart_solutions.model.Device;
+import com.smartsolutions.smart_solutions.repository.DeviceRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Commits for real: archiving moves rows between tables and VACUUM cannot run in a transaction
+@SpringBootTest
+class AlertArchivalTests {
+
+	private static final int ALERTS_PER_ROUND = 5000;
+	private static final int ROUNDS = 5;
+
+	private static final String INSERT_RESOLVED =
+			"INSERT INTO iot.device_alerts (device_id, alert_type, severity, message, status, created_at, updated_at, resolved_at) " +
+			"VALUES (?, 'POWER_LOSS', 'Low', ?, 'Resolved', ?, ?, ?)";
+
+	private static final String HOT_INDEX_BYTES = "SELECT pg_indexes_size('iot.device_alerts')";
+
+	@Autowired
+	private AlertArchivalService alertArchivalService;
+
+	@Autowired
+	private AlertService alertService;
+
+	@Autowired
+	private AlertCounterService alertCounterService;
+
+	@Autowired
+	private DeviceRepository deviceRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private Device device;
+
+	@BeforeEach
+	void createDevice() {
+		device = new Device();
+		device.setName("archival-device");
+		device.setStatus(Device.DeviceStatus.Active);
+		deviceRepository.save(device);
+	}
+
+	@AfterEach
+	void deleteArchived() {
+		jdbcTemplate.update("DELETE FROM iot.device_alerts_history WHERE device_id = ?", device.getId());
+		deviceRepository.deleteById(device.getId());
+	}
+
+	@Test
+	void hotIndexesStayFlatWhileHistoryGrows() {
+		List<Long> indexBytes = new ArrayList<>();
+		for (int round = 0; round < ROUNDS; round++) {
+			insertResolved(ALERTS_PER_ROUND, Instant.now().minus(Duration.ofDays(100)));
+
+			assertThat(alertArchivalService.archiveBefore(Instant.now().minus(Duration.ofDays(30))))
+					.isGreaterThanOrEqualTo(ALERTS_PER_ROUND);
+			jdbcTemplate.execute("VACUUM iot.device_alerts");
+			indexBytes.add(jdbcTemplate.queryForObject(HOT_INDEX_BYTES, Long.class));
+		}
+
+		// Freed index pages are reused by the next round instead of the indexes growing with the history
+		assertThat(indexBytes.get(ROUNDS - 1)).isLessThanOrEqualTo(indexBytes.get(0) * 11 / 10);
+		assertThat(jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM iot.device_alerts_history WHERE device_id = ?", Long.class, device.getId()))
+				.isEqualTo((long) ALERTS_PER_ROUND * ROUNDS);
+	}
+
+	@Test
+	void listingsReachIntoHistoryOnlyForOldRanges() {
+		insertResolved(10, Instant.now().minus(Duration.ofDays(100)));
+		alertArchivalService.archiveBefore(Instant.now().minus(Duration.ofDays(30)));
+
+		Page<AlertDTO> allTime = alertService.findAlertViewsWithFilters(
+				device.getId(), null, null, null, null, null, null,
+				PageRequest.of(0, 5, Sort.by(Sort.Direction.DESC, "createdAt")));
+		assertThat(allTime.getTotalElements()).isEqualTo(10);
+		assertThat(allTime.getContent()).allSatisfy(alert -> {
+			assertThat(alert.getDeviceName()).isEqualTo("archival-device");
+			assertThat(alert.getStatus()).isEqualTo("Resolved");
+		});
+
+		Page<AlertDTO> lastWeek = alertService.findAlertViewsWithFilters(
+				device.getId(), null, null, null, null, Instant.now().minus(Duration.ofDays(7)), null,
+				PageRequest.of(0, 5));
+		assertThat(lastWeek.getTotalElements()).isZero();
+	}
+
+	// Counted like AlertService.createAlert would, so archiving brings the counters back
+	private void insertResolved(int count, Instant resolvedAt) {
+		OffsetDateTime resolved = OffsetDateTime.ofInstant(resolvedAt, ZoneOffset.UTC);
+		List<Object[]> rows = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			rows.add(new Object[]{device.getId(), "Archived alert " + i, resolved.minusHours(1), resolved, resolved});
+		}
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			jdbcTemplate.batchUpdate(INSERT_RESOLVED, rows);
+			alertCounterService.applyDeltas(Map.of(new AlertCounterService.CounterKey(
+					Alert.Severity.Low, Alert.AlertStatus.Resolved, AlertCounterService.NO_DEVICE_TYPE), (long) count));
+		});
+	}
+}
@@ -0,0 +1,142 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.dto.BulkAlertRequest;
+import com.smartsolutions.smart_solutions.dto.BulkAlertResultDTO;
+import com.smartsolutions.smart_solutions.exception.BadRequestException;
+import com.smartsolutions.smart_solutions.model.Alert;
+import com.smartsolutions.smart_solutions.model.Device;
+import com.smartsolutions.smart_solutions.model.User;
+import com.smartsolutions.smart_solutions.repository.DeviceRepository;
+import com.smartsolutions.smart_solutions.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// A small chunk size so a few dozen alerts span several chunks
+@SpringBootTest(properties = "alerts.bulk.chunk-size=7")
+@Transactional
+class AlertBulkOperationTests {
+
+	private static final int ALERTS = 30;
+
+	@Autowired
+	private AlertService alertService;
+
+	@Autowired
+	private AlertTransitionService alertTransitionService;
+
+	@Autowired
+	private DeviceRepository deviceRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private User operator;
+
+	private Device device;
+
+	private final List<Long> alertIds = new ArrayList<>();
+
+	@BeforeEach
+	void createAlerts() {
+		operator = new User();
+		operator.setName("bulk-operator");
+		operator.setEmail("bulk-operator@example.com");
+		operator.setPassword("secret");
+		userRepository.save(operator);
+
+		device = new Device();
+		device.setName("bulk-device");
+		device.setStatus(Device.DeviceStatus.Active);
+		deviceRepository.save(device);
+
+		for (int i = 0; i < ALERTS; i++) {
+			Alert alert = new Alert();
+			alert.setDevice(device);
+			alert.setAlertType(i % 2 == 0 ? "POWER_LOSS" : "TEMPERATURE_HIGH");
+			alert.setSeverity(i % 3 == 0 ? Alert.Severity.Critical : Alert.Severity.Low);
+			alert.setMessage("Bulk alert " + i);
+			alert.setStatus(Alert.AlertStatus.Open);
+			alertIds.add(alertService.createAlert(alert).getId());
+		}
+	}
+
+	@Test
+	void criteriaWalkEveryChunkOfTheKeyset() {
+		BulkAlertResultDTO result = alertTransitionService.apply(AlertTransitionService.Action.ACKNOWLEDGE,
+				BulkAlertRequest.builder().deviceId(device.getId()).build(), operator.getId());
+
+		// Four full ranges of 7 and the open-ended rest
+		assertThat(result.getAffected()).isEqualTo(ALERTS);
+		assertThat(result.getChunks()).isEqualTo(5);
+		assertThat(statusCount(Alert.AlertStatus.Acknowledged)).isEqualTo(ALERTS);
+	}
+
+	@Test
+	void walkReachesMatchesPastTheFirstChunk() {
+		// Acknowledge everything but the last alert, so the only open one lies beyond the first chunk
+		alertTransitionService.apply(AlertTransitionService.Action.ACKNOWLEDGE,
+				BulkAlertRequest.builder().alertIds(alertIds.subList(0, ALERTS - 1)).build(), operator.getId());
+
+		BulkAlertResultDTO result = alertTransitionService.apply(AlertTransitionService.Action.RESOLVE,
+				BulkAlertRequest.builder().deviceId(device.getId()).status(Alert.AlertStatus.Open).build(), operator.getId());
+
+		assertThat(result.getAffected()).isEqualTo(1);
+		assertThat(statusCount(Alert.AlertStatus.Resolved)).isEqualTo(1);
+		assertThat(jdbcTemplate.queryForObject("SELECT status FROM iot.device_alerts WHERE alert_id = ?",
+				String.class, alertIds.get(ALERTS - 1))).isEqualTo("Resolved");
+	}
+
+	@Test
+	void criteriaCombineAndSkipAlertsTheActionDoesNotApplyTo() {
+		alertService.resolveAlert(alertIds.get(0), operator.getId());
+
+		BulkAlertResultDTO result = alertTransitionService.apply(AlertTransitionService.Action.SUPPRESS,
+				BulkAlertRequest.builder().deviceId(device.getId()).severity(Alert.Severity.Critical).alertType("POWER_LOSS").build(),
+				null);
+
+		// Critical POWER_LOSS alerts are every sixth one; the first is already resolved
+		assertThat(result.getAffected()).isEqualTo(ALERTS / 6 - 1);
+		assertThat(statusCount(Alert.AlertStatus.Suppressed)).isEqualTo(ALERTS / 6 - 1);
+	}
+
+	@Test
+	void explicitIdsAreChunkedAndDeduplicated() {
+		List<Long> ids = new ArrayList<>(alertIds.subList(0, 20));
+		ids.addAll(alertIds.subList(0, 5));
+
+		BulkAlertResultDTO result = alertTransitionService.apply(AlertTransitionService.Action.DELETE,
+				BulkAlertRequest.builder().alertIds(ids).build(), null);
+
+		assertThat(result.getAffected()).isEqualTo(20);
+		assertThat(result.getChunks()).isEqualTo(3);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM iot.device_alerts WHERE device_id = ?",
+				Long.class, device.getId())).isEqualTo(ALERTS - 20);
+	}
+
+	@Test
+	void bulkWithoutIdsOrFiltersIsRejected() {
+		assertThatThrownBy(() -> alertTransitionService.apply(AlertTransitionService.Action.DELETE, new BulkAlertRequest(), null))
+				.isInstanceOf(BadRequestException.class);
+		assertThatThrownBy(() -> alertTransitionService.apply(AlertTransitionService.Action.ACKNOWLEDGE,
+				BulkAlertRequest.builder().deviceId(device.getId()).build(), null))
+				.isInstanceOf(BadRequestException.class);
+	}
+
+	private long statusCount(Alert.AlertStatus status) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM iot.device_alerts WHERE device_id = ? AND status = ?",
+				Long.class, device.getId(), status.name());
+	}
+}
@@ -0,0 +1,128 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.model.Alert;
+import com.smartsolutions.smart_solutions.model.Device;
+import com.smartsolutions.smart_solutions.model.DeviceType;
+import com.smartsolutions.smart_solutions.model.User;
+import com.smartsolutions.smart_solutions.repository.DeviceRepository;
+import com.smartsolutions.smart_solutions.repository.DeviceTypeRepository;
+import com.smartsolutions.smart_solutions.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Counts are read for a device type of the test's own, so alerts already in the database do not interfere
+@SpringBootTest
+@Transactional
+class AlertCounterTests {
+
+	@Autowired
+	private AlertService alertService;
+
+	@Autowired
+	private AlertCounterService alertCounterService;
+
+	@Autowired
+	private DeviceTypeRepository deviceTypeRepository;
+
+	@Autowired
+	private DeviceRepository deviceRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private Long typeId;
+
+	private Device device;
+
+	private User operator;
+
+	@BeforeEach
+	void createDevice() {
+		DeviceType type = new DeviceType();
+		type.setTypeName("alert-counter-type");
+		typeId = deviceTypeRepository.save(type).getId();
+
+		device = new Device();
+		device.setName("alert-counter-device");
+		device.setStatus(Device.DeviceStatus.Active);
+		device.setType(type);
+		deviceRepository.save(device);
+
+		operator = new User();
+		operator.setName("alert-counter-operator");
+		operator.setEmail("alert-counter-operator@example.com");
+		operator.setPassword("secret");
+		userRepository.save(operator);
+	}
+
+	@Test
+	void countersFollowCreateTransitionAndDelete() {
+		Alert first = create(Alert.Severity.High);
+		create(Alert.Severity.High);
+		Alert low = create(Alert.Severity.Low);
+		entityManager.flush();
+
+		assertThat(alertCounterService.countByStatus(typeId)).isEqualTo(Map.of(Alert.AlertStatus.Open, 3L));
+		assertThat(alertCounterService.countBySeverity(typeId))
+				.isEqualTo(Map.of(Alert.Severity.High, 2L, Alert.Severity.Low, 1L));
+
+		alertService.acknowledgeAlert(first.getId(), operator.getId());
+		alertService.resolveAlert(low.getId(), operator.getId());
+		assertThat(alertCounterService.countByStatus(typeId)).isEqualTo(Map.of(
+				Alert.AlertStatus.Open, 1L, Alert.AlertStatus.Acknowledged, 1L, Alert.AlertStatus.Resolved, 1L));
+
+		// The transitions ran as SQL, so reload the alert before deleting it in its new status
+		entityManager.clear();
+		alertService.deleteAlert(first.getId());
+		assertThat(alertCounterService.countByStatus(typeId))
+				.isEqualTo(Map.of(Alert.AlertStatus.Open, 1L, Alert.AlertStatus.Resolved, 1L));
+		assertThat(alertCounterService.countBySeverity(typeId))
+				.isEqualTo(Map.of(Alert.Severity.High, 1L, Alert.Severity.Low, 1L));
+	}
+
+	@Test
+	void reconcileRepairsCountersFromTheAlerts() {
+		Alert changedOutside = create(Alert.Severity.Medium);
+		create(Alert.Severity.Medium);
+		entityManager.flush();
+
+		// Drift: a status changed behind the service's back and a counter with no alerts behind it
+		jdbcTemplate.update("UPDATE iot.device_alerts SET status = 'Resolved' WHERE alert_id = ?", changedOutside.getId());
+		jdbcTemplate.update("INSERT INTO iot.alert_counters (severity, status, device_type_id, alert_count) " +
+				"VALUES ('Critical', 'Open', ?, 4)", typeId);
+		assertThat(alertCounterService.countByStatus(typeId)).isEqualTo(Map.of(Alert.AlertStatus.Open, 6L));
+
+		alertCounterService.reconcile();
+
+		assertThat(alertCounterService.countByStatus(typeId))
+				.isEqualTo(Map.of(Alert.AlertStatus.Open, 1L, Alert.AlertStatus.Resolved, 1L));
+		assertThat(alertCounterService.countBySeverity(typeId)).isEqualTo(Map.of(Alert.Severity.Medium, 2L));
+		assertThat(jdbcTemplate.queryForObject("SELECT alert_count FROM iot.alert_counters " +
+				"WHERE severity = 'Critical' AND status = 'Open' AND device_type_id = ?", Long.class, typeId)).isZero();
+	}
+
+	private Alert create(Alert.Severity severity) {
+		Alert alert = new Alert();
+		alert.setDevice(device);
+		alert.setAlertType("TEMPERATURE_HIGH");
+		alert.setSeverity(severity);
+		alert.setMessage("Counter test alert");
+		alert.setStatus(Alert.AlertStatus.Open);
+		return alertService.createAlert(alert);
+	}
+}
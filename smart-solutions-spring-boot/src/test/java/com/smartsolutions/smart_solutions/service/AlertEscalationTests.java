@@ -0,0 +1,193 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.dto.AlertDTO;
+import com.smartsolutions.smart_solutions.dto.BulkAlertRequest;
+import com.smartsolutions.smart_solutions.model.Alert;
+import com.smartsolutions.smart_solutions.model.Device;
+import com.smartsolutions.smart_solutions.model.User;
+import com.smartsolutions.smart_solutions.repository.DeviceRepository;
+import com.smartsolutions.smart_solutions.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Commits for real: timers are armed by after-commit listeners. Armed timers are read from the
+// pending gauge, relative to its value before each step, since the delays run to minutes.
+@SpringBootTest
+class AlertEscalationTests {
+
+	private static final String INSERT_PENDING =
+			"INSERT INTO iot.device_alerts (device_id, alert_type, severity, message, status, escalation_level, next_escalation_at) " +
+			"VALUES (?, 'POWER_LOSS', 'High', 'Inserted behind the service', ?, 1, ?)";
+
+	@Autowired
+	private AlertService alertService;
+
+	@Autowired
+	private AlertTransitionService alertTransitionService;
+
+	@Autowired
+	private AlertEscalationService alertEscalationService;
+
+	@Autowired
+	private DeviceRepository deviceRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private User operator;
+
+	private Device device;
+
+	@BeforeEach
+	void createDevice() {
+		operator = new User();
+		operator.setName("escalation-operator");
+		operator.setEmail("escalation-operator@example.com");
+		operator.setPassword("secret");
+		userRepository.save(operator);
+
+		device = new Device();
+		device.setName("escalation-device");
+		device.setStatus(Device.DeviceStatus.Active);
+		deviceRepository.save(device);
+	}
+
+	@AfterEach
+	void deleteAlerts() {
+		alertTransitionService.apply(AlertTransitionService.Action.DELETE,
+				BulkAlertRequest.builder().deviceId(device.getId()).build(), null);
+		deviceRepository.deleteById(device.getId());
+		userRepository.deleteById(operator.getId());
+	}
+
+	@Test
+	void timerIsArmedOnlyOnceTheAlertCommits() {
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		double before = pending();
+
+		Alert created = transaction.execute(status -> {
+			Alert alert = alertService.createAlert(alert(Alert.Severity.High));
+			assertThat(pending()).isEqualTo(before);
+			return alert;
+		});
+		assertThat(pending()).isEqualTo(before + 1);
+		assertThat(created.getEscalationLevel()).isZero();
+		assertThat(created.getNextEscalationAt()).isAfter(Instant.now());
+
+		transaction.executeWithoutResult(status -> {
+			alertService.createAlert(alert(Alert.Severity.Critical));
+			status.setRollbackOnly();
+		});
+		assertThat(pending()).isEqualTo(before + 1);
+
+		// Below the minimum severity nothing is planned or armed
+		Alert low = alertService.createAlert(alert(Alert.Severity.Low));
+		assertThat(low.getNextEscalationAt()).isNull();
+		assertThat(pending()).isEqualTo(before + 1);
+	}
+
+	@Test
+	void everyWayOutOfOpenDisarmsTheTimer() {
+		double before = pending();
+		Long acknowledged = alertService.createAlert(alert(Alert.Severity.High)).getId();
+		Long resolved = alertService.createAlert(alert(Alert.Severity.High)).getId();
+		Long suppressed = alertService.createAlert(alert(Alert.Severity.High)).getId();
+		Long deleted = alertService.createAlert(alert(Alert.Severity.High)).getId();
+		assertThat(pending()).isEqualTo(before + 4);
+
+		alertService.acknowledgeAlert(acknowledged, operator.getId());
+		alertService.resolveAlert(resolved, operator.getId());
+		alertTransitionService.transition(AlertTransitionService.Action.SUPPRESS, suppressed, null);
+		alertService.deleteAlert(deleted);
+
+		assertThat(pending()).isEqualTo(before);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM iot.device_alerts " +
+				"WHERE device_id = ? AND next_escalation_at IS NOT NULL", Long.class, device.getId())).isZero();
+	}
+
+	@Test
+	void escalationFiresOncePerLevel() {
+		Long alertId = alertService.createAlert(alert(Alert.Severity.Medium)).getId();
+		Instant next = Instant.now().plus(Duration.ofMinutes(30));
+
+		Optional<AlertDTO> first = alertTransitionService.escalate(alertId, 0, next);
+		// A duplicate or late timer for level 0 finds the alert already at level 1
+		Optional<AlertDTO> duplicate = alertTransitionService.escalate(alertId, 0, next);
+		Optional<AlertDTO> second = alertTransitionService.escalate(alertId, 1, null);
+
+		assertThat(first).get().extracting(AlertDTO::getSeverity).isEqualTo("High");
+		assertThat(duplicate).isEmpty();
+		assertThat(second).get().extracting(AlertDTO::getSeverity).isEqualTo("Critical");
+		assertThat(jdbcTemplate.queryForObject("SELECT escalation_level FROM iot.device_alerts WHERE alert_id = ?",
+				Integer.class, alertId)).isEqualTo(2);
+
+		alertService.acknowledgeAlert(alertId, operator.getId());
+		assertThat(alertTransitionService.escalate(alertId, 2, null)).isEmpty();
+	}
+
+	@Test
+	void recoveryRearmsPersistedDeadlinesOfOpenAlerts() throws InterruptedException {
+		OffsetDateTime inAnHour = OffsetDateTime.now(ZoneOffset.UTC).plusHours(1);
+		OffsetDateTime overdue = OffsetDateTime.now(ZoneOffset.UTC).minusHours(1);
+		jdbcTemplate.update(INSERT_PENDING, device.getId(), Alert.AlertStatus.Open.name(), inAnHour);
+		jdbcTemplate.update(INSERT_PENDING, device.getId(), Alert.AlertStatus.Unacknowledged.name(), inAnHour);
+		jdbcTemplate.update(INSERT_PENDING, device.getId(), Alert.AlertStatus.Resolved.name(), inAnHour);
+		double before = pending();
+
+		alertEscalationService.recover();
+
+		// Alerts armed before are re-armed in place, only the two inserted behind the service are new
+		assertThat(pending()).isEqualTo(before + 2);
+
+		// An overdue deadline fires on the first tick and escalates from the persisted level
+		Long overdueId = jdbcTemplate.queryForObject(INSERT_PENDING + " RETURNING alert_id", Long.class,
+				device.getId(), Alert.AlertStatus.Open.name(), overdue);
+		alertEscalationService.recover();
+		long deadline = System.currentTimeMillis() + 10_000;
+		Integer level = 1;
+		while (level == 1 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+			level = jdbcTemplate.queryForObject("SELECT escalation_level FROM iot.device_alerts WHERE alert_id = ?",
+					Integer.class, overdueId);
+		}
+		assertThat(level).isEqualTo(2);
+	}
+
+	private double pending() {
+		return meterRegistry.get("alerts.escalation.pending").gauge().value();
+	}
+
+	private Alert alert(Alert.Severity severity) {
+		Alert alert = new Alert();
+		alert.setDevice(device);
+		alert.setAlertType("POWER_LOSS");
+		alert.setSeverity(severity);
+		alert.setMessage("Escalation test alert");
+		alert.setStatus(Alert.AlertStatus.Open);
+		return alert;
+	}
+}
@@ -0,0 +1,202 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.dto.AlertDTO;
+import com.smartsolutions.smart_solutions.event.AlertLifecycleEvent;
+import com.smartsolutions.smart_solutions.model.Alert;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AlertStreamServiceTests {
+
+	private static final Pattern EVENT_ID = Pattern.compile("id:(\\d+)\\nevent:(\\w+)");
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final ExecutorService senderPool = Executors.newFixedThreadPool(2);
+
+	@AfterEach
+	void stopSenders() {
+		senderPool.shutdownNow();
+	}
+
+	@Test
+	void eventsFanOutToMatchingSubscribersInOrder() {
+		AlertStreamService stream = new AlertStreamService(meterRegistry, 16, 0, 8, 10_000, System::nanoTime, Runnable::run, Runnable::run);
+		RecordingEmitter everything = subscribe(stream, Set.of(), Set.of(), null);
+		RecordingEmitter high = subscribe(stream, Set.of(Alert.Severity.High), Set.of(), null);
+		RecordingEmitter device2 = subscribe(stream, Set.of(), Set.of(2L), null);
+
+		stream.onAlertChanged(event(1, Alert.Severity.High, 1));
+		stream.onAlertChanged(event(2, Alert.Severity.Low, 2));
+		stream.onAlertChanged(event(3, Alert.Severity.High, 2));
+
+		assertThat(everything.ids).containsExactly("1", "2", "3");
+		assertThat(high.ids).containsExactly("1", "3");
+		assertThat(device2.ids).containsExactly("2", "3");
+	}
+
+	@Test
+	void slowSubscriberIsEvictedWithoutHoldingBackOthers() throws InterruptedException {
+		AlertStreamService stream = new AlertStreamService(meterRegistry, 64, 0, 3, 10_000, System::nanoTime, Runnable::run, senderPool);
+		int events = 20;
+		RecordingEmitter fast = subscribe(stream, Set.of(), Set.of(), null);
+		RecordingEmitter slow = subscribe(stream, Set.of(), Set.of(), null);
+		slow.blocked = new CountDownLatch(1);
+
+		// The fast client keeps up with every event while the slow one is stuck in its first send
+		for (int i = 1; i <= events; i++) {
+			stream.onAlertChanged(event(i, Alert.Severity.Low, 1));
+			assertThat(fast.sent.tryAcquire(5, TimeUnit.SECONDS)).isTrue();
+		}
+
+		assertThat(fast.ids).hasSize(events);
+		assertThat(slow.completed.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(meterRegistry.get("alerts.stream.subscribers.evicted").counter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("alerts.stream.subscribers").gauge().value()).isEqualTo(1);
+
+		// The blocked send finally returns, and nothing more is written to the evicted client
+		slow.blocked.countDown();
+		stream.onAlertChanged(event(events + 1, Alert.Severity.Low, 1));
+		assertThat(slow.ids.size()).isLessThanOrEqualTo(1);
+	}
+
+	@Test
+	void stalledSendIsEvictedAndItsSenderReplaced() throws InterruptedException {
+		ThreadPoolExecutor singleSender = (ThreadPoolExecutor) Executors.newFixedThreadPool(1);
+		AtomicLong clock = new AtomicLong();
+		AlertStreamService stream = new AlertStreamService(meterRegistry, 16, 0, 8, 1000, clock::get,
+				Runnable::run, singleSender);
+		try {
+			RecordingEmitter stuck = subscribe(stream, Set.of(), Set.of(), null);
+			RecordingEmitter healthy = subscribe(stream, Set.of(), Set.of(), null);
+			stuck.blocked = new CountDownLatch(1);
+
+			// The only sender thread is stuck writing to the first client, so the second gets nothing
+			stream.onAlertChanged(event(1, Alert.Severity.Low, 1));
+			assertThat(stuck.sent.tryAcquire(5, TimeUnit.SECONDS)).isTrue();
+			assertThat(healthy.sent.tryAcquire(100, TimeUnit.MILLISECONDS)).isFalse();
+
+			// Not stalled yet
+			clock.set(TimeUnit.MILLISECONDS.toNanos(999));
+			stream.evictStalled();
+			assertThat(meterRegistry.get("alerts.stream.subscribers.stalled").counter().count()).isZero();
+
+			clock.set(TimeUnit.MILLISECONDS.toNanos(1001));
+			stream.evictStalled();
+			assertThat(healthy.sent.tryAcquire(5, TimeUnit.SECONDS)).isTrue();
+			stream.onAlertChanged(event(2, Alert.Severity.Low, 1));
+			assertThat(healthy.sent.tryAcquire(5, TimeUnit.SECONDS)).isTrue();
+			assertThat(healthy.ids).containsExactly("1", "2");
+			assertThat(meterRegistry.get("alerts.stream.subscribers.stalled").counter().count()).isEqualTo(1);
+			assertThat(meterRegistry.get("alerts.stream.subscribers").gauge().value()).isEqualTo(1);
+
+			// Once the stuck send returns, its client is closed and the stand-in thread retired
+			stuck.blocked.countDown();
+			assertThat(stuck.completed.await(5, TimeUnit.SECONDS)).isTrue();
+			assertThat(stuck.ids).containsExactly("1");
+			assertThat(singleSender.getCorePoolSize()).isEqualTo(1);
+		} finally {
+			singleSender.shutdownNow();
+		}
+	}
+
+	@Test
+	void reconnectReplaysMissedEventsOrResets() {
+		AlertStreamService stream = new AlertStreamService(meterRegistry, 4, 0, 8, 10_000, System::nanoTime, Runnable::run, Runnable::run);
+		for (int i = 1; i <= 6; i++) {
+			stream.onAlertChanged(event(i, i % 2 == 0 ? Alert.Severity.High : Alert.Severity.Low, 1));
+		}
+
+		RecordingEmitter caughtUp = subscribe(stream, Set.of(Alert.Severity.High), Set.of(), 3L);
+		RecordingEmitter tooFarBehind = subscribe(stream, Set.of(), Set.of(), 1L);
+		stream.onAlertChanged(event(7, Alert.Severity.High, 1));
+
+		assertThat(caughtUp.ids).containsExactly("4", "6", "7");
+		assertThat(tooFarBehind.names).containsExactly(AlertStreamService.RESET_EVENT, "created");
+		assertThat(tooFarBehind.ids).containsExactly("6", "7");
+	}
+
+	@Test
+	void failedSendUnsubscribes() {
+		AlertStreamService stream = new AlertStreamService(meterRegistry, 16, 0, 8, 10_000, System::nanoTime, Runnable::run, Runnable::run);
+		RecordingEmitter broken = subscribe(stream, Set.of(), Set.of(), null);
+		broken.fail = true;
+
+		stream.onAlertChanged(event(1, Alert.Severity.Low, 1));
+		stream.onAlertChanged(event(2, Alert.Severity.Low, 1));
+
+		assertThat(broken.attempts).isEqualTo(1);
+		assertThat(meterRegistry.get("alerts.stream.subscribers").gauge().value()).isZero();
+	}
+
+	private static RecordingEmitter subscribe(AlertStreamService stream, Set<Alert.Severity> severities,
+											  Set<Long> deviceIds, Long lastEventId) {
+		RecordingEmitter emitter = new RecordingEmitter();
+		stream.subscribe(emitter, severities, deviceIds, lastEventId);
+		return emitter;
+	}
+
+	private static AlertLifecycleEvent event(long alertId, Alert.Severity severity, long deviceId) {
+		AlertDTO alert = new AlertDTO(alertId, "TEMPERATURE_HIGH", severity, "Alert " + alertId, Alert.AlertStatus.Open,
+				null, deviceId, "device-" + deviceId, null, null, null, null, Instant.now(), null, null, null);
+		return new AlertLifecycleEvent(AlertLifecycleEvent.Type.CREATED, alert, null, Instant.now());
+	}
+
+	private static final class RecordingEmitter extends SseEmitter {
+		private final List<String> ids = new CopyOnWriteArrayList<>();
+		private final List<String> names = new CopyOnWriteArrayList<>();
+		private final CountDownLatch completed = new CountDownLatch(1);
+		private final Semaphore sent = new Semaphore(0);
+		private volatile CountDownLatch blocked;
+		private volatile boolean fail;
+		private volatile int attempts;
+
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			attempts++;
+			if (fail) {
+				throw new IOException("Broken pipe");
+			}
+			StringBuilder text = new StringBuilder();
+			builder.build().forEach(part -> text.append(part.getData()));
+			Matcher matcher = EVENT_ID.matcher(text);
+			if (matcher.find()) {
+				ids.add(matcher.group(1));
+				names.add(matcher.group(2));
+			}
+			sent.release();
+			if (blocked != null) {
+				try {
+					blocked.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		@Override
+		public void complete() {
+			completed.countDown();
+			super.complete();
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.dto.AlertDTO;
+import com.smartsolutions.smart_solutions.dto.BulkAlertRequest;
+import com.smartsolutions.smart_solutions.exception.ConflictException;
+import com.smartsolutions.smart_solutions.model.Alert;
+import com.smartsolutions.smart_solutions.model.Device;
+import com.smartsolutions.smart_solutions.model.User;
+import com.smartsolutions.smart_solutions.repository.DeviceRepository;
+import com.smartsolutions.smart_solutions.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Commits for real: the contenders run on their own threads and transactions
+@SpringBootTest
+class AlertTransitionConcurrencyTests {
+
+	private static final int ALERTS = 50;
+	private static final int OPERATORS = 16;
+
+	@Autowired
+	private AlertService alertService;
+
+	@Autowired
+	private AlertTransitionService alertTransitionService;
+
+	@Autowired
+	private AlertCounterService alertCounterService;
+
+	@Autowired
+	private DeviceRepository deviceRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	private User operator;
+
+	private Device device;
+
+	private final List<Long> alertIds = new ArrayList<>();
+
+	@BeforeEach
+	void createAlerts() {
+		operator = new User();
+		operator.setName("transition-operator");
+		operator.setEmail("transition-operator@example.com");
+		operator.setPassword("secret");
+		userRepository.save(operator);
+
+		device = new Device();
+		device.setName("transition-device");
+		device.setStatus(Device.DeviceStatus.Active);
+		deviceRepository.save(device);
+
+		for (int i = 0; i < ALERTS; i++) {
+			Alert alert = new Alert();
+			alert.setDevice(device);
+			alert.setAlertType("POWER_LOSS");
+			alert.setSeverity(Alert.Severity.Critical);
+			alert.setMessage("Alert " + i);
+			alert.setStatus(Alert.AlertStatus.Open);
+			alertIds.add(alertService.createAlert(alert).getId());
+		}
+	}
+
+	@AfterEach
+	void deleteAlerts() {
+		alertTransitionService.apply(AlertTransitionService.Action.DELETE,
+				BulkAlertRequest.builder().deviceId(device.getId()).build(), null);
+		deviceRepository.deleteById(device.getId());
+		userRepository.deleteById(operator.getId());
+	}
+
+	@Test
+	void everyAlertIsAcknowledgedExactlyOnceUnderContention(TestReporter reporter) throws Exception {
+		long acknowledgedBefore = alertCounterService.countByStatus(null).getOrDefault(Alert.AlertStatus.Acknowledged, 0L);
+		AtomicInteger acknowledged = new AtomicInteger();
+		AtomicInteger conflicts = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+
+		ExecutorService operators = Executors.newFixedThreadPool(OPERATORS);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < OPERATORS; i++) {
+			futures.add(operators.submit(() -> {
+				start.await();
+				for (Long alertId : alertIds) {
+					try {
+						alertService.acknowledgeAlert(alertId, operator.getId());
+						acknowledged.incrementAndGet();
+					} catch (ConflictException e) {
+						conflicts.incrementAndGet();
+					}
+				}
+				return null;
+			}));
+		}
+
+		long began = System.nanoTime();
+		start.countDown();
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		long elapsedNanos = System.nanoTime() - began;
+		operators.shutdown();
+
+		int attempts = ALERTS * OPERATORS;
+		reporter.publishEntry(Map.of(
+				"attempts", String.valueOf(attempts),
+				"elapsedMillis", String.valueOf(TimeUnit.NANOSECONDS.toMillis(elapsedNanos)),
+				"attemptsPerSecond", String.valueOf(attempts * TimeUnit.SECONDS.toNanos(1) / Math.max(elapsedNanos, 1))));
+		assertThat(acknowledged.get()).isEqualTo(ALERTS);
+		assertThat(conflicts.get()).isEqualTo(attempts - ALERTS);
+		assertThat(alertCounterService.countByStatus(null).getOrDefault(Alert.AlertStatus.Acknowledged, 0L))
+				.isEqualTo(acknowledgedBefore + ALERTS);
+	}
+
+	@Test
+	void editKeepsATransitionCommittedSinceTheAlertWasRead() {
+		Long alertId = alertIds.get(0);
+		AlertDTO stale = alertService.findAlertViewsWithFilters(device.getId(), null, null, null, null, null, null,
+				PageRequest.of(0, ALERTS)).getContent().stream()
+				.filter(alert -> alert.getId().equals(alertId)).findFirst().orElseThrow();
+		alertService.acknowledgeAlert(alertId, operator.getId());
+
+		stale.setMessage("Edited");
+		AlertDTO edited = alertService.updateAlert(alertId, stale);
+
+		assertThat(edited.getMessage()).isEqualTo("Edited");
+		assertThat(edited.getStatus()).isEqualTo("Acknowledged");
+		assertThat(edited.getAcknowledgedBy()).isEqualTo(operator.getName());
+	}
+
+	@Test
+	void resolvingTwiceIsAConflict() {
+		Long alertId = alertIds.get(0);
+
+		assertThat(alertService.resolveAlert(alertId, operator.getId()).getStatus()).isEqualTo("Resolved");
+
+		assertThatThrownBy(() -> alertService.resolveAlert(alertId, operator.getId()))
+				.isInstanceOf(ConflictException.class);
+	}
+}
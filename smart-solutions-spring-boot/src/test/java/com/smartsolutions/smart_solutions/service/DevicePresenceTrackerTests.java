@@ -0,0 +1,88 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.event.DevicePresenceEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DevicePresenceTrackerTests {
+
+	private final List<Object> events = new CopyOnWriteArrayList<>();
+
+	private final List<Object[]> writes = new CopyOnWriteArrayList<>();
+
+	// Devices without a type; flushed rows are captured instead of written
+	private final JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+		@Override
+		public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+			return List.of();
+		}
+
+		@Override
+		public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+			writes.addAll(batchArgs);
+			return new int[batchArgs.size()];
+		}
+	};
+
+	// Offline after one silent second, last_seen_at written at most once a minute
+	private final DevicePresenceTracker tracker = new DevicePresenceTracker(
+			jdbcTemplate, null, new DeviceTypeCapabilitiesCache(), events::add, new SimpleMeterRegistry(),
+			1, 1, 60_000, 10, 64);
+
+	@BeforeEach
+	void start() {
+		tracker.start();
+	}
+
+	@AfterEach
+	void stop() {
+		tracker.stop();
+	}
+
+	@Test
+	void readingsCoalesceIntoOneWriteAndSilenceTakesTheDeviceOffline() throws InterruptedException {
+		long now = System.currentTimeMillis();
+		for (int i = 0; i < 1000; i++) {
+			tracker.seen(7L, now + i);
+		}
+		tracker.flush();
+
+		assertThat(tracker.isOnline(7L)).isTrue();
+		assertThat(events).singleElement()
+				.satisfies(event -> assertThat(((DevicePresenceEvent) event).online()).isTrue());
+		assertThat(writes).singleElement()
+				.satisfies(row -> assertThat(row[0]).isEqualTo(true));
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (tracker.isOnline(7L) && System.nanoTime() < deadline) {
+			Thread.sleep(20);
+		}
+		tracker.flush();
+
+		assertThat(tracker.isOnline(7L)).isFalse();
+		assertThat(events).hasSize(2);
+		assertThat(((DevicePresenceEvent) events.get(1)).online()).isFalse();
+		assertThat(writes).hasSize(2);
+		assertThat(writes.get(1)[0]).isEqualTo(false);
+	}
+
+	@Test
+	void readingsWithinTheWindowKeepTheDeviceOnline() throws InterruptedException {
+		for (int i = 0; i < 15; i++) {
+			tracker.seen(8L, System.currentTimeMillis());
+			Thread.sleep(100);
+		}
+
+		assertThat(tracker.isOnline(8L)).isTrue();
+		assertThat(events).hasSize(1);
+	}
+}
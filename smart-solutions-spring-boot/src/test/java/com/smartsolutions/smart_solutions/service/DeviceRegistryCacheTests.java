@@ -0,0 +1,115 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.model.Device;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeviceRegistryCacheTests {
+
+	private final Map<Long, DeviceRegistryCache.DeviceSnapshot> rows = new ConcurrentHashMap<>();
+
+	private final AtomicInteger queries = new AtomicInteger();
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	// Answers the registry's lookups from `rows` by whichever key the statement filters on
+	private final JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+		@Override
+		@SuppressWarnings("unchecked")
+		public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+			queries.incrementAndGet();
+			Object key = args[0];
+			return (List<T>) rows.values().stream()
+					.filter(device -> sql.contains("device_id = ?") ? key.equals(device.id())
+							: sql.contains("serial_number = ?") ? key.equals(device.serialNumber())
+							: key.equals(device.macAddress()))
+					.toList();
+		}
+	};
+
+	private final DeviceRegistryCache cache = new DeviceRegistryCache(jdbcTemplate, null, meterRegistry, 2, 1000, 1000);
+
+	@BeforeEach
+	void connectListener() {
+		cache.listenerConnected();
+	}
+
+	@Test
+	void nothingIsCachedUntilTheListenerConnects() {
+		DeviceRegistryCache unconnected = new DeviceRegistryCache(jdbcTemplate, null, new SimpleMeterRegistry(), 2, 1000, 1000);
+		store(7, "SN-7", null);
+
+		unconnected.findById(7);
+		unconnected.findById(7);
+		assertThat(unconnected.size()).isZero();
+		assertThat(queries).hasValue(2);
+
+		unconnected.listenerConnected();
+		unconnected.findById(7);
+		unconnected.findById(7);
+		assertThat(queries).hasValue(3);
+	}
+
+	@Test
+	void oneLoadServesEveryKey() {
+		store(7, "SN-7", "00:00:00:00:00:07");
+
+		assertThat(cache.findBySerialNumber("SN-7")).get().extracting(DeviceRegistryCache.DeviceSnapshot::id).isEqualTo(7L);
+		assertThat(cache.findById(7)).isPresent();
+		assertThat(cache.findByMacAddress("00:00:00:00:00:07")).isPresent();
+
+		assertThat(queries).hasValue(1);
+		assertThat(meterRegistry.get("devices.registry.lookups").tag("result", "hit").counters())
+				.extracting(counter -> counter.count()).containsExactlyInAnyOrder(0.0, 1.0, 1.0);
+	}
+
+	@Test
+	void notifiedChangeDropsEveryIndexOfTheDevice() {
+		store(7, "SN-7", null);
+		cache.findById(7);
+
+		store(7, "SN-7b", null);
+		cache.onNotification("7");
+
+		assertThat(cache.findBySerialNumber("SN-7")).isEmpty();
+		assertThat(cache.findBySerialNumber("SN-7b")).isPresent();
+		assertThat(cache.findById(7)).get().extracting(DeviceRegistryCache.DeviceSnapshot::serialNumber).isEqualTo("SN-7b");
+		assertThat(queries).hasValue(3);
+	}
+
+	@Test
+	void leastRecentlyUsedDeviceIsEvictedWithItsNaturalKeys() {
+		store(1, "SN-1", "00:00:00:00:00:01");
+		store(2, "SN-2", "00:00:00:00:00:02");
+		store(3, "SN-3", "00:00:00:00:00:03");
+		cache.findById(1);
+		cache.findById(2);
+		cache.findById(1);
+		cache.findById(3);
+		queries.set(0);
+
+		assertThat(cache.size()).isEqualTo(2);
+		cache.findBySerialNumber("SN-1");
+		cache.findByMacAddress("00:00:00:00:00:03");
+		assertThat(queries).hasValue(0);
+
+		cache.findByMacAddress("00:00:00:00:00:02");
+		assertThat(queries).hasValue(1);
+		assertThat(meterRegistry.get("devices.registry.evictions").counter().count()).isEqualTo(2);
+	}
+
+	private void store(long id, String serialNumber, String macAddress) {
+		rows.put(id, new DeviceRegistryCache.DeviceSnapshot(
+				id, "device-" + id, null, null, serialNumber, macAddress, Device.DeviceStatus.Active, null));
+	}
+}
@@ -0,0 +1,48 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.model.DeviceType;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeviceTypeCapabilitiesCacheTests {
+
+	private final DeviceTypeCapabilitiesCache cache = new DeviceTypeCapabilitiesCache();
+
+	@Test
+	void bothRangeDeclarationsAreRead() {
+		DeviceTypeCapabilitiesCache.Capabilities capabilities = cache.get(type(1,
+				"{\"ranges\": {\"Temperature\": {\"min\": -40, \"max\": 125}}, \"measurement_range\": \"0 to 100\", "
+						+ "\"heartbeat_interval_seconds\": 60}"));
+
+		assertThat(capabilities.rangeFor("Temperature")).isEqualTo(new DeviceTypeCapabilitiesCache.ValueRange(-40, 125));
+		assertThat(capabilities.rangeFor("Humidity")).isEqualTo(new DeviceTypeCapabilitiesCache.ValueRange(0, 100));
+		assertThat(capabilities.heartbeatInterval()).isEqualTo(Duration.ofMinutes(1));
+	}
+
+	@Test
+	void sameCapabilitiesAreParsedOnce() {
+		String json = "{\"measurement_range\": \"0 to 100\"}";
+
+		assertThat(cache.get(type(1, json))).isSameAs(cache.get(type(1, json)));
+	}
+
+	@Test
+	void editedCapabilitiesAreReparsed() {
+		cache.get(type(1, "{\"measurement_range\": \"0 to 100\"}"));
+
+		DeviceTypeCapabilitiesCache.Capabilities edited = cache.get(type(1, "{\"measurement_range\": \"-10 to 50\"}"));
+
+		assertThat(edited.rangeFor("Temperature")).isEqualTo(new DeviceTypeCapabilitiesCache.ValueRange(-10, 50));
+		assertThat(cache.get(type(1, null))).isEqualTo(DeviceTypeCapabilitiesCache.Capabilities.EMPTY);
+	}
+
+	private DeviceType type(long id, String capabilitiesJson) {
+		DeviceType type = new DeviceType();
+		type.setId(id);
+		type.setCapabilitiesJson(capabilitiesJson);
+		return type;
+	}
+}
@@ -0,0 +1,199 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.event.SensorDataIngestedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class EnergyMeterServiceTests {
+
+	private static final long DEVICE_ID = 5;
+
+	// Flushed counters by "<granularity> <period start>"
+	private final Map<String, Double> flushed = new TreeMap<>();
+
+	// Stored readings served to a rebuild, as {sensor type, value, timestamp}
+	private final List<Object[]> storedReadings = new ArrayList<>();
+
+	// Hour counters a rebuild inserted, by period start
+	private final Map<String, Double> rebuilt = new TreeMap<>();
+
+	private final JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+		@Override
+		public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+			for (Object[] row : batchArgs) {
+				if (sql.contains("'HOUR'")) {
+					rebuilt.put(((OffsetDateTime) row[1]).toInstant().toString(), (Double) row[2]);
+				} else {
+					flushed.merge(row[1] + " " + ((OffsetDateTime) row[2]).toInstant(), (Double) row[3], Double::sum);
+				}
+			}
+			return new int[batchArgs.size()];
+		}
+
+		@Override
+		public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+			return requiredType.cast(true);
+		}
+
+		@Override
+		public void query(String sql, RowCallbackHandler rch, Object... args) {
+			for (Object[] reading : storedReadings) {
+				try {
+					rch.processRow(resultSet(reading));
+				} catch (SQLException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}
+
+		@Override
+		public int update(String sql, Object... args) {
+			return 0;
+		}
+	};
+
+	private final PlatformTransactionManager transactionManager = new PlatformTransactionManager() {
+		@Override
+		public TransactionStatus getTransaction(TransactionDefinition definition) {
+			return new SimpleTransactionStatus();
+		}
+
+		@Override
+		public void commit(TransactionStatus status) {
+		}
+
+		@Override
+		public void rollback(TransactionStatus status) {
+		}
+	};
+
+	// 30 minute gap limit, 10 second V/I pairing window
+	private final EnergyMeterService service = new EnergyMeterService(null, jdbcTemplate, transactionManager, 1800, 10);
+
+	@Test
+	void powerIsIntegratedWithTheTrapezoidRule() {
+		reading("Power", 1000, "2024-03-01T10:00:00Z");
+		reading("Power", 2000, "2024-03-01T10:30:00Z");
+		reading("Power", 2000, "2024-03-01T10:45:00Z");
+		service.flushCounters();
+
+		// (1000 + 2000) / 2 W x 0.5 h + 2000 W x 0.25 h = 750 Wh + 500 Wh
+		assertThat(flushed).containsOnlyKeys("HOUR 2024-03-01T10:00:00Z", "DAY 2024-03-01T00:00:00Z");
+		assertThat(flushed.get("HOUR 2024-03-01T10:00:00Z")).isCloseTo(1.25, within(1e-9));
+		assertThat(flushed.get("DAY 2024-03-01T00:00:00Z")).isCloseTo(1.25, within(1e-9));
+	}
+
+	@Test
+	void intervalsLongerThanTheGapLimitAreNotIntegrated() {
+		reading("Power", 1000, "2024-03-01T10:00:00Z");
+		reading("Power", 1000, "2024-03-01T10:40:00Z");
+		reading("Power", 3000, "2024-03-01T10:50:00Z");
+		service.flushCounters();
+
+		// Only 10:40-10:50 counts: (1000 + 3000) / 2 W x 1/6 h = 333.33 Wh
+		assertThat(flushed.get("HOUR 2024-03-01T10:00:00Z")).isCloseTo(1.0 / 3, within(1e-9));
+	}
+
+	@Test
+	void intervalCrossingMidnightIsSplitAcrossHoursAndDays() {
+		reading("Power", 600, "2024-03-01T23:50:00Z");
+		reading("Power", 1800, "2024-03-02T00:10:00Z");
+		service.flushCounters();
+
+		// Power at midnight interpolates to 1200 W:
+		// (600 + 1200) / 2 W x 1/6 h = 150 Wh, then (1200 + 1800) / 2 W x 1/6 h = 250 Wh
+		assertThat(flushed.get("HOUR 2024-03-01T23:00:00Z")).isCloseTo(0.15, within(1e-9));
+		assertThat(flushed.get("DAY 2024-03-01T00:00:00Z")).isCloseTo(0.15, within(1e-9));
+		assertThat(flushed.get("HOUR 2024-03-02T00:00:00Z")).isCloseTo(0.25, within(1e-9));
+		assertThat(flushed.get("DAY 2024-03-02T00:00:00Z")).isCloseTo(0.25, within(1e-9));
+	}
+
+	@Test
+	void voltageAndCurrentArePairedWhenPowerIsNotReported() {
+		reading("Voltage", 230, "2024-03-01T10:00:00Z");
+		reading("Current", 2, "2024-03-01T10:00:05Z");
+		reading("Voltage", 230, "2024-03-01T10:20:00Z");
+		reading("Current", 4, "2024-03-01T10:20:05Z");
+		service.flushCounters();
+
+		// 460 W at 10:00:05 and 920 W at 10:20:05, the 10:20:00 voltage is too far from the previous current to pair
+		// (460 + 920) / 2 W x 1/3 h = 230 Wh
+		assertThat(flushed.get("HOUR 2024-03-01T10:00:00Z")).isCloseTo(0.23, within(1e-9));
+	}
+
+	@Test
+	void lateAndInvalidReadingsAreSkipped() {
+		reading("Power", 1000, "2024-03-01T10:00:00Z");
+		reading("Power", 1000, "2024-03-01T10:30:00Z");
+		reading("Power", 50000, "2024-03-01T10:15:00Z");
+		service.onReadingIngested(new SensorDataIngestedEvent(
+				null, DEVICE_ID, "Power", 50000, "W", 500, Instant.parse("2024-03-01T10:45:00Z")));
+		service.flushCounters();
+
+		assertThat(flushed.get("HOUR 2024-03-01T10:00:00Z")).isCloseTo(0.5, within(1e-9));
+	}
+
+	@Test
+	void rebuildReplacesPendingIncrementsOfTheRebuiltHours() {
+		// Live increments: 1 kWh in 10:00 (rebuilt), 0.5 kWh in 12:00 (same day, not rebuilt)
+		reading("Power", 2000, "2024-03-01T10:00:00Z");
+		reading("Power", 2000, "2024-03-01T10:30:00Z");
+		reading("Power", 1000, "2024-03-01T12:00:00Z");
+		reading("Power", 1000, "2024-03-01T12:30:00Z");
+		service.onReadingIngested(new SensorDataIngestedEvent(
+				null, 6L, "Power", 1000, null, null, Instant.parse("2024-03-01T10:00:00Z")));
+		service.onReadingIngested(new SensorDataIngestedEvent(
+				null, 6L, "Power", 1000, null, null, Instant.parse("2024-03-01T10:30:00Z")));
+
+		// The same half hour as re-corrected: 3000 W x 0.5 h
+		storedReadings.add(new Object[]{"Power", 3000.0, "2024-03-01T10:00:00Z"});
+		storedReadings.add(new Object[]{"Power", 3000.0, "2024-03-01T10:30:00Z"});
+		service.rebuildDeviceEnergy(DEVICE_ID, Instant.parse("2024-03-01T10:00:00Z"), Instant.parse("2024-03-01T10:30:00Z"));
+
+		assertThat(rebuilt).containsOnlyKeys("2024-03-01T10:00:00Z");
+		assertThat(rebuilt.get("2024-03-01T10:00:00Z")).isCloseTo(1.5, within(1e-9));
+		// The 12:00 increment is written with the rebuild so the day total, summed from hours, includes it
+		assertThat(flushed).containsOnlyKeys("HOUR 2024-03-01T12:00:00Z");
+		assertThat(flushed.get("HOUR 2024-03-01T12:00:00Z")).isCloseTo(0.5, within(1e-9));
+
+		// Nothing of the device is left to add on top of the rebuilt counters, the other device is untouched
+		flushed.clear();
+		service.flushCounters();
+		assertThat(flushed).containsOnlyKeys("HOUR 2024-03-01T10:00:00Z", "DAY 2024-03-01T00:00:00Z");
+		assertThat(flushed.get("HOUR 2024-03-01T10:00:00Z")).isCloseTo(0.5, within(1e-9));
+	}
+
+	private static ResultSet resultSet(Object[] reading) {
+		return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+				(proxy, method, args) -> switch (method.getName()) {
+					case "getString" -> reading[0];
+					case "getDouble" -> reading[1];
+					case "getObject" -> OffsetDateTime.ofInstant(Instant.parse((String) reading[2]), ZoneOffset.UTC);
+					default -> throw new UnsupportedOperationException(method.getName());
+				});
+	}
+
+	private void reading(String sensorType, double value, String timestamp) {
+		service.onReadingIngested(new SensorDataIngestedEvent(
+				null, DEVICE_ID, sensorType, value, null, null, Instant.parse(timestamp)));
+	}
+}
@@ -0,0 +1,160 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.dto.AlertDTO;
+import com.smartsolutions.smart_solutions.dto.DeviceDTO;
+import com.smartsolutions.smart_solutions.dto.LocationRollupDTO;
+import com.smartsolutions.smart_solutions.event.AlertLifecycleEvent;
+import com.smartsolutions.smart_solutions.event.DeviceLifecycleEvent;
+import com.smartsolutions.smart_solutions.event.DevicePresenceEvent;
+import com.smartsolutions.smart_solutions.event.SensorDataIngestedEvent;
+import com.smartsolutions.smart_solutions.model.Device;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocationRollupCacheTests {
+
+	// Building 1 > floor 2 > room 3, and a second building 4
+	private static final Map<Long, List<Long>> ANCESTORS = Map.of(
+			1L, List.of(1L),
+			2L, List.of(2L, 1L),
+			3L, List.of(3L, 2L, 1L),
+			4L, List.of(4L));
+
+	// Where the registry finds each device
+	private static final Map<Long, Long> DEVICE_LOCATIONS = Map.of(10L, 3L, 11L, 2L);
+
+	// Whether a rollup could be read from another thread while each ancestor lookup ran
+	private final List<Boolean> readableDuringLookup = new CopyOnWriteArrayList<>();
+
+	private final JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+		@Override
+		@SuppressWarnings("unchecked")
+		public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+			try {
+				CompletableFuture.supplyAsync(() -> cache.rollup(1L)).get(5, TimeUnit.SECONDS);
+				readableDuringLookup.add(true);
+			} catch (TimeoutException e) {
+				readableDuringLookup.add(false);
+			} catch (InterruptedException | ExecutionException e) {
+				throw new IllegalStateException(e);
+			}
+			return (List<T>) ANCESTORS.getOrDefault((Long) args[0], List.of());
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+			Long locationId = DEVICE_LOCATIONS.get((Long) args[0]);
+			return locationId == null ? List.of() : (List<T>) List.of(new DeviceRegistryCache.DeviceSnapshot(
+					(Long) args[0], "device", null, null, null, null, Device.DeviceStatus.Active, locationId));
+		}
+	};
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final LocationRollupCache cache = new LocationRollupCache(jdbcTemplate,
+			new DeviceRegistryCache(jdbcTemplate, null, meterRegistry, 100, 1000, 1000), meterRegistry, 24);
+
+	@Test
+	void eventsRollUpToEveryAncestor() {
+		Instant now = Instant.now();
+		cache.onDeviceChanged(deviceEvent(DeviceLifecycleEvent.Type.CREATED, 10L, 3L));
+		cache.onPresenceChanged(new DevicePresenceEvent(10L, true, now, now));
+		cache.onReadingIngested(reading(10L, 20.0, now));
+		// Reading from a device the rollups have not seen yet, placed through the registry
+		cache.onReadingIngested(reading(11L, 24.0, now));
+		cache.onAlertChanged(alertEvent(AlertLifecycleEvent.Type.CREATED, 100L, 10L, "Open"));
+
+		LocationRollupDTO building = cache.rollup(1L);
+		assertThat(building.getDeviceCount()).isEqualTo(2);
+		assertThat(building.getOnlineCount()).isEqualTo(1);
+		assertThat(building.getActiveAlerts()).isEqualTo(1);
+		assertThat(building.getLatestAverages()).containsEntry("temperature", 22.0);
+
+		LocationRollupDTO room = cache.rollup(3L);
+		assertThat(room.getDeviceCount()).isEqualTo(1);
+		assertThat(room.getLatestAverages()).containsEntry("temperature", 20.0);
+		assertThat(cache.rollup(4L).getDeviceCount()).isZero();
+	}
+
+	@Test
+	void ancestorsOfNewLocationsAreLoadedOnceWithoutHoldingTheLock() {
+		Instant now = Instant.now();
+		cache.onDeviceChanged(deviceEvent(DeviceLifecycleEvent.Type.CREATED, 10L, 3L));
+		cache.onPresenceChanged(new DevicePresenceEvent(10L, true, now, now));
+		cache.onReadingIngested(reading(11L, 24.0, now));
+		cache.onDeviceChanged(deviceEvent(DeviceLifecycleEvent.Type.UPDATED, 10L, 4L));
+
+		// Rooms 3 and 4 and floor 2, each looked up once, while readers went on unblocked
+		assertThat(readableDuringLookup).containsExactly(true, true, true);
+		assertThat(cache.rollup(1L).getDeviceCount()).isEqualTo(1);
+		assertThat(cache.rollup(4L).getOnlineCount()).isEqualTo(1);
+	}
+
+	@Test
+	void laterReadingsReplaceAndBackfilledOnesDoNot() {
+		Instant now = Instant.now();
+		cache.onReadingIngested(reading(10L, 20.0, now));
+		cache.onReadingIngested(reading(10L, 30.0, now.plusSeconds(1)));
+		cache.onReadingIngested(reading(10L, 99.0, now.minusSeconds(60)));
+
+		assertThat(cache.rollup(1L).getLatestAverages()).containsExactly(Map.entry("temperature", 30.0));
+		assertThat(cache.rollup(1L).getDeviceCount()).isEqualTo(1);
+	}
+
+	@Test
+	void movingADeviceTakesItsWholeShareAlong() {
+		Instant now = Instant.now();
+		cache.onDeviceChanged(deviceEvent(DeviceLifecycleEvent.Type.CREATED, 10L, 3L));
+		cache.onPresenceChanged(new DevicePresenceEvent(10L, true, now, now));
+		cache.onReadingIngested(reading(10L, 20.0, now));
+		cache.onAlertChanged(alertEvent(AlertLifecycleEvent.Type.CREATED, 100L, 10L, "Open"));
+
+		cache.onDeviceChanged(deviceEvent(DeviceLifecycleEvent.Type.UPDATED, 10L, 4L));
+
+		assertThat(cache.rollup(1L).getDeviceCount()).isZero();
+		assertThat(cache.rollup(1L).getLatestAverages()).isEmpty();
+		LocationRollupDTO moved = cache.rollup(4L);
+		assertThat(moved.getDeviceCount()).isEqualTo(1);
+		assertThat(moved.getOnlineCount()).isEqualTo(1);
+		assertThat(moved.getActiveAlerts()).isEqualTo(1);
+		assertThat(moved.getLatestAverages()).containsEntry("temperature", 20.0);
+
+		cache.onAlertChanged(alertEvent(AlertLifecycleEvent.Type.RESOLVED, 100L, 10L, "Resolved"));
+		cache.onDeviceChanged(deviceEvent(DeviceLifecycleEvent.Type.DELETED, 10L, 4L));
+		assertThat(cache.rollup(4L).getActiveAlerts()).isZero();
+		assertThat(cache.rollup(4L).getDeviceCount()).isZero();
+	}
+
+	private static DeviceLifecycleEvent deviceEvent(DeviceLifecycleEvent.Type type, long deviceId, long locationId) {
+		DeviceDTO device = new DeviceDTO();
+		device.setId(deviceId);
+		device.setLocationId(locationId);
+		return new DeviceLifecycleEvent(type, device, Instant.now());
+	}
+
+	private static AlertLifecycleEvent alertEvent(AlertLifecycleEvent.Type type, long alertId, long deviceId, String status) {
+		AlertDTO alert = new AlertDTO();
+		alert.setId(alertId);
+		alert.setDeviceId(deviceId);
+		alert.setStatus(status);
+		return new AlertLifecycleEvent(type, alert, null, Instant.now());
+	}
+
+	private static SensorDataIngestedEvent reading(long deviceId, double value, Instant timestamp) {
+		return new SensorDataIngestedEvent(1L, deviceId, "temperature", value, "Celsius", null, timestamp);
+	}
+}
@@ -0,0 +1,135 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.dto.AlertDTO;
+import com.smartsolutions.smart_solutions.event.AlertLifecycleEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NotificationPipelineTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final List<NotificationSender.Digest> sent = new CopyOnWriteArrayList<>();
+
+	private final AtomicInteger failuresLeft = new AtomicInteger();
+
+	private final NotificationSender sender = new NotificationSender() {
+		@Override
+		public boolean supports(Channel channel) {
+			return true;
+		}
+
+		@Override
+		public void send(Digest digest) {
+			if (failuresLeft.getAndDecrement() > 0) {
+				throw new IllegalStateException("gateway down");
+			}
+			sent.add(digest);
+		}
+	};
+
+	private final NotificationRecipientCache recipients = new NotificationRecipientCache(null) {
+		@Override
+		public List<Recipient> recipients() {
+			return List.of(
+					new Recipient(1L, "ops", "ops@example.com", Set.of(NotificationSender.Channel.EMAIL, NotificationSender.Channel.SMS), false),
+					new Recipient(2L, "oncall", "oncall@example.com", Set.of(NotificationSender.Channel.PUSH), true));
+		}
+	};
+
+	// Window of 0 ms closes every digest on the next flush; retries are due after 1 ms
+	private final NotificationPipeline pipeline = new NotificationPipeline(
+			recipients, List.of(sender), meterRegistry, 0, 100, 3, 1, 1);
+
+	@AfterEach
+	void shutdown() {
+		pipeline.shutdown();
+	}
+
+	@Test
+	void alertsAreBatchedPerRecipientAndChannel() throws Exception {
+		for (int i = 0; i < 10; i++) {
+			pipeline.onAlertChanged(created(i, "High"));
+		}
+		pipeline.onAlertChanged(created(10, "Critical"));
+		pipeline.onAlertChanged(new AlertLifecycleEvent(AlertLifecycleEvent.Type.ACKNOWLEDGED, alert(0, "High"), "Open", Instant.now()));
+		pipeline.flush();
+
+		awaitSent(3);
+		assertThat(sent).extracting(digest -> digest.recipient().userId() + ":" + digest.channel() + ":" + digest.alerts().size())
+				.containsExactlyInAnyOrder("1:EMAIL:11", "1:SMS:11", "2:PUSH:1");
+		assertThat(meterRegistry.counter("notifications.delivered", "channel", "EMAIL").count()).isEqualTo(1);
+	}
+
+	@Test
+	void failedDigestIsRetriedThenDropped() throws Exception {
+		failuresLeft.set(1);
+		pipeline.onAlertChanged(created(1, "Critical"));
+		pipeline.flush();
+
+		flushUntil(() -> sent.size() >= 3);
+		assertThat(sent).hasSize(3);
+		assertThat(failed()).isEqualTo(1.0);
+
+		sent.clear();
+		failuresLeft.set(Integer.MAX_VALUE);
+		pipeline.onAlertChanged(created(2, "Low"));
+		pipeline.flush();
+
+		flushUntil(() -> dropped("EMAIL") + dropped("SMS") >= 2);
+		assertThat(sent).isEmpty();
+		assertThat(dropped("EMAIL")).isEqualTo(1);
+		assertThat(dropped("SMS")).isEqualTo(1);
+		// Three attempts for each of the two digests, on top of the first failure
+		assertThat(failed()).isEqualTo(7.0);
+	}
+
+	private void awaitSent(int count) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (sent.size() < count && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+		assertThat(sent).hasSize(count);
+	}
+
+	// Keeps handing due retries to the delivery pool until the condition holds or 5 s pass
+	private void flushUntil(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+			pipeline.flush();
+			Thread.sleep(1);
+		}
+	}
+
+	private double failed() {
+		return meterRegistry.find("notifications.failed").counters().stream().mapToDouble(Counter::count).sum();
+	}
+
+	private double dropped(String channel) {
+		return meterRegistry.counter("notifications.dropped", "channel", channel).count();
+	}
+
+	private static AlertLifecycleEvent created(long id, String severity) {
+		return new AlertLifecycleEvent(AlertLifecycleEvent.Type.CREATED, alert(id, severity), null, Instant.now());
+	}
+
+	private static AlertDTO alert(long id, String severity) {
+		AlertDTO alert = new AlertDTO();
+		alert.setId(id);
+		alert.setSeverity(severity);
+		alert.setStatus("Open");
+		return alert;
+	}
+}
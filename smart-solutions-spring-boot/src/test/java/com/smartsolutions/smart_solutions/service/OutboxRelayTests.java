@@ -0,0 +1,216 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartsolutions.smart_solutions.event.OutboxMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+// Commits for real: claims, leases and row locks only mean something across transactions.
+// The context's own relay gets no attempts, so only the relay under test claims events; it
+// may also claim other pending events of the table, which the recording listener ignores.
+@SpringBootTest(properties = "outbox.relay.max-attempts=0")
+class OutboxRelayTests {
+
+	private static final long FIRST_AGGREGATE = -9101;
+	private static final long SECOND_AGGREGATE = -9102;
+
+	private static final int MAX_ATTEMPTS = 3;
+	private static final int BACKOFF_SECONDS = 10;
+
+	private static final String INSERT_EVENT =
+			"INSERT INTO iot.event_outbox (aggregate_type, aggregate_id, event_type, payload) " +
+			"VALUES ('ALERT', ?, ?, '{}') RETURNING event_id";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	// Event ids delivered to the listener, in delivery order
+	private final List<Long> delivered = new ArrayList<>();
+
+	// Event ids the listener throws for
+	private final Set<Long> failing = new HashSet<>();
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private OutboxRelay relay() {
+		return new OutboxRelay(jdbcTemplate, event -> {
+			if (event instanceof OutboxMessage message
+					&& (message.aggregateId() == FIRST_AGGREGATE || message.aggregateId() == SECOND_AGGREGATE)) {
+				if (failing.contains(message.eventId())) {
+					throw new IllegalStateException("listener down");
+				}
+				delivered.add(message.eventId());
+			}
+		}, objectMapper, meterRegistry, 1000, 1, MAX_ATTEMPTS, 60_000, BACKOFF_SECONDS * 1000L, 1, 2);
+	}
+
+	@AfterEach
+	void deleteEvents() {
+		jdbcTemplate.update("DELETE FROM iot.event_outbox WHERE aggregate_type = 'ALERT' AND aggregate_id IN (?, ?)",
+				FIRST_AGGREGATE, SECOND_AGGREGATE);
+	}
+
+	@Test
+	void claimSkipsEventsLockedByAnotherClaim() throws Exception {
+		OutboxRelay relay = relay();
+		long locked = insert(FIRST_AGGREGATE, "CREATED");
+		long free = insert(SECOND_AGGREGATE, "CREATED");
+
+		// Another node is in the middle of claiming the first event; this one must not wait for it
+		ExecutorService otherNode = Executors.newSingleThreadExecutor();
+		try {
+			new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+				jdbcTemplate.queryForList("SELECT event_id FROM iot.event_outbox WHERE event_id = ? FOR UPDATE", Long.class, locked);
+				try {
+					otherNode.submit(relay::relayBatch).get(10, TimeUnit.SECONDS);
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			});
+		} finally {
+			otherNode.shutdownNow();
+		}
+		assertThat(delivered).containsExactly(free);
+
+		relay.relayBatch();
+		assertThat(delivered).containsExactly(free, locked);
+	}
+
+	@Test
+	void claimedEventIsHandedOutAgainOnlyOnceItsLeaseExpires() {
+		OutboxRelay relay = relay();
+		long eventId = insert(FIRST_AGGREGATE, "CREATED");
+		// As left behind by a relay that died after claiming it
+		jdbcTemplate.update("UPDATE iot.event_outbox SET locked_until = now() + interval '1 hour' WHERE event_id = ?", eventId);
+
+		relay.relayBatch();
+		assertThat(delivered).isEmpty();
+
+		expireLock(eventId);
+		relay.relayBatch();
+		assertThat(delivered).containsExactly(eventId);
+		assertThat(jdbcTemplate.queryForObject(
+				"SELECT published_at IS NOT NULL AND locked_until IS NULL FROM iot.event_outbox WHERE event_id = ?",
+				Boolean.class, eventId)).isTrue();
+	}
+
+	@Test
+	void failedEventBacksOffExponentiallyAndHoldsBackOnlyItsOwnAggregate() {
+		OutboxRelay relay = relay();
+		long failingEvent = insert(FIRST_AGGREGATE, "CREATED");
+		long successor = insert(FIRST_AGGREGATE, "ACKNOWLEDGED");
+		long otherAggregate = insert(SECOND_AGGREGATE, "CREATED");
+		failing.add(failingEvent);
+
+		relay.relayBatch();
+		assertThat(delivered).containsExactly(otherAggregate);
+		assertThat(attempts(failingEvent)).isEqualTo(1);
+		assertThat(backoffSeconds(failingEvent)).isCloseTo(BACKOFF_SECONDS, within(3.0));
+		assertThat(jdbcTemplate.queryForObject("SELECT last_error FROM iot.event_outbox WHERE event_id = ?",
+				String.class, failingEvent)).contains("listener down");
+
+		// Neither the failed event nor the one after it is claimed while it backs off
+		relay.relayBatch();
+		assertThat(delivered).containsExactly(otherAggregate);
+
+		expireLock(failingEvent);
+		relay.relayBatch();
+		assertThat(attempts(failingEvent)).isEqualTo(2);
+		assertThat(backoffSeconds(failingEvent)).isCloseTo(2 * BACKOFF_SECONDS, within(3.0));
+
+		// Recovers on the third attempt, then the successor follows in order
+		failing.clear();
+		expireLock(failingEvent);
+		relay.relayBatch();
+		relay.relayBatch();
+		assertThat(delivered).containsExactly(otherAggregate, failingEvent, successor);
+		assertThat(meterRegistry.get("outbox.failed").counter().count()).isEqualTo(2);
+	}
+
+	@Test
+	void deadEventIsLeftAloneAndNoLongerHoldsBackItsAggregate() {
+		OutboxRelay relay = relay();
+		long deadEvent = insert(FIRST_AGGREGATE, "CREATED");
+		long successor = insert(FIRST_AGGREGATE, "RESOLVED");
+		failing.add(deadEvent);
+
+		for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+			expireLock(deadEvent);
+			relay.relayBatch();
+		}
+		assertThat(attempts(deadEvent)).isEqualTo(MAX_ATTEMPTS);
+		assertThat(delivered).isEmpty();
+
+		// Out of attempts: not claimed again even though its listener would now succeed
+		failing.clear();
+		expireLock(deadEvent);
+		relay.relayBatch();
+		assertThat(delivered).containsExactly(successor);
+		assertThat(attempts(deadEvent)).isEqualTo(MAX_ATTEMPTS);
+		assertThat(jdbcTemplate.queryForObject("SELECT published_at IS NULL FROM iot.event_outbox WHERE event_id = ?",
+				Boolean.class, deadEvent)).isTrue();
+	}
+
+	@Test
+	void cleanupDeletesOnlyPublishedEventsPastRetention() {
+		OutboxRelay relay = relay();
+		List<Long> expired = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			long eventId = insert(FIRST_AGGREGATE, "UPDATED");
+			jdbcTemplate.update("UPDATE iot.event_outbox SET published_at = now() - interval '2 hours' WHERE event_id = ?", eventId);
+			expired.add(eventId);
+		}
+		long recent = insert(FIRST_AGGREGATE, "UPDATED");
+		jdbcTemplate.update("UPDATE iot.event_outbox SET published_at = now() - interval '10 minutes' WHERE event_id = ?", recent);
+		long pending = insert(SECOND_AGGREGATE, "CREATED");
+		jdbcTemplate.update("UPDATE iot.event_outbox SET created_at = now() - interval '2 hours' WHERE event_id = ?", pending);
+
+		// Retention of one hour, deleted two at a time
+		relay.cleanup();
+
+		assertThat(jdbcTemplate.queryForList(
+				"SELECT event_id FROM iot.event_outbox WHERE aggregate_type = 'ALERT' AND aggregate_id IN (?, ?) ORDER BY event_id",
+				Long.class, FIRST_AGGREGATE, SECOND_AGGREGATE)).containsExactly(recent, pending);
+		assertThat(meterRegistry.get("outbox.cleaned").counter().count()).isGreaterThanOrEqualTo(expired.size());
+	}
+
+	private long insert(long aggregateId, String eventType) {
+		return jdbcTemplate.queryForObject(INSERT_EVENT, Long.class, aggregateId, eventType);
+	}
+
+	private void expireLock(long eventId) {
+		jdbcTemplate.update("UPDATE iot.event_outbox SET locked_until = now() - interval '1 second' WHERE event_id = ?", eventId);
+	}
+
+	private int attempts(long eventId) {
+		return jdbcTemplate.queryForObject("SELECT attempts FROM iot.event_outbox WHERE event_id = ?", Integer.class, eventId);
+	}
+
+	private double backoffSeconds(long eventId) {
+		return jdbcTemplate.queryForObject(
+				"SELECT EXTRACT(EPOCH FROM locked_until - now()) FROM iot.event_outbox WHERE event_id = ?", Double.class, eventId);
+	}
+}
@@ -0,0 +1,79 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.dto.DeviceDTO;
+import com.smartsolutions.smart_solutions.event.DeviceLifecycleEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Commits for real: the events are inserted by a before-commit hook. The context's own relay
+// gets no attempts, so the written events stay in the table to be looked at.
+@SpringBootTest(properties = "outbox.relay.max-attempts=0")
+class OutboxWriterTests {
+
+	private static final long DEVICE_ID = -9201;
+
+	@Autowired
+	private OutboxWriter outboxWriter;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@AfterEach
+	void deleteEvents() {
+		jdbcTemplate.update("DELETE FROM iot.event_outbox WHERE aggregate_type = 'DEVICE' AND aggregate_id = ?", DEVICE_ID);
+	}
+
+	@Test
+	void eventsOfATransactionAreWrittenTogetherOnCommit() {
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			outboxWriter.onDeviceChanged(event(DeviceLifecycleEvent.Type.CREATED));
+			outboxWriter.onDeviceChanged(event(DeviceLifecycleEvent.Type.UPDATED));
+			assertThat(eventTypes()).isEmpty();
+		});
+
+		assertThat(eventTypes()).containsExactly("CREATED", "UPDATED");
+	}
+
+	@Test
+	void rolledBackTransactionLeavesNoEvents() {
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			outboxWriter.onDeviceChanged(event(DeviceLifecycleEvent.Type.CREATED));
+			status.setRollbackOnly();
+		});
+
+		assertThat(eventTypes()).isEmpty();
+	}
+
+	@Test
+	void eventOutsideATransactionIsWrittenStraightAway() {
+		outboxWriter.onDeviceChanged(event(DeviceLifecycleEvent.Type.DELETED));
+
+		assertThat(eventTypes()).containsExactly("DELETED");
+	}
+
+	private List<String> eventTypes() {
+		return jdbcTemplate.queryForList(
+				"SELECT event_type FROM iot.event_outbox WHERE aggregate_type = 'DEVICE' AND aggregate_id = ? ORDER BY event_id",
+				String.class, DEVICE_ID);
+	}
+
+	private static DeviceLifecycleEvent event(DeviceLifecycleEvent.Type type) {
+		DeviceDTO device = new DeviceDTO();
+		device.setId(DEVICE_ID);
+		device.setName("outbox-device");
+		return new DeviceLifecycleEvent(type, device, Instant.now());
+	}
+}
@@ -0,0 +1,111 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.model.Device;
+import com.smartsolutions.smart_solutions.model.SensorCalibration;
+import com.smartsolutions.smart_solutions.model.SensorData;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class SensorCalibrationRegistryTests {
+
+	private static final Instant JAN = Instant.parse("2024-01-01T00:00:00Z");
+
+	private static final Instant FEB = Instant.parse("2024-02-01T00:00:00Z");
+
+	private final Device device = device(3L);
+
+	private final SensorCalibrationRegistry registry = new SensorCalibrationRegistry(null);
+
+	@Test
+	void calibrationInForceIsTheLatestEffectiveBeforeTheReading() {
+		registry.register(calibration(1, 2.0, 0.0, JAN));
+		registry.register(calibration(2, 1.0, -5.0, FEB));
+
+		assertThat(registry.find(3L, "Temperature", JAN.minusSeconds(1))).isNull();
+		assertThat(registry.find(3L, "Temperature", JAN).id()).isEqualTo(1L);
+		assertThat(registry.find(3L, "Temperature", FEB.minusSeconds(1)).id()).isEqualTo(1L);
+		assertThat(registry.find(3L, "Temperature", FEB).id()).isEqualTo(2L);
+		assertThat(registry.find(3L, "Humidity", FEB)).isNull();
+		assertThat(registry.nextEffectiveFrom(3L, "Temperature", JAN)).isEqualTo(FEB);
+		assertThat(registry.nextEffectiveFrom(3L, "Temperature", FEB)).isNull();
+	}
+
+	@Test
+	void calibrationIsRegisteredOnlyOnceItsTransactionCommits() {
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			registry.registerAfterCommit(calibration(1, 2.0, 0.0, JAN));
+			registry.registerAfterCommit(calibration(2, 1.0, -5.0, FEB));
+			List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+
+			assertThat(registry.find(3L, "Temperature", FEB)).isNull();
+			synchronizations.get(0).afterCommit();
+			// The second transaction rolls back
+			synchronizations.get(1).afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+
+		assertThat(registry.find(3L, "Temperature", FEB).id()).isEqualTo(1L);
+	}
+
+	@Test
+	void ingestStageCalibratesAndKeepsTheRawValue() {
+		registry.register(calibration(1, 2.0, 1.5, JAN));
+		SensorData reading = new SensorData();
+		reading.setDevice(device);
+		reading.setSensorType("Temperature");
+		reading.setValue(10.0);
+		reading.setTimestamp(FEB);
+
+		new CalibrationStage(registry).process(reading, snapshot());
+
+		assertThat(reading.getValue()).isCloseTo(21.5, within(1e-9));
+		assertThat(reading.getMetadata()).containsEntry("raw_value", 10.0).containsEntry("calibration_id", 1L);
+	}
+
+	@Test
+	void ingestStageSkipsReadingsWithAnUnknownUnit() {
+		registry.register(calibration(1, 2.0, 1.5, JAN));
+		SensorData reading = new SensorData();
+		reading.setDevice(device);
+		reading.setSensorType("Temperature");
+		reading.setValue(10.0);
+		reading.setTimestamp(FEB);
+		reading.setStatusCode(SensorData.STATUS_UNKNOWN_UNIT);
+
+		new CalibrationStage(registry).process(reading, snapshot());
+
+		assertThat(reading.getValue()).isEqualTo(10.0);
+		assertThat(reading.getMetadata()).isNull();
+	}
+
+	private DeviceRegistryCache.DeviceSnapshot snapshot() {
+		return new DeviceRegistryCache.DeviceSnapshot(
+				device.getId(), "device-3", null, null, null, null, Device.DeviceStatus.Active, null);
+	}
+
+	private SensorCalibration calibration(long id, double gain, double offset, Instant effectiveFrom) {
+		return SensorCalibration.builder()
+				.id(id)
+				.device(device)
+				.sensorType("Temperature")
+				.gain(gain)
+				.offset(offset)
+				.effectiveFrom(effectiveFrom)
+				.build();
+	}
+
+	private static Device device(Long id) {
+		Device device = new Device();
+		device.setId(id);
+		return device;
+	}
+}
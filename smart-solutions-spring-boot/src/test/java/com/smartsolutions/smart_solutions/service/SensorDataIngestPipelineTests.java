@@ -0,0 +1,106 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.smartsolutions.smart_solutions.model.Device;
+import com.smartsolutions.smart_solutions.model.SensorData;
+import com.smartsolutions.smart_solutions.util.UnitConverters;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class SensorDataIngestPipelineTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final SensorDataIngestPipeline pipeline = new SensorDataIngestPipeline(
+			List.of(new UnitNormalizationStage(new UnitConverters()),
+					new RangeValidationStage(new DeviceTypeCapabilitiesCache())),
+			meterRegistry);
+
+	private final DeviceRegistryCache.DeviceSnapshot device = device(1L, "{\"ranges\": {\"Temperature\": {\"min\": -40, \"max\": 125}}}");
+
+	@Test
+	void convertsFahrenheitToCelsius() {
+		SensorData reading = reading("Temperature", 212.0, "°F");
+
+		pipeline.process(reading, device);
+
+		assertThat(reading.getValue()).isCloseTo(100.0, within(1e-9));
+		assertThat(reading.getUnit()).isEqualTo("°C");
+		assertThat(reading.getStatusCode()).isEqualTo(SensorData.STATUS_OK);
+		assertThat(reading.getMetadata()).containsEntry("source_unit", "°F").containsEntry("source_value", 212.0);
+	}
+
+	@Test
+	void tagsUnknownUnitAndKeepsValue() {
+		SensorData reading = reading("Temperature", 21.0, "parsecs");
+
+		pipeline.process(reading, device);
+
+		assertThat(reading.getValue()).isEqualTo(21.0);
+		assertThat(reading.getStatusCode()).isEqualTo(SensorData.STATUS_UNKNOWN_UNIT);
+	}
+
+	@Test
+	void tagsOutOfRangeAfterNormalization() {
+		SensorData reading = reading("Temperature", 300.0, "F");
+
+		pipeline.process(reading, device);
+
+		assertThat(reading.getStatusCode()).isEqualTo(SensorData.STATUS_OUT_OF_RANGE);
+	}
+
+	@Test
+	void appliesLegacyMeasurementRange() {
+		DeviceRegistryCache.DeviceSnapshot humidity = device(2L, "{\"measurement_range\": \"0 to 100\", \"accuracy\": \"±2%\"}");
+		SensorData reading = reading("Humidity", 104.0, "%RH");
+
+		pipeline.process(reading, humidity);
+
+		assertThat(reading.getStatusCode()).isEqualTo(SensorData.STATUS_OUT_OF_RANGE);
+	}
+
+	@Test
+	void everyReadingPassesThroughTheTimedStages() {
+		int total = 200_000;
+		int outOfRange = 0;
+		for (int i = 0; i < total; i++) {
+			boolean temperature = i % 2 == 0;
+			SensorData reading = reading(temperature ? "Temperature" : "Power", i % 300,
+					temperature ? "F" : "kW");
+			pipeline.process(reading, device);
+			if (reading.getStatusCode() == SensorData.STATUS_OUT_OF_RANGE) {
+				outOfRange++;
+			}
+			if (i == total - 2) {
+				// 198 °F
+				assertThat(reading.getValue()).isCloseTo(92.2222, within(1e-4));
+				assertThat(reading.getUnit()).isEqualTo("°C");
+			}
+		}
+
+		Timer timer = meterRegistry.get("sensor.ingest.stages").timer();
+		assertThat(timer.count()).isEqualTo(total);
+		// Above 257 °F is out of range: 258, 260, ..., 298 in each full cycle of 300
+		assertThat(outOfRange).isEqualTo(total / 300 * 21);
+	}
+
+	// Validation reads the type from the registry snapshot, not from the reading
+	private static DeviceRegistryCache.DeviceSnapshot device(long typeId, String capabilitiesJson) {
+		return new DeviceRegistryCache.DeviceSnapshot(
+				typeId, "device-" + typeId, typeId, capabilitiesJson, null, null, Device.DeviceStatus.Active, null);
+	}
+
+	private static SensorData reading(String sensorType, double value, String unit) {
+		SensorData reading = new SensorData();
+		reading.setSensorType(sensorType);
+		reading.setValue(value);
+		reading.setUnit(unit);
+		reading.setStatusCode(SensorData.STATUS_OK);
+		return reading;
+	}
+}
@@ -0,0 +1,98 @@
+package com.smartsolutions.smart_solutions.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SensorDataRangeExecutorTests {
+
+	// Sub-ranges only need a transaction to run in, not a database
+	private final PlatformTransactionManager transactionManager = new PlatformTransactionManager() {
+		@Override
+		public TransactionStatus getTransaction(TransactionDefinition definition) {
+			return new SimpleTransactionStatus();
+		}
+
+		@Override
+		public void commit(TransactionStatus status) {
+		}
+
+		@Override
+		public void rollback(TransactionStatus status) {
+		}
+	};
+
+	private final SensorDataRangeExecutor executor =
+			new SensorDataRangeExecutor(transactionManager, new SimpleMeterRegistry(), 4, 4);
+
+	@AfterEach
+	void shutdown() {
+		executor.shutdown();
+	}
+
+	@Test
+	void splitsOnUtcMidnightsKeepingTheOuterBounds() {
+		List<SensorDataRangeExecutor.TimeRange> ranges = executor.split(
+				Instant.parse("2024-01-01T18:30:00Z"), Instant.parse("2024-01-04T06:00:00Z"));
+
+		assertThat(ranges).containsExactly(
+				range("2024-01-01T18:30:00Z", "2024-01-02T00:00:00Z"),
+				range("2024-01-02T00:00:00Z", "2024-01-03T00:00:00Z"),
+				range("2024-01-03T00:00:00Z", "2024-01-04T00:00:00Z"),
+				range("2024-01-04T00:00:00Z", "2024-01-04T06:00:00Z"));
+	}
+
+	@Test
+	void alignedAndEmptyRangesSplitWithoutSlivers() {
+		assertThat(executor.split(Instant.parse("2024-01-01T00:00:00Z"), Instant.parse("2024-01-03T00:00:00Z")))
+				.containsExactly(
+						range("2024-01-01T00:00:00Z", "2024-01-02T00:00:00Z"),
+						range("2024-01-02T00:00:00Z", "2024-01-03T00:00:00Z"));
+		assertThat(executor.split(Instant.parse("2024-01-01T10:00:00Z"), Instant.parse("2024-01-01T10:00:00Z"))).isEmpty();
+	}
+
+	@Test
+	void resultsArriveInTimeOrderWhateverOrderTheyFinishIn() {
+		Instant start = Instant.parse("2024-01-01T00:00:00Z");
+		Instant end = Instant.parse("2024-01-09T00:00:00Z");
+		List<Instant> seen = new ArrayList<>();
+
+		// Earlier days take longer, so they finish after the later ones
+		executor.forEachOrdered(start, end, range -> {
+			sleepFor(range, end);
+			return List.of(range.from());
+		}, seen::addAll);
+
+		assertThat(seen).hasSize(8).isSorted();
+		assertThat(executor.aggregate(start, end, range -> {
+			sleepFor(range, end);
+			return List.of(range.from());
+		}, (left, right) -> {
+			List<Instant> merged = new ArrayList<>(left);
+			merged.addAll(right);
+			return merged;
+		}, List.<Instant>of())).isEqualTo(seen);
+	}
+
+	private static void sleepFor(SensorDataRangeExecutor.TimeRange range, Instant end) {
+		try {
+			Thread.sleep((end.toEpochMilli() - range.from().toEpochMilli()) / 86_400_000L * 5);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static SensorDataRangeExecutor.TimeRange range(String from, String to) {
+		return new SensorDataRangeExecutor.TimeRange(Instant.parse(from), Instant.parse(to));
+	}
+}
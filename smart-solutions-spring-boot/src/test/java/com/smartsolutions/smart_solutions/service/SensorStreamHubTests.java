@@ -0,0 +1,141 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartsolutions.smart_solutions.event.SensorDataIngestedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SensorStreamHubTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final SensorStreamHub hub = new SensorStreamHub(
+			new ObjectMapper().findAndRegisterModules(), meterRegistry, 200, 50);
+
+	@Test
+	void slowSubscriberReceivesOnlyNewestPendingValue() {
+		RecordingSink slow = new RecordingSink(false);
+		hub.connect(slow).subscribe(1L, "Temperature");
+
+		for (int i = 0; i < 100; i++) {
+			hub.onReadingIngested(reading(1L, "Temperature", i));
+		}
+		slow.completeAll();
+
+		assertThat(slow.frames).hasSize(2);
+		assertThat(slow.frames.get(0)).contains("\"value\":0.0");
+		assertThat(slow.frames.get(1)).contains("\"value\":99.0").doesNotContain("\"value\":98.0");
+		assertThat(meterRegistry.counter("sensor.stream.updates.dropped").count()).isEqualTo(98);
+	}
+
+	@Test
+	void wildcardAndExactSubscriptionDeliverOnce() {
+		RecordingSink sink = new RecordingSink(true);
+		SensorStreamHub.Connection connection = hub.connect(sink);
+		connection.subscribe(1L, null);
+		connection.subscribe(1L, "Humidity");
+
+		hub.onReadingIngested(reading(1L, "Humidity", 40));
+		hub.onReadingIngested(reading(1L, "Temperature", 21));
+		hub.onReadingIngested(reading(2L, "Temperature", 21));
+
+		assertThat(sink.frames).hasSize(2);
+	}
+
+	@Test
+	void fansOutToTenThousandSubscribers() {
+		int subscribers = 10_000;
+		List<RecordingSink> sinks = new ArrayList<>(subscribers);
+		for (int i = 0; i < subscribers; i++) {
+			RecordingSink sink = new RecordingSink(true);
+			hub.connect(sink).subscribe(7L, "Power");
+			sinks.add(sink);
+		}
+
+		int readings = 100;
+		for (int i = 0; i < readings; i++) {
+			hub.onReadingIngested(reading(7L, "Power", i));
+		}
+
+		assertThat(sinks).allMatch(sink -> sink.frames.size() == readings);
+		assertThat(meterRegistry.counter("sensor.stream.updates.sent").count()).isEqualTo((double) subscribers * readings);
+		assertThat(meterRegistry.timer("sensor.stream.fanout.latency").count()).isEqualTo((long) subscribers * readings);
+	}
+
+	@Test
+	void sendsCompletingInlineDoNotRecurse() {
+		SensorStreamHub unbatched = new SensorStreamHub(new ObjectMapper().findAndRegisterModules(), meterRegistry, 200, 1);
+		RecordingSink sink = new RecordingSink(false);
+		unbatched.connect(sink).subscribe(1L, null);
+
+		// One frame in flight while a long backlog of distinct keys piles up behind it
+		int readings = 50_000;
+		for (int i = 0; i < readings; i++) {
+			unbatched.onReadingIngested(reading(1L, "Sensor" + i, i));
+		}
+		sink.completeImmediately = true;
+		sink.completeAll();
+
+		assertThat(sink.frames).hasSize(readings);
+		assertThat(meterRegistry.counter("sensor.stream.updates.sent").count()).isEqualTo(readings);
+	}
+
+	@Test
+	void failedSendDisconnects() {
+		RecordingSink sink = new RecordingSink(true);
+		sink.fail = true;
+		hub.connect(sink).subscribe(1L, "Temperature");
+
+		hub.onReadingIngested(reading(1L, "Temperature", 1));
+		hub.onReadingIngested(reading(1L, "Temperature", 2));
+
+		assertThat(sink.frames).hasSize(1);
+		assertThat(sink.closed).isTrue();
+	}
+
+	private static SensorDataIngestedEvent reading(long deviceId, String sensorType, double value) {
+		return new SensorDataIngestedEvent(1L, deviceId, sensorType, value, "°C", 200, Instant.parse("2024-01-01T00:00:00Z"));
+	}
+
+	private static final class RecordingSink implements SensorStreamHub.Sink {
+		private boolean completeImmediately;
+		private final List<String> frames = new ArrayList<>();
+		private final List<Consumer<Throwable>> inFlight = new ArrayList<>();
+		private boolean fail;
+		private boolean closed;
+
+		private RecordingSink(boolean completeImmediately) {
+			this.completeImmediately = completeImmediately;
+		}
+
+		@Override
+		public void send(String text, Consumer<Throwable> onComplete) {
+			frames.add(text);
+			if (fail) {
+				onComplete.accept(new IllegalStateException("Send timed out"));
+			} else if (completeImmediately) {
+				onComplete.accept(null);
+			} else {
+				inFlight.add(onComplete);
+			}
+		}
+
+		@Override
+		public void close(String reason) {
+			closed = true;
+		}
+
+		private void completeAll() {
+			while (!inFlight.isEmpty()) {
+				inFlight.remove(0).accept(null);
+			}
+		}
+	}
+}
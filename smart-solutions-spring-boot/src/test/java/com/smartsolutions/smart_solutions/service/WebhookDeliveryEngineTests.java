@@ -0,0 +1,192 @@
+package com.smartsolutions.smart_solutions.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartsolutions.smart_solutions.dto.AlertDTO;
+import com.smartsolutions.smart_solutions.model.Alert;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WebhookDeliveryEngineTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	// Alerts received per path, and the JSON of every request to the flaky and rejecting paths
+	private final Map<String, AtomicInteger> received = new ConcurrentHashMap<>();
+
+	private final List<JsonNode> flakyRequests = new CopyOnWriteArrayList<>();
+
+	private final AtomicInteger rejectedRequests = new AtomicInteger();
+
+	private final AtomicInteger flakyFailuresLeft = new AtomicInteger();
+
+	private HttpServer server;
+
+	private ExecutorService serverExecutor;
+
+	private WebhookDeliveryEngine engine;
+
+	@BeforeEach
+	void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+		serverExecutor = Executors.newFixedThreadPool(32);
+		server.setExecutor(serverExecutor);
+		server.createContext("/", this::handle);
+		server.start();
+	}
+
+	@AfterEach
+	void stop() {
+		if (engine != null) {
+			engine.shutdown();
+		}
+		server.stop(0);
+		serverExecutor.shutdownNow();
+	}
+
+	@Test
+	void thousandEndpointsReceiveEveryAlertInBatches() throws Exception {
+		engine = engine(10, 50, 2, 8, 5);
+		int endpoints = 1_000;
+		int alerts = 20;
+		List<WebhookDeliveryEngine.Target> targets = new ArrayList<>();
+		for (int i = 0; i < endpoints; i++) {
+			targets.add(target(i, "/hook/" + i, Alert.Severity.Low));
+		}
+		engine.updateTargets(targets);
+
+		for (int i = 0; i < alerts; i++) {
+			engine.enqueue(alert(i, "High"));
+		}
+		await(() -> received.values().stream().mapToInt(AtomicInteger::get).sum() == endpoints * alerts, 60);
+
+		assertThat(received).hasSize(endpoints);
+		assertThat(received.values()).allSatisfy(count -> assertThat(count.get()).isEqualTo(alerts));
+		// Batches are full except where the linger time closed one while alerts were still being queued
+		assertThat(meterRegistry.counter("webhook.batches.delivered").count()).isBetween(endpoints * alerts / 10.0, endpoints * alerts / 5.0);
+	}
+
+	@Test
+	void failedBatchIsRetriedWithSameDeliveryId() throws Exception {
+		engine = engine(5, 10, 1, 5, 5);
+		flakyFailuresLeft.set(2);
+		engine.updateTargets(List.of(target(1, "/flaky", Alert.Severity.Low)));
+
+		for (int i = 0; i < 5; i++) {
+			engine.enqueue(alert(i, "Low"));
+		}
+		// The server records a request before answering it, so it is in the list once the engine counts the delivery
+		await(() -> meterRegistry.counter("webhook.alerts.delivered").count() == 5, 10);
+
+		assertThat(flakyRequests).extracting(request -> request.get("attempt").asInt()).containsExactly(1, 2, 3);
+		assertThat(flakyRequests).extracting(request -> request.get("deliveryId").asText()).containsOnly(
+				flakyRequests.get(0).get("deliveryId").asText());
+		assertThat(flakyRequests.get(2).get("alerts")).hasSize(5);
+		assertThat(meterRegistry.counter("webhook.alerts.delivered").count()).isEqualTo(5);
+	}
+
+	@Test
+	void breakerStopsSendingToFailingEndpointAndClientErrorsAreNotRetried() throws Exception {
+		engine = engine(1, 10, 1, 5, 2);
+		flakyFailuresLeft.set(Integer.MAX_VALUE);
+		engine.updateTargets(List.of(target(1, "/flaky", Alert.Severity.Low), target(2, "/reject", Alert.Severity.Low)));
+
+		for (int i = 0; i < 20; i++) {
+			engine.enqueue(alert(i, "Low"));
+		}
+		await(() -> rejectedRequests.get() == 20 && meterRegistry.counter("webhook.alerts.dropped").count() == 20
+				&& meterRegistry.get("webhook.breakers.open").gauge().value() == 1, 10);
+
+		// Two failures open the breaker for a minute; the retry then waits for it, and nothing else gets through
+		assertThat(flakyRequests).hasSize(2);
+		assertThat(rejectedRequests.get()).isEqualTo(20);
+		assertThat(meterRegistry.counter("webhook.alerts.dropped").count()).isEqualTo(20);
+	}
+
+	@Test
+	void severityAndDeviceFiltersApply() throws Exception {
+		engine = engine(1, 10, 1, 5, 5);
+		engine.updateTargets(List.of(
+				target(1, "/critical", Alert.Severity.Critical),
+				new WebhookDeliveryEngine.Target(2, uri("/device-7"), null, Alert.Severity.Low, 7L)));
+
+		engine.enqueue(alert(1, "High"));
+		engine.enqueue(alert(2, "Critical"));
+		await(() -> received.containsKey("/critical") && received.containsKey("/device-7"), 10);
+		Thread.sleep(100);
+
+		assertThat(received.get("/critical").get()).isEqualTo(1);
+		assertThat(received.get("/device-7").get()).isEqualTo(2);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		JsonNode body = objectMapper.readTree(exchange.getRequestBody());
+		String path = exchange.getRequestURI().getPath();
+		int status = 200;
+		if (path.equals("/flaky")) {
+			flakyRequests.add(body);
+			if (flakyFailuresLeft.getAndDecrement() > 0) {
+				status = 503;
+			}
+		} else if (path.equals("/reject")) {
+			rejectedRequests.incrementAndGet();
+			status = 410;
+		}
+		if (status == 200) {
+			received.computeIfAbsent(path, key -> new AtomicInteger()).addAndGet(body.get("alerts").size());
+		}
+		exchange.sendResponseHeaders(status, -1);
+		exchange.close();
+	}
+
+	private WebhookDeliveryEngine engine(int batchSize, long lingerMs, int maxConcurrency, int maxAttempts, int failureThreshold) {
+		return new WebhookDeliveryEngine(objectMapper, meterRegistry, batchSize, lingerMs, maxConcurrency, 10_000,
+				maxAttempts, 20, 200, 5_000, failureThreshold, 60_000, 8);
+	}
+
+	private WebhookDeliveryEngine.Target target(long id, String path, Alert.Severity minSeverity) {
+		return new WebhookDeliveryEngine.Target(id, uri(path), "secret", minSeverity, null);
+	}
+
+	private URI uri(String path) {
+		return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+	}
+
+	private static AlertDTO alert(long id, String severity) {
+		AlertDTO alert = new AlertDTO();
+		alert.setId(id);
+		alert.setSeverity(severity);
+		alert.setStatus("Open");
+		alert.setDeviceId(7L);
+		return alert;
+	}
+
+	private static void await(BooleanSupplier condition, int timeoutSeconds) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+		while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package com.smartsolutions.smart_solutions.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTests {
+
+	private final AtomicLong now = new AtomicLong();
+
+	private final CircuitBreaker breaker = new CircuitBreaker(3, 1_000, now::get);
+
+	@Test
+	void opensAfterConsecutiveFailuresOnly() {
+		breaker.onFailure();
+		breaker.onFailure();
+		breaker.onSuccess();
+		breaker.onFailure();
+		breaker.onFailure();
+		assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+		assertThat(breaker.tryAcquire()).isTrue();
+
+		breaker.onFailure();
+		assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+		assertThat(breaker.tryAcquire()).isFalse();
+		assertThat(breaker.remainingOpenNanos()).isEqualTo(1_000);
+	}
+
+	@Test
+	void halfOpenLetsExactlyOneProbeThrough() {
+		open();
+		now.addAndGet(1_000);
+
+		assertThat(breaker.tryAcquire()).isTrue();
+		assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+		assertThat(breaker.tryAcquire()).isFalse();
+
+		breaker.onSuccess();
+		assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+		assertThat(breaker.tryAcquire()).isTrue();
+	}
+
+	@Test
+	void failedProbeReopens() {
+		open();
+		now.addAndGet(1_000);
+		assertThat(breaker.tryAcquire()).isTrue();
+
+		breaker.onFailure();
+		assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+		assertThat(breaker.tryAcquire()).isFalse();
+		now.addAndGet(999);
+		assertThat(breaker.tryAcquire()).isFalse();
+		now.addAndGet(1);
+		assertThat(breaker.tryAcquire()).isTrue();
+	}
+
+	private void open() {
+		for (int i = 0; i < 3; i++) {
+			breaker.onFailure();
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package com.smartsolutions.smart_solutions.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HashedTimingWheelTests {
+
+	private final Set<Integer> fired = ConcurrentHashMap.newKeySet();
+
+	private final ConcurrentHashMap<Integer, Long> firedAtNanos = new ConcurrentHashMap<>();
+
+	private CountDownLatch expected;
+
+	private final HashedTimingWheel<Integer> wheel = new HashedTimingWheel<>(
+			"test-wheel", 10, TimeUnit.MILLISECONDS, 8,
+			payload -> {
+				fired.add(payload);
+				firedAtNanos.put(payload, System.nanoTime());
+				expected.countDown();
+			},
+			Runnable::run);
+
+	@AfterEach
+	void stopWheel() {
+		wheel.stop();
+	}
+
+	@Test
+	void cancelledTimersNeverFire() throws InterruptedException {
+		int timers = 100_000;
+		expected = new CountDownLatch(timers / 2);
+		wheel.start();
+
+		List<HashedTimingWheel<Integer>.Timeout> timeouts = new ArrayList<>(timers);
+		for (int i = 0; i < timers; i++) {
+			timeouts.add(wheel.schedule(i, 500 + i % 200, TimeUnit.MILLISECONDS));
+		}
+		for (int i = 0; i < timers; i += 2) {
+			assertThat(timeouts.get(i).cancel()).isTrue();
+		}
+
+		assertThat(expected.await(5, TimeUnit.SECONDS)).isTrue();
+		Thread.sleep(100);
+		assertThat(fired).hasSize(timers / 2).allMatch(payload -> payload % 2 == 1);
+		assertThat(wheel.pending()).isZero();
+		assertThat(timeouts.get(1).cancel()).isFalse();
+	}
+
+	@Test
+	void timersBeyondOneRotationWaitForTheirRounds() throws InterruptedException {
+		expected = new CountDownLatch(1);
+		wheel.start();
+
+		long scheduledAt = System.nanoTime();
+		wheel.schedule(1, 250, TimeUnit.MILLISECONDS);
+
+		assertThat(expected.await(2, TimeUnit.SECONDS)).isTrue();
+		assertThat(TimeUnit.NANOSECONDS.toMillis(firedAtNanos.get(1) - scheduledAt)).isGreaterThanOrEqualTo(250);
+	}
+}
@@ -0,0 +1,48 @@
+package com.smartsolutions.smart_solutions.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongObjectHashMapTests {
+
+	@Test
+	void behavesLikeHashMapUnderRandomOperations() {
+		LongObjectHashMap<String> map = new LongObjectHashMap<>();
+		Map<Long, String> expected = new HashMap<>();
+		Random random = new Random(42);
+
+		for (int i = 0; i < 200_000; i++) {
+			long key = random.nextInt(5_000) - 10;
+			if (random.nextInt(3) == 0) {
+				assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+			} else {
+				String value = "v" + i;
+				assertThat(map.put(key, value)).isEqualTo(expected.put(key, value));
+			}
+		}
+
+		assertThat(map.size()).isEqualTo(expected.size());
+		expected.forEach((key, value) -> assertThat(map.get(key)).isEqualTo(value));
+		Map<String, Boolean> seen = new HashMap<>();
+		map.forEachValue(value -> seen.put(value, true));
+		assertThat(seen.keySet()).containsExactlyInAnyOrderElementsOf(expected.values());
+	}
+
+	@Test
+	void keepsZeroKeyApart() {
+		LongObjectHashMap<String> map = new LongObjectHashMap<>();
+		map.put(0, "zero");
+		map.put(1, "one");
+
+		assertThat(map.get(0)).isEqualTo("zero");
+		assertThat(map.size()).isEqualTo(2);
+		assertThat(map.remove(0)).isEqualTo("zero");
+		assertThat(map.get(0)).isNull();
+		assertThat(map.size()).isEqualTo(1);
+	}
+}
@@ -0,0 +1,158 @@
+package com.smartsolutions.smart_solutions.util;
+
+import com.smartsolutions.smart_solutions.dto.SensorDataPointDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class SensorDataDownsamplerTests {
+
+	private final SensorDataDownsampler downsampler = new SensorDataDownsampler();
+
+	private final Instant start = Instant.parse("2024-01-01T00:00:00Z");
+
+	@Test
+	void lttbReducesMillionPointsToOnePerBucket() {
+		int total = 1_000_000;
+		Instant end = start.plusSeconds(total);
+		SensorDataDownsampler.TimeBuckets buckets = SensorDataDownsampler.TimeBuckets.of(start, end, 998);
+		double[][] averages = bucketAverages(total, buckets);
+
+		List<SensorDataPointDTO> sampled = downsampler.largestTriangleThreeBuckets(
+				sineWave(total), buckets, averages[0], averages[1]);
+
+		// The first and last raw points, and one point of every bucket in between
+		assertThat(sampled).hasSizeBetween(buckets.count() + 1, buckets.count() + 2);
+		assertThat(sampled.get(0).getTimestamp()).isEqualTo(start);
+		assertThat(sampled.get(sampled.size() - 1).getTimestamp()).isEqualTo(start.plusSeconds(total - 1));
+		List<SensorDataPointDTO> interior = sampled.subList(1, buckets.count() + 1);
+		assertThat(interior).extracting(point -> buckets.indexOf(point.getTimestamp()))
+				.containsExactlyElementsOf(IntStream.range(0, buckets.count()).boxed().toList());
+
+		// Every kept point is a raw point, inside its bucket's range, and the wave's extremes survive
+		double[][] ranges = bucketRanges(sineWave(total), buckets);
+		assertThat(interior).allSatisfy(point -> {
+			int bucket = buckets.indexOf(point.getTimestamp());
+			assertThat(point.getValue()).isEqualTo(sine(point.getTimestamp()))
+					.isBetween(ranges[0][bucket], ranges[1][bucket]);
+		});
+		assertThat(interior).extracting(SensorDataPointDTO::getValue)
+				.anySatisfy(value -> assertThat(value).isGreaterThan(39.9))
+				.anySatisfy(value -> assertThat(value).isLessThan(0.1));
+		assertThat(Arrays.stream(averages[1]).average().orElseThrow()).isCloseTo(20.0, within(0.5));
+	}
+
+	@Test
+	void lttbKeepsSpike() {
+		Instant end = start.plusSeconds(100);
+		SensorDataDownsampler.TimeBuckets buckets = SensorDataDownsampler.TimeBuckets.of(start, end, 8);
+		List<SensorDataPointDTO> points = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			points.add(new SensorDataPointDTO(start.plusSeconds(i), i == 42 ? 500.0 : 1.0));
+		}
+		double[][] averages = bucketAverages(points, buckets);
+
+		List<SensorDataPointDTO> sampled = downsampler.largestTriangleThreeBuckets(
+				points.iterator(), buckets, averages[0], averages[1]);
+
+		assertThat(sampled).extracting(SensorDataPointDTO::getValue).contains(500.0);
+	}
+
+	@Test
+	void minMaxKeepsExtremesPerBucket() {
+		Instant end = start.plusSeconds(10);
+		SensorDataDownsampler.TimeBuckets buckets = SensorDataDownsampler.TimeBuckets.of(start, end, 2);
+		List<SensorDataPointDTO> points = List.of(
+				new SensorDataPointDTO(start, 5.0),
+				new SensorDataPointDTO(start.plusSeconds(1), 9.0),
+				new SensorDataPointDTO(start.plusSeconds(2), 1.0),
+				new SensorDataPointDTO(start.plusSeconds(6), 3.0),
+				new SensorDataPointDTO(start.plusSeconds(7), 3.0));
+
+		List<SensorDataPointDTO> sampled = downsampler.minMax(points.iterator(), buckets);
+
+		assertThat(sampled).extracting(SensorDataPointDTO::getValue).containsExactly(9.0, 1.0, 3.0);
+	}
+
+	private Iterator<SensorDataPointDTO> sineWave(int total) {
+		return new Iterator<>() {
+			private int i;
+
+			@Override
+			public boolean hasNext() {
+				return i < total;
+			}
+
+			@Override
+			public SensorDataPointDTO next() {
+				if (i >= total) {
+					throw new NoSuchElementException();
+				}
+				SensorDataPointDTO point = new SensorDataPointDTO(start.plusSeconds(i), sine(start.plusSeconds(i)));
+				i++;
+				return point;
+			}
+		};
+	}
+
+	private double sine(Instant timestamp) {
+		return Math.sin((timestamp.getEpochSecond() - start.getEpochSecond()) / 500.0) * 20 + 20;
+	}
+
+	// Minimum and maximum value of every bucket
+	private static double[][] bucketRanges(Iterator<SensorDataPointDTO> points, SensorDataDownsampler.TimeBuckets buckets) {
+		double[] min = new double[buckets.count()];
+		double[] max = new double[buckets.count()];
+		Arrays.fill(min, Double.POSITIVE_INFINITY);
+		Arrays.fill(max, Double.NEGATIVE_INFINITY);
+		while (points.hasNext()) {
+			SensorDataPointDTO point = points.next();
+			int bucket = buckets.indexOf(point.getTimestamp());
+			min[bucket] = Math.min(min[bucket], point.getValue());
+			max[bucket] = Math.max(max[bucket], point.getValue());
+		}
+		return new double[][]{min, max};
+	}
+
+	private double[][] bucketAverages(int total, SensorDataDownsampler.TimeBuckets buckets) {
+		return bucketAverages(sineWave(total), buckets);
+	}
+
+	private double[][] bucketAverages(List<SensorDataPointDTO> points, SensorDataDownsampler.TimeBuckets buckets) {
+		return bucketAverages(points.iterator(), buckets);
+	}
+
+	// Mirrors SensorDataRepository.findBucketAverages
+	private double[][] bucketAverages(Iterator<SensorDataPointDTO> points, SensorDataDownsampler.TimeBuckets buckets) {
+		double[] sumX = new double[buckets.count()];
+		double[] sumY = new double[buckets.count()];
+		int[] counts = new int[buckets.count()];
+		while (points.hasNext()) {
+			SensorDataPointDTO point = points.next();
+			int bucket = buckets.indexOf(point.getTimestamp());
+			sumX[bucket] += buckets.xOf(point.getTimestamp());
+			sumY[bucket] += point.getValue();
+			counts[bucket]++;
+		}
+		double[] avgX = new double[buckets.count()];
+		double[] avgY = new double[buckets.count()];
+		Arrays.fill(avgX, Double.NaN);
+		Arrays.fill(avgY, Double.NaN);
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] > 0) {
+				avgX[i] = sumX[i] / counts[i];
+				avgY[i] = sumY[i] / counts[i];
+			}
+		}
+		return new double[][]{avgX, avgY};
+	}
+}
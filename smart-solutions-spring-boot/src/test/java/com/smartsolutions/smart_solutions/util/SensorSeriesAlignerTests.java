@@ -0,0 +1,74 @@
+package com.smartsolutions.smart_solutions.util;
+
+import com.smartsolutions.smart_solutions.dto.AlignedSensorRowDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SensorSeriesAlignerTests {
+
+	private final SensorSeriesAligner aligner = new SensorSeriesAligner();
+
+	private final Instant start = Instant.parse("2024-01-01T00:00:00Z");
+
+	// Temperature in buckets 0, 2 and 5; humidity only in bucket 1
+	private final List<SensorSeriesAligner.SeriesBucket> buckets = List.of(
+			new SensorSeriesAligner.SeriesBucket(1, "humidity", 1, 40.0),
+			new SensorSeriesAligner.SeriesBucket(1, "temperature", 0, 10.0),
+			new SensorSeriesAligner.SeriesBucket(1, "temperature", 2, 20.0),
+			new SensorSeriesAligner.SeriesBucket(1, "temperature", 5, 50.0));
+
+	@Test
+	void nullFillLeavesGapsEmpty() {
+		List<AlignedSensorRowDTO> rows = align(List.of(1L), List.of("temperature"), SensorSeriesAligner.FillStrategy.NULL);
+
+		assertThat(column(rows, 0)).containsExactly(10.0, null, 20.0, null, null, 50.0, null);
+	}
+
+	@Test
+	void locfCarriesTheLastValueForwardButNotBackward() {
+		List<AlignedSensorRowDTO> rows = align(List.of(1L), List.of("humidity", "temperature"), SensorSeriesAligner.FillStrategy.LOCF);
+
+		assertThat(column(rows, 0)).containsExactly(null, 40.0, 40.0, 40.0, 40.0, 40.0, 40.0);
+		assertThat(column(rows, 1)).containsExactly(10.0, 10.0, 20.0, 20.0, 20.0, 50.0, 50.0);
+	}
+
+	@Test
+	void linearInterpolatesBetweenNeighboursOnly() {
+		List<AlignedSensorRowDTO> rows = align(List.of(1L), List.of("temperature"), SensorSeriesAligner.FillStrategy.LINEAR);
+
+		assertThat(column(rows, 0)).containsExactly(10.0, 15.0, 20.0, 30.0, 40.0, 50.0, null);
+	}
+
+	@Test
+	void rowsFollowTheRequestedColumnsAndTheGrid() {
+		List<SensorSeriesAligner.SeriesBucket> twoDevices = List.of(
+				new SensorSeriesAligner.SeriesBucket(1, "temperature", 0, 10.0),
+				new SensorSeriesAligner.SeriesBucket(1, "voltage", 0, 230.0),
+				new SensorSeriesAligner.SeriesBucket(2, "humidity", 1, 35.0),
+				new SensorSeriesAligner.SeriesBucket(2, "temperature", 1, 21.0));
+
+		List<AlignedSensorRowDTO> rows = aligner.align(twoDevices, List.of(2L, 1L), List.of("temperature", "humidity"),
+				start, 60_000, 2, SensorSeriesAligner.FillStrategy.NULL);
+
+		// Devices in id order, one row per bucket; the unrequested voltage series is dropped
+		assertThat(rows).extracting(AlignedSensorRowDTO::getDeviceId).containsExactly(1L, 1L, 2L, 2L);
+		assertThat(rows).extracting(AlignedSensorRowDTO::getBucket)
+				.containsExactly(start, start.plusSeconds(60), start, start.plusSeconds(60));
+		assertThat(rows).extracting(AlignedSensorRowDTO::getValues).containsExactly(
+				Arrays.asList(10.0, null), Arrays.asList(null, null),
+				Arrays.asList(null, null), Arrays.asList(21.0, 35.0));
+	}
+
+	private List<AlignedSensorRowDTO> align(List<Long> deviceIds, List<String> sensorTypes, SensorSeriesAligner.FillStrategy fill) {
+		return aligner.align(buckets, deviceIds, sensorTypes, start, 60_000, 7, fill);
+	}
+
+	private static List<Double> column(List<AlignedSensorRowDTO> rows, int column) {
+		return rows.stream().map(row -> row.getValues().get(column)).toList();
+	}
+}